@@ -26,7 +26,8 @@ import com.google.inject.Singleton;
 import com.maxrunsoftware.jezel.action.CommandParameter;
 import com.maxrunsoftware.jezel.model.SchedulerAction;
 import com.maxrunsoftware.jezel.service.SettingServiceEnvironment;
-import com.maxrunsoftware.jezel.web.DataService;
+import com.maxrunsoftware.jezel.web.DataServiceLocal;
+import com.maxrunsoftware.jezel.web.DataServiceRest;
 import com.maxrunsoftware.jezel.web.RestClient;
 import com.maxrunsoftware.jezel.web.WebServer;
 
@@ -36,12 +37,23 @@ public class App {
 	private final WebService webServer;
 	private final SettingService settings;
 	private final SchedulerService scheduler;
+	private final RetentionService retention;
+	private final LogSearchService logSearch;
+	private final StatsService stats;
+	private final LogStoreService logStore;
+	private final DatabaseService db;
+	private boolean stopped;
 
 	@Inject
-	public App(WebService webServer, SettingService settings, SchedulerService scheduler) {
+	public App(WebService webServer, SettingService settings, SchedulerService scheduler, RetentionService retention, LogSearchService logSearch, StatsService stats, LogStoreService logStore, DatabaseService db) {
 		this.webServer = checkNotNull(webServer);
 		this.settings = checkNotNull(settings);
 		this.scheduler = checkNotNull(scheduler);
+		this.retention = checkNotNull(retention);
+		this.logSearch = checkNotNull(logSearch);
+		this.stats = checkNotNull(stats);
+		this.logStore = checkNotNull(logStore);
+		this.db = checkNotNull(db);
 
 		var map = settings.toMap();
 		for (var key : map.keySet()) {
@@ -63,48 +75,77 @@ public class App {
 
 		if (serverType.equalsIgnoreCase("web")) {
 			var settings = new SettingServiceEnvironment();
-			var webServer = new WebServer(settings, new DataService(new RestClient(settings)));
+			var webServer = new WebServer(settings, new DataServiceRest(settings, new RestClient(settings)));
 			try {
 				webServer.start(true);
 			} catch (Exception e) {
 				LOG.error("Error in Web server", e);
 			}
 		} else if (serverType.equalsIgnoreCase("rest")) {
-			var module = new AbstractModule() {
-				@SuppressWarnings("unchecked")
-				@Override
-				protected void configure() {
-					for (var bnd : Constant.BINDS) {
-						if (bnd.singleton()) {
-							bind(bnd.classInterface()).to(bnd.classImplementation()).in(Singleton.class);
-						} else {
-							bind(bnd.classInterface()).to(bnd.classImplementation());
-						}
-					}
-				}
-			};
-			Constant.setInjector(Guice.createInjector(module));
+			initializeInjector();
 
 			var app = Constant.getInstance(App.class);
 
-			app.run(args);
+			app.run(args, null);
+
+		} else if (serverType.equalsIgnoreCase("all")) {
+			initializeInjector();
+
+			// the web UI shares this process so it reads and writes through the services directly instead of over HTTP
+			var data = new DataServiceLocal(Constant.getInstance(SettingService.class), Constant.getInstance(DatabaseService.class), Constant.getInstance(SchedulerService.class), Constant.getInstance(LogStoreService.class), Constant.getInstance(StatsService.class));
+			var webServer = new WebServer(Constant.getInstance(SettingService.class), data);
+			try {
+				webServer.start(false);
+			} catch (Exception e) {
+				LOG.error("Error in Web server", e);
+				return;
+			}
+
+			var app = Constant.getInstance(App.class);
+
+			app.run(args, webServer);
 
 		} else {
-			LOG.error("Valid server types are WEB or REST");
+			LOG.error("Valid server types are WEB, REST or ALL");
 		}
 
 	}
 
-	private void run(String[] args) {
+	private static void initializeInjector() {
+		var module = new AbstractModule() {
+			@SuppressWarnings("unchecked")
+			@Override
+			protected void configure() {
+				for (var bnd : Constant.BINDS) {
+					if (bnd.singleton()) {
+						bind(bnd.classInterface()).to(bnd.classImplementation()).in(Singleton.class);
+					} else {
+						bind(bnd.classInterface()).to(bnd.classImplementation());
+					}
+				}
+			}
+		};
+		Constant.setInjector(Guice.createInjector(module));
+	}
+
+	/**
+	 * @param ui the web UI sharing this process, stopped with the REST server, or null
+	 */
+	private void run(String[] args, WebServer ui) {
 		try {
 			CommandParameter.initializeConfigurationItems();
 			SchedulerAction.syncAllParametersToCommand();
-			RandomData.populateDb();
+			if (settings.getDatabaseMemory()) RandomData.populateDb();
 
 			var webjoinThread = settings.getRestJoinThread();
+			// a signal ends the process without returning here, the hook still closes everything
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(ui), "Shutdown"));
 
+			logSearch.start();
+			stats.start();
 			scheduler.start(webjoinThread);
 			scheduler.syncAll();
+			retention.start();
 
 			webServer.start(webjoinThread);
 
@@ -115,12 +156,30 @@ public class App {
 					if (Util.equalsAnyIgnoreCase(input, "q", "quit", "exit")) break;
 				}
 			}
-			webServer.stop();
-			scheduler.stop();
+			stop(ui);
 		} catch (Exception e) {
 			LOG.error("Error in REST server", e);
 		}
 
 	}
 
+	/**
+	 * Stops the servers and closes the services once, a second caller waits for the first to finish.
+	 */
+	private synchronized void stop(WebServer ui) {
+		if (stopped) return;
+		stopped = true;
+		try {
+			if (ui != null) ui.stop();
+			webServer.stop();
+			retention.stop();
+			scheduler.stop();
+			logSearch.close();
+			logStore.close();
+			db.close();
+		} catch (Exception e) {
+			LOG.error("Error stopping", e);
+		}
+	}
+
 }
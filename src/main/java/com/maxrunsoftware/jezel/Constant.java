@@ -21,26 +21,45 @@ import com.google.inject.Injector;
 import com.maxrunsoftware.jezel.action.Command;
 import com.maxrunsoftware.jezel.action.SqlQuery;
 import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
 import com.maxrunsoftware.jezel.model.CommandLogJob;
 import com.maxrunsoftware.jezel.model.CommandLogMessage;
 import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.RunStatBackfill;
 import com.maxrunsoftware.jezel.model.SchedulerAction;
 import com.maxrunsoftware.jezel.model.SchedulerActionParameter;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
 import com.maxrunsoftware.jezel.model.SchedulerSchedule;
 import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+import com.maxrunsoftware.jezel.service.EventServiceMemory;
+import com.maxrunsoftware.jezel.service.FailureServiceSql;
+import com.maxrunsoftware.jezel.service.LogSearchServiceIndex;
+import com.maxrunsoftware.jezel.service.LogStoreServiceSegment;
+import com.maxrunsoftware.jezel.service.LogTailServiceMemory;
+import com.maxrunsoftware.jezel.service.RetentionServiceSql;
 import com.maxrunsoftware.jezel.service.SchedulerServiceQuartz;
 import com.maxrunsoftware.jezel.service.SettingServiceEnvironment;
+import com.maxrunsoftware.jezel.service.StatsServiceSql;
 import com.maxrunsoftware.jezel.service.WebServiceJetty;
 import com.maxrunsoftware.jezel.service.WebServiceJettyBearerMemory;
+import com.maxrunsoftware.jezel.view.BatchServlet;
+import com.maxrunsoftware.jezel.view.CommandLogExportServlet;
+import com.maxrunsoftware.jezel.view.CommandLogFailureServlet;
 import com.maxrunsoftware.jezel.view.CommandLogJobServlet;
+import com.maxrunsoftware.jezel.view.CommandLogSearchServlet;
+import com.maxrunsoftware.jezel.view.CommandLogTailServlet;
 import com.maxrunsoftware.jezel.view.ConfigurationItemServlet;
+import com.maxrunsoftware.jezel.view.EventServlet;
 import com.maxrunsoftware.jezel.view.HomeServlet;
+import com.maxrunsoftware.jezel.view.MetricsServlet;
 import com.maxrunsoftware.jezel.view.SchedulerActionParameterServlet;
 import com.maxrunsoftware.jezel.view.SchedulerActionServlet;
 import com.maxrunsoftware.jezel.view.SchedulerJobServlet;
+import com.maxrunsoftware.jezel.view.SchedulerJobSummaryServlet;
 import com.maxrunsoftware.jezel.view.SchedulerScheduleServlet;
 import com.maxrunsoftware.jezel.view.SessionServlet;
+import com.maxrunsoftware.jezel.view.StatsServlet;
 
 import jakarta.servlet.Servlet;
 
@@ -56,6 +75,7 @@ public class Constant {
 			"org.quartz",
 			"org.hibernate",
 			"com.mchange",
+			"org.flywaydb",
 			"org.jboss"
 
 	);
@@ -64,11 +84,20 @@ public class Constant {
 			new Page(HomeServlet.class, "/*"),
 			new Page(SessionServlet.class, "/session"),
 			new Page(SchedulerJobServlet.class, "/job"),
+			new Page(SchedulerJobSummaryServlet.class, "/job/summary"),
 			new Page(SchedulerScheduleServlet.class, "/job/schedule"),
 			new Page(SchedulerActionServlet.class, "/job/action"),
 			new Page(SchedulerActionParameterServlet.class, "/job/action/parameter"),
 			new Page(CommandLogJobServlet.class, "/log/job"),
-			new Page(ConfigurationItemServlet.class, "/config")
+			new Page(CommandLogTailServlet.class, "/log/job/tail"),
+			new Page(CommandLogSearchServlet.class, "/log/search"),
+			new Page(CommandLogFailureServlet.class, "/log/failure"),
+			new Page(CommandLogExportServlet.class, "/log/export"),
+			new Page(StatsServlet.class, "/stats"),
+			new Page(ConfigurationItemServlet.class, "/config"),
+			new Page(MetricsServlet.class, "/metrics"),
+			new Page(BatchServlet.class, "/batch"),
+			new Page(EventServlet.class, "/events")
 
 	);
 
@@ -91,7 +120,10 @@ public class Constant {
 			CommandLogJob.class,
 			CommandLogAction.class,
 			CommandLogMessage.class,
-			ConfigurationItem.class
+			CommandLogFailure.class,
+			ConfigurationItem.class,
+			RunStat.class,
+			RunStatBackfill.class
 
 	);
 
@@ -103,7 +135,14 @@ public class Constant {
 			new InjectorBind(WebService.class, WebServiceJetty.class, true),
 			new InjectorBind(DatabaseService.class, DatabaseServiceH2.class, true),
 			new InjectorBind(SchedulerService.class, SchedulerServiceQuartz.class, true),
-			new InjectorBind(BearerService.class, WebServiceJettyBearerMemory.class, true)
+			new InjectorBind(BearerService.class, WebServiceJettyBearerMemory.class, true),
+			new InjectorBind(EventService.class, EventServiceMemory.class, true),
+			new InjectorBind(LogTailService.class, LogTailServiceMemory.class, true),
+			new InjectorBind(RetentionService.class, RetentionServiceSql.class, true),
+			new InjectorBind(LogStoreService.class, LogStoreServiceSegment.class, true),
+			new InjectorBind(LogSearchService.class, LogSearchServiceIndex.class, true),
+			new InjectorBind(StatsService.class, StatsServiceSql.class, true),
+			new InjectorBind(FailureService.class, FailureServiceSql.class, true)
 
 	);
 
@@ -161,10 +200,19 @@ public class Constant {
 
 	);
 
+	// prefix of the cache regions, one per entity type that also holds the collections of that type
+	public static final String CACHE_REGION_DEFINITION = "definition.";
+
+	public static final String WEB_ASSETS = "/assets";
+
 	public static final String CONTENTTYPE_TEXT = "text/plain; charset=UTF-8";
 	public static final String CONTENTTYPE_JSON = "application/json; charset=UTF-8";
 	public static final String CONTENTTYPE_BINARY = "application/octet-stream";
+	public static final String CONTENTTYPE_GZIP = "application/gzip";
 	public static final String CONTENTTYPE_HTML = "text/html; charset=UTF-8";
+	public static final String CONTENTTYPE_CSS = "text/css; charset=UTF-8";
+	public static final String CONTENTTYPE_JAVASCRIPT = "text/javascript; charset=UTF-8";
+	public static final String CONTENTTYPE_EVENT_STREAM = "text/event-stream; charset=UTF-8";
 	public static final String ENCODING_UTF8 = "UTF-8";
 
 	public static final String STYLE_FONT_MONO = "font-family:Consolas,Monaco,Lucida Console,Liberation Mono,DejaVu Sans Mono,Bitstream Vera Sans Mono,Courier New, monospace;";
@@ -16,9 +16,13 @@
 package com.maxrunsoftware.jezel;
 
 import java.io.Closeable;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
@@ -26,6 +30,42 @@ import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 public interface DatabaseService extends Closeable {
 	public Session openSession();
 
+	/**
+	 * Session without a persistence context, for reading through large results without holding on to what was read.
+	 */
+	public StatelessSession openStatelessSession();
+
+	/**
+	 * Opens a session and runs the work as a single unit of work, committing once at the end.
+	 */
+	public default void inTransaction(Consumer<Session> work) {
+		try (var session = openSession()) {
+			Util.inTransaction(session, work);
+		}
+	}
+
+	public default <T> T inTransactionGet(Function<Session, T> work) {
+		try (var session = openSession()) {
+			return Util.inTransactionGet(session, work);
+		}
+	}
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+
+	/**
+	 * Version counter of the ConfigurationItems, bumped after every committed change. -1 if not tracked.
+	 */
+	public default long getConfigurationRevision() {
+		return -1;
+	}
+
+	/**
+	 * Drops the second-level cache entries of the entity classes and of the cached collections that own or hold them.
+	 */
+	public default void evictCache(Class<?>... entityClasses) {}
+
 	public static class Impl implements DatabaseService {
 		private StandardServiceRegistry registry;
 		private SessionFactory sessionFactory;
@@ -55,6 +95,11 @@ public interface DatabaseService extends Closeable {
 			return getSessionFactory().openSession();
 		}
 
+		@Override
+		public StatelessSession openStatelessSession() {
+			return getSessionFactory().openStatelessSession();
+		}
+
 		@Override
 		public void close() {
 			if (registry != null) { StandardServiceRegistryBuilder.destroy(registry); }
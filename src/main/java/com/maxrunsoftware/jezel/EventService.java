@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonObject;
+
+/**
+ * In-process bus of job run and scheduler state changes, streamed to clients by /events.
+ */
+public interface EventService {
+	public static final String JOB_STARTED = "job.started";
+	public static final String JOB_FINISHED = "job.finished";
+	public static final String ACTION_STARTED = "action.started";
+	public static final String ACTION_ENDED = "action.ended";
+	public static final String LOG_MESSAGE = "log.message";
+	public static final String SCHEDULE_CHANGED = "schedule.changed";
+
+	public static record Event(long id, String type, JsonObject data) {}
+
+	public static interface Subscription extends Closeable {
+		/**
+		 * @return the next event or null if none arrived within the timeout
+		 */
+		public Event poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+		/**
+		 * True once events were dropped because the subscriber fell behind or resumed from an event no longer kept,
+		 * the subscriber should reload instead of trusting the stream. Reading it clears it.
+		 */
+		public boolean takeMissed();
+
+		@Override
+		public void close();
+	}
+
+	public void publish(String type, JsonObject data);
+
+	/**
+	 * @param lastEventId resume after this event, null for only new events
+	 * @return null if there are already too many subscribers
+	 */
+	public Subscription subscribe(Long lastEventId);
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Groups the exceptions logged by runs into CommandLogFailures so a failure that repeats every run stores its stack
+ * trace once.
+ */
+public interface FailureService {
+
+	/**
+	 * Counts an occurrence of the exception, returning the id of its CommandLogFailure or null if it could not be
+	 * recorded.
+	 */
+	public Integer record(Throwable exception, int commandLogJobId, LocalDateTime timestamp);
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
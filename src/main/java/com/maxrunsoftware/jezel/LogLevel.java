@@ -16,5 +16,21 @@
 package com.maxrunsoftware.jezel;
 
 public enum LogLevel {
-	TRACE, DEBUG, INFO, WARN, ERROR
+	TRACE, DEBUG, INFO, WARN, ERROR;
+
+	public boolean isAtLeast(LogLevel minimum) {
+		return minimum == null || compareTo(minimum) >= 0;
+	}
+
+	/**
+	 * Case insensitive name lookup, null if the value is empty or not a level.
+	 */
+	public static LogLevel parse(String value) {
+		value = Util.trimOrNull(value);
+		if (value == null) return null;
+		for (var level : values()) {
+			if (level.name().equalsIgnoreCase(value)) return level;
+		}
+		return null;
+	}
 }
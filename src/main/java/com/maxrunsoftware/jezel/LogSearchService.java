@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+/**
+ * Full-text index over the message and exception of CommandLogMessages together with their CommandLogJob, level and
+ * timestamp. Hits are returned newest first and paged by passing the cursor of the last hit as 'before'.
+ */
+public interface LogSearchService extends Closeable {
+
+	/**
+	 * @param text words that must all occur, a trailing '*' matches words starting with the given text
+	 * @param level minimum level, null for all
+	 * @param before only hits older than this cursor, null for the newest
+	 */
+	public record Query(String text, Integer commandLogJobId, LogLevel level, LocalDateTime from, LocalDateTime to, Integer before, int limit) {}
+
+	public record Hit(int cursor, int commandLogMessageId, int commandLogJobId, int commandLogActionId, LogLevel level, LocalDateTime timestamp) {}
+
+	public boolean isEnabled();
+
+	/**
+	 * Indexes CommandLogMessages written while the index was not running, call before the scheduler starts.
+	 */
+	public void start();
+
+	/**
+	 * Indexes a CommandLogMessage once it has its commandLogMessageId.
+	 */
+	public void add(int commandLogJobId, int commandLogActionId, CommandLogMessage commandLogMessage);
+
+	public List<Hit> search(Query query);
+
+	/**
+	 * Removes purged CommandLogJobs from the results.
+	 */
+	public void delete(Collection<Integer> commandLogJobIds);
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
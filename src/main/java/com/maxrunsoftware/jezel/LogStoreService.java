@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+/**
+ * Store of CommandLogMessages outside of the database. CommandLogActions written to it carry the segment pointers, the
+ * database keeps only the CommandLogJob and CommandLogAction rows.
+ */
+public interface LogStoreService extends Closeable {
+
+	/**
+	 * True if new CommandLogMessages are written to this store instead of the database.
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Marks a new CommandLogAction as stored here, call before it is saved.
+	 */
+	public void begin(CommandLogAction commandLogAction);
+
+	/**
+	 * Writes the CommandLogMessage and sets its commandLogMessageId.
+	 */
+	public void append(int commandLogActionId, CommandLogMessage commandLogMessage);
+
+	/**
+	 * Sets the final segment pointers on the CommandLogAction, call before it is saved with its end.
+	 */
+	public void finish(CommandLogAction commandLogAction);
+
+	/**
+	 * CommandLogMessages of a CommandLogAction stored here, empty if it was written to the database.
+	 */
+	public List<CommandLogMessage> read(CommandLogAction commandLogAction);
+
+	/**
+	 * Loads the stored CommandLogMessages into the CommandLogActions so toJson includes them.
+	 */
+	public default void attach(Collection<CommandLogJob> commandLogJobs) {
+		for (var commandLogJob : commandLogJobs) {
+			for (var commandLogAction : commandLogJob.getCommandLogActions()) {
+				if (commandLogAction.getLogIndex() != null) commandLogAction.setCommandLogMessagesStored(read(commandLogAction));
+			}
+		}
+	}
+
+	/**
+	 * Deletes full segments older than the given one, null if no CommandLogAction points into the store anymore.
+	 */
+	public void deleteBefore(Integer segment);
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonObject;
+
+/**
+ * Recent CommandLogMessages of running CommandLogJobs kept in memory so /log/job/tail can answer without the database.
+ */
+public interface LogTailService {
+
+	public static record Tail(List<JsonObject> commandLogMessages, boolean finished) {}
+
+	public void started(int commandLogJobId);
+
+	public void append(int commandLogJobId, int commandLogMessageId, JsonObject commandLogMessage);
+
+	public void finished(int commandLogJobId);
+
+	/**
+	 * Waits up to timeoutMillis for a CommandLogMessage newer than afterCommandLogMessageId unless the run has finished.
+	 *
+	 * @return null if the run is not buffered or messages after afterCommandLogMessageId were already evicted
+	 */
+	public Tail tail(int commandLogJobId, int afterCommandLogMessageId, long timeoutMillis) throws InterruptedException;
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
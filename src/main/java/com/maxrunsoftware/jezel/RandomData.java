@@ -28,57 +28,57 @@ import com.maxrunsoftware.jezel.model.SchedulerSchedule;
 
 public class RandomData {
 	public static void populateDb(Session session) {
-		for (int i = 0; i < randomInt(8, 10); i++) {
-			var j = new SchedulerJob();
-			j.setName(randomPick(Constant.NOUNS));
-			j.setGroup(randomPick("group1", "group2", "group3"));
-			j.setDisabled(randomBoolean());
-			j = getById(SchedulerJob.class, session, save(session, j));
+		inTransaction(session, s -> {
+			for (int i = 0; i < randomInt(8, 10); i++) {
+				var j = new SchedulerJob();
+				j.setName(randomPick(Constant.NOUNS));
+				j.setGroup(randomPick("group1", "group2", "group3"));
+				j.setDisabled(randomBoolean());
+				j = getById(SchedulerJob.class, s, save(s, j));
 
-			for (int ii = 0; ii < randomInt(3, 5); ii++) {
-				var s = new SchedulerSchedule();
-				s.setDays(true, randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean());
-				s.setTime(randomInt(0, 23), randomInt(0, 59));
-				s.setDisabled(randomBoolean());
-				s.setSchedulerJob(j);
-				save(session, s);
-			}
-			for (int ii = 0; ii < 3; ii++) {
-				var s = new SchedulerSchedule();
-				s.setDays(true, true, true, true, true, true, true);
-				s.setTime(LocalDateTime.now().getHour(), LocalDateTime.now().getMinute() + ii);
-				s.setDisabled(false);
-				s.setSchedulerJob(j);
-				save(session, s);
-			}
+				for (int ii = 0; ii < randomInt(3, 5); ii++) {
+					var schedule = new SchedulerSchedule();
+					schedule.setDays(true, randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean());
+					schedule.setTime(randomInt(0, 23), randomInt(0, 59));
+					schedule.setDisabled(randomBoolean());
+					schedule.setSchedulerJob(j);
+					save(s, schedule);
+				}
+				for (int ii = 0; ii < 3; ii++) {
+					var schedule = new SchedulerSchedule();
+					schedule.setDays(true, true, true, true, true, true, true);
+					schedule.setTime(LocalDateTime.now().getHour(), LocalDateTime.now().getMinute() + ii);
+					schedule.setDisabled(false);
+					schedule.setSchedulerJob(j);
+					save(s, schedule);
+				}
+
+				for (int ii = 0; ii < randomInt(3, 5); ii++) {
+					var a = new SchedulerAction();
+					a.setName("SqlQuery");
+					a.setDescription(randomPick(Constant.NOUNS));
+					a.setDisabled(randomBoolean());
+					a.setSchedulerJob(j);
+					a.setIndex(ii);
+					a = getById(SchedulerAction.class, s, save(s, a));
 
-			for (int ii = 0; ii < randomInt(3, 5); ii++) {
-				var a = new SchedulerAction();
-				a.setName("SqlQuery");
-				a.setDescription(randomPick(Constant.NOUNS));
-				a.setDisabled(randomBoolean());
-				a.setSchedulerJob(j);
-				a.setIndex(ii);
-				a = getById(SchedulerAction.class, session, save(session, a));
+					for (int iii = 0; iii < randomInt(5, 8); iii++) {
+						var ap = new SchedulerActionParameter();
+						ap.setName(randomPick(Constant.NOUNS));
+						ap.setValue(randomPick(Constant.NOUNS));
+						ap.setSchedulerAction(a);
+						save(s, ap);
+					}
 
-				for (int iii = 0; iii < randomInt(5, 8); iii++) {
-					var ap = new SchedulerActionParameter();
-					ap.setName(randomPick(Constant.NOUNS));
-					ap.setValue(randomPick(Constant.NOUNS));
-					ap.setSchedulerAction(a);
-					save(session, a);
 				}
 
 			}
 
-		}
-
+		});
 	}
 
 	public static void populateDb(DatabaseService db) {
-		try (var session = db.openSession()) {
-			populateDb(session);
-		}
+		db.inTransaction(RandomData::populateDb);
 	}
 
 	public static void populateDb() {
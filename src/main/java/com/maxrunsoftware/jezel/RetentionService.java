@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.util.Map;
+
+/**
+ * Purges finished CommandLogJobs with their CommandLogActions and CommandLogMessages by age, by count per SchedulerJob
+ * and by total message size. Each limit is off by default, with none set nothing is purged.
+ */
+public interface RetentionService {
+	public void start();
+
+	public void stop();
+
+	/**
+	 * Applies the retention policies now.
+	 *
+	 * @return the number of CommandLogJobs purged
+	 */
+	public int purge();
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
@@ -15,12 +15,21 @@
  */
 package com.maxrunsoftware.jezel;
 
+import java.util.Map;
+
 public interface SchedulerService {
 	public void start(boolean joinThread) throws Exception;
 
 	public void stop() throws Exception;
 
+	/**
+	 * Brings the scheduler in line with the SchedulerJob in the database. Implementations may apply it asynchronously.
+	 */
 	public void sync(int schedulerJobId);
 
 	public void syncAll();
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
 }
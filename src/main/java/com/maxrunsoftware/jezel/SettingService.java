@@ -81,18 +81,311 @@ public interface SettingService {
 		return getEnvironmentVariable("JEZEL_RestShowRest", true);
 	}
 
+	public default int getRestBatchMaxOperations() {
+		return getEnvironmentVariable("JEZEL_RestBatchMaxOperations", 200);
+	}
+
+	public default boolean getRestCompression() {
+		return getEnvironmentVariable("JEZEL_RestCompression", true);
+	}
+
+	/**
+	 * Smallest response in bytes that gets gzip compressed.
+	 */
+	public default int getRestCompressionMinSize() {
+		return getEnvironmentVariable("JEZEL_RestCompressionMinSize", 1024);
+	}
+
+	/**
+	 * Comma separated content types that get gzip compressed.
+	 */
+	public default String getRestCompressionMimeTypes() {
+		return getEnvironmentVariable("JEZEL_RestCompressionMimeTypes", "application/json,text/html,text/plain,text/css,text/javascript");
+	}
+
+	/**
+	 * Also accept cleartext HTTP/2 (h2c), by prior knowledge or upgrade, on the same port.
+	 */
+	public default boolean getRestHttp2() {
+		return getEnvironmentVariable("JEZEL_RestHttp2", false);
+	}
+
+	/**
+	 * Connector acceptor threads, -1 lets Jetty pick based on CPU count.
+	 */
+	public default int getRestAcceptors() {
+		return getEnvironmentVariable("JEZEL_RestAcceptors", -1);
+	}
+
+	/**
+	 * Connector selector threads, -1 lets Jetty pick based on CPU count.
+	 */
+	public default int getRestSelectors() {
+		return getEnvironmentVariable("JEZEL_RestSelectors", -1);
+	}
+
+	public default int getRestOutputBufferSize() {
+		return getEnvironmentVariable("JEZEL_RestOutputBufferSize", 32768);
+	}
+
 	public default int getSchedulerThreads() {
 		return getEnvironmentVariable("JEZEL_SchedulerThreads", 10);
 	}
 
+	/**
+	 * Milliseconds a requested scheduler sync waits so repeated requests for the same job are applied once.
+	 */
+	public default int getSchedulerSyncDelay() {
+		return getEnvironmentVariable("JEZEL_SchedulerSyncDelay", 250);
+	}
+
+	/**
+	 * Events kept so a reconnecting /events subscriber can resume from its Last-Event-ID.
+	 */
+	public default int getEventReplaySize() {
+		return getEnvironmentVariable("JEZEL_EventReplaySize", 1000);
+	}
+
+	/**
+	 * Events buffered per /events subscriber, a subscriber that falls further behind loses events and is told to reload.
+	 */
+	public default int getEventSubscriberBuffer() {
+		return getEnvironmentVariable("JEZEL_EventSubscriberBuffer", 256);
+	}
+
+	/**
+	 * Each /events subscriber holds a REST thread, 0 for no limit.
+	 */
+	public default int getEventMaxSubscribers() {
+		return getEnvironmentVariable("JEZEL_EventMaxSubscribers", Math.max(1, getRestMaxThreads() / 4));
+	}
+
+	/**
+	 * CommandLogMessages kept in memory per running CommandLogJob for /log/job/tail.
+	 */
+	public default int getLogTailBufferSize() {
+		return getEnvironmentVariable("JEZEL_LogTailBufferSize", 1000);
+	}
+
+	/**
+	 * Seconds a finished CommandLogJob stays in the tail buffer so clients can read its last messages.
+	 */
+	public default int getLogTailRetain() {
+		return getEnvironmentVariable("JEZEL_LogTailRetain", 60);
+	}
+
+	/**
+	 * Longest a /log/job/tail request may wait for new messages, in seconds.
+	 */
+	public default int getLogTailMaxWait() {
+		return getEnvironmentVariable("JEZEL_LogTailMaxWait", 30);
+	}
+
+	/**
+	 * Minutes between retention purges of finished CommandLogJobs, 0 to disable. Purging is opt-in, nothing is deleted
+	 * unless at least one of the age, count or size limits is set.
+	 */
+	public default int getRetentionInterval() {
+		return getEnvironmentVariable("JEZEL_RetentionInterval", 60);
+	}
+
+	/**
+	 * Finished CommandLogJobs older than this are purged, 0 (the default) to keep regardless of age.
+	 */
+	public default int getRetentionMaxAgeDays() {
+		return getEnvironmentVariable("JEZEL_RetentionMaxAgeDays", 0);
+	}
+
+	/**
+	 * Finished CommandLogJobs kept per SchedulerJob, 0 (the default) for no limit.
+	 */
+	public default int getRetentionMaxPerJob() {
+		return getEnvironmentVariable("JEZEL_RetentionMaxPerJob", 0);
+	}
+
+	/**
+	 * Approximate total size of CommandLogMessages kept, oldest CommandLogJobs are purged first, 0 for no limit.
+	 */
+	public default int getRetentionMaxSizeMB() {
+		return getEnvironmentVariable("JEZEL_RetentionMaxSizeMB", 0);
+	}
+
+	/**
+	 * CommandLogJobs deleted per transaction.
+	 */
+	public default int getRetentionChunkSize() {
+		return getEnvironmentVariable("JEZEL_RetentionChunkSize", 200);
+	}
+
+	/**
+	 * Milliseconds between delete chunks so other writers get the tables in between.
+	 */
+	public default int getRetentionChunkPause() {
+		return getEnvironmentVariable("JEZEL_RetentionChunkPause", 100);
+	}
+
+	/**
+	 * CommandLogMessage text of at least this many bytes is stored compressed.
+	 */
+	public default int getLogCompressThreshold() {
+		return getEnvironmentVariable("JEZEL_LogCompressThreshold", 1024);
+	}
+
+	/**
+	 * Longer CommandLogMessage text is truncated to this many characters, 0 to keep everything.
+	 */
+	public default int getLogMaxLength() {
+		return getEnvironmentVariable("JEZEL_LogMaxLength", 1024 * 1024);
+	}
+
+	/**
+	 * Where new CommandLogMessages are written, "database" or "segment" for append-only segment files.
+	 */
+	public default String getLogStore() {
+		return getEnvironmentVariable("JEZEL_LogStore", "database");
+	}
+
+	/**
+	 * Directory of the segment files, defaults to the database path with a -logs suffix.
+	 */
+	public default String getLogStoreDir() {
+		return getEnvironmentVariable("JEZEL_LogStoreDir");
+	}
+
+	/**
+	 * Size in MB after which a new segment file is started.
+	 */
+	public default int getLogStoreSegmentSize() {
+		return getEnvironmentVariable("JEZEL_LogStoreSegmentSize", 64);
+	}
+
+	/**
+	 * Minimum persisted CommandLogMessage level for jobs and actions that do not set their own.
+	 */
+	public default String getLogLevel() {
+		return getEnvironmentVariable("JEZEL_LogLevel", "TRACE");
+	}
+
+	/**
+	 * Whether CommandLogMessages are added to the full-text search index.
+	 */
+	public default boolean getLogSearch() {
+		return getEnvironmentVariable("JEZEL_LogSearch", true);
+	}
+
+	/**
+	 * Directory of the search index files, defaults to the database path with a -search suffix.
+	 */
+	public default String getLogSearchDir() {
+		return getEnvironmentVariable("JEZEL_LogSearchDir");
+	}
+
+	/**
+	 * CommandLogMessages held in memory before they are written as a new index segment.
+	 */
+	public default int getLogSearchFlushSize() {
+		return getEnvironmentVariable("JEZEL_LogSearchFlushSize", 10000);
+	}
+
+	/**
+	 * Days hourly run rollups are kept.
+	 */
+	public default int getStatsHourlyDays() {
+		return getEnvironmentVariable("JEZEL_StatsHourlyDays", 14);
+	}
+
+	/**
+	 * Days daily run rollups are kept.
+	 */
+	public default int getStatsDailyDays() {
+		return getEnvironmentVariable("JEZEL_StatsDailyDays", 400);
+	}
+
 	public default String getDatabaseDir() {
 		return getEnvironmentVariable("JEZEL_DatabaseDir", "mem");
 	}
 
+	public default boolean getDatabaseMemory() {
+		var directory = trimOrNull(getDatabaseDir());
+		return directory == null || directory.equalsIgnoreCase("mem") || directory.equalsIgnoreCase("memory");
+	}
+
+	/**
+	 * MVStore page cache in KB, file mode only.
+	 */
+	public default int getDatabaseCacheSize() {
+		return getEnvironmentVariable("JEZEL_DatabaseCacheSize", 32768);
+	}
+
+	/**
+	 * Milliseconds committed changes may wait before being written to disk, file mode only.
+	 */
+	public default int getDatabaseWriteDelay() {
+		return getEnvironmentVariable("JEZEL_DatabaseWriteDelay", 500);
+	}
+
+	/**
+	 * Rewrites the whole database file without its free space when the server stops, off by default since it takes a
+	 * while for a large database.
+	 */
+	public default boolean getDatabaseCompactOnClose() {
+		return getEnvironmentVariable("JEZEL_DatabaseCompactOnClose", false);
+	}
+
 	public default boolean getDatabaseShowSql() {
 		return getEnvironmentVariable("JEZEL_DatabaseShowSql", false);
 	}
 
+	public default boolean getDatabaseStatistics() {
+		return getEnvironmentVariable("JEZEL_DatabaseStatistics", false);
+	}
+
+	public default boolean getDatabaseEntityCache() {
+		return getEnvironmentVariable("JEZEL_DatabaseEntityCache", true);
+	}
+
+	/**
+	 * Maximum number of entries of each of job, schedule, action, parameter and configuration held in the second-level cache.
+	 */
+	public default int getDatabaseEntityCacheEntries() {
+		return getEnvironmentVariable("JEZEL_DatabaseEntityCacheEntries", 10000);
+	}
+
+	public default int getDatabasePoolMinSize() {
+		return getEnvironmentVariable("JEZEL_DatabasePoolMinSize", 2);
+	}
+
+	/**
+	 * Every scheduler thread may hold a connection while logging, REST threads mostly wait on the network so only a
+	 * share of them needs one at the same time.
+	 */
+	public default int getDatabasePoolMaxSize() {
+		return getEnvironmentVariable("JEZEL_DatabasePoolMaxSize", getSchedulerThreads() + Math.max(1, getRestMaxThreads() / 4));
+	}
+
+	public default int getDatabasePoolAcquireTimeout() {
+		return getEnvironmentVariable("JEZEL_DatabasePoolAcquireTimeout", 30);
+	}
+
+	/**
+	 * Seconds after which a connection that was not returned is reclaimed, 0 (the default) never reclaims. Long running
+	 * reads such as the log export legitimately hold a connection, so only set this while looking for a leak.
+	 */
+	public default int getDatabasePoolLeakTimeout() {
+		return getEnvironmentVariable("JEZEL_DatabasePoolLeakTimeout", 0);
+	}
+
+	/**
+	 * Logs where a reclaimed connection was checked out, captures a stack trace on every checkout.
+	 */
+	public default boolean getDatabasePoolLeakStackTraces() {
+		return getEnvironmentVariable("JEZEL_DatabasePoolLeakStackTraces", false);
+	}
+
+	public default int getDatabaseBatchSize() {
+		return getEnvironmentVariable("JEZEL_DatabaseBatchSize", 50);
+	}
+
 	public default int getWebPort() {
 		return getEnvironmentVariable("JEZEL_WebPort", getRestPort() + 1);
 	}
@@ -113,6 +406,79 @@ public interface SettingService {
 		return getEnvironmentVariable("JEZEL_WebJoinThread", true);
 	}
 
+	public default boolean getWebCompression() {
+		return getEnvironmentVariable("JEZEL_WebCompression", getRestCompression());
+	}
+
+	public default int getWebCompressionMinSize() {
+		return getEnvironmentVariable("JEZEL_WebCompressionMinSize", getRestCompressionMinSize());
+	}
+
+	public default String getWebCompressionMimeTypes() {
+		return getEnvironmentVariable("JEZEL_WebCompressionMimeTypes", getRestCompressionMimeTypes());
+	}
+
+	public default boolean getWebHttp2() {
+		return getEnvironmentVariable("JEZEL_WebHttp2", getRestHttp2());
+	}
+
+	public default int getWebAcceptors() {
+		return getEnvironmentVariable("JEZEL_WebAcceptors", getRestAcceptors());
+	}
+
+	public default int getWebSelectors() {
+		return getEnvironmentVariable("JEZEL_WebSelectors", getRestSelectors());
+	}
+
+	public default int getWebOutputBufferSize() {
+		return getEnvironmentVariable("JEZEL_WebOutputBufferSize", getRestOutputBufferSize());
+	}
+
+	public default int getWebRestMaxConnections() {
+		return getEnvironmentVariable("JEZEL_WebRestMaxConnections", getWebMaxThreads());
+	}
+
+	public default int getWebRestMaxConnectionsPerRoute() {
+		return getEnvironmentVariable("JEZEL_WebRestMaxConnectionsPerRoute", getWebRestMaxConnections());
+	}
+
+	public default int getWebRestConnectTimeout() {
+		return getEnvironmentVariable("JEZEL_WebRestConnectTimeout", 10);
+	}
+
+	public default int getWebRestResponseTimeout() {
+		return getEnvironmentVariable("JEZEL_WebRestResponseTimeout", 60);
+	}
+
+	/**
+	 * Seconds a pooled connection to the REST server may sit unused before it is closed.
+	 */
+	public default int getWebRestIdleTimeout() {
+		return getEnvironmentVariable("JEZEL_WebRestIdleTimeout", 30);
+	}
+
+	/**
+	 * GET responses kept by RestClient with their ETag so a repeated request can be answered by a 304, 0 disables.
+	 */
+	public default int getWebRestETagEntries() {
+		return getEnvironmentVariable("JEZEL_WebRestETagEntries", 500);
+	}
+
+	public default int getWebDataThreads() {
+		return getEnvironmentVariable("JEZEL_WebDataThreads", 8);
+	}
+
+	/**
+	 * Milliseconds a REST read is reused by the web UI before it is fetched again, 0 disables the cache.
+	 */
+	public default int getWebDataCacheMillis() {
+		return getEnvironmentVariable("JEZEL_WebDataCacheMillis", 2000);
+	}
+
+	public default int getWebDataCacheEntries() {
+		return getEnvironmentVariable("JEZEL_WebDataCacheEntries", 500);
+	}
+
 	public default String getWebUsername() {
 		return getEnvironmentVariable("JEZEL_WebUsername", getRestUsername());
 	}
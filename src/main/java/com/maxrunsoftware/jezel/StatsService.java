@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+
+import com.maxrunsoftware.jezel.model.RunStat;
+
+/**
+ * Hourly and daily rollups of run counts, failures and durations per SchedulerJob and SchedulerAction, updated as runs
+ * end so questions about typical durations never scan the CommandLog tables.
+ */
+public interface StatsService {
+
+	/**
+	 * Builds the rollups from the CommandLogJobs that ended before runs were first recorded, resuming where a stopped
+	 * backfill left off, call before the scheduler starts.
+	 */
+	public void start();
+
+	/**
+	 * Counts a finished run of a SchedulerJob, schedulerActionId 0, or of one of its SchedulerActions.
+	 */
+	public void record(int schedulerJobId, int schedulerActionId, LocalDateTime start, LocalDateTime end, boolean failed);
+
+	/**
+	 * Buckets of the resolution starting within [from, to), see {@link RunStat#getBuckets}.
+	 */
+	public List<RunStat> getBuckets(Integer schedulerJobId, Integer schedulerActionId, String resolution, LocalDateTime from, LocalDateTime to);
+
+	/**
+	 * One merged RunStat per SchedulerJob, and per SchedulerAction when schedulerJobId is given, over the days of [from, to).
+	 */
+	public List<RunStat> getTotals(Integer schedulerJobId, LocalDateTime from, LocalDateTime to);
+
+	/**
+	 * Deletes the rollups of a SchedulerJob, joining the transaction of the session if it has one.
+	 */
+	public void delete(Session session, int schedulerJobId);
+
+	public default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+}
@@ -26,8 +26,11 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import javax.json.Json;
@@ -41,10 +44,13 @@ import javax.persistence.criteria.CriteriaQuery;
 
 import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.hibernate.Session;
+import org.hibernate.annotations.Cache;
 
 import jakarta.servlet.http.HttpServletRequest;
 
 public final class Util {
+	public static final String HINT_FETCHGRAPH = "javax.persistence.fetchgraph";
+
 	public static final String httpAuthorizationEncode(String username, String password) {
 		final var up = username + ":" + password;
 		final var encodedBytes = up.getBytes(StandardCharsets.UTF_8);
@@ -248,7 +254,9 @@ public final class Util {
 		CriteriaBuilder builder = session.getCriteriaBuilder();
 		CriteriaQuery<T> criteria = builder.createQuery(type);
 		criteria.from(type);
-		List<T> data = session.createQuery(criteria).getResultList();
+		var query = session.createQuery(criteria);
+		if (type.isAnnotationPresent(Cache.class)) query.setCacheable(true);
+		List<T> data = query.getResultList();
 		return data;
 	}
 
@@ -285,6 +293,25 @@ public final class Util {
 		return aBuilder;
 	}
 
+	public static final JsonObjectBuilder createObjectBuilder(Map<String, Object> map) {
+		var oBuilder = createObjectBuilder();
+		for (var entry : new TreeMap<>(map).entrySet()) {
+			var val = entry.getValue();
+			if (val == null) {
+				oBuilder.addNull(entry.getKey());
+			} else if (val instanceof Integer || val instanceof Long) {
+				oBuilder.add(entry.getKey(), ((Number) val).longValue());
+			} else if (val instanceof Number n) {
+				oBuilder.add(entry.getKey(), n.doubleValue());
+			} else if (val instanceof Boolean b) {
+				oBuilder.add(entry.getKey(), b);
+			} else {
+				oBuilder.add(entry.getKey(), val.toString());
+			}
+		}
+		return oBuilder;
+	}
+
 	public static final String toJsonString(JsonObjectBuilder json, boolean formatted) {
 		return toJsonString(json.build(), formatted);
 	}
@@ -311,26 +338,48 @@ public final class Util {
 		return Json.createReader(new StringReader(json)).readObject();
 	}
 
+	/**
+	 * Runs work inside a transaction on the session. If the session already has an active transaction the work joins it
+	 * and the outermost caller commits, otherwise a transaction is started, committed on success and rolled back on
+	 * failure.
+	 */
+	public static final <T> T inTransactionGet(Session session, Function<Session, T> work) {
+		var tx = session.getTransaction();
+		if (tx.isActive()) return work.apply(session);
+
+		tx.begin();
+		try {
+			var result = work.apply(session);
+			tx.commit();
+			return result;
+		} catch (RuntimeException e) {
+			if (tx.isActive()) tx.rollback();
+			throw e;
+		}
+	}
+
+	public static final void inTransaction(Session session, Consumer<Session> work) {
+		inTransactionGet(session, s -> {
+			work.accept(s);
+			return null;
+		});
+	}
+
 	public static final int save(Session session, Object obj) {
-		var tx = session.beginTransaction();
-		var result = (int) session.save(obj);
-		tx.commit();
-		return result;
+		return inTransactionGet(session, s -> (int) s.save(obj));
 	}
 
 	public static final void delete(Session session, Object obj) {
-		var tx = session.beginTransaction();
-		session.delete(obj);
-		tx.commit();
+		inTransaction(session, s -> s.delete(obj));
 	}
 
 	public static final boolean delete(Class<?> clazz, Session session, int id) {
-		var tx = session.beginTransaction();
-		var obj = session.get(clazz, id);
-		if (obj == null) return false;
-		session.delete(obj);
-		tx.commit();
-		return true;
+		return inTransactionGet(session, s -> {
+			var obj = s.get(clazz, id);
+			if (obj == null) return false;
+			s.delete(obj);
+			return true;
+		});
 	}
 
 	public static final String getFullURL(HttpServletRequest request) {
@@ -78,6 +78,11 @@ public interface CommandLog {
 		log(LogLevel.ERROR, message, exception);
 	}
 
+	/**
+	 * Whether messages of the level are persisted, so commands can skip building expensive messages.
+	 */
+	public boolean isEnabled(LogLevel level);
+
 	public void log(LogLevel level, Object message, Throwable exception);
 
 }
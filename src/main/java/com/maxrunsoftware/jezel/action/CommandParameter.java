@@ -284,22 +284,22 @@ public class CommandParameter implements JsonCodable {
 			ciHash.add(ci);
 		}
 
-		for (var cpName : cpsHash.keySet()) {
-			if (!ciHash.contains(cpName)) {
-				var cp = cpsHash.get(cpName);
-				var value = cp.getDefaultValue();
-				LOG.debug("Adding ConfigurationItem [" + cpName + "]: " + value);
-				ConfigurationItem.setValue(session, cpName, cp.getDefaultValue());
-
+		inTransaction(session, s -> {
+			for (var cpName : cpsHash.keySet()) {
+				if (!ciHash.contains(cpName)) {
+					var cp = cpsHash.get(cpName);
+					var value = cp.getDefaultValue();
+					LOG.debug("Adding ConfigurationItem [" + cpName + "]: " + value);
+					ConfigurationItem.setValue(s, cpName, cp.getDefaultValue());
+
+				}
 			}
-		}
+		});
 
 	}
 
 	public static void initializeConfigurationItems() {
-		try (var session = Constant.getInstance(DatabaseService.class).openSession()) {
-			initializeConfigurationItems(session);
-		}
+		Constant.getInstance(DatabaseService.class).inTransaction(CommandParameter::initializeConfigurationItems);
 	}
 
 }
@@ -18,8 +18,10 @@ package com.maxrunsoftware.jezel.model;
 import static com.maxrunsoftware.jezel.Util.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.json.JsonObject;
@@ -30,8 +32,10 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
 
 import com.maxrunsoftware.jezel.JsonCodable;
 
@@ -136,6 +140,64 @@ public class CommandLogAction implements JsonCodable {
 		this.index = index;
 	}
 
+	/**
+	 * Messages not persisted because they were below the minimum log level.
+	 */
+	@Column(nullable = false)
+	private int suppressedCount;
+
+	public int getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	public void setSuppressedCount(int suppressedCount) {
+		this.suppressedCount = suppressedCount;
+	}
+
+	/**
+	 * First log store segment holding messages of this action, null if the messages are in the database.
+	 */
+	@Column(nullable = true)
+	private Integer logSegment;
+
+	public Integer getLogSegment() {
+		return logSegment;
+	}
+
+	public void setLogSegment(Integer logSegment) {
+		this.logSegment = logSegment;
+	}
+
+	/**
+	 * Packed log store pointers of the messages, empty while the action runs, null if the messages are in the database.
+	 */
+	@Lob
+	@Column(nullable = true)
+	private byte[] logIndex;
+
+	public byte[] getLogIndex() {
+		return logIndex;
+	}
+
+	public void setLogIndex(byte[] logIndex) {
+		this.logIndex = logIndex;
+	}
+
+	@Transient
+	private List<CommandLogMessage> commandLogMessagesStored;
+
+	/**
+	 * Messages read from the log store, included in toJson with the ones from the database.
+	 */
+	public List<CommandLogMessage> getCommandLogMessagesStored() {
+		if (commandLogMessagesStored == null) commandLogMessagesStored = new ArrayList<CommandLogMessage>();
+		return commandLogMessagesStored;
+	}
+
+	public void setCommandLogMessagesStored(List<CommandLogMessage> commandLogMessagesStored) {
+		this.commandLogMessagesStored = commandLogMessagesStored;
+	}
+
 	@Column(length = 200, nullable = true, unique = false)
 	private String name;
 
@@ -157,11 +219,15 @@ public class CommandLogAction implements JsonCodable {
 		json.add("end", getEnd() == null ? "" : getEnd().toString());
 		json.add("index", getIndex());
 		json.add("name", coalesce(getName(), ""));
+		json.add("suppressedCount", getSuppressedCount());
 		json.add(SchedulerAction.NAME, getSchedulerAction().toJson());
 		var arrayBuilder = createArrayBuilder();
 		for (var commandLogMessage : getCommandLogMessages()) {
 			arrayBuilder.add(commandLogMessage.toJson());
 		}
+		for (var commandLogMessage : getCommandLogMessagesStored()) {
+			arrayBuilder.add(commandLogMessage.toJson());
+		}
 		json.add("commandLogMessages", arrayBuilder);
 
 		return json.build();
@@ -176,6 +242,7 @@ public class CommandLogAction implements JsonCodable {
 		var en = trimOrNull(o.getString("end"));
 		if (en != null) this.setEnd(LocalDateTime.parse(en));
 		this.setIndex(o.getInt("index"));
+		this.setSuppressedCount(o.getInt("suppressedCount", 0));
 
 		var schedulerAction = new SchedulerAction();
 		schedulerAction.fromJson(o.getJsonObject(SchedulerAction.NAME));
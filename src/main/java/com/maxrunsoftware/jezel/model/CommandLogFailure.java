@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.json.JsonObject;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.hibernate.Session;
+
+import com.maxrunsoftware.jezel.JsonCodable;
+import com.maxrunsoftware.jezel.util.CompressedText;
+import com.maxrunsoftware.jezel.util.CompressedTextConverter;
+
+/**
+ * A distinct failure, identified by a fingerprint of its exception classes and top stack frames. The stack trace of
+ * the first occurrence is stored once here and CommandLogMessages of later occurrences only reference it.
+ */
+@Entity
+@Table(indexes = @Index(name = "IX_CommandLogFailure_lastSeen", columnList = "lastSeen"))
+public class CommandLogFailure implements JsonCodable {
+	public static final String NAME = "commandLogFailure";
+	public static final String ID = NAME + "Id";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private int commandLogFailureId;
+
+	public int getCommandLogFailureId() {
+		return commandLogFailureId;
+	}
+
+	public void setCommandLogFailureId(int commandLogFailureId) {
+		this.commandLogFailureId = commandLogFailureId;
+	}
+
+	@Column(length = 64, nullable = false, unique = true)
+	private String fingerprint;
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	@Column(length = 255, nullable = false)
+	private String exceptionClass;
+
+	public String getExceptionClass() {
+		return exceptionClass;
+	}
+
+	public void setExceptionClass(String exceptionClass) {
+		this.exceptionClass = exceptionClass;
+	}
+
+	@Lob
+	@Convert(converter = CompressedTextConverter.class)
+	@Column(nullable = true)
+	private CompressedText stackTrace;
+
+	public String getStackTrace() {
+		return stackTrace == null ? null : stackTrace.getText();
+	}
+
+	public void setStackTrace(String stackTrace) {
+		this.stackTrace = CompressedText.of(trimOrNull(stackTrace));
+	}
+
+	@Column(nullable = false)
+	private int occurrenceCount;
+
+	public int getOccurrenceCount() {
+		return occurrenceCount;
+	}
+
+	public void setOccurrenceCount(int occurrenceCount) {
+		this.occurrenceCount = occurrenceCount;
+	}
+
+	@Column(nullable = false)
+	private LocalDateTime firstSeen;
+
+	public LocalDateTime getFirstSeen() {
+		return firstSeen;
+	}
+
+	public void setFirstSeen(LocalDateTime firstSeen) {
+		this.firstSeen = firstSeen;
+	}
+
+	@Column(nullable = false)
+	private LocalDateTime lastSeen;
+
+	public LocalDateTime getLastSeen() {
+		return lastSeen;
+	}
+
+	public void setLastSeen(LocalDateTime lastSeen) {
+		this.lastSeen = lastSeen;
+	}
+
+	// the run it last occurred in, not a foreign key so retention can purge runs independently
+	@Column(name = "lastCommandLogJobId", nullable = false)
+	private int lastCommandLogJobId;
+
+	public int getLastCommandLogJobId() {
+		return lastCommandLogJobId;
+	}
+
+	public void setLastCommandLogJobId(int lastCommandLogJobId) {
+		this.lastCommandLogJobId = lastCommandLogJobId;
+	}
+
+	@Override
+	public JsonObject toJson() {
+		var json = createObjectBuilder();
+		json.add(ID, getCommandLogFailureId());
+		json.add("fingerprint", coalesce(getFingerprint(), ""));
+		json.add("exceptionClass", coalesce(getExceptionClass(), ""));
+		json.add("occurrenceCount", getOccurrenceCount());
+		json.add("firstSeen", getFirstSeen() == null ? "" : getFirstSeen().toString());
+		json.add("lastSeen", getLastSeen() == null ? "" : getLastSeen().toString());
+		json.add("lastCommandLogJobId", getLastCommandLogJobId());
+		json.add("stackTrace", coalesce(getStackTrace(), ""));
+		return json.build();
+	}
+
+	@Override
+	public void fromJson(JsonObject o) {
+		this.setCommandLogFailureId(o.getInt(ID));
+		this.setFingerprint(trimOrNull(o.getString("fingerprint")));
+		this.setExceptionClass(trimOrNull(o.getString("exceptionClass")));
+		this.setOccurrenceCount(o.getInt("occurrenceCount"));
+		var fs = trimOrNull(o.getString("firstSeen"));
+		this.setFirstSeen(fs == null ? null : LocalDateTime.parse(fs));
+		var ls = trimOrNull(o.getString("lastSeen"));
+		this.setLastSeen(ls == null ? null : LocalDateTime.parse(ls));
+		this.setLastCommandLogJobId(o.getInt("lastCommandLogJobId"));
+		this.setStackTrace(o.getString("stackTrace", null));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + getCommandLogFailureId() + "] " + getExceptionClass() + " x" + getOccurrenceCount();
+	}
+
+	public static CommandLogFailure getByFingerprint(Session session, String fingerprint) {
+		var list = session.createQuery("from CommandLogFailure f where f.fingerprint = :fingerprint", CommandLogFailure.class)
+				.setParameter("fingerprint", fingerprint)
+				.getResultList();
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * Failures last seen at or after 'from', most occurrences first.
+	 */
+	public static List<CommandLogFailure> getTop(Session session, LocalDateTime from, int limit) {
+		return session.createQuery("from CommandLogFailure f where f.lastSeen >= :from"
+				+ " order by f.occurrenceCount desc, f.lastSeen desc", CommandLogFailure.class)
+				.setParameter("from", from)
+				.setMaxResults(limit)
+				.getResultList();
+	}
+}
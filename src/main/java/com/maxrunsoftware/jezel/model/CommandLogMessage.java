@@ -18,10 +18,13 @@ package com.maxrunsoftware.jezel.model;
 import static com.maxrunsoftware.jezel.Util.*;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 import javax.json.JsonObject;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -30,7 +33,11 @@ import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.Session;
+
 import com.maxrunsoftware.jezel.JsonCodable;
+import com.maxrunsoftware.jezel.util.CompressedText;
+import com.maxrunsoftware.jezel.util.CompressedTextConverter;
 
 @Entity
 public class CommandLogMessage implements JsonCodable {
@@ -99,27 +106,57 @@ public class CommandLogMessage implements JsonCodable {
 	}
 
 	@Lob
+	@Convert(converter = CompressedTextConverter.class)
 	@Column(nullable = true, unique = false)
-	private String message;
+	private CompressedText message;
 
 	public String getMessage() {
-		return message;
+		return message == null ? null : message.getText();
 	}
 
 	public void setMessage(String message) {
-		this.message = trimOrNull(message);
+		this.message = CompressedText.of(trimOrNull(message));
+	}
+
+	public CompressedText getMessageCompressed() {
+		return message;
+	}
+
+	public void setMessageCompressed(CompressedText message) {
+		this.message = message;
 	}
 
 	@Lob
+	@Convert(converter = CompressedTextConverter.class)
 	@Column(nullable = true, unique = false)
-	private String exception;
+	private CompressedText exception;
 
 	public String getException() {
-		return exception;
+		return exception == null ? null : exception.getText();
 	}
 
 	public void setException(String exception) {
-		this.exception = trimOrNull(exception);
+		this.exception = CompressedText.of(trimOrNull(exception));
+	}
+
+	public CompressedText getExceptionCompressed() {
+		return exception;
+	}
+
+	public void setExceptionCompressed(CompressedText exception) {
+		this.exception = exception;
+	}
+
+	// the CommandLogFailure holding the stack trace of the exception, when there was one
+	@Column(name = CommandLogFailure.ID, nullable = true)
+	private Integer commandLogFailureId;
+
+	public Integer getCommandLogFailureId() {
+		return commandLogFailureId;
+	}
+
+	public void setCommandLogFailureId(Integer commandLogFailureId) {
+		this.commandLogFailureId = commandLogFailureId;
 	}
 
 	@Column(nullable = false)
@@ -143,6 +180,7 @@ public class CommandLogMessage implements JsonCodable {
 		json.add("message", coalesce(getMessage(), ""));
 		json.add("exception", coalesce(getException(), ""));
 		json.add("index", getIndex());
+		if (getCommandLogFailureId() != null) json.add(CommandLogFailure.ID, getCommandLogFailureId());
 		return json.build();
 	}
 
@@ -155,6 +193,27 @@ public class CommandLogMessage implements JsonCodable {
 		this.setMessage(o.getString("message"));
 		this.setException(o.getString("exception"));
 		this.setIndex(o.getInt("index"));
+		this.setCommandLogFailureId(o.containsKey(CommandLogFailure.ID) ? o.getInt(CommandLogFailure.ID) : null);
+	}
+
+	/**
+	 * CommandLogMessages of a CommandLogJob written after afterCommandLogMessageId, in the order they were written.
+	 */
+	public static List<CommandLogMessage> getAfter(Session session, int commandLogJobId, int afterCommandLogMessageId) {
+		return session.createQuery("select m from CommandLogMessage m join fetch m.commandLogAction a"
+				+ " where a.commandLogJob.commandLogJobId = :commandLogJobId and m.commandLogMessageId > :after"
+				+ " order by m.commandLogMessageId", CommandLogMessage.class)
+				.setParameter("commandLogJobId", commandLogJobId)
+				.setParameter("after", afterCommandLogMessageId)
+				.getResultList();
+	}
+
+	public static List<CommandLogMessage> getByIds(Session session, Collection<Integer> commandLogActionIds, Collection<Integer> commandLogMessageIds) {
+		return session.createQuery("select m from CommandLogMessage m join fetch m.commandLogAction a"
+				+ " where a.commandLogActionId in (:commandLogActionIds) and m.commandLogMessageId in (:commandLogMessageIds)", CommandLogMessage.class)
+				.setParameterList("commandLogActionIds", commandLogActionIds)
+				.setParameterList("commandLogMessageIds", commandLogMessageIds)
+				.getResultList();
 	}
 
 	@Override
@@ -29,10 +29,14 @@ import javax.persistence.Id;
 import javax.persistence.Lob;
 
 import org.hibernate.Session;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.JsonCodable;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + ConfigurationItem.NAME)
 public class ConfigurationItem implements JsonCodable {
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(ConfigurationItem.class);
 
@@ -167,14 +171,17 @@ public class ConfigurationItem implements JsonCodable {
 	public static boolean remove(Session session, String name) {
 		name = trimOrNull(name);
 		if (name == null) return false;
-		boolean foundOne = false;
-		for (var item : getAll(ConfigurationItem.class, session)) {
-			if (name.equalsIgnoreCase(item.getName())) {
-				delete(session, item);
-				foundOne = true;
+		var nameTrimmed = name;
+		return inTransactionGet(session, s -> {
+			boolean foundOne = false;
+			for (var item : getAll(ConfigurationItem.class, s)) {
+				if (nameTrimmed.equalsIgnoreCase(item.getName())) {
+					delete(s, item);
+					foundOne = true;
+				}
 			}
-		}
-		return foundOne;
+			return foundOne;
+		});
 	}
 
 	public static String getValue(Session session, String name) {
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.json.JsonObject;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.Session;
+
+import com.maxrunsoftware.jezel.JsonCodable;
+import com.maxrunsoftware.jezel.util.DurationSketch;
+
+/**
+ * Run count, failures and durations of a SchedulerJob, or of one of its SchedulerActions, within an hour or a day.
+ * Rows are not tied to the CommandLog tables so they outlive the runs they summarize.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "UK_RunStat_bucket", columnNames = { SchedulerJob.ID, SchedulerAction.ID, "resolution", "bucketStart" }),
+		indexes = @Index(name = "IX_RunStat_resolution_bucketStart", columnList = "resolution, bucketStart"))
+public class RunStat implements JsonCodable {
+	public static final String NAME = "runStat";
+	public static final String ID = NAME + "Id";
+
+	public static final String RESOLUTION_HOUR = "HOUR";
+	public static final String RESOLUTION_DAY = "DAY";
+	// several buckets merged, never stored
+	public static final String RESOLUTION_TOTAL = "TOTAL";
+
+	public static final Comparator<RunStat> SORT_BUCKET = Comparator.comparingInt(RunStat::getSchedulerJobId)
+			.thenComparingInt(RunStat::getSchedulerActionId)
+			.thenComparing(RunStat::getBucketStart, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private int runStatId;
+
+	public int getRunStatId() {
+		return runStatId;
+	}
+
+	public void setRunStatId(int runStatId) {
+		this.runStatId = runStatId;
+	}
+
+	@Column(name = SchedulerJob.ID, nullable = false)
+	private int schedulerJobId;
+
+	public int getSchedulerJobId() {
+		return schedulerJobId;
+	}
+
+	public void setSchedulerJobId(int schedulerJobId) {
+		this.schedulerJobId = schedulerJobId;
+	}
+
+	/**
+	 * 0 for the whole SchedulerJob.
+	 */
+	@Column(name = SchedulerAction.ID, nullable = false)
+	private int schedulerActionId;
+
+	public int getSchedulerActionId() {
+		return schedulerActionId;
+	}
+
+	public void setSchedulerActionId(int schedulerActionId) {
+		this.schedulerActionId = schedulerActionId;
+	}
+
+	@Column(length = 10, nullable = false)
+	private String resolution;
+
+	public String getResolution() {
+		return resolution;
+	}
+
+	public void setResolution(String resolution) {
+		this.resolution = resolution;
+	}
+
+	@Column(nullable = false)
+	private LocalDateTime bucketStart;
+
+	public LocalDateTime getBucketStart() {
+		return bucketStart;
+	}
+
+	public void setBucketStart(LocalDateTime bucketStart) {
+		this.bucketStart = bucketStart;
+	}
+
+	@Column(nullable = false)
+	private int runCount;
+
+	public int getRunCount() {
+		return runCount;
+	}
+
+	public void setRunCount(int runCount) {
+		this.runCount = runCount;
+	}
+
+	@Column(nullable = false)
+	private int failureCount;
+
+	public int getFailureCount() {
+		return failureCount;
+	}
+
+	public void setFailureCount(int failureCount) {
+		this.failureCount = failureCount;
+	}
+
+	@Column(nullable = false)
+	private long durationTotal;
+
+	public long getDurationTotal() {
+		return durationTotal;
+	}
+
+	public void setDurationTotal(long durationTotal) {
+		this.durationTotal = durationTotal;
+	}
+
+	@Column(nullable = false)
+	private long durationMin;
+
+	public long getDurationMin() {
+		return durationMin;
+	}
+
+	public void setDurationMin(long durationMin) {
+		this.durationMin = durationMin;
+	}
+
+	@Column(nullable = false)
+	private long durationMax;
+
+	public long getDurationMax() {
+		return durationMax;
+	}
+
+	public void setDurationMax(long durationMax) {
+		this.durationMax = durationMax;
+	}
+
+	@Lob
+	@Column(nullable = true)
+	private byte[] sketch;
+
+	@Transient
+	private DurationSketch durationSketch;
+
+	public DurationSketch getDurationSketch() {
+		if (durationSketch == null) durationSketch = DurationSketch.fromBytes(sketch);
+		return durationSketch;
+	}
+
+	public long getDurationMean() {
+		return runCount == 0 ? 0 : durationTotal / runCount;
+	}
+
+	public long getDurationPercentile(double quantile) {
+		if (runCount == 0) return 0;
+		// the sketch is only accurate to a percent so keep it within the exact bounds
+		return Math.min(Math.max(getDurationSketch().getQuantile(quantile), durationMin), durationMax);
+	}
+
+	/**
+	 * Counts one finished run.
+	 */
+	public void add(long durationMillis, boolean failed) {
+		durationMin = runCount == 0 ? durationMillis : Math.min(durationMin, durationMillis);
+		durationMax = Math.max(durationMax, durationMillis);
+		durationTotal += durationMillis;
+		runCount++;
+		if (failed) failureCount++;
+		getDurationSketch().add(durationMillis);
+		sketch = durationSketch.toBytes();
+	}
+
+	public void merge(RunStat other) {
+		if (other.runCount == 0) return;
+		durationMin = runCount == 0 ? other.durationMin : Math.min(durationMin, other.durationMin);
+		durationMax = Math.max(durationMax, other.durationMax);
+		durationTotal += other.durationTotal;
+		runCount += other.runCount;
+		failureCount += other.failureCount;
+		getDurationSketch().merge(other.getDurationSketch());
+		sketch = durationSketch.toBytes();
+	}
+
+	@Override
+	public JsonObject toJson() {
+		var json = createObjectBuilder();
+		json.add(SchedulerJob.ID, getSchedulerJobId());
+		json.add(SchedulerAction.ID, getSchedulerActionId());
+		json.add("resolution", coalesce(getResolution(), ""));
+		json.add("bucketStart", getBucketStart() == null ? "" : getBucketStart().toString());
+		json.add("runCount", getRunCount());
+		json.add("failureCount", getFailureCount());
+		json.add("durationMin", getDurationMin());
+		json.add("durationMax", getDurationMax());
+		json.add("durationMean", getDurationMean());
+		json.add("durationP50", getDurationPercentile(0.5));
+		json.add("durationP90", getDurationPercentile(0.9));
+		json.add("durationP99", getDurationPercentile(0.99));
+		json.add("durationTotal", getDurationTotal());
+		json.add("sketch", sketch == null ? "" : Base64.getEncoder().encodeToString(sketch));
+		return json.build();
+	}
+
+	@Override
+	public void fromJson(JsonObject o) {
+		this.setSchedulerJobId(o.getInt(SchedulerJob.ID));
+		this.setSchedulerActionId(o.getInt(SchedulerAction.ID));
+		this.setResolution(trimOrNull(o.getString("resolution")));
+		var bs = trimOrNull(o.getString("bucketStart"));
+		this.setBucketStart(bs == null ? null : LocalDateTime.parse(bs));
+		this.setRunCount(o.getInt("runCount"));
+		this.setFailureCount(o.getInt("failureCount"));
+		this.setDurationMin(o.getJsonNumber("durationMin").longValue());
+		this.setDurationMax(o.getJsonNumber("durationMax").longValue());
+		this.setDurationTotal(o.getJsonNumber("durationTotal").longValue());
+		var sk = trimOrNull(o.getString("sketch"));
+		this.sketch = sk == null ? null : Base64.getDecoder().decode(sk);
+		this.durationSketch = null;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + getSchedulerJobId() + ":" + getSchedulerActionId() + " " + getResolution() + " " + getBucketStart() + "]";
+	}
+
+	public static RunStat getBucket(Session session, int schedulerJobId, int schedulerActionId, String resolution, LocalDateTime bucketStart) {
+		var list = session.createQuery("from RunStat s where s.schedulerJobId = :schedulerJobId and s.schedulerActionId = :schedulerActionId"
+				+ " and s.resolution = :resolution and s.bucketStart = :bucketStart", RunStat.class)
+				.setParameter("schedulerJobId", schedulerJobId)
+				.setParameter("schedulerActionId", schedulerActionId)
+				.setParameter("resolution", resolution)
+				.setParameter("bucketStart", bucketStart)
+				.getResultList();
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * Buckets of the resolution starting within [from, to), all SchedulerJobs if schedulerJobId is null and all of its
+	 * SchedulerActions if schedulerActionId is null.
+	 */
+	public static List<RunStat> getBuckets(Session session, Integer schedulerJobId, Integer schedulerActionId, String resolution, LocalDateTime from, LocalDateTime to) {
+		var query = session.createQuery("from RunStat s where s.resolution = :resolution and s.bucketStart >= :from and s.bucketStart < :to"
+				+ (schedulerJobId == null ? "" : " and s.schedulerJobId = :schedulerJobId")
+				+ (schedulerActionId == null ? "" : " and s.schedulerActionId = :schedulerActionId")
+				+ " order by s.schedulerJobId, s.schedulerActionId, s.bucketStart", RunStat.class)
+				.setParameter("resolution", resolution)
+				.setParameter("from", from)
+				.setParameter("to", to);
+		if (schedulerJobId != null) query.setParameter("schedulerJobId", schedulerJobId);
+		if (schedulerActionId != null) query.setParameter("schedulerActionId", schedulerActionId);
+		return query.getResultList();
+	}
+}
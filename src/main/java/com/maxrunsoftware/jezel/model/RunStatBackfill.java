@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import org.hibernate.Session;
+
+/**
+ * Progress of building RunStats from the CommandLogJobs that ended before run statistics were first recorded, a single
+ * row updated in the transaction of each backfilled chunk so a stopped backfill resumes where it was.
+ */
+@Entity
+public class RunStatBackfill {
+	public static final String NAME = "runStatBackfill";
+	public static final String ID = NAME + "Id";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private int runStatBackfillId;
+
+	public int getRunStatBackfillId() {
+		return runStatBackfillId;
+	}
+
+	public void setRunStatBackfillId(int runStatBackfillId) {
+		this.runStatBackfillId = runStatBackfillId;
+	}
+
+	/**
+	 * CommandLogJobs ending from here on are recorded by the scheduler.
+	 */
+	@Column(nullable = false)
+	private LocalDateTime endedBefore;
+
+	public LocalDateTime getEndedBefore() {
+		return endedBefore;
+	}
+
+	public void setEndedBefore(LocalDateTime endedBefore) {
+		this.endedBefore = endedBefore;
+	}
+
+	/**
+	 * Largest CommandLogJob id whose runs are in RunStat, CommandLogJobs are backfilled in id order.
+	 */
+	@Column(nullable = false)
+	private int commandLogJobIdDone;
+
+	public int getCommandLogJobIdDone() {
+		return commandLogJobIdDone;
+	}
+
+	public void setCommandLogJobIdDone(int commandLogJobIdDone) {
+		this.commandLogJobIdDone = commandLogJobIdDone;
+	}
+
+	public static RunStatBackfill get(Session session) {
+		return session.createQuery("from RunStatBackfill", RunStatBackfill.class).uniqueResult();
+	}
+}
@@ -34,6 +34,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 
 import org.hibernate.Session;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.DatabaseService;
@@ -42,6 +44,7 @@ import com.maxrunsoftware.jezel.Util;
 import com.maxrunsoftware.jezel.action.CommandParameter;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerAction.NAME)
 public class SchedulerAction implements JsonCodable {
 	public static final String NAME = "schedulerAction";
 	public static final String ID = NAME + "Id";
@@ -86,6 +89,7 @@ public class SchedulerAction implements JsonCodable {
 		this.schedulerJob = schedulerJob;
 	}
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerActionParameter.NAME)
 	@OneToMany(mappedBy = NAME)
 	private Set<SchedulerActionParameter> schedulerActionParameters;
 
@@ -143,6 +147,20 @@ public class SchedulerAction implements JsonCodable {
 		this.disabled = disabled;
 	}
 
+	/**
+	 * Minimum persisted CommandLogMessage level, null to inherit the SchedulerJob level.
+	 */
+	@Column(length = 10, nullable = true, unique = false)
+	private String logLevel;
+
+	public String getLogLevel() {
+		return trimOrNull(logLevel);
+	}
+
+	public void setLogLevel(String logLevel) {
+		this.logLevel = trimOrNull(logLevel);
+	}
+
 	@Column(nullable = false)
 	private int index;
 
@@ -162,6 +180,7 @@ public class SchedulerAction implements JsonCodable {
 		json.add("name", coalesce(getName(), ""));
 		json.add("description", coalesce(getDescription(), ""));
 		json.add("disabled", isDisabled());
+		json.add("logLevel", coalesce(getLogLevel(), ""));
 		json.add("index", getIndex());
 		var arrayBuilder = createArrayBuilder();
 		for (var schedulerActionParameter : getSchedulerActionParameters()) {
@@ -178,6 +197,7 @@ public class SchedulerAction implements JsonCodable {
 		this.setName(o.getString("name"));
 		this.setDescription(o.getString("description"));
 		this.setDisabled(o.getBoolean("disabled"));
+		this.setLogLevel(o.getString("logLevel", null));
 		this.setIndex(getIndex());
 		var array = o.getJsonArray("schedulerActionParameters");
 		var h = new HashSet<SchedulerActionParameter>();
@@ -250,20 +270,24 @@ public class SchedulerAction implements JsonCodable {
 			if (!namesPar.contains(nameCmd)) { namesToAdd.add(nameCmd); }
 		}
 
-		for (var nameToRemove : namesToRemove) {
-			LOG.debug("Removing parameter [" + nameToRemove + "] from SchedulerAction[" + getSchedulerActionId() + "]");
-			var p = getSchedulerActionParameter(nameToRemove);
-			delete(session, p);
-		}
+		if (namesToRemove.isEmpty() && namesToAdd.isEmpty()) return;
 
-		for (var nameToAdd : namesToAdd) {
-			LOG.debug("Adding parameter [" + nameToAdd + "] to SchedulerAction[" + getSchedulerActionId() + "]");
+		inTransaction(session, s -> {
+			for (var nameToRemove : namesToRemove) {
+				LOG.debug("Removing parameter [" + nameToRemove + "] from SchedulerAction[" + getSchedulerActionId() + "]");
+				var p = getSchedulerActionParameter(nameToRemove);
+				delete(s, p);
+			}
 
-			var p = new SchedulerActionParameter();
-			p.setName(nameToAdd);
-			p.setSchedulerAction(this);
-			save(session, p);
-		}
+			for (var nameToAdd : namesToAdd) {
+				LOG.debug("Adding parameter [" + nameToAdd + "] to SchedulerAction[" + getSchedulerActionId() + "]");
+
+				var p = new SchedulerActionParameter();
+				p.setName(nameToAdd);
+				p.setSchedulerAction(this);
+				save(s, p);
+			}
+		});
 
 	}
 
@@ -276,36 +300,37 @@ public class SchedulerAction implements JsonCodable {
 	}
 
 	public static void syncAllParametersToCommand(Session session) {
-		var schedulerActions = getAll(SchedulerAction.class, session);
-		for (var schedulerAction : schedulerActions) {
-			schedulerAction.syncParametersToCommand(session);
-		}
+		inTransaction(session, s -> {
+			var schedulerActions = getAll(SchedulerAction.class, s);
+			for (var schedulerAction : schedulerActions) {
+				schedulerAction.syncParametersToCommand(s);
+			}
+		});
 	}
 
 	public static void syncAllParametersToCommand() {
-		try (var session = Constant.getInstance(DatabaseService.class).openSession()) {
-			syncAllParametersToCommand(session);
-		}
+		Constant.getInstance(DatabaseService.class).inTransaction(SchedulerAction::syncAllParametersToCommand);
 	}
 
 	public static int create(Session session, SchedulerJob schedulerJob, String name) {
-		// Create
-		var schedulerAction = new SchedulerAction();
-		schedulerAction.setDisabled(false);
-		schedulerAction.setSchedulerJob(schedulerJob);
-		schedulerAction.setIndex(Integer.MAX_VALUE);
-		schedulerAction.setName(name);
-		var schedulerActionId = save(session, schedulerAction);
-
-		// Reindex
-		schedulerJob = getById(SchedulerJob.class, session, schedulerJob.getSchedulerJobId());
-		schedulerJob.reindexSchedulerActions(session);
-
-		// Create Parameters
-		schedulerAction = getById(SchedulerAction.class, session, schedulerActionId);
-		schedulerAction.syncParametersToCommand(session);
-
-		return schedulerActionId;
+		return inTransactionGet(session, s -> {
+			// Create
+			var schedulerAction = new SchedulerAction();
+			schedulerAction.setDisabled(false);
+			schedulerAction.setSchedulerJob(schedulerJob);
+			schedulerAction.setIndex(Integer.MAX_VALUE);
+			schedulerAction.setName(name);
+			var schedulerActionId = save(s, schedulerAction);
+			schedulerJob.getSchedulerActions().add(schedulerAction);
+
+			// Reindex
+			schedulerJob.reindexSchedulerActions(s);
+
+			// Create Parameters
+			schedulerAction.syncParametersToCommand(s);
+
+			return schedulerActionId;
+		});
 	}
 
 }
@@ -27,9 +27,14 @@ import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.JsonCodable;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerActionParameter.NAME)
 public class SchedulerActionParameter implements JsonCodable {
 	public static final String NAME = "schedulerActionParameter";
 	public static final String ID = NAME + "Id";
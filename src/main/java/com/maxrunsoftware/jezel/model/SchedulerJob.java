@@ -17,10 +17,13 @@ package com.maxrunsoftware.jezel.model;
 
 import static com.maxrunsoftware.jezel.Util.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.json.JsonObject;
@@ -29,18 +32,34 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 
 import org.hibernate.Session;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.JsonCodable;
+import com.maxrunsoftware.jezel.util.Revision;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerJob.NAME)
+@NamedEntityGraphs({
+		@NamedEntityGraph(name = SchedulerJob.GRAPH_SCHEDULES, attributeNodes = @NamedAttributeNode("schedulerSchedules")),
+		@NamedEntityGraph(name = SchedulerJob.GRAPH_ACTIONS, attributeNodes = @NamedAttributeNode(value = "schedulerActions", subgraph = "actions"), subgraphs = @NamedSubgraph(name = "actions", attributeNodes = @NamedAttributeNode("schedulerActionParameters")))
+})
 public class SchedulerJob implements JsonCodable {
 
 	public static final String NAME = "schedulerJob";
 	public static final String ID = NAME + "Id";
 
+	public static final String GRAPH_SCHEDULES = NAME + ".schedules";
+	public static final String GRAPH_ACTIONS = NAME + ".actions";
+
 	public static final Comparator<SchedulerJob> SORT_ID = new Comparator<SchedulerJob>() {
 		@Override
 		public int compare(SchedulerJob o1, SchedulerJob o2) {
@@ -73,6 +92,7 @@ public class SchedulerJob implements JsonCodable {
 		this.schedulerJobId = schedulerJobId;
 	}
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerAction.NAME)
 	@OneToMany(mappedBy = NAME)
 	private Set<SchedulerAction> schedulerActions;
 
@@ -85,6 +105,7 @@ public class SchedulerJob implements JsonCodable {
 		this.schedulerActions = schedulerActions;
 	}
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerSchedule.NAME)
 	@OneToMany(mappedBy = NAME)
 	private Set<SchedulerSchedule> schedulerSchedules;
 
@@ -142,6 +163,37 @@ public class SchedulerJob implements JsonCodable {
 		this.disabled = disabled;
 	}
 
+	/**
+	 * Minimum persisted CommandLogMessage level, null to inherit the global setting.
+	 */
+	@Column(length = 10, nullable = true, unique = false)
+	private String logLevel;
+
+	public String getLogLevel() {
+		return trimOrNull(logLevel);
+	}
+
+	public void setLogLevel(String logLevel) {
+		this.logLevel = trimOrNull(logLevel);
+	}
+
+	/**
+	 * Bumped in the database by DatabaseServiceH2RevisionListener, never written by the entity itself.
+	 */
+	@Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+	private long revision;
+
+	public long getRevision() {
+		return revision;
+	}
+
+	@Column(nullable = false, insertable = false, updatable = false, columnDefinition = "timestamp default current_timestamp not null")
+	private LocalDateTime modified;
+
+	public LocalDateTime getModified() {
+		return modified;
+	}
+
 	@Override
 	public JsonObject toJson() {
 		var json = createObjectBuilder();
@@ -149,6 +201,7 @@ public class SchedulerJob implements JsonCodable {
 		json.add("name", coalesce(getName(), ""));
 		json.add("group", coalesce(getGroup(), ""));
 		json.add("disabled", isDisabled());
+		json.add("logLevel", coalesce(getLogLevel(), ""));
 
 		var arrayBuilder = createArrayBuilder();
 		for (var schedulerSchedule : getSchedulerSchedules()) {
@@ -171,6 +224,7 @@ public class SchedulerJob implements JsonCodable {
 		this.setName(o.getString("name"));
 		this.setGroup(o.getString("group"));
 		this.setDisabled(o.getBoolean("disabled"));
+		this.setLogLevel(o.getString("logLevel", null));
 
 		var array = o.getJsonArray("schedulerSchedules");
 		var hss = new HashSet<SchedulerSchedule>();
@@ -202,11 +256,80 @@ public class SchedulerJob implements JsonCodable {
 		var list = new ArrayList<SchedulerAction>(getSchedulerActions());
 		Collections.sort(list, SchedulerAction.SORT_INDEX);
 
-		for (int i = 0; i < list.size(); i++) {
-			var schedulerAction = list.get(i);
-			schedulerAction.setIndex(i);
-			save(session, schedulerAction);
+		inTransaction(session, s -> {
+			for (int i = 0; i < list.size(); i++) {
+				var schedulerAction = list.get(i);
+				schedulerAction.setIndex(i);
+				save(s, schedulerAction);
+			}
+		});
+	}
+
+	/**
+	 * Loads SchedulerJobs applying each fetch graph in its own query. Later queries return the same managed instances so
+	 * each pass initializes one more branch of the aggregate without multiplying rows across sibling collections.
+	 */
+	private static List<SchedulerJob> fetch(Session session, Integer schedulerJobId, String... graphs) {
+		List<SchedulerJob> result = null;
+		for (var graph : graphs) {
+			var builder = session.getCriteriaBuilder();
+			var criteria = builder.createQuery(SchedulerJob.class);
+			var root = criteria.from(SchedulerJob.class);
+			if (schedulerJobId != null) criteria.where(builder.equal(root.get(ID), schedulerJobId));
+			var list = session.createQuery(criteria)
+					.setHint(HINT_FETCHGRAPH, session.getEntityGraph(graph))
+					.getResultList();
+			if (result == null) result = new ArrayList<SchedulerJob>(new LinkedHashSet<SchedulerJob>(list));
+			if (result.isEmpty()) break;
 		}
+		return result;
+	}
+
+	/**
+	 * Fetch plan for listing every SchedulerJob as JSON: schedules, actions and action parameters in two queries.
+	 */
+	public static List<SchedulerJob> getAllForList(Session session) {
+		return fetch(session, null, GRAPH_SCHEDULES, GRAPH_ACTIONS);
+	}
+
+	/**
+	 * Fetch plan for a single SchedulerJob rendered as JSON or executed: the whole aggregate in two queries.
+	 */
+	public static SchedulerJob getByIdForDetail(Session session, int schedulerJobId) {
+		var list = fetch(session, schedulerJobId, GRAPH_SCHEDULES, GRAPH_ACTIONS);
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * Fetch plan for synchronizing a SchedulerJob with the scheduler which only needs the schedules.
+	 */
+	public static SchedulerJob getByIdForSync(Session session, int schedulerJobId) {
+		var list = fetch(session, schedulerJobId, GRAPH_SCHEDULES);
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * Revision of a single SchedulerJob including its schedules, actions and action parameters, null if it does not
+	 * exist.
+	 */
+	public static Revision revisionOf(Session session, int schedulerJobId) {
+		var list = session.createQuery("select j.revision, j.modified from SchedulerJob j where j.schedulerJobId = :id", Object[].class)
+				.setParameter("id", schedulerJobId)
+				.getResultList();
+		if (list.isEmpty()) return null;
+		var row = list.get(0);
+		return new Revision("job-" + schedulerJobId + "-" + row[0], (LocalDateTime) row[1]);
+	}
+
+	/**
+	 * Revision of all SchedulerJobs. Revisions only grow and new ids are always larger than deleted ones so any change,
+	 * create or delete moves one of the aggregates. There is no modified time since a delete leaves nothing behind to
+	 * date it.
+	 */
+	public static Revision revisionOfAll(Session session) {
+		var row = session.createQuery("select count(j), coalesce(sum(j.revision), 0), coalesce(sum(j.schedulerJobId), 0) from SchedulerJob j", Object[].class)
+				.getSingleResult();
+		return new Revision("jobs-" + row[0] + "-" + row[1] + "-" + row[2], null);
 	}
 
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.json.JsonObject;
+
+import org.hibernate.Session;
+
+import com.maxrunsoftware.jezel.JsonCodable;
+
+/**
+ * Counts and last run of a SchedulerJob for overview pages, computed by the database instead of loading the
+ * aggregate. Not an entity.
+ */
+public class SchedulerJobSummary implements JsonCodable {
+	public static final String NAME = "schedulerJobSummary";
+
+	public static final String STATUS_RUNNING = "RUNNING";
+	public static final String STATUS_FAILED = "FAILED";
+	public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+
+	public static final Comparator<SchedulerJobSummary> SORT_ID = Comparator.comparingInt(SchedulerJobSummary::getSchedulerJobId);
+
+	private int schedulerJobId;
+
+	public int getSchedulerJobId() {
+		return schedulerJobId;
+	}
+
+	public void setSchedulerJobId(int schedulerJobId) {
+		this.schedulerJobId = schedulerJobId;
+	}
+
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	private String group;
+
+	public String getGroup() {
+		return group;
+	}
+
+	public void setGroup(String group) {
+		this.group = group;
+	}
+
+	private boolean disabled;
+
+	public boolean isDisabled() {
+		return disabled;
+	}
+
+	public void setDisabled(boolean disabled) {
+		this.disabled = disabled;
+	}
+
+	private int scheduleCount;
+
+	public int getScheduleCount() {
+		return scheduleCount;
+	}
+
+	public void setScheduleCount(int scheduleCount) {
+		this.scheduleCount = scheduleCount;
+	}
+
+	private int actionCount;
+
+	public int getActionCount() {
+		return actionCount;
+	}
+
+	public void setActionCount(int actionCount) {
+		this.actionCount = actionCount;
+	}
+
+	private int runCount;
+
+	public int getRunCount() {
+		return runCount;
+	}
+
+	public void setRunCount(int runCount) {
+		this.runCount = runCount;
+	}
+
+	private Integer lastCommandLogJobId;
+
+	public Integer getLastCommandLogJobId() {
+		return lastCommandLogJobId;
+	}
+
+	public void setLastCommandLogJobId(Integer lastCommandLogJobId) {
+		this.lastCommandLogJobId = lastCommandLogJobId;
+	}
+
+	private LocalDateTime lastRunStart;
+
+	public LocalDateTime getLastRunStart() {
+		return lastRunStart;
+	}
+
+	public void setLastRunStart(LocalDateTime lastRunStart) {
+		this.lastRunStart = lastRunStart;
+	}
+
+	private LocalDateTime lastRunEnd;
+
+	public LocalDateTime getLastRunEnd() {
+		return lastRunEnd;
+	}
+
+	public void setLastRunEnd(LocalDateTime lastRunEnd) {
+		this.lastRunEnd = lastRunEnd;
+	}
+
+	// one of the STATUS constants, null if the job never ran
+	private String lastRunStatus;
+
+	public String getLastRunStatus() {
+		return lastRunStatus;
+	}
+
+	public void setLastRunStatus(String lastRunStatus) {
+		this.lastRunStatus = lastRunStatus;
+	}
+
+	@Override
+	public JsonObject toJson() {
+		var json = createObjectBuilder();
+		json.add(SchedulerJob.ID, getSchedulerJobId());
+		json.add("name", coalesce(getName(), ""));
+		json.add("group", coalesce(getGroup(), ""));
+		json.add("disabled", isDisabled());
+		json.add("scheduleCount", getScheduleCount());
+		json.add("actionCount", getActionCount());
+		json.add("runCount", getRunCount());
+		if (getLastCommandLogJobId() != null) json.add("lastCommandLogJobId", getLastCommandLogJobId());
+		json.add("lastRunStart", getLastRunStart() == null ? "" : getLastRunStart().toString());
+		json.add("lastRunEnd", getLastRunEnd() == null ? "" : getLastRunEnd().toString());
+		json.add("lastRunStatus", coalesce(getLastRunStatus(), ""));
+		return json.build();
+	}
+
+	@Override
+	public void fromJson(JsonObject o) {
+		this.setSchedulerJobId(o.getInt(SchedulerJob.ID));
+		this.setName(o.getString("name"));
+		this.setGroup(o.getString("group"));
+		this.setDisabled(o.getBoolean("disabled"));
+		this.setScheduleCount(o.getInt("scheduleCount"));
+		this.setActionCount(o.getInt("actionCount"));
+		this.setRunCount(o.getInt("runCount"));
+		this.setLastCommandLogJobId(o.containsKey("lastCommandLogJobId") ? o.getInt("lastCommandLogJobId") : null);
+		var ls = trimOrNull(o.getString("lastRunStart"));
+		this.setLastRunStart(ls == null ? null : LocalDateTime.parse(ls));
+		var le = trimOrNull(o.getString("lastRunEnd"));
+		this.setLastRunEnd(le == null ? null : LocalDateTime.parse(le));
+		this.setLastRunStatus(trimOrNull(o.getString("lastRunStatus")));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + getSchedulerJobId() + "]";
+	}
+
+	/**
+	 * Summaries of all SchedulerJobs, or of one if schedulerJobId is given, in two queries: the counts, then the status
+	 * of each job's latest CommandLogJob.
+	 */
+	public static List<SchedulerJobSummary> getAll(Session session, Integer schedulerJobId) {
+		var query = session.createQuery("select j.schedulerJobId, j.name, j.group, j.disabled,"
+				+ " (select count(s) from SchedulerSchedule s where s.schedulerJob = j),"
+				+ " (select count(a) from SchedulerAction a where a.schedulerJob = j),"
+				+ " (select count(l) from CommandLogJob l where l.schedulerJob = j),"
+				+ " (select max(l.commandLogJobId) from CommandLogJob l where l.schedulerJob = j)"
+				+ " from SchedulerJob j"
+				+ (schedulerJobId == null ? "" : " where j.schedulerJobId = :schedulerJobId")
+				+ " order by j.schedulerJobId", Object[].class);
+		if (schedulerJobId != null) query.setParameter("schedulerJobId", schedulerJobId);
+
+		var list = new ArrayList<SchedulerJobSummary>();
+		var byLast = new HashMap<Integer, SchedulerJobSummary>();
+		for (var row : query.getResultList()) {
+			var summary = new SchedulerJobSummary();
+			summary.setSchedulerJobId((Integer) row[0]);
+			summary.setName((String) row[1]);
+			summary.setGroup((String) row[2]);
+			summary.setDisabled((Boolean) row[3]);
+			summary.setScheduleCount(((Number) row[4]).intValue());
+			summary.setActionCount(((Number) row[5]).intValue());
+			summary.setRunCount(((Number) row[6]).intValue());
+			summary.setLastCommandLogJobId((Integer) row[7]);
+			if (row[7] != null) byLast.put((Integer) row[7], summary);
+			list.add(summary);
+		}
+		if (byLast.isEmpty()) return list;
+
+		for (var row : session.createQuery("select l.commandLogJobId, l.start, l.end, l.error from CommandLogJob l"
+				+ " where l.commandLogJobId in (:commandLogJobIds)", Object[].class)
+				.setParameterList("commandLogJobIds", byLast.keySet())
+				.getResultList()) {
+			var summary = byLast.get(row[0]);
+			summary.setLastRunStart((LocalDateTime) row[1]);
+			summary.setLastRunEnd((LocalDateTime) row[2]);
+			summary.setLastRunStatus(row[2] == null ? STATUS_RUNNING : (Boolean) row[3] ? STATUS_FAILED : STATUS_SUCCEEDED);
+		}
+		return list;
+	}
+}
@@ -28,9 +28,14 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.JsonCodable;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CACHE_REGION_DEFINITION + SchedulerSchedule.NAME)
 public class SchedulerSchedule implements JsonCodable {
 
 	public static final String NAME = "schedulerSchedule";
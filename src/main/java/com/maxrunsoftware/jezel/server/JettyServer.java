@@ -15,11 +15,16 @@
  */
 package com.maxrunsoftware.jezel.server;
 
+import static com.maxrunsoftware.jezel.Util.*;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.HashLoginService;
@@ -30,11 +35,18 @@ import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.security.Constraint;
 import org.eclipse.jetty.util.security.Password;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
+import com.maxrunsoftware.jezel.Constant;
+import com.maxrunsoftware.jezel.Util;
+import com.maxrunsoftware.jezel.util.Asset;
+import com.maxrunsoftware.jezel.util.AssetServlet;
+
 import jakarta.servlet.Servlet;
 
 public class JettyServer {
@@ -48,6 +60,13 @@ public class JettyServer {
 	private int idleTimeout;
 	private int port;
 	private String tempDirectory;
+	private int acceptors = -1;
+	private int selectors = -1;
+	private int outputBufferSize = 32768;
+	private boolean http2;
+	private boolean compression;
+	private int compressionMinSize = 1024;
+	private String compressionMimeTypes;
 
 	private static record Page(Class<? extends Servlet> servlet, String path) {}
 
@@ -65,6 +84,12 @@ public class JettyServer {
 		resources.add(new Resource(name, resource));
 	}
 
+	private final List<Asset> assets = new ArrayList<Asset>();
+
+	public void addAsset(Asset asset) {
+		assets.add(asset);
+	}
+
 	public void start(boolean joinThread) throws Exception {
 
 		var maxThreads = getMaxThreads();
@@ -79,14 +104,35 @@ public class JettyServer {
 		var port = getPort();
 		LOG.debug("port: " + port);
 
+		var acceptors = getAcceptors();
+		LOG.debug("acceptors: " + acceptors);
+
+		var selectors = getSelectors();
+		LOG.debug("selectors: " + selectors);
+
+		var outputBufferSize = getOutputBufferSize();
+		LOG.debug("outputBufferSize: " + outputBufferSize);
+
+		var http2 = isHttp2();
+		LOG.debug("http2: " + http2);
+
+		var compression = isCompression();
+		LOG.debug("compression: " + compression);
+
 		QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, minThreads, idleTimeout);
 
 		server = new Server(threadPool);
 
 		HttpConfiguration httpConfig = new HttpConfiguration();
 		httpConfig.setSendServerVersion(false);
+		httpConfig.setOutputBufferSize(outputBufferSize);
 		HttpConnectionFactory httpFactory = new HttpConnectionFactory(httpConfig);
-		ServerConnector connector = new ServerConnector(server, httpFactory);
+		ServerConnector connector;
+		if (http2) {
+			connector = new ServerConnector(server, acceptors, selectors, httpFactory, new HTTP2CServerConnectionFactory(httpConfig));
+		} else {
+			connector = new ServerConnector(server, acceptors, selectors, httpFactory);
+		}
 
 		connector.setPort(port);
 
@@ -113,7 +159,26 @@ public class JettyServer {
 			context.addServlet(page.servlet(), page.path());
 		}
 
-		server.setHandler(context);
+		if (assets.size() > 0) {
+			LOG.debug("Adding " + assets.size() + " assets [" + Constant.WEB_ASSETS + "]");
+			context.addServlet(new ServletHolder(new AssetServlet(assets)), Constant.WEB_ASSETS + "/*");
+		}
+
+		if (compression) {
+			var gzipHandler = new GzipHandler();
+			gzipHandler.setMinGzipSize(getCompressionMinSize());
+			gzipHandler.setIncludedMethods("GET", "POST", "PUT");
+			var mimeTypes = Arrays.stream(coalesce(getCompressionMimeTypes(), "").split(","))
+					.map(Util::trimOrNull)
+					.filter(Objects::nonNull)
+					.toArray(String[]::new);
+			if (mimeTypes.length > 0) gzipHandler.setIncludedMimeTypes(mimeTypes);
+			LOG.debug("compression minSize: " + gzipHandler.getMinGzipSize() + ", mimeTypes: " + String.join(",", gzipHandler.getIncludedMimeTypes()));
+			gzipHandler.setHandler(context);
+			server.setHandler(gzipHandler);
+		} else {
+			server.setHandler(context);
+		}
 
 		// ServletHandler servletHandler = new ServletHandler();
 		// server.setHandler(servletHandler);
@@ -141,6 +206,18 @@ public class JettyServer {
 
 			ConstraintSecurityHandler securityHandler = new ConstraintSecurityHandler();
 			securityHandler.addConstraintMapping(constraintMapping);
+
+			if (assets.size() > 0) {
+				// assets are needed by the login page too
+				Constraint constraintAssets = new Constraint();
+				constraintAssets.setName("assets");
+				constraintAssets.setAuthenticate(false);
+
+				ConstraintMapping constraintMappingAssets = new ConstraintMapping();
+				constraintMappingAssets.setConstraint(constraintAssets);
+				constraintMappingAssets.setPathSpec(Constant.WEB_ASSETS + "/*");
+				securityHandler.addConstraintMapping(constraintMappingAssets);
+			}
 			securityHandler.setLoginService(loginService);
 
 			FormAuthenticator authenticator = new FormAuthenticator("/login", "/login?error=true", false);
@@ -197,6 +274,62 @@ public class JettyServer {
 		this.port = port;
 	}
 
+	public int getAcceptors() {
+		return acceptors;
+	}
+
+	public void setAcceptors(int acceptors) {
+		this.acceptors = acceptors;
+	}
+
+	public int getSelectors() {
+		return selectors;
+	}
+
+	public void setSelectors(int selectors) {
+		this.selectors = selectors;
+	}
+
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	public void setOutputBufferSize(int outputBufferSize) {
+		this.outputBufferSize = outputBufferSize;
+	}
+
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public void setHttp2(boolean http2) {
+		this.http2 = http2;
+	}
+
+	public boolean isCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public int getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	public void setCompressionMinSize(int compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	public String getCompressionMimeTypes() {
+		return compressionMimeTypes;
+	}
+
+	public void setCompressionMimeTypes(String compressionMimeTypes) {
+		this.compressionMimeTypes = compressionMimeTypes;
+	}
+
 	public String getTempDirectory() {
 		return tempDirectory;
 	}
@@ -22,7 +22,9 @@ import static org.apache.commons.lang3.StringUtils.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.quartz.CronScheduleBuilder;
@@ -109,6 +111,29 @@ public class QuartzServer {
 		return true;
 	}
 
+	/**
+	 * Description stored on the trigger of a SchedulerSchedule, equal descriptions mean an equal trigger.
+	 */
+	public static String describe(SchedulerSchedule schedulerSchedule) {
+		return toJsonString(schedulerSchedule.toJson(), false);
+	}
+
+	/**
+	 * Triggers of a job in the scheduler, trigger id mapped to its description. Null if the scheduler could not be read.
+	 */
+	public Map<Integer, String> getTriggers(int jobId) {
+		try {
+			var map = new HashMap<Integer, String>();
+			for (var trigger : scheduler.getTriggersOfJob(createJobKey(jobId))) {
+				map.put(parseInt(trigger.getKey().getName()), trigger.getDescription());
+			}
+			return map;
+		} catch (SchedulerException e) {
+			LOG.error("Error getting Triggers of Job[" + jobId + "] in scheduler", e);
+			return null;
+		}
+	}
+
 	public boolean addTrigger(int schedulerJobId, SchedulerSchedule schedulerSchedule) {
 		var daysList = new ArrayList<Integer>();
 		if (schedulerSchedule.isSunday()) daysList.add(1);
@@ -133,7 +158,7 @@ public class QuartzServer {
 		var trigger = TriggerBuilder.newTrigger()
 				.forJob(createJobKey(jobId))
 				.withIdentity(createTriggerKey(triggerId))
-				.withDescription(toJsonString(schedulerSchedule.toJson(), false))
+				.withDescription(describe(schedulerSchedule))
 				.withSchedule(CronScheduleBuilder.atHourAndMinuteOnGivenDaysOfWeek(hour, minute, days))
 				.build();
 
@@ -242,6 +267,16 @@ public class QuartzServer {
 		}
 	}
 
+	/**
+	 * Adds the job if it is not in the scheduler yet, an existing job keeps its triggers.
+	 */
+	public boolean ensureJob(int jobId) {
+		var exists = existsJob(jobId);
+		if (exists == null) return false;
+		if (exists) return true;
+		return addJob(jobId);
+	}
+
 	public QuartzServerExecutor getExecutor() {
 		return executor;
 	}
@@ -15,20 +15,53 @@
  */
 package com.maxrunsoftware.jezel.service;
 
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.ehcache.config.builders.CacheConfigurationBuilder.*;
+import static org.ehcache.config.builders.ResourcePoolsBuilder.*;
+
+import java.net.URI;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
 import javax.inject.Inject;
 
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.flywaydb.core.Flyway;
 import org.h2.Driver;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.Cache;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.DatabaseService;
 import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.util.CompressedText;
 
 public class DatabaseServiceH2 implements DatabaseService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DatabaseServiceH2.class);
+	private static final String USERNAME = "sa";
+	private static final String PASSWORD = "";
+	private static final String MIGRATION_LOCATION = "classpath:db/migration";
 	private final SessionFactory sessionFactory;
+	private final String cs;
+	private final boolean memory;
+	private final boolean compactOnClose;
+	private final CacheManager cacheManager;
+	private final DatabaseServiceH2RevisionListener revisionListener = new DatabaseServiceH2RevisionListener();
 
 	@Inject
 	public DatabaseServiceH2(SettingService settings) {
@@ -38,40 +71,87 @@ public class DatabaseServiceH2 implements DatabaseService {
 			throw new Error(e); // should not happen
 		}
 
-		var directory = settings.getDatabaseDir();
+		memory = settings.getDatabaseMemory();
+		CompressedText.setThreshold(settings.getLogCompressThreshold());
+		CompressedText.setMaxLength(settings.getLogMaxLength());
+		compactOnClose = !memory && settings.getDatabaseCompactOnClose();
 
-		String cs;
-		if (directory == null || directory.equalsIgnoreCase("mem") || directory.equalsIgnoreCase("memory")) {
-			cs = "jdbc:h2:mem:test";
+		if (memory) {
+			cs = "jdbc:h2:mem:test;DB_CLOSE_ON_EXIT=FALSE";
 		} else {
 			// if (!directory.endsWith("/")) directory = directory + "/";
 			// cs = "jdbc:h2:file:" + directory + ";USER=sa;PASSWORD=password";
-			cs = "jdbc:h2:file:" + directory;
+			// closed by close(), which may run in a shutdown hook after the one H2 would register
+			cs = "jdbc:h2:file:" + settings.getDatabaseDir().trim()
+					+ ";DB_CLOSE_ON_EXIT=FALSE"
+					+ ";CACHE_SIZE=" + settings.getDatabaseCacheSize()
+					+ ";WRITE_DELAY=" + settings.getDatabaseWriteDelay();
 		}
 
 		// org.h2.jdbcx.JdbcConnectionPool connectionPool =
 		// JdbcConnectionPool.create(cs, "sa", "");
 
 		org.hibernate.cfg.Configuration configuration = new Configuration();
-		configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+		if (memory) {
+			configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+		} else {
+			// the schema is owned by the migrations, hibernate only checks that the entities still match it
+			migrate(cs);
+			configuration.setProperty("hibernate.hbm2ddl.auto", "validate");
+		}
 		configuration.setProperty("hibernate.connection.driver_class", Driver.class.getName());
 		configuration.setProperty("hibernate.connection.url", cs);
-		configuration.setProperty("hibernate.connection.username", "sa");
-		configuration.setProperty("hibernate.connection.password", "");
+		configuration.setProperty("hibernate.connection.username", USERNAME);
+		configuration.setProperty("hibernate.connection.password", PASSWORD);
 		configuration.setProperty("hibernate.dialect", H2Dialect.class.getName());
 
-		configuration.setProperty("connection.provider_class", "org.hibernate.connection.C3P0ConnectionProvider");
+		var poolMax = Math.max(1, settings.getDatabasePoolMaxSize());
+		var poolMin = Math.min(poolMax, Math.max(1, settings.getDatabasePoolMinSize()));
+		LOG.debug("Connection pool size " + poolMin + " - " + poolMax);
+		configuration.setProperty("hibernate.connection.provider_class", DatabaseServiceH2ConnectionProvider.class.getName());
 		configuration.setProperty("hibernate.c3p0.acquire_increment", "1");
 		configuration.setProperty("hibernate.c3p0.idle_test_period", "60");
-		configuration.setProperty("hibernate.c3p0.min_size", "1");
-		configuration.setProperty("hibernate.c3p0.max_size", "2");
+		configuration.setProperty("hibernate.c3p0.min_size", "" + poolMin);
+		configuration.setProperty("hibernate.c3p0.max_size", "" + poolMax);
 		configuration.setProperty("hibernate.c3p0.max_statements", "50");
 		configuration.setProperty("hibernate.c3p0.timeout", "0");
 		configuration.setProperty("hibernate.c3p0.acquireRetryAttempts", "1");
 		configuration.setProperty("hibernate.c3p0.acquireRetryDelay", "250");
+		configuration.setProperty("hibernate.c3p0.checkoutTimeout", "" + (settings.getDatabasePoolAcquireTimeout() * 1000));
+		var leakTimeout = settings.getDatabasePoolLeakTimeout();
+		if (leakTimeout > 0) {
+			// connections held longer than this are reclaimed, with the stack trace of the borrower only if asked for
+			configuration.setProperty("hibernate.c3p0.unreturnedConnectionTimeout", "" + leakTimeout);
+			configuration.setProperty("hibernate.c3p0.debugUnreturnedConnectionStackTraces", "" + settings.getDatabasePoolLeakStackTraces());
+		}
 
 		configuration.setProperty("hibernate.show_sql", "" + settings.getDatabaseShowSql());
 		configuration.setProperty("hibernate.use_sql_comments", "" + settings.getDatabaseShowSql());
+		configuration.setProperty("hibernate.generate_statistics", "" + settings.getDatabaseStatistics());
+
+		// flush the statements of a unit of work in JDBC batches, IDENTITY keys still insert one row at a time
+		configuration.setProperty("hibernate.jdbc.batch_size", "" + settings.getDatabaseBatchSize());
+		configuration.setProperty("hibernate.order_inserts", "true");
+		configuration.setProperty("hibernate.order_updates", "true");
+		configuration.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+
+		if (settings.getDatabaseEntityCache()) {
+			// definition entities change rarely and are read on every run, sync and page, log entities are never cached
+			cacheManager = createCacheManager(settings.getDatabaseEntityCacheEntries());
+			configuration.setProperty("hibernate.cache.use_second_level_cache", "true");
+			configuration.setProperty("hibernate.cache.use_query_cache", "true");
+			configuration.setProperty("hibernate.cache.region.factory_class", "jcache");
+			configuration.setProperty("hibernate.cache.auto_evict_collection_cache", "true");
+			configuration.setProperty(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+			configuration.getProperties().put(ConfigSettings.CACHE_MANAGER, cacheManager);
+		} else {
+			cacheManager = null;
+			configuration.setProperty("hibernate.cache.use_second_level_cache", "false");
+			configuration.setProperty("hibernate.cache.use_query_cache", "false");
+		}
+
+		// lazy associations not covered by a fetch plan are loaded for many owners at once instead of one query each
+		configuration.setProperty("hibernate.default_batch_fetch_size", "32");
 
 		// configuration.setProperty("hibernate.transaction.factory_class",
 		// "org.hibernate.transaction.JDBCTransactionFactory");
@@ -84,17 +164,97 @@ public class DatabaseServiceH2 implements DatabaseService {
 		}
 
 		sessionFactory = configuration.buildSessionFactory();
+		revisionListener.register(sessionFactory);
 
 	}
 
+	private static CacheManager createCacheManager(int entries) {
+		var config = ConfigurationBuilder.newConfigurationBuilder()
+				.withCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, newCacheConfigurationBuilder(Object.class, Object.class, heap(Math.max(100, entries / 10))))
+				.withCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, newCacheConfigurationBuilder(Object.class, Object.class, heap(100)));
+		for (var clazz : Constant.JPA) {
+			// one region per entity so writes to one type leave the others cached
+			var cache = clazz.getAnnotation(Cache.class);
+			if (cache != null) config = config.withCache(cache.region(), newCacheConfigurationBuilder(Object.class, Object.class, heap(entries)));
+		}
+
+		var provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+		return provider.getCacheManager(URI.create("jezel:" + randomUUID()), config.build());
+	}
+
+	private static void migrate(String cs) {
+		var flyway = Flyway.configure()
+				.dataSource(cs, USERNAME, PASSWORD)
+				.locations(MIGRATION_LOCATION)
+				.load();
+		var result = flyway.migrate();
+		LOG.info("Database schema at version " + flyway.info().current().getVersion() + ", applied " + result.migrationsExecuted + " migrations");
+	}
+
 	@Override
 	public Session openSession() {
 		return sessionFactory.openSession();
 	}
 
+	@Override
+	public StatelessSession openStatelessSession() {
+		return sessionFactory.openStatelessSession();
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var connectionProvider = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(ConnectionProvider.class);
+		var map = new TreeMap<String, Object>();
+		if (connectionProvider instanceof DatabaseServiceH2ConnectionProvider pool) map.putAll(pool.getMetrics());
+
+		var statistics = sessionFactory.getStatistics();
+		if (cacheManager != null && statistics.isStatisticsEnabled()) {
+			map.put("cacheHitCount", statistics.getSecondLevelCacheHitCount());
+			map.put("cacheMissCount", statistics.getSecondLevelCacheMissCount());
+			map.put("cachePutCount", statistics.getSecondLevelCachePutCount());
+			map.put("cacheQueryHitCount", statistics.getQueryCacheHitCount());
+			map.put("cacheQueryMissCount", statistics.getQueryCacheMissCount());
+			map.put("cacheQueryPutCount", statistics.getQueryCachePutCount());
+		}
+
+		return map;
+	}
+
+	@Override
+	public long getConfigurationRevision() {
+		return revisionListener.getConfigurationRevision();
+	}
+
+	@Override
+	public void evictCache(Class<?>... entityClasses) {
+		if (cacheManager == null || entityClasses.length == 0) return;
+		var classes = Set.copyOf(Arrays.asList(entityClasses));
+		var cache = sessionFactory.getCache();
+		for (var clazz : classes) {
+			cache.evictEntityData(clazz);
+		}
+		for (var entry : sessionFactory.unwrap(SessionFactoryImplementor.class).getMetamodel().collectionPersisters().entrySet()) {
+			var persister = entry.getValue();
+			if (!persister.hasCache()) continue;
+			if (classes.contains(persister.getOwnerEntityPersister().getMappedClass()) || classes.contains(persister.getElementType().getReturnedClass())) {
+				cache.evictCollectionData(entry.getKey());
+			}
+		}
+	}
+
 	@Override
 	public void close() {
 		sessionFactory.close();
+		if (cacheManager != null) cacheManager.close();
+		if (compactOnClose) {
+			// the pool is closed so this is the only connection, a full compact rewrites the file without the free space
+			LOG.debug("Compacting database " + cs);
+			try (var connection = DriverManager.getConnection(cs, USERNAME, PASSWORD); var statement = connection.createStatement()) {
+				statement.execute("SHUTDOWN COMPACT");
+			} catch (SQLException e) {
+				LOG.warn("Could not compact database " + cs, e);
+			}
+		}
 	}
 
 }
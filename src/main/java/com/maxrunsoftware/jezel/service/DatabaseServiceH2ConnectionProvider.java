@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.hibernate.c3p0.internal.C3P0ConnectionProvider;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+
+/**
+ * C3P0 pool that records how long callers wait to check out a connection and how many are checked out.
+ */
+public class DatabaseServiceH2ConnectionProvider extends C3P0ConnectionProvider {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DatabaseServiceH2ConnectionProvider.class);
+
+	private final LongAdder checkoutCount = new LongAdder();
+	private final LongAdder checkoutFailedCount = new LongAdder();
+	private final LongAdder checkoutWaitNanos = new LongAdder();
+	private final AtomicLong checkoutWaitNanosMax = new AtomicLong();
+	private final LongAdder checkedOut = new LongAdder();
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		var start = System.nanoTime();
+		try {
+			var connection = super.getConnection();
+			checkedOut.increment();
+			return connection;
+		} catch (SQLException e) {
+			checkoutFailedCount.increment();
+			throw e;
+		} finally {
+			var elapsed = System.nanoTime() - start;
+			checkoutCount.increment();
+			checkoutWaitNanos.add(elapsed);
+			checkoutWaitNanosMax.accumulateAndGet(elapsed, Math::max);
+		}
+	}
+
+	@Override
+	public void closeConnection(Connection connection) throws SQLException {
+		checkedOut.decrement();
+		super.closeConnection(connection);
+	}
+
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		var count = checkoutCount.sum();
+		var waitNanos = checkoutWaitNanos.sum();
+		map.put("poolCheckoutCount", count);
+		map.put("poolCheckoutFailedCount", checkoutFailedCount.sum());
+		map.put("poolCheckoutWaitMillisTotal", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+		map.put("poolCheckoutWaitMillisMax", TimeUnit.NANOSECONDS.toMillis(checkoutWaitNanosMax.get()));
+		map.put("poolCheckoutWaitMillisAverage", count == 0 ? 0d : (double) waitNanos / count / 1_000_000d);
+		// counted here since the pool checks connections back in on a helper thread
+		map.put("poolConnectionsActive", checkedOut.intValue());
+
+		try {
+			var pool = (PooledDataSource) unwrap(DataSource.class);
+			map.put("poolConnections", pool.getNumConnectionsDefaultUser());
+			map.put("poolConnectionsIdle", pool.getNumIdleConnectionsDefaultUser());
+			map.put("poolThreadsAwaiting", pool.getNumThreadsAwaitingCheckoutDefaultUser());
+			map.put("poolConnectionsOrphaned", pool.getNumUnclosedOrphanedConnectionsDefaultUser());
+		} catch (Exception e) {
+			LOG.warn("Could not read connection pool state", e);
+		}
+
+		return map;
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerActionParameter;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerSchedule;
+
+/**
+ * Keeps the version counters behind REST ETags. SchedulerJob revisions are bumped with plain SQL in the same
+ * transaction as the change, so a revision is never visible without its data. The configuration revision is kept in
+ * memory and bumped after commit.
+ */
+public class DatabaseServiceH2RevisionListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+	private static final long serialVersionUID = -2425930419151457006L;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DatabaseServiceH2RevisionListener.class);
+
+	private static final String SQL_BUMP = "update SchedulerJob set revision = revision + 1, modified = ? where schedulerJobId = ";
+	private static final String SQL_BUMP_JOB = SQL_BUMP + "?";
+	private static final String SQL_BUMP_ACTION = SQL_BUMP + "(select a.schedulerJobId from SchedulerAction a where a.schedulerActionId = ?)";
+
+	private final AtomicLong configurationRevision = new AtomicLong();
+	private final ConfigurationListener configurationListener = new ConfigurationListener();
+
+	public void register(SessionFactory sessionFactory) {
+		var registry = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_INSERT, this);
+		registry.appendListeners(EventType.POST_UPDATE, this);
+		registry.appendListeners(EventType.POST_DELETE, this);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, configurationListener);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, configurationListener);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, configurationListener);
+	}
+
+	public long getConfigurationRevision() {
+		return configurationRevision.get();
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		// a new SchedulerJob starts at the column default
+		if (!(event.getEntity() instanceof SchedulerJob)) bump(event.getSession(), event.getEntity());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		bump(event.getSession(), event.getEntity());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		bump(event.getSession(), event.getEntity());
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+
+	@Override
+	@Deprecated
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		// still abstract in Hibernate 5, Hibernate itself only calls the correctly spelled one
+		return requiresPostCommitHandling(persister);
+	}
+
+	private static void bump(SessionImplementor session, Object entity) {
+		// only identifiers are read from the associations so uninitialized proxies stay uninitialized
+		String sql;
+		int id;
+		if (entity instanceof SchedulerJob o) {
+			sql = SQL_BUMP_JOB;
+			id = o.getSchedulerJobId();
+		} else if (entity instanceof SchedulerSchedule o) {
+			sql = SQL_BUMP_JOB;
+			id = o.getSchedulerJob().getSchedulerJobId();
+		} else if (entity instanceof SchedulerAction o) {
+			sql = SQL_BUMP_JOB;
+			id = o.getSchedulerJob().getSchedulerJobId();
+		} else if (entity instanceof SchedulerActionParameter o) {
+			sql = SQL_BUMP_ACTION;
+			id = o.getSchedulerAction().getSchedulerActionId();
+		} else {
+			return;
+		}
+
+		LOG.trace("Bumping revision of SchedulerJob for " + entity);
+		session.doWork(connection -> {
+			try (var statement = connection.prepareStatement(sql)) {
+				statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+				statement.setInt(2, id);
+				statement.executeUpdate();
+			}
+		});
+	}
+
+	private class ConfigurationListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+		private static final long serialVersionUID = 4986095727437164470L;
+
+		private void bump(Object entity) {
+			if (entity instanceof ConfigurationItem) configurationRevision.incrementAndGet();
+		}
+
+		@Override
+		public void onPostInsert(PostInsertEvent event) {
+			bump(event.getEntity());
+		}
+
+		@Override
+		public void onPostUpdate(PostUpdateEvent event) {
+			bump(event.getEntity());
+		}
+
+		@Override
+		public void onPostDelete(PostDeleteEvent event) {
+			bump(event.getEntity());
+		}
+
+		@Override
+		public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+		@Override
+		public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+		@Override
+		public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+		@Override
+		public boolean requiresPostCommitHandling(EntityPersister persister) {
+			return ConfigurationItem.class.equals(persister.getMappedClass());
+		}
+
+		@Override
+		@Deprecated
+		public boolean requiresPostCommitHanding(EntityPersister persister) {
+			// still abstract in Hibernate 5, Hibernate itself only calls the correctly spelled one
+			return requiresPostCommitHandling(persister);
+		}
+	}
+
+}
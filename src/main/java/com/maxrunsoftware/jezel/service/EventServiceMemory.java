@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.json.JsonObject;
+
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.SettingService;
+
+/**
+ * Keeps the last events in a ring for Last-Event-ID resume and gives every subscriber its own bounded queue, so a slow
+ * subscriber only loses its own events and never blocks a publisher.
+ */
+public class EventServiceMemory implements EventService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(EventServiceMemory.class);
+
+	private final Object locker = new Object();
+	private final ArrayDeque<Event> replay = new ArrayDeque<Event>();
+	private final Set<SubscriptionQueue> subscriptions = new CopyOnWriteArraySet<SubscriptionQueue>();
+	private final int replaySize;
+	private final int subscriberBuffer;
+	private final int maxSubscribers;
+	private long nextId;
+
+	private final LongAdder publishedCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+
+	@Inject
+	public EventServiceMemory(SettingService settings) {
+		// ids continue past those of earlier processes so a client resuming across a restart is told to reload
+		this(settings, System.currentTimeMillis() * 1000);
+	}
+
+	EventServiceMemory(SettingService settings, long firstId) {
+		checkNotNull(settings);
+		this.nextId = firstId;
+		this.replaySize = Math.max(0, settings.getEventReplaySize());
+		this.subscriberBuffer = Math.max(1, settings.getEventSubscriberBuffer());
+		this.maxSubscribers = settings.getEventMaxSubscribers();
+	}
+
+	private class SubscriptionQueue implements Subscription {
+		private final BlockingQueue<Event> queue = new ArrayBlockingQueue<Event>(subscriberBuffer);
+		private volatile boolean missed;
+
+		private void offer(Event event) {
+			if (!queue.offer(event)) {
+				droppedCount.increment();
+				missed = true;
+			}
+		}
+
+		@Override
+		public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+			return queue.poll(timeout, unit);
+		}
+
+		@Override
+		public boolean takeMissed() {
+			var result = missed;
+			missed = false;
+			return result;
+		}
+
+		@Override
+		public void close() {
+			subscriptions.remove(this);
+		}
+	}
+
+	@Override
+	public void publish(String type, JsonObject data) {
+		synchronized (locker) {
+			var event = new Event(nextId++, type, data);
+			LOG.trace("Publishing " + event.id() + " " + type);
+			if (replaySize > 0) {
+				if (replay.size() >= replaySize) replay.removeFirst();
+				replay.addLast(event);
+			}
+			for (var subscription : subscriptions) {
+				subscription.offer(event);
+			}
+			publishedCount.increment();
+		}
+	}
+
+	@Override
+	public Subscription subscribe(Long lastEventId) {
+		synchronized (locker) {
+			if (maxSubscribers > 0 && subscriptions.size() >= maxSubscribers) return null;
+			var subscription = new SubscriptionQueue();
+			if (lastEventId != null && lastEventId >= nextId) {
+				// not an id of this process
+				subscription.missed = true;
+			} else if (lastEventId != null && lastEventId < nextId - 1) {
+				var oldest = replay.isEmpty() ? nextId : replay.peekFirst().id();
+				if (lastEventId < oldest - 1) subscription.missed = true;
+				for (var event : replay) {
+					if (event.id() > lastEventId) subscription.offer(event);
+				}
+			}
+			subscriptions.add(subscription);
+			return subscription;
+		}
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("publishedCount", publishedCount.sum());
+		map.put("droppedCount", droppedCount.sum());
+		map.put("subscribers", subscriptions.size());
+		return map;
+	}
+
+}
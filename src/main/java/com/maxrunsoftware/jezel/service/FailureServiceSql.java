@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+
+public class FailureServiceSql implements FailureService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(FailureServiceSql.class);
+	private static final int FRAMES = 5;
+	private static final int CAUSES = 10;
+	// generated class names differ between runs of the JVM, e.g. Foo$$Lambda$123/0x0000000800c0b000 or $Proxy12
+	private static final Pattern GENERATED = Pattern.compile("(\\$\\$Lambda|\\$Proxy|GeneratedMethodAccessor|GeneratedConstructorAccessor)[$\\d]*(/0x[0-9a-f]+)?");
+
+	private final DatabaseService db;
+	private final Object locker = new Object();
+	private final Cache<String, Integer> ids = CacheBuilder.newBuilder().maximumSize(10000).build();
+
+	private final LongAdder occurrenceCount = new LongAdder();
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+
+	@Inject
+	public FailureServiceSql(DatabaseService db) {
+		this.db = checkNotNull(db);
+	}
+
+	/**
+	 * SHA-256 of the exception classes of the cause chain with the top frames of each, ignoring messages and line
+	 * numbers which change between occurrences and builds.
+	 */
+	static String fingerprint(Throwable exception) {
+		var sb = new StringBuilder();
+		var seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+		for (var t = exception; t != null && seen.size() < CAUSES && seen.add(t); t = t.getCause()) {
+			sb.append(t.getClass().getName()).append('\n');
+			var frames = t.getStackTrace();
+			for (int i = 0; i < Math.min(FRAMES, frames.length); i++) {
+				sb.append(GENERATED.matcher(frames[i].getClassName()).replaceAll("$1")).append('.').append(frames[i].getMethodName()).append('\n');
+			}
+		}
+		return Hashing.sha256().hashString(sb, StandardCharsets.UTF_8).toString();
+	}
+
+	@Override
+	public Integer record(Throwable exception, int commandLogJobId, LocalDateTime timestamp) {
+		var fingerprint = fingerprint(exception);
+		try {
+			var cached = ids.getIfPresent(fingerprint);
+			if (cached != null) {
+				var updated = db.inTransactionGet(session -> session.createQuery("update CommandLogFailure f"
+						+ " set f.occurrenceCount = f.occurrenceCount + 1, f.lastSeen = :timestamp, f.lastCommandLogJobId = :commandLogJobId"
+						+ " where f.commandLogFailureId = :commandLogFailureId")
+						.setParameter("timestamp", timestamp)
+						.setParameter("commandLogJobId", commandLogJobId)
+						.setParameter("commandLogFailureId", cached)
+						.executeUpdate());
+				if (updated > 0) {
+					occurrenceCount.increment();
+					return cached;
+				}
+				// purged by retention since it was cached
+				ids.invalidate(fingerprint);
+			}
+
+			int commandLogFailureId;
+			synchronized (locker) {
+				commandLogFailureId = db.inTransactionGet(session -> {
+					var commandLogFailure = CommandLogFailure.getByFingerprint(session, fingerprint);
+					if (commandLogFailure == null) {
+						commandLogFailure = new CommandLogFailure();
+						commandLogFailure.setFingerprint(fingerprint);
+						commandLogFailure.setExceptionClass(exception.getClass().getName());
+						commandLogFailure.setStackTrace(ExceptionUtils.getStackTrace(exception));
+						commandLogFailure.setFirstSeen(timestamp);
+						createdCount.increment();
+					}
+					commandLogFailure.setOccurrenceCount(commandLogFailure.getOccurrenceCount() + 1);
+					commandLogFailure.setLastSeen(timestamp);
+					commandLogFailure.setLastCommandLogJobId(commandLogJobId);
+					return save(session, commandLogFailure);
+				});
+				ids.put(fingerprint, commandLogFailureId);
+			}
+			occurrenceCount.increment();
+			return commandLogFailureId;
+		} catch (RuntimeException e) {
+			failedCount.increment();
+			LOG.warn("Could not record failure " + exception, e);
+			return null;
+		}
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("occurrenceCount", occurrenceCount.sum());
+		map.put("createdCount", createdCount.sum());
+		map.put("failedCount", failedCount.sum());
+		map.put("cachedCount", ids.size());
+		return map;
+	}
+}
@@ -0,0 +1,1081 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+/**
+ * Inverted index of lower-cased words, CommandLogJob and level terms. New CommandLogMessages are collected in memory and
+ * written as an immutable segment file once there are enough of them. A segment holds a fixed-width document table
+ * sorted by cursor, the sorted term dictionary and delta-encoded postings, and is read through a memory-mapped view.
+ * Whenever the newest segments are {@value #MERGE_FACTOR} of the same size class they are merged in the background, and
+ * purged CommandLogJobs are dropped from the documents during the merge.
+ */
+public class LogSearchServiceIndex implements LogSearchService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(LogSearchServiceIndex.class);
+	private static final String SUFFIX = ".idx";
+	private static final String DELETED = "deleted.bin";
+	private static final int MAGIC = 0x4A5A4958;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 80;
+	private static final int DOC_SIZE = 25;
+	private static final int TERM_SIZE = 12;
+	private static final int MERGE_FACTOR = 4;
+	private static final long MERGE_MAX_BYTES = 1L << 30;
+	private static final int MAX_WORD_LENGTH = 64;
+	private static final int MAX_TERMS = 4096;
+	private static final String TERM_JOB = "job=";
+	private static final String TERM_LEVEL = "level=";
+	private static final Pattern CAMEL_CASE = Pattern.compile("(?<=\\p{Ll})(?=\\p{Lu})");
+
+	private final DatabaseService db;
+	private final LogStoreService logStore;
+	private final boolean enabled;
+	private final Path directory;
+	private final boolean temporary;
+	private final int flushSize;
+
+	private final Object locker = new Object();
+	private boolean opened;
+	private volatile List<Segment> segments = List.of();
+	private volatile Set<Integer> deleted = Set.of();
+	private Active active;
+	private int nextDoc;
+	private int nextFile;
+	private ExecutorService executor;
+
+	private final LongAdder addCount = new LongAdder();
+	private final LongAdder catchUpCount = new LongAdder();
+	private final LongAdder searchCount = new LongAdder();
+	private final LongAdder searchMillis = new LongAdder();
+	private final LongAdder flushCount = new LongAdder();
+	private final LongAdder mergeCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+
+	@Inject
+	public LogSearchServiceIndex(SettingService settings, DatabaseService db, LogStoreService logStore) {
+		checkNotNull(settings);
+		this.db = checkNotNull(db);
+		this.logStore = checkNotNull(logStore);
+		this.enabled = settings.getLogSearch();
+		var dir = trimOrNull(settings.getLogSearchDir());
+		// an in-memory database gets an index of its own that is deleted on close
+		this.temporary = dir == null && settings.getDatabaseMemory();
+		if (dir == null) {
+			dir = temporary
+					? Paths.get(settings.getDirTemp(), "jezel-search-" + UUID.randomUUID()).toString()
+					: settings.getDatabaseDir().trim() + "-search";
+		}
+		this.directory = Paths.get(dir);
+		this.flushSize = Math.max(1, settings.getLogSearchFlushSize());
+	}
+
+	/**
+	 * Words are runs of letters and digits, lower-cased and cut to {@value #MAX_WORD_LENGTH} characters. With parts the
+	 * pieces of camel case words are added too, so IllegalStateException is also found by exception.
+	 */
+	static List<String> words(String text, boolean parts) {
+		var list = new ArrayList<String>();
+		if (text == null) return list;
+		var start = -1;
+		for (int i = 0; i <= text.length();) {
+			var cp = i < text.length() ? text.codePointAt(i) : -1;
+			if (cp != -1 && Character.isLetterOrDigit(cp)) {
+				if (start < 0) start = i;
+			} else if (start >= 0) {
+				var word = text.substring(start, i);
+				list.add(word(word));
+				if (parts) {
+					var pieces = CAMEL_CASE.split(word);
+					if (pieces.length > 1) {
+						for (var piece : pieces) {
+							list.add(word(piece));
+						}
+					}
+				}
+				start = -1;
+			}
+			i += cp == -1 ? 1 : Character.charCount(cp);
+		}
+		return list;
+	}
+
+	private static String word(String word) {
+		word = word.toLowerCase(Locale.ROOT);
+		return word.length() <= MAX_WORD_LENGTH ? word : word.substring(0, word.offsetByCodePoints(0, Math.min(MAX_WORD_LENGTH, word.codePointCount(0, word.length()))));
+	}
+
+	private static byte level(String level) {
+		var l = LogLevel.parse(level);
+		return l == null ? -1 : (byte) l.ordinal();
+	}
+
+	private static long millis(LocalDateTime timestamp) {
+		return timestamp == null ? 0 : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	private static LocalDateTime timestamp(long millis) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1000000, ZoneOffset.UTC);
+	}
+
+
+	/**
+	 * Growable document table, one row per indexed CommandLogMessage ordered by cursor.
+	 */
+	private static final class Docs {
+		private int size;
+		private int[] cursor = new int[16];
+		private int[] commandLogMessageId = new int[16];
+		private int[] commandLogJobId = new int[16];
+		private int[] commandLogActionId = new int[16];
+		private byte[] level = new byte[16];
+		private long[] millis = new long[16];
+
+		private void add(int c, int m, int j, int a, byte l, long t) {
+			if (size == cursor.length) {
+				var n = size * 2;
+				cursor = Arrays.copyOf(cursor, n);
+				commandLogMessageId = Arrays.copyOf(commandLogMessageId, n);
+				commandLogJobId = Arrays.copyOf(commandLogJobId, n);
+				commandLogActionId = Arrays.copyOf(commandLogActionId, n);
+				level = Arrays.copyOf(level, n);
+				millis = Arrays.copyOf(millis, n);
+			}
+			cursor[size] = c;
+			commandLogMessageId[size] = m;
+			commandLogJobId[size] = j;
+			commandLogActionId[size] = a;
+			level[size] = l;
+			millis[size] = t;
+			size++;
+		}
+	}
+
+	private static abstract class Segment {
+		abstract int size();
+
+		abstract int cursor(int i);
+
+		abstract int commandLogMessageId(int i);
+
+		abstract int commandLogJobId(int i);
+
+		abstract int commandLogActionId(int i);
+
+		abstract byte level(int i);
+
+		abstract long millis(int i);
+
+		abstract int[] postings(String term);
+
+		abstract List<int[]> postingsPrefix(String prefix);
+
+		/**
+		 * Number of documents with a cursor lower than the given one.
+		 */
+		int count(int before) {
+			int lo = 0, hi = size();
+			while (lo < hi) {
+				var mid = (lo + hi) >>> 1;
+				if (cursor(mid) < before) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		/**
+		 * Sorted documents matching any of the terms of the clause.
+		 */
+		int[] postings(Clause clause) {
+			var lists = new ArrayList<int[]>();
+			for (var term : clause.terms()) {
+				var p = postings(term);
+				if (p != null) lists.add(p);
+			}
+			if (clause.prefix() != null) lists.addAll(postingsPrefix(clause.prefix()));
+			if (lists.isEmpty()) return new int[0];
+			if (lists.size() == 1) return lists.get(0);
+			return Arrays.stream(lists.toArray(new int[0][])).flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+		}
+	}
+
+	/**
+	 * The segment still being collected in memory.
+	 */
+	private static final class Active extends Segment {
+		private final Docs docs = new Docs();
+		private final TreeMap<String, int[]> terms = new TreeMap<String, int[]>();
+
+		private void add(int cursor, int commandLogMessageId, int commandLogJobId, int commandLogActionId, byte level, long millis, Collection<String> words) {
+			var doc = docs.size;
+			docs.add(cursor, commandLogMessageId, commandLogJobId, commandLogActionId, level, millis);
+			for (var word : words) {
+				// first slot is the count, a document adds each term once
+				var p = terms.get(word);
+				if (p == null) {
+					p = new int[4];
+				} else if (p[0] + 1 == p.length) {
+					p = Arrays.copyOf(p, p.length * 2);
+				}
+				p[++p[0]] = doc;
+				terms.put(word, p);
+			}
+		}
+
+		@Override
+		int size() {
+			return docs.size;
+		}
+
+		@Override
+		int cursor(int i) {
+			return docs.cursor[i];
+		}
+
+		@Override
+		int commandLogMessageId(int i) {
+			return docs.commandLogMessageId[i];
+		}
+
+		@Override
+		int commandLogJobId(int i) {
+			return docs.commandLogJobId[i];
+		}
+
+		@Override
+		int commandLogActionId(int i) {
+			return docs.commandLogActionId[i];
+		}
+
+		@Override
+		byte level(int i) {
+			return docs.level[i];
+		}
+
+		@Override
+		long millis(int i) {
+			return docs.millis[i];
+		}
+
+		@Override
+		int[] postings(String term) {
+			var p = terms.get(term);
+			return p == null ? null : Arrays.copyOfRange(p, 1, p[0] + 1);
+		}
+
+		@Override
+		List<int[]> postingsPrefix(String prefix) {
+			var list = new ArrayList<int[]>();
+			for (var p : terms.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+				list.add(Arrays.copyOfRange(p, 1, p[0] + 1));
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * Memory-mapped segment file, see {@link LogSearchServiceIndex#write}.
+	 */
+	private static final class Mapped extends Segment {
+		private final Path path;
+		private final int number;
+		private final ByteBuffer buffer;
+		private final int level;
+		private final int size;
+		private final int termCount;
+		private final int firstCursor;
+		private final int lastCursor;
+		private final int maxCommandLogActionId;
+		private final int minCommandLogJobId;
+		private final long flushed;
+		private final int termsOffset;
+		private final int termBytesOffset;
+		private final int postingsOffset;
+
+		private Mapped(Path path, int number) throws IOException {
+			this.path = path;
+			this.number = number;
+			try (var c = FileChannel.open(path, StandardOpenOption.READ)) {
+				buffer = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+			}
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException("Not a search index segment: " + path);
+			level = buffer.getInt(8);
+			size = buffer.getInt(12);
+			termCount = buffer.getInt(16);
+			firstCursor = buffer.getInt(20);
+			lastCursor = buffer.getInt(24);
+			maxCommandLogActionId = buffer.getInt(28);
+			minCommandLogJobId = buffer.getInt(32);
+			flushed = buffer.getLong(40);
+			termBytesOffset = buffer.getInt(48);
+			postingsOffset = buffer.getInt(52);
+			termsOffset = HEADER_SIZE + size * DOC_SIZE;
+		}
+
+		private long minMillis() {
+			return buffer.getLong(56);
+		}
+
+		private long maxMillis() {
+			return buffer.getLong(64);
+		}
+
+		@Override
+		int size() {
+			return size;
+		}
+
+		@Override
+		int cursor(int i) {
+			return buffer.getInt(HEADER_SIZE + i * DOC_SIZE);
+		}
+
+		@Override
+		int commandLogMessageId(int i) {
+			return buffer.getInt(HEADER_SIZE + i * DOC_SIZE + 4);
+		}
+
+		@Override
+		int commandLogJobId(int i) {
+			return buffer.getInt(HEADER_SIZE + i * DOC_SIZE + 8);
+		}
+
+		@Override
+		int commandLogActionId(int i) {
+			return buffer.getInt(HEADER_SIZE + i * DOC_SIZE + 12);
+		}
+
+		@Override
+		byte level(int i) {
+			return buffer.get(HEADER_SIZE + i * DOC_SIZE + 16);
+		}
+
+		@Override
+		long millis(int i) {
+			return buffer.getLong(HEADER_SIZE + i * DOC_SIZE + 17);
+		}
+
+		private int termStart(int t) {
+			return buffer.getInt(termsOffset + t * TERM_SIZE);
+		}
+
+		private byte[] term(int t) {
+			var start = termStart(t);
+			var bytes = new byte[termStart(t + 1) - start];
+			buffer.get(termBytesOffset + start, bytes);
+			return bytes;
+		}
+
+		private int compare(int t, byte[] key) {
+			var start = termBytesOffset + termStart(t);
+			var length = termBytesOffset + termStart(t + 1) - start;
+			var n = Math.min(length, key.length);
+			for (int i = 0; i < n; i++) {
+				var c = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+				if (c != 0) return c;
+			}
+			return length - key.length;
+		}
+
+		/**
+		 * First term not lower than the key.
+		 */
+		private int lowerBound(byte[] key) {
+			int lo = 0, hi = termCount;
+			while (lo < hi) {
+				var mid = (lo + hi) >>> 1;
+				if (compare(mid, key) < 0) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		private int[] decode(int t) {
+			var count = buffer.getInt(termsOffset + t * TERM_SIZE + 8);
+			var p = postingsOffset + buffer.getInt(termsOffset + t * TERM_SIZE + 4);
+			var array = new int[count];
+			var doc = -1;
+			for (int i = 0; i < count; i++) {
+				int delta = 0, shift = 0, b;
+				do {
+					b = buffer.get(p++);
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				doc += delta;
+				array[i] = doc;
+			}
+			return array;
+		}
+
+		@Override
+		int[] postings(String term) {
+			var key = term.getBytes(StandardCharsets.UTF_8);
+			var t = lowerBound(key);
+			return t < termCount && compare(t, key) == 0 ? decode(t) : null;
+		}
+
+		@Override
+		List<int[]> postingsPrefix(String prefix) {
+			var key = prefix.getBytes(StandardCharsets.UTF_8);
+			var list = new ArrayList<int[]>();
+			for (int t = lowerBound(key); t < termCount; t++) {
+				var start = termBytesOffset + termStart(t);
+				if (termStart(t + 1) - termStart(t) < key.length || !buffer.slice(start, key.length).equals(ByteBuffer.wrap(key))) break;
+				list.add(decode(t));
+			}
+			return list;
+		}
+	}
+
+	private Path path(int number) {
+		return directory.resolve(String.format("%08d", number) + SUFFIX);
+	}
+
+	/**
+	 * Writes a segment of the given documents, the terms must come in unsigned byte order with postings of document
+	 * positions in ascending order.
+	 *
+	 * <pre>
+	 * header   magic, version, level, documents, terms, first cursor, last cursor, max commandLogActionId,
+	 *          min commandLogJobId, max commandLogJobId, flushed, term bytes offset, postings offset, min and max timestamp
+	 * docs     cursor, commandLogMessageId, commandLogJobId, commandLogActionId, level byte, timestamp millis
+	 * terms    term bytes start, postings start, postings count, plus one entry holding the ends
+	 * bytes    UTF-8 terms
+	 * postings varint gaps between document positions
+	 * </pre>
+	 */
+	private Mapped write(int number, int level, int firstCursor, int lastCursor, Docs docs, Iterable<Map.Entry<byte[], int[]>> terms) throws IOException {
+		var termTable = new ByteArrayOutputStream();
+		var termTableOut = new DataOutputStream(termTable);
+		var termBytes = new ByteArrayOutputStream();
+		var postings = new ByteArrayOutputStream();
+		var termCount = 0;
+		for (var term : terms) {
+			termTableOut.writeInt(termBytes.size());
+			termTableOut.writeInt(postings.size());
+			termTableOut.writeInt(term.getValue().length);
+			termBytes.write(term.getKey());
+			var previous = -1;
+			for (var doc : term.getValue()) {
+				var delta = doc - previous;
+				while ((delta & ~0x7F) != 0) {
+					postings.write((delta & 0x7F) | 0x80);
+					delta >>>= 7;
+				}
+				postings.write(delta);
+				previous = doc;
+			}
+			termCount++;
+		}
+		termTableOut.writeInt(termBytes.size());
+		termTableOut.writeInt(postings.size());
+		termTableOut.writeInt(0);
+
+		int maxActionId = 0, minJobId = Integer.MAX_VALUE, maxJobId = 0;
+		long minMillis = Long.MAX_VALUE, maxMillis = Long.MIN_VALUE;
+		for (int i = 0; i < docs.size; i++) {
+			maxActionId = Math.max(maxActionId, docs.commandLogActionId[i]);
+			minJobId = Math.min(minJobId, docs.commandLogJobId[i]);
+			maxJobId = Math.max(maxJobId, docs.commandLogJobId[i]);
+			minMillis = Math.min(minMillis, docs.millis[i]);
+			maxMillis = Math.max(maxMillis, docs.millis[i]);
+		}
+		var termBytesOffset = (long) HEADER_SIZE + (long) docs.size * DOC_SIZE + termTable.size();
+		var postingsOffset = termBytesOffset + termBytes.size();
+		if (postingsOffset + postings.size() > Integer.MAX_VALUE) throw new IOException("Search index segment too large");
+
+		var file = path(number);
+		var temp = directory.resolve(file.getFileName() + ".tmp");
+		try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(level);
+			out.writeInt(docs.size);
+			out.writeInt(termCount);
+			out.writeInt(firstCursor);
+			out.writeInt(lastCursor);
+			out.writeInt(maxActionId);
+			out.writeInt(docs.size == 0 ? 0 : minJobId);
+			out.writeInt(maxJobId);
+			out.writeLong(System.currentTimeMillis());
+			out.writeInt((int) termBytesOffset);
+			out.writeInt((int) postingsOffset);
+			out.writeLong(docs.size == 0 ? 0 : minMillis);
+			out.writeLong(docs.size == 0 ? 0 : maxMillis);
+			out.write(new byte[HEADER_SIZE - 72]);
+			for (int i = 0; i < docs.size; i++) {
+				out.writeInt(docs.cursor[i]);
+				out.writeInt(docs.commandLogMessageId[i]);
+				out.writeInt(docs.commandLogJobId[i]);
+				out.writeInt(docs.commandLogActionId[i]);
+				out.writeByte(docs.level[i]);
+				out.writeLong(docs.millis[i]);
+			}
+			termTable.writeTo(out);
+			termBytes.writeTo(out);
+			postings.writeTo(out);
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+		return new Mapped(file, number);
+	}
+
+
+	private void open() throws IOException {
+		if (opened) return;
+		Files.createDirectories(directory);
+		var loaded = new ArrayList<Mapped>();
+		try (var stream = Files.list(directory)) {
+			for (var file : (Iterable<Path>) stream::iterator) {
+				var name = file.getFileName().toString();
+				if (name.endsWith(".tmp")) {
+					Files.deleteIfExists(file);
+					continue;
+				}
+				if (!name.endsWith(SUFFIX)) continue;
+				var number = Ints.tryParse(name.substring(0, name.length() - SUFFIX.length()));
+				if (number == null) continue;
+				try {
+					loaded.add(new Mapped(file, number));
+				} catch (IOException e) {
+					LOG.warn("Dropping unreadable search index segment " + file, e);
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+
+		// a merge that stopped before removing its inputs leaves segments covered by the newer merged one
+		loaded.sort(Comparator.comparingInt((Mapped m) -> m.number).reversed());
+		var kept = new ArrayList<Segment>();
+		nextDoc = 0;
+		nextFile = 1;
+		for (var m : loaded) {
+			nextFile = Math.max(nextFile, m.number + 1);
+			var covered = kept.stream().map(s -> (Mapped) s).anyMatch(k -> m.firstCursor <= k.lastCursor && k.firstCursor <= m.lastCursor);
+			if (covered) {
+				Files.deleteIfExists(m.path);
+				continue;
+			}
+			kept.add(m);
+			nextDoc = Math.max(nextDoc, m.lastCursor + 1);
+		}
+		kept.sort(Comparator.comparingInt(s -> ((Mapped) s).firstCursor));
+		segments = List.copyOf(kept);
+
+		var deletedFile = directory.resolve(DELETED);
+		if (Files.exists(deletedFile)) {
+			var buffer = ByteBuffer.wrap(Files.readAllBytes(deletedFile));
+			var set = new HashSet<Integer>();
+			while (buffer.remaining() >= 4) {
+				set.add(buffer.getInt());
+			}
+			deleted = Set.copyOf(set);
+		}
+
+		active = new Active();
+		opened = true;
+		LOG.info("Search index " + directory + " with " + kept.size() + " segments, next cursor " + nextDoc);
+	}
+
+	private void writeDeleted(Set<Integer> set) throws IOException {
+		var buffer = ByteBuffer.allocate(set.size() * 4);
+		for (var id : new TreeSet<Integer>(set)) {
+			buffer.putInt(id);
+		}
+		var file = directory.resolve(DELETED);
+		var temp = directory.resolve(DELETED + ".tmp");
+		Files.write(temp, buffer.array());
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void start() {
+		if (!enabled) return;
+		int commandLogActionIdMax;
+		synchronized (locker) {
+			if (executor != null) return;
+			try {
+				open();
+			} catch (IOException e) {
+				failedCount.increment();
+				LOG.error("Could not open search index " + directory, e);
+				return;
+			}
+			executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("LogSearch").setDaemon(true).build());
+		}
+		// CommandLogActions created from here on are indexed as they log
+		try (var session = db.openSession()) {
+			commandLogActionIdMax = coalesce(session.createQuery("select max(a.commandLogActionId) from CommandLogAction a", Integer.class).getSingleResult(), 0);
+		}
+		executor.execute(() -> catchUp(commandLogActionIdMax));
+		executor.execute(this::merge);
+	}
+
+	/**
+	 * Indexes the CommandLogMessages of CommandLogActions that were not finished when the newest segment was written,
+	 * or that are not in the index at all, skipping the ones already in it.
+	 */
+	private void catchUp(int commandLogActionIdMax) {
+		try {
+			var indexedActionIdMax = 0;
+			var flushed = 0L;
+			for (var s : segments) {
+				var m = (Mapped) s;
+				indexedActionIdMax = Math.max(indexedActionIdMax, m.maxCommandLogActionId);
+				flushed = Math.max(flushed, m.flushed);
+			}
+			List<Integer> commandLogActionIds;
+			try (var session = db.openSession()) {
+				commandLogActionIds = session.createQuery("select a.commandLogActionId from CommandLogAction a where a.commandLogActionId <= :max"
+						+ " and (a.commandLogActionId > :indexed or a.end is null or a.end >= :flushed) order by a.commandLogActionId", Integer.class)
+						.setParameter("max", commandLogActionIdMax)
+						.setParameter("indexed", indexedActionIdMax)
+						.setParameter("flushed", LocalDateTime.ofInstant(Instant.ofEpochMilli(flushed), ZoneId.systemDefault()))
+						.getResultList();
+			}
+			if (commandLogActionIds.isEmpty()) return;
+
+			var candidates = new HashSet<Integer>(commandLogActionIds);
+			var indexed = new HashSet<Long>();
+			for (var s : segments) {
+				for (int i = 0; i < s.size(); i++) {
+					if (candidates.contains(s.commandLogActionId(i))) indexed.add(((long) s.commandLogActionId(i) << 32) | s.commandLogMessageId(i));
+				}
+			}
+
+			var count = 0;
+			for (var chunk : Lists.partition(commandLogActionIds, 100)) {
+				try (var session = db.openSession()) {
+					for (var commandLogActionId : chunk) {
+						var commandLogAction = getById(CommandLogAction.class, session, commandLogActionId);
+						if (commandLogAction == null) continue;
+						var commandLogMessages = new ArrayList<CommandLogMessage>(commandLogAction.getCommandLogMessages());
+						commandLogMessages.addAll(logStore.read(commandLogAction));
+						commandLogMessages.sort(Comparator.comparingInt(CommandLogMessage::getCommandLogMessageId));
+						var commandLogJobId = commandLogAction.getCommandLogJob().getCommandLogJobId();
+						for (var commandLogMessage : commandLogMessages) {
+							if (indexed.contains(((long) commandLogActionId << 32) | commandLogMessage.getCommandLogMessageId())) continue;
+							add(commandLogJobId, commandLogActionId, commandLogMessage);
+							count++;
+						}
+					}
+				}
+			}
+			catchUpCount.add(count);
+			LOG.info("Search index caught up on " + count + " CommandLogMessages of " + commandLogActionIds.size() + " CommandLogActions");
+		} catch (Throwable t) {
+			failedCount.increment();
+			LOG.error("Search index catch up failed", t);
+		}
+	}
+
+	@Override
+	public void add(int commandLogJobId, int commandLogActionId, CommandLogMessage commandLogMessage) {
+		if (!enabled) return;
+		var terms = new LinkedHashSet<String>();
+		terms.add(TERM_JOB + commandLogJobId);
+		var level = level(commandLogMessage.getLevel());
+		if (level >= 0) terms.add(TERM_LEVEL + LogLevel.values()[level].name());
+		for (var text : new String[] { commandLogMessage.getMessage(), commandLogMessage.getException() }) {
+			for (var word : words(text, true)) {
+				if (terms.size() >= MAX_TERMS) break;
+				terms.add(word);
+			}
+		}
+
+		synchronized (locker) {
+			try {
+				open();
+				active.add(nextDoc++, commandLogMessage.getCommandLogMessageId(), commandLogJobId, commandLogActionId, level, millis(commandLogMessage.getTimestamp()), terms);
+				if (active.size() >= flushSize) flush();
+			} catch (IOException | RuntimeException e) {
+				failedCount.increment();
+				LOG.warn("Could not index CommandLogMessage[" + commandLogMessage.getCommandLogMessageId() + "]", e);
+				return;
+			}
+		}
+		addCount.increment();
+	}
+
+	/**
+	 * Writes the in-memory segment to a file, holding the lock.
+	 */
+	private void flush() throws IOException {
+		if (active.size() == 0) return;
+		var terms = new ArrayList<Map.Entry<byte[], int[]>>(active.terms.size());
+		for (var term : active.terms.entrySet()) {
+			var p = term.getValue();
+			terms.add(Map.entry(term.getKey().getBytes(StandardCharsets.UTF_8), Arrays.copyOfRange(p, 1, p[0] + 1)));
+		}
+		terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+		var segment = write(nextFile++, 0, active.cursor(0), nextDoc - 1, active.docs, terms);
+		var list = new ArrayList<Segment>(segments);
+		list.add(segment);
+		segments = List.copyOf(list);
+		active = new Active();
+		flushCount.increment();
+		LOG.debug("Wrote search index segment " + segment.path + " with " + segment.size() + " CommandLogMessages");
+		if (executor != null) executor.execute(this::merge);
+	}
+
+	/**
+	 * Merges the newest segments while {@value #MERGE_FACTOR} of them share a level.
+	 */
+	private void merge() {
+		try {
+			while (true) {
+				var list = segments;
+				if (list.size() < MERGE_FACTOR) return;
+				var inputs = new ArrayList<Mapped>();
+				for (int i = list.size() - MERGE_FACTOR; i < list.size(); i++) {
+					inputs.add((Mapped) list.get(i));
+				}
+				var level = inputs.get(0).level;
+				if (inputs.stream().anyMatch(m -> m.level != level)) return;
+				if (inputs.stream().mapToLong(m -> m.buffer.limit()).sum() > MERGE_MAX_BYTES) return;
+
+				var merged = merge(inputs, level + 1);
+				synchronized (locker) {
+					var updated = new ArrayList<Segment>(segments);
+					var at = updated.indexOf(inputs.get(0));
+					updated.removeAll(inputs);
+					updated.add(at, merged);
+					segments = List.copyOf(updated);
+					prune();
+				}
+				for (var m : inputs) {
+					Files.deleteIfExists(m.path);
+				}
+				mergeCount.increment();
+				LOG.debug("Merged " + inputs.size() + " search index segments into " + merged.path);
+			}
+		} catch (Throwable t) {
+			failedCount.increment();
+			LOG.error("Search index merge failed", t);
+		}
+	}
+
+	private record TermCursor(int input, int term, byte[] bytes) {}
+
+	private Mapped merge(List<Mapped> inputs, int level) throws IOException {
+		var deletedSnapshot = deleted;
+		var docs = new Docs();
+		var remap = new int[inputs.size()][];
+		for (int s = 0; s < inputs.size(); s++) {
+			var m = inputs.get(s);
+			remap[s] = new int[m.size()];
+			for (int i = 0; i < m.size(); i++) {
+				if (deletedSnapshot.contains(m.commandLogJobId(i))) {
+					remap[s][i] = -1;
+					continue;
+				}
+				remap[s][i] = docs.size;
+				docs.add(m.cursor(i), m.commandLogMessageId(i), m.commandLogJobId(i), m.commandLogActionId(i), m.level(i), m.millis(i));
+			}
+		}
+
+		var queue = new PriorityQueue<TermCursor>((a, b) -> {
+			var c = Arrays.compareUnsigned(a.bytes(), b.bytes());
+			return c != 0 ? c : Integer.compare(a.input(), b.input());
+		});
+		for (int s = 0; s < inputs.size(); s++) {
+			if (inputs.get(s).termCount > 0) queue.add(new TermCursor(s, 0, inputs.get(s).term(0)));
+		}
+		Iterable<Map.Entry<byte[], int[]>> terms = () -> new Iterator<Map.Entry<byte[], int[]>>() {
+			private int[] buffer = new int[1024];
+			private Map.Entry<byte[], int[]> next = advance();
+
+			private Map.Entry<byte[], int[]> advance() {
+				while (!queue.isEmpty()) {
+					var bytes = queue.peek().bytes();
+					var size = 0;
+					while (!queue.isEmpty() && Arrays.equals(queue.peek().bytes(), bytes)) {
+						var cursor = queue.poll();
+						var m = inputs.get(cursor.input());
+						for (var doc : m.decode(cursor.term())) {
+							var mapped = remap[cursor.input()][doc];
+							if (mapped < 0) continue;
+							if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+							buffer[size++] = mapped;
+						}
+						if (cursor.term() + 1 < m.termCount) queue.add(new TermCursor(cursor.input(), cursor.term() + 1, m.term(cursor.term() + 1)));
+					}
+					if (size > 0) return Map.entry(bytes, Arrays.copyOf(buffer, size));
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Map.Entry<byte[], int[]> next() {
+				var current = next;
+				next = advance();
+				return current;
+			}
+		};
+
+		int number;
+		synchronized (locker) {
+			number = nextFile++;
+		}
+		return write(number, level, inputs.get(0).firstCursor, inputs.get(inputs.size() - 1).lastCursor, docs, terms);
+	}
+
+	/**
+	 * Forgets purged CommandLogJobs older than every document still in the index, holding the lock.
+	 */
+	private void prune() throws IOException {
+		var current = deleted;
+		if (current.isEmpty()) return;
+		var min = Integer.MAX_VALUE;
+		for (var s : segments) {
+			if (s.size() > 0) min = Math.min(min, ((Mapped) s).minCommandLogJobId);
+		}
+		for (int i = 0; i < active.size(); i++) {
+			min = Math.min(min, active.commandLogJobId(i));
+		}
+		var keep = new HashSet<Integer>();
+		for (var id : current) {
+			if (id >= min) keep.add(id);
+		}
+		if (keep.size() == current.size()) return;
+		writeDeleted(keep);
+		deleted = Set.copyOf(keep);
+	}
+
+	@Override
+	public void delete(Collection<Integer> commandLogJobIds) {
+		if (!enabled || commandLogJobIds.isEmpty()) return;
+		synchronized (locker) {
+			try {
+				open();
+				var set = new HashSet<Integer>(deleted);
+				set.addAll(commandLogJobIds);
+				writeDeleted(set);
+				deleted = Set.copyOf(set);
+			} catch (IOException e) {
+				failedCount.increment();
+				LOG.warn("Could not record purged CommandLogJobs in the search index", e);
+			}
+		}
+	}
+
+	private record Clause(List<String> terms, String prefix) {}
+
+	private static List<Clause> clauses(Query query) {
+		var clauses = new ArrayList<Clause>();
+		for (var part : coalesce(query.text(), "").trim().split("\\s+")) {
+			var prefix = part.endsWith("*");
+			var words = words(part, false);
+			for (int i = 0; i < words.size(); i++) {
+				if (prefix && i == words.size() - 1) clauses.add(new Clause(List.of(), words.get(i)));
+				else clauses.add(new Clause(List.of(words.get(i)), null));
+			}
+		}
+		if (query.commandLogJobId() != null) clauses.add(new Clause(List.of(TERM_JOB + query.commandLogJobId()), null));
+		if (query.level() != null && query.level().ordinal() > 0) {
+			var terms = new ArrayList<String>();
+			for (var level : LogLevel.values()) {
+				if (level.isAtLeast(query.level())) terms.add(TERM_LEVEL + level.name());
+			}
+			clauses.add(new Clause(terms, null));
+		}
+		return clauses;
+	}
+
+	/**
+	 * Adds the newest matching documents of a segment until the limit is reached.
+	 */
+	private static void search(Segment segment, List<Clause> clauses, Query query, long from, long to, Set<Integer> deletedSnapshot, List<Hit> hits) {
+		var end = query.before() == null ? segment.size() : segment.count(query.before());
+		if (end == 0) return;
+
+		int[][] lists = new int[clauses.size()][];
+		for (int c = 0; c < clauses.size(); c++) {
+			lists[c] = segment.postings(clauses.get(c));
+			if (lists[c].length == 0) return;
+		}
+		Arrays.sort(lists, Comparator.comparingInt(a -> a.length));
+
+		var position = lists.length == 0 ? end : lowerBound(lists[0], end);
+		while (--position >= 0 && hits.size() < query.limit()) {
+			var doc = lists.length == 0 ? position : lists[0][position];
+			var match = true;
+			for (int c = 1; c < lists.length && match; c++) {
+				match = Arrays.binarySearch(lists[c], doc) >= 0;
+			}
+			if (!match) continue;
+			var millis = segment.millis(doc);
+			if (millis < from || millis > to) continue;
+			var commandLogJobId = segment.commandLogJobId(doc);
+			if (deletedSnapshot.contains(commandLogJobId)) continue;
+			var level = segment.level(doc);
+			hits.add(new Hit(segment.cursor(doc), segment.commandLogMessageId(doc), commandLogJobId, segment.commandLogActionId(doc), level < 0 ? null : LogLevel.values()[level], timestamp(millis)));
+		}
+	}
+
+	private static int lowerBound(int[] array, int value) {
+		var i = Arrays.binarySearch(array, value);
+		return i >= 0 ? i : -i - 1;
+	}
+
+	@Override
+	public List<Hit> search(Query query) {
+		var hits = new ArrayList<Hit>();
+		if (!enabled || query.limit() <= 0) return hits;
+		var start = System.nanoTime();
+		searchCount.increment();
+
+		var clauses = clauses(query);
+		var from = query.from() == null ? Long.MIN_VALUE : millis(query.from());
+		var to = query.to() == null ? Long.MAX_VALUE : millis(query.to());
+		List<Segment> snapshot;
+		Set<Integer> deletedSnapshot;
+		synchronized (locker) {
+			try {
+				open();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			snapshot = segments;
+			deletedSnapshot = deleted;
+			search(active, clauses, query, from, to, deletedSnapshot, hits);
+		}
+		for (int i = snapshot.size() - 1; i >= 0 && hits.size() < query.limit(); i--) {
+			var m = (Mapped) snapshot.get(i);
+			if (query.before() != null && m.firstCursor >= query.before()) continue;
+			if (m.size() == 0 || m.maxMillis() < from || m.minMillis() > to) continue;
+			search(m, clauses, query, from, to, deletedSnapshot, hits);
+		}
+		searchMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return hits;
+	}
+
+	@Override
+	public void close() throws IOException {
+		ExecutorService e;
+		synchronized (locker) {
+			e = executor;
+			executor = null;
+		}
+		if (e != null) {
+			e.shutdown();
+			try {
+				if (!e.awaitTermination(30, TimeUnit.SECONDS)) e.shutdownNow();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (locker) {
+			if (!temporary) {
+				if (opened) flush();
+				return;
+			}
+			opened = false;
+			segments = List.of();
+			if (!Files.isDirectory(directory)) return;
+			try (var stream = Files.walk(directory)) {
+				for (var file : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+					Files.deleteIfExists(file);
+				}
+			}
+			LOG.debug("Deleted search index " + directory);
+		}
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("enabled", enabled);
+		map.put("addCount", addCount.sum());
+		map.put("catchUpCount", catchUpCount.sum());
+		map.put("searchCount", searchCount.sum());
+		map.put("searchMillis", searchMillis.sum());
+		map.put("flushCount", flushCount.sum());
+		map.put("mergeCount", mergeCount.sum());
+		map.put("failedCount", failedCount.sum());
+		var list = segments;
+		map.put("segments", list.size());
+		map.put("documents", list.stream().mapToLong(Segment::size).sum());
+		map.put("bytes", list.stream().mapToLong(s -> ((Mapped) s).buffer.limit()).sum());
+		return map;
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+
+import com.google.common.primitives.Ints;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.util.CompressedText;
+
+/**
+ * Append-only segment files of length-prefixed CommandLogMessage records, rotated by size. A pointer is the segment
+ * number and the offset of a record, each CommandLogAction gets the packed pointers of its messages when it finishes.
+ * Full segments are read through memory-mapped views. A CommandLogAction that never finished, because the process
+ * stopped, is recovered by scanning the segments from the one it started in. Message ids continue after the largest
+ * CommandLogMessage id in the database so messages stored before the log store was enabled keep their order.
+ */
+public class LogStoreServiceSegment implements LogStoreService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(LogStoreServiceSegment.class);
+	private static final String SUFFIX = ".seg";
+	private static final int OFFSET_BITS = 40;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+	private final DatabaseService db;
+	private final boolean enabled;
+	private final Path directory;
+	private final boolean temporary;
+	private final long segmentSize;
+
+	private final Object locker = new Object();
+	private FileChannel channel;
+	private int segment;
+	private long position;
+	private int nextId;
+
+	private final Map<Integer, List<Long>> pending = new ConcurrentHashMap<Integer, List<Long>>();
+	private final Map<Integer, MappedByteBuffer> views = new ConcurrentHashMap<Integer, MappedByteBuffer>();
+
+	private final LongAdder appendCount = new LongAdder();
+	private final LongAdder appendBytes = new LongAdder();
+	private final LongAdder readCount = new LongAdder();
+	private final LongAdder scanCount = new LongAdder();
+	private final LongAdder segmentsDeleted = new LongAdder();
+
+	@Inject
+	public LogStoreServiceSegment(SettingService settings, DatabaseService db) {
+		checkNotNull(settings);
+		this.db = checkNotNull(db);
+		this.enabled = "segment".equalsIgnoreCase(trimOrNull(settings.getLogStore()));
+		var dir = trimOrNull(settings.getLogStoreDir());
+		// an in-memory database gets a directory of its own that is deleted on close
+		this.temporary = dir == null && settings.getDatabaseMemory();
+		if (dir == null) {
+			dir = temporary
+					? Paths.get(settings.getDirTemp(), "jezel-logs-" + UUID.randomUUID()).toString()
+					: settings.getDatabaseDir().trim() + "-logs";
+		}
+		this.directory = Paths.get(dir);
+		this.segmentSize = Math.max(1, settings.getLogStoreSegmentSize()) * 1024L * 1024L;
+	}
+
+	private record Record(int commandLogMessageId, int commandLogActionId, int offset) {}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	private Path path(int segment) {
+		return directory.resolve(String.format("%08d", segment) + SUFFIX);
+	}
+
+	private TreeSet<Integer> segments() throws IOException {
+		var set = new TreeSet<Integer>();
+		if (!Files.isDirectory(directory)) return set;
+		try (var stream = Files.list(directory)) {
+			for (var file : (Iterable<Path>) stream::iterator) {
+				var name = file.getFileName().toString();
+				if (!name.endsWith(SUFFIX)) continue;
+				var number = Ints.tryParse(name.substring(0, name.length() - SUFFIX.length()));
+				if (number != null) set.add(number);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Walks the complete records of a buffer.
+	 *
+	 * @return the end of the last complete record
+	 */
+	private static int scan(ByteBuffer buffer, int limit, Consumer<Record> consumer) {
+		var p = 0;
+		while (p + 4 <= limit) {
+			var length = buffer.getInt(p);
+			if (length < 8 || p + 4L + length > limit) break;
+			consumer.accept(new Record(buffer.getInt(p + 4), buffer.getInt(p + 8), p));
+			p += 4 + length;
+		}
+		return p;
+	}
+
+	private void open() throws IOException {
+		if (channel != null) return;
+		Files.createDirectories(directory);
+		var segments = segments();
+		segment = segments.isEmpty() ? 1 : segments.last();
+		try (var session = db.openSession()) {
+			nextId = coalesce(session.createQuery("select max(m.commandLogMessageId) from CommandLogMessage m", Integer.class).getSingleResult(), 0) + 1;
+		}
+		for (var s : segments.descendingSet()) {
+			var lastId = new int[] { 0 };
+			try (var c = FileChannel.open(path(s), StandardOpenOption.READ)) {
+				if (c.size() == 0) continue;
+				scan(c.map(FileChannel.MapMode.READ_ONLY, 0, c.size()), (int) c.size(), r -> lastId[0] = r.commandLogMessageId());
+			}
+			if (lastId[0] > 0) {
+				nextId = Math.max(nextId, lastId[0] + 1);
+				break;
+			}
+		}
+
+		channel = FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		var size = (int) channel.size();
+		position = size == 0 ? 0 : scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size, r -> {});
+		if (position < size) {
+			LOG.warn("Dropping incomplete record at the end of " + path(segment));
+			channel.truncate(position);
+		}
+		LOG.info("Log store " + directory + " at segment " + segment + ", next CommandLogMessage " + nextId);
+	}
+
+	private void rotate() throws IOException {
+		channel.force(false);
+		channel.close();
+		segment++;
+		channel = FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		position = 0;
+		LOG.debug("Rotated log store to segment " + segment);
+	}
+
+	@Override
+	public void begin(CommandLogAction commandLogAction) {
+		synchronized (locker) {
+			try {
+				open();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			commandLogAction.setLogSegment(segment);
+			commandLogAction.setLogIndex(new byte[0]);
+		}
+	}
+
+	private static byte[] bytes(CompressedText text) {
+		return text == null ? null : text.getData();
+	}
+
+	@Override
+	public void append(int commandLogActionId, CommandLogMessage commandLogMessage) {
+		var level = coalesce(commandLogMessage.getLevel(), "").getBytes(StandardCharsets.UTF_8);
+		var message = bytes(commandLogMessage.getMessageCompressed());
+		var exception = bytes(commandLogMessage.getExceptionCompressed());
+		var timestamp = commandLogMessage.getTimestamp();
+		var commandLogFailureId = coalesce(commandLogMessage.getCommandLogFailureId(), 0);
+		// the trailing CommandLogFailure id is only written when there is one, older records end after the exception
+		var length = 4 + 4 + 4 + 8 + 4 + 2 + level.length + 4 + (message == null ? 0 : message.length) + 4 + (exception == null ? 0 : exception.length) + (commandLogFailureId == 0 ? 0 : 4);
+
+		synchronized (locker) {
+			try {
+				open();
+				if (position > 0 && position + 4 + length > segmentSize) rotate();
+
+				var id = nextId++;
+				var buffer = ByteBuffer.allocate(4 + length);
+				buffer.putInt(length);
+				buffer.putInt(id);
+				buffer.putInt(commandLogActionId);
+				buffer.putInt(commandLogMessage.getIndex());
+				buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+				buffer.putInt(timestamp.getNano());
+				buffer.putShort((short) level.length);
+				buffer.put(level);
+				put(buffer, message);
+				put(buffer, exception);
+				if (commandLogFailureId != 0) buffer.putInt(commandLogFailureId);
+				buffer.flip();
+
+				var pointer = ((long) segment << OFFSET_BITS) | position;
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer, position);
+				}
+				var pointers = pending.computeIfAbsent(commandLogActionId, k -> new ArrayList<Long>());
+				synchronized (pointers) {
+					pointers.add(pointer);
+				}
+				commandLogMessage.setCommandLogMessageId(id);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		appendCount.increment();
+		appendBytes.add(4 + length);
+	}
+
+	private static void put(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+
+	private static byte[] get(ByteBuffer buffer, int[] p) {
+		var length = buffer.getInt(p[0]);
+		p[0] += 4;
+		if (length < 0) return null;
+		var bytes = new byte[length];
+		buffer.get(p[0], bytes);
+		p[0] += length;
+		return bytes;
+	}
+
+	@Override
+	public void finish(CommandLogAction commandLogAction) {
+		var pointers = pending.remove(commandLogAction.getCommandLogActionId());
+		var index = ByteBuffer.allocate(pointers == null ? 0 : pointers.size() * 8);
+		if (pointers != null) {
+			synchronized (pointers) {
+				for (var pointer : pointers) {
+					index.putLong(pointer);
+				}
+			}
+		}
+		synchronized (locker) {
+			try {
+				if (channel != null) channel.force(false);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		commandLogAction.setLogIndex(index.array());
+	}
+
+	/**
+	 * Read-only view of a segment, full segments are mapped once, the segment being written up to its current end.
+	 */
+	private ByteBuffer view(int s) throws IOException {
+		synchronized (locker) {
+			if (channel != null && s == segment) return channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+		}
+		var view = views.get(s);
+		if (view == null) {
+			try (var c = FileChannel.open(path(s), StandardOpenOption.READ)) {
+				view = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+			}
+			views.put(s, view);
+		}
+		return view;
+	}
+
+	private static CommandLogMessage decode(ByteBuffer buffer, int offset, CommandLogAction commandLogAction) {
+		var p = new int[] { offset + 4 };
+		var commandLogMessage = new CommandLogMessage();
+		commandLogMessage.setCommandLogMessageId(buffer.getInt(p[0]));
+		commandLogMessage.setCommandLogAction(commandLogAction);
+		commandLogMessage.setIndex(buffer.getInt(p[0] + 8));
+		commandLogMessage.setTimestamp(LocalDateTime.ofEpochSecond(buffer.getLong(p[0] + 12), buffer.getInt(p[0] + 20), ZoneOffset.UTC));
+		p[0] += 24;
+		var level = new byte[buffer.getShort(p[0])];
+		buffer.get(p[0] + 2, level);
+		p[0] += 2 + level.length;
+		commandLogMessage.setLevel(new String(level, StandardCharsets.UTF_8));
+		commandLogMessage.setMessageCompressed(CompressedText.fromData(get(buffer, p)));
+		commandLogMessage.setExceptionCompressed(CompressedText.fromData(get(buffer, p)));
+		if (p[0] < offset + 4 + buffer.getInt(offset)) commandLogMessage.setCommandLogFailureId(buffer.getInt(p[0]));
+		return commandLogMessage;
+	}
+
+	@Override
+	public List<CommandLogMessage> read(CommandLogAction commandLogAction) {
+		var index = commandLogAction.getLogIndex();
+		if (index == null) return List.of();
+		readCount.increment();
+
+		var commandLogActionId = commandLogAction.getCommandLogActionId();
+		var list = new ArrayList<CommandLogMessage>();
+		try {
+			var pointers = pending.get(commandLogActionId);
+			if (pointers == null && index.length == 0) {
+				// an action that finished without messages keeps its empty index
+				return commandLogAction.getEnd() == null ? scan(commandLogAction) : list;
+			}
+
+			long[] array;
+			if (pointers != null) {
+				synchronized (pointers) {
+					array = pointers.stream().mapToLong(Long::longValue).toArray();
+				}
+			} else {
+				array = new long[index.length / 8];
+				ByteBuffer.wrap(index).asLongBuffer().get(array);
+			}
+
+			var s = -1;
+			ByteBuffer view = null;
+			for (var pointer : array) {
+				var pointerSegment = (int) (pointer >>> OFFSET_BITS);
+				if (pointerSegment != s) {
+					s = pointerSegment;
+					view = view(s);
+				}
+				list.add(decode(view, (int) (pointer & OFFSET_MASK), commandLogAction));
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not read CommandLogMessages of CommandLogAction[" + commandLogActionId + "]", e);
+		}
+		return list;
+	}
+
+	private List<CommandLogMessage> scan(CommandLogAction commandLogAction) throws IOException {
+		scanCount.increment();
+		var commandLogActionId = commandLogAction.getCommandLogActionId();
+		var first = commandLogAction.getLogSegment() == null ? 1 : commandLogAction.getLogSegment();
+		var list = new ArrayList<CommandLogMessage>();
+		for (var s : segments().tailSet(first)) {
+			var view = view(s);
+			scan(view, view.limit(), r -> {
+				if (r.commandLogActionId() == commandLogActionId) list.add(decode(view, r.offset(), commandLogAction));
+			});
+		}
+		return list;
+	}
+
+	@Override
+	public void deleteBefore(Integer before) {
+		synchronized (locker) {
+			try {
+				var segments = segments();
+				for (var s : segments) {
+					// the newest segment is kept so message ids continue after a restart
+					if (s >= segments.last() || channel != null && s >= segment) break;
+					if (before != null && s >= before) break;
+					views.remove(s);
+					Files.deleteIfExists(path(s));
+					segmentsDeleted.increment();
+					LOG.debug("Deleted log store segment " + s);
+				}
+			} catch (IOException e) {
+				LOG.warn("Could not delete log store segments", e);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (locker) {
+			views.clear();
+			if (channel != null) {
+				channel.force(false);
+				channel.close();
+				channel = null;
+			}
+			if (!temporary || !Files.isDirectory(directory)) return;
+			try (var stream = Files.walk(directory)) {
+				for (var file : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+					Files.deleteIfExists(file);
+				}
+			}
+			LOG.debug("Deleted log store " + directory);
+		}
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("enabled", enabled);
+		map.put("appendCount", appendCount.sum());
+		map.put("appendBytes", appendBytes.sum());
+		map.put("readCount", readCount.sum());
+		map.put("scanCount", scanCount.sum());
+		map.put("segmentsDeleted", segmentsDeleted.sum());
+		synchronized (locker) {
+			map.put("segment", channel == null ? 0 : segment);
+		}
+		return map;
+	}
+}
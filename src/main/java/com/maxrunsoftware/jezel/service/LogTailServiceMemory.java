@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.json.JsonObject;
+
+import com.maxrunsoftware.jezel.LogTailService;
+import com.maxrunsoftware.jezel.SettingService;
+
+public class LogTailServiceMemory implements LogTailService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(LogTailServiceMemory.class);
+
+	private record Entry(int commandLogMessageId, JsonObject commandLogMessage) {}
+
+	private static class Buffer {
+		private final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+		private int evictedCommandLogMessageId = 0;
+		private boolean finished;
+		private long finishedNanos;
+	}
+
+	private final Map<Integer, Buffer> buffers = new ConcurrentHashMap<Integer, Buffer>();
+	private final int bufferSize;
+	private final long retainNanos;
+
+	private final LongAdder tailCount = new LongAdder();
+	private final LongAdder tailMissCount = new LongAdder();
+
+	@Inject
+	public LogTailServiceMemory(SettingService settings) {
+		checkNotNull(settings);
+		this.bufferSize = Math.max(1, settings.getLogTailBufferSize());
+		this.retainNanos = TimeUnit.SECONDS.toNanos(Math.max(0, settings.getLogTailRetain()));
+	}
+
+	@Override
+	public void started(int commandLogJobId) {
+		removeExpired();
+		buffers.put(commandLogJobId, new Buffer());
+	}
+
+	@Override
+	public void append(int commandLogJobId, int commandLogMessageId, JsonObject commandLogMessage) {
+		var buffer = buffers.get(commandLogJobId);
+		if (buffer == null) return;
+		synchronized (buffer) {
+			if (buffer.entries.size() >= bufferSize) buffer.evictedCommandLogMessageId = buffer.entries.removeFirst().commandLogMessageId();
+			buffer.entries.addLast(new Entry(commandLogMessageId, commandLogMessage));
+			buffer.notifyAll();
+		}
+	}
+
+	@Override
+	public void finished(int commandLogJobId) {
+		var buffer = buffers.get(commandLogJobId);
+		if (buffer == null) return;
+		synchronized (buffer) {
+			buffer.finished = true;
+			buffer.finishedNanos = System.nanoTime();
+			buffer.notifyAll();
+		}
+	}
+
+	@Override
+	public Tail tail(int commandLogJobId, int afterCommandLogMessageId, long timeoutMillis) throws InterruptedException {
+		tailCount.increment();
+		var buffer = buffers.get(commandLogJobId);
+		if (buffer == null) {
+			tailMissCount.increment();
+			return null;
+		}
+
+		var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+		synchronized (buffer) {
+			while (true) {
+				if (afterCommandLogMessageId < buffer.evictedCommandLogMessageId) {
+					tailMissCount.increment();
+					return null;
+				}
+				var list = new ArrayList<JsonObject>();
+				for (var entry : buffer.entries) {
+					if (entry.commandLogMessageId() > afterCommandLogMessageId) list.add(entry.commandLogMessage());
+				}
+				var remaining = deadline - System.nanoTime();
+				if (list.size() > 0 || buffer.finished || remaining <= 0) return new Tail(list, buffer.finished);
+				TimeUnit.NANOSECONDS.timedWait(buffer, remaining);
+			}
+		}
+	}
+
+	private void removeExpired() {
+		var now = System.nanoTime();
+		for (var entry : buffers.entrySet()) {
+			var buffer = entry.getValue();
+			synchronized (buffer) {
+				if (buffer.finished && now - buffer.finishedNanos > retainNanos) {
+					LOG.trace("Removing buffer of CommandLogJob[" + entry.getKey() + "]");
+					buffers.remove(entry.getKey());
+				}
+			}
+		}
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		removeExpired();
+		var map = new TreeMap<String, Object>();
+		map.put("buffers", buffers.size());
+		map.put("tailCount", tailCount.sum());
+		map.put("tailMissCount", tailMissCount.sum());
+		return map;
+	}
+}
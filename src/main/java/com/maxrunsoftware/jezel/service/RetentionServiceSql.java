@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+
+import org.hibernate.Session;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.RetentionService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+/**
+ * Deletes with bulk SQL statements in chunks of CommandLogJobs, one short transaction per chunk with a pause in between,
+ * so no entities are loaded and locks are never held for long. Running CommandLogJobs are never purged.
+ */
+public class RetentionServiceSql implements RetentionService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(RetentionServiceSql.class);
+
+	private final SettingService settings;
+	private final DatabaseService db;
+	private final LogStoreService logStore;
+	private final LogSearchService logSearch;
+	private ScheduledExecutorService executor;
+
+	private final LongAdder runCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder jobsPurged = new LongAdder();
+	private final LongAdder actionsPurged = new LongAdder();
+	private final LongAdder messagesPurged = new LongAdder();
+	private final LongAdder failuresPurged = new LongAdder();
+	private final LongAdder purgeMillis = new LongAdder();
+	private volatile LocalDateTime lastRun;
+
+	@Inject
+	public RetentionServiceSql(SettingService settings, DatabaseService db, LogStoreService logStore, LogSearchService logSearch) {
+		this.settings = checkNotNull(settings);
+		this.db = checkNotNull(db);
+		this.logStore = checkNotNull(logStore);
+		this.logSearch = checkNotNull(logSearch);
+	}
+
+	@Override
+	public synchronized void start() {
+		stop();
+		var interval = settings.getRetentionInterval();
+		if (interval <= 0) {
+			LOG.info("Retention disabled");
+			return;
+		}
+		if (!isLimited()) {
+			LOG.info("Retention disabled, no age, count or size limit set");
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Retention").setDaemon(true).build());
+		executor.scheduleWithFixedDelay(() -> {
+			try {
+				purge();
+			} catch (Throwable t) {
+				LOG.error("Retention purge failed", t);
+			}
+		}, 1, interval, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (executor == null) return;
+		executor.shutdownNow();
+		executor = null;
+	}
+
+	private boolean isLimited() {
+		return settings.getRetentionMaxAgeDays() > 0 || settings.getRetentionMaxPerJob() > 0 || settings.getRetentionMaxSizeMB() > 0;
+	}
+
+	@Override
+	public synchronized int purge() {
+		// without limits nothing is deleted, not even orphaned segments or failures
+		if (!isLimited()) return 0;
+		var start = System.nanoTime();
+		runCount.increment();
+		lastRun = LocalDateTime.now();
+		try {
+			var commandLogJobIds = new TreeSet<Integer>();
+			try (var session = db.openSession()) {
+				commandLogJobIds.addAll(findByAge(session));
+				commandLogJobIds.addAll(findByCountPerJob(session));
+				commandLogJobIds.addAll(findBySize(session, commandLogJobIds));
+			}
+			if (commandLogJobIds.isEmpty()) {
+				deleteSegments();
+				deleteFailures();
+				return 0;
+			}
+
+			LOG.info("Purging " + commandLogJobIds.size() + " CommandLogJobs");
+			var pause = settings.getRetentionChunkPause();
+			var chunks = Lists.partition(new ArrayList<Integer>(commandLogJobIds), Math.max(1, settings.getRetentionChunkSize()));
+			for (int i = 0; i < chunks.size(); i++) {
+				if (i > 0 && pause > 0) Thread.sleep(pause);
+				delete(chunks.get(i));
+			}
+			deleteSegments();
+			deleteFailures();
+			return commandLogJobIds.size();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 0;
+		} catch (RuntimeException e) {
+			failedCount.increment();
+			throw e;
+		} finally {
+			purgeMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private List<Integer> findByAge(Session session) {
+		var days = settings.getRetentionMaxAgeDays();
+		if (days <= 0) return List.of();
+		return session.createQuery("select j.commandLogJobId from CommandLogJob j where j.end is not null and j.end < :cutoff", Integer.class)
+				.setParameter("cutoff", LocalDateTime.now().minusDays(days))
+				.getResultList();
+	}
+
+	private List<Integer> findByCountPerJob(Session session) {
+		var max = settings.getRetentionMaxPerJob();
+		if (max <= 0) return List.of();
+		var list = new ArrayList<Integer>();
+		for (var o : session.createNativeQuery("select commandLogJobId from ("
+				+ "select commandLogJobId, row_number() over (partition by schedulerJobId order by commandLogJobId desc) rowNumber"
+				+ " from CommandLogJob where end is not null) where rowNumber > :max")
+				.setParameter("max", max)
+				.getResultList()) {
+			list.add(((Number) o).intValue());
+		}
+		return list;
+	}
+
+	/**
+	 * Oldest finished CommandLogJobs whose removal brings the total stored message size under the limit, counting what
+	 * the other policies already purge.
+	 */
+	private List<Integer> findBySize(Session session, TreeSet<Integer> purging) {
+		var maxBytes = settings.getRetentionMaxSizeMB() * 1024L * 1024L;
+		if (maxBytes <= 0) return List.of();
+		var rows = session.createNativeQuery("select j.commandLogJobId, j.end,"
+				+ " coalesce(sum(coalesce(length(m.message), 0) + coalesce(length(m.exception), 0)), 0)"
+				+ " from CommandLogJob j"
+				+ " left join CommandLogAction a on a.commandLogJobId = j.commandLogJobId"
+				+ " left join CommandLogMessage m on m.commandLogActionId = a.commandLogActionId"
+				+ " group by j.commandLogJobId, j.end order by j.commandLogJobId")
+				.getResultList();
+		long total = 0;
+		for (var row : rows) {
+			var r = (Object[]) row;
+			if (!purging.contains(((Number) r[0]).intValue())) total += ((Number) r[2]).longValue();
+		}
+
+		var list = new ArrayList<Integer>();
+		for (var row : rows) {
+			if (total <= maxBytes) break;
+			var r = (Object[]) row;
+			var commandLogJobId = ((Number) r[0]).intValue();
+			if (r[1] == null || purging.contains(commandLogJobId)) continue;
+			list.add(commandLogJobId);
+			total -= ((Number) r[2]).longValue();
+		}
+		return list;
+	}
+
+	private void delete(List<Integer> commandLogJobIds) {
+		db.inTransaction(session -> {
+			var messages = session.createNativeQuery("delete from CommandLogMessage where commandLogActionId in"
+					+ " (select commandLogActionId from CommandLogAction where commandLogJobId in (:ids))")
+					.addSynchronizedEntityClass(CommandLogMessage.class)
+					.setParameterList("ids", commandLogJobIds)
+					.executeUpdate();
+			var actions = session.createNativeQuery("delete from CommandLogAction where commandLogJobId in (:ids)")
+					.addSynchronizedEntityClass(CommandLogAction.class)
+					.setParameterList("ids", commandLogJobIds)
+					.executeUpdate();
+			var jobs = session.createNativeQuery("delete from CommandLogJob where commandLogJobId in (:ids)")
+					.addSynchronizedEntityClass(CommandLogJob.class)
+					.setParameterList("ids", commandLogJobIds)
+					.executeUpdate();
+			LOG.debug("Purged " + jobs + " CommandLogJobs, " + actions + " CommandLogActions, " + messages + " CommandLogMessages");
+			jobsPurged.add(jobs);
+			actionsPurged.add(actions);
+			messagesPurged.add(messages);
+		});
+		logSearch.delete(commandLogJobIds);
+	}
+
+	/**
+	 * Log store segments older than the oldest one a remaining CommandLogAction points into are no longer needed.
+	 */
+	private void deleteSegments() {
+		try (var session = db.openSession()) {
+			logStore.deleteBefore(session.createQuery("select min(a.logSegment) from CommandLogAction a", Integer.class).getSingleResult());
+		}
+	}
+
+	/**
+	 * CommandLogFailures last seen before the oldest remaining CommandLogJob started can no longer be referenced by any
+	 * CommandLogMessage, whether stored in the database or the log store.
+	 */
+	private void deleteFailures() {
+		db.inTransaction(session -> {
+			var oldest = session.createQuery("select min(j.start) from CommandLogJob j", LocalDateTime.class).getSingleResult();
+			var query = session.createQuery("delete from CommandLogFailure f" + (oldest == null ? "" : " where f.lastSeen < :oldest"));
+			if (oldest != null) query.setParameter("oldest", oldest);
+			failuresPurged.add(query.executeUpdate());
+		});
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("runCount", runCount.sum());
+		map.put("failedCount", failedCount.sum());
+		map.put("jobsPurged", jobsPurged.sum());
+		map.put("actionsPurged", actionsPurged.sum());
+		map.put("messagesPurged", messagesPurged.sum());
+		map.put("failuresPurged", failuresPurged.sum());
+		map.put("purgeMillis", purgeMillis.sum());
+		var last = lastRun;
+		map.put("lastRun", last == null ? null : last.toString());
+		return map;
+	}
+}
@@ -18,9 +18,24 @@ package com.maxrunsoftware.jezel.service;
 import static com.google.common.base.Preconditions.*;
 import static com.maxrunsoftware.jezel.Util.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
 import javax.inject.Inject;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
 import com.maxrunsoftware.jezel.SchedulerService;
 import com.maxrunsoftware.jezel.SettingService;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
@@ -33,47 +48,147 @@ public class SchedulerServiceQuartz implements SchedulerService {
 
 	private final SettingService settings;
 	private final DatabaseService db;
-	private QuartzServer server;
+	private final EventService events;
+	private volatile QuartzServer server;
+
+	// running between start and stop, guarded by syncPending
+	private ScheduledExecutorService syncExecutor;
+	private final Set<Integer> syncPending = new LinkedHashSet<Integer>();
+	private boolean syncScheduled;
+	private volatile Runnable syncListener;
+	private final LongAdder syncRequestCount = new LongAdder();
+	private final LongAdder syncCoalescedCount = new LongAdder();
+	private final LongAdder syncCount = new LongAdder();
+	private final LongAdder syncFailedCount = new LongAdder();
+	private final LongAdder syncTriggersChangedCount = new LongAdder();
+	private final LongAdder syncTriggersUnchangedCount = new LongAdder();
 
 	@Inject
-	public SchedulerServiceQuartz(SettingService settings, DatabaseService db) {
+	public SchedulerServiceQuartz(SettingService settings, DatabaseService db, EventService events) {
 		this.settings = checkNotNull(settings);
 		this.db = checkNotNull(db);
+		this.events = checkNotNull(events);
 	}
 
 	@Override
 	public void syncAll() {
 		try (var session = db.openSession()) {
 			for (var job : getAll(SchedulerJob.class, session)) {
-				sync(job.getSchedulerJobId());
+				syncNow(job.getSchedulerJobId());
 			}
 		}
 
-		for (var entry : server.getEntries()) {
+		var s = server;
+		if (s == null) return;
+		for (var entry : s.getEntries()) {
 			LOG.debug(entry.toString());
 		}
 	}
 
+	/**
+	 * Queues the job and returns, the worker applies each queued job once after the sync delay no matter how many times
+	 * it was requested meanwhile. Jobs queued while the scheduler is stopped are applied once it starts.
+	 */
 	@Override
 	public void sync(int schedulerJobId) {
+		syncRequestCount.increment();
+		synchronized (syncPending) {
+			if (!syncPending.add(schedulerJobId)) {
+				syncCoalescedCount.increment();
+				return;
+			}
+			scheduleSyncPending();
+		}
+	}
+
+	// caller holds the syncPending lock
+	private void scheduleSyncPending() {
+		if (syncScheduled || syncExecutor == null || syncPending.isEmpty()) return;
+		syncScheduled = true;
+		syncExecutor.schedule(this::syncPending, Math.max(0, settings.getSchedulerSyncDelay()), TimeUnit.MILLISECONDS);
+	}
+
+	private void syncPending() {
+		List<Integer> schedulerJobIds;
+		synchronized (syncPending) {
+			schedulerJobIds = new ArrayList<Integer>(syncPending);
+			syncPending.clear();
+			syncScheduled = false;
+		}
+		LOG.debug("Syncing " + schedulerJobIds.size() + " queued SchedulerJobs");
+		for (int i = 0; i < schedulerJobIds.size(); i++) {
+			if (Thread.currentThread().isInterrupted()) {
+				LOG.debug("Sync interrupted by stop, requeueing remaining SchedulerJobs");
+				synchronized (syncPending) {
+					syncPending.addAll(schedulerJobIds.subList(i, schedulerJobIds.size()));
+				}
+				break;
+			}
+			var schedulerJobId = schedulerJobIds.get(i);
+			try {
+				syncNow(schedulerJobId);
+			} catch (Exception e) {
+				syncFailedCount.increment();
+				LOG.error("Error syncing SchedulerJob[" + schedulerJobId + "]", e);
+			}
+		}
+		var listener = syncListener;
+		if (listener != null) listener.run();
+	}
+
+	/**
+	 * Runs after each pass over the queued jobs, for tests.
+	 */
+	void setSyncListener(Runnable syncListener) {
+		this.syncListener = syncListener;
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("syncRequestCount", syncRequestCount.sum());
+		map.put("syncCoalescedCount", syncCoalescedCount.sum());
+		map.put("syncCount", syncCount.sum());
+		map.put("syncFailedCount", syncFailedCount.sum());
+		map.put("syncTriggersChangedCount", syncTriggersChangedCount.sum());
+		map.put("syncTriggersUnchangedCount", syncTriggersUnchangedCount.sum());
+		synchronized (syncPending) {
+			map.put("syncPending", syncPending.size());
+		}
+		return map;
+	}
+
+	/**
+	 * Applies only the difference between the schedules in the database and the triggers in the scheduler, unchanged
+	 * triggers are left alone.
+	 */
+	private synchronized void syncNow(int schedulerJobId) {
+		var server = this.server;
+		if (server == null) {
+			LOG.debug("Scheduler not started so skipping sync of SchedulerJob[" + schedulerJobId + "]");
+			return;
+		}
+		syncCount.increment();
+
 		try (var session = db.openSession()) {
-			var schedulerJob = session.get(SchedulerJob.class, schedulerJobId);
+			var schedulerJob = SchedulerJob.getByIdForSync(session, schedulerJobId);
 			var jobRemove = false;
 
 			if (schedulerJob == null) {
 				LOG.debug("SchedulerJob[" + schedulerJobId + "] does not exist in database so removing from Scheduler");
 				jobRemove = true;
-			}
-			if (schedulerJob.isDisabled()) {
+			} else if (schedulerJob.isDisabled()) {
 				LOG.debug("SchedulerJob[" + schedulerJobId + "] is disabled so removing from Scheduler");
 				jobRemove = true;
 			}
 
 			var allSchedulesDisabled = true;
-			for (var schedulerSchedule : schedulerJob.getSchedulerSchedules()) {
-				if (!schedulerSchedule.isDisabled()) allSchedulesDisabled = false;
+			if (schedulerJob != null) {
+				for (var schedulerSchedule : schedulerJob.getSchedulerSchedules()) {
+					if (!schedulerSchedule.isDisabled()) allSchedulesDisabled = false;
+				}
 			}
-			if (allSchedulesDisabled) {
+			if (!jobRemove && allSchedulesDisabled) {
 				LOG.debug("SchedulerJob[" + schedulerJobId + "] does not contain any schedules or all schedules are disabled so removing from Scheduler");
 				jobRemove = true;
 			}
@@ -84,6 +199,7 @@ public class SchedulerServiceQuartz implements SchedulerService {
 					// REMOVE
 					server.removeJob(schedulerJobId);
 					LOG.debug("SchedulerJob[" + schedulerJobId + "] no longer exists, is disabled, or has no schedules but exists in Scheduler so removing from Scheduler");
+					publishScheduleChanged(schedulerJobId, false, 0, 0);
 				} else {
 					// NOOP
 					LOG.debug("SchedulerJob[" + schedulerJobId + "] does not exist, is disabled, or has no schedules and does not exist in Scheduler so noop");
@@ -97,18 +213,39 @@ public class SchedulerServiceQuartz implements SchedulerService {
 					LOG.debug("SchedulerJob[" + schedulerJobId + "] exists but does not exist in Scheduler so adding to Scheduler");
 				}
 
-				var result = server.addJob(schedulerJobId);
-				if (!result) return;
+				if (!server.ensureJob(schedulerJobId)) return;
+				var triggers = server.getTriggers(schedulerJobId);
+				if (triggers == null) return;
+
+				var schedulerScheduleIds = new HashSet<Integer>();
+				for (var schedulerSchedule : schedulerJob.getSchedulerSchedules()) {
+					schedulerScheduleIds.add(schedulerSchedule.getSchedulerScheduleId());
+				}
+				int removed = 0;
+				for (var triggerId : triggers.keySet()) {
+					if (schedulerScheduleIds.contains(triggerId)) continue;
+					LOG.debug("For SchedulerJob[" + schedulerJobId + "] removing SchedulerSchedule[" + triggerId + "]");
+					server.removeTrigger(triggerId);
+					removed++;
+				}
+
+				int changed = 0;
 				for (var schedulerSchedule : schedulerJob.getSchedulerSchedules()) {
-					LOG.debug("For SchedulerJob[" + schedulerJobId + "] adding SchedulerSchedule[" + schedulerSchedule.getSchedulerScheduleId() + "]");
-					result = server.addTrigger(schedulerJobId, schedulerSchedule);
+					var schedulerScheduleId = schedulerSchedule.getSchedulerScheduleId();
+					if (QuartzServer.describe(schedulerSchedule).equals(triggers.get(schedulerScheduleId))) continue;
 
-					if (!result) {
+					LOG.debug("For SchedulerJob[" + schedulerJobId + "] adding SchedulerSchedule[" + schedulerScheduleId + "]");
+					if (!server.addTrigger(schedulerJobId, schedulerSchedule)) {
 						server.removeJob(schedulerJobId);
 						return;
 					}
+					changed++;
 				}
-				LOG.debug("Completed adding SchedulerJob[" + schedulerJobId + "] to Scheduler with " + schedulerJob.getSchedulerSchedules().size() + " SchedulerSchedules");
+				var unchanged = schedulerJob.getSchedulerSchedules().size() - changed;
+				syncTriggersChangedCount.add(changed + removed);
+				syncTriggersUnchangedCount.add(unchanged);
+				if (!jobExistsInScheduler || changed + removed > 0) publishScheduleChanged(schedulerJobId, true, changed, removed);
+				LOG.debug("Completed syncing SchedulerJob[" + schedulerJobId + "] to Scheduler, " + changed + " SchedulerSchedules added or updated, " + removed + " removed, " + unchanged + " unchanged");
 
 			}
 
@@ -116,6 +253,15 @@ public class SchedulerServiceQuartz implements SchedulerService {
 
 	}
 
+	private void publishScheduleChanged(int schedulerJobId, boolean scheduled, int changed, int removed) {
+		events.publish(EventService.SCHEDULE_CHANGED, createObjectBuilder()
+				.add("schedulerJobId", schedulerJobId)
+				.add("scheduled", scheduled)
+				.add("triggersChanged", changed)
+				.add("triggersRemoved", removed)
+				.build());
+	}
+
 	private static class Executor implements QuartzServerExecutor {
 
 		@Override
@@ -133,10 +279,27 @@ public class SchedulerServiceQuartz implements SchedulerService {
 		server.setThreadCount(settings.getSchedulerThreads());
 		server.setExecutor(new Executor());
 		server.start();
+		synchronized (syncPending) {
+			syncExecutor = Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactoryBuilder().setNameFormat("SchedulerSync").setDaemon(true).build());
+			scheduleSyncPending();
+		}
 	}
 
 	@Override
 	public void stop() throws Exception {
+		// the sync worker goes first so nothing queued runs against a stopped server
+		ScheduledExecutorService executor;
+		synchronized (syncPending) {
+			executor = syncExecutor;
+			syncExecutor = null;
+			syncScheduled = false;
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS)) LOG.warn("SchedulerSync did not terminate");
+		}
+
 		var s = server;
 		server = null;
 		if (s == null) return;
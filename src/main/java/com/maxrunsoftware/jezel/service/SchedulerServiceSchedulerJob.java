@@ -27,10 +27,16 @@ import java.util.Set;
 
 import javax.inject.Inject;
 
-import org.apache.commons.lang3.exception.ExceptionUtils;
-
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.LogTailService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
 import com.maxrunsoftware.jezel.action.Command;
 import com.maxrunsoftware.jezel.model.CommandLogAction;
 import com.maxrunsoftware.jezel.model.CommandLogJob;
@@ -44,10 +50,12 @@ public class SchedulerServiceSchedulerJob {
 		private final int schedulerActionId;
 		private final String schedulerActionName;
 		private final Map<String, String> parameters;
+		private final LogLevel minimumLevel;
 
-		public ActionItem(SchedulerAction schedulerAction, DatabaseService db) {
+		public ActionItem(SchedulerAction schedulerAction, DatabaseService db, LogLevel schedulerJobLevel) {
 			this.schedulerActionId = schedulerAction.getSchedulerActionId();
 			this.schedulerActionName = schedulerAction.getName();
+			this.minimumLevel = coalesce(LogLevel.parse(schedulerAction.getLogLevel()), schedulerJobLevel);
 
 			parameters = new HashMap<String, String>();
 
@@ -77,19 +85,38 @@ public class SchedulerServiceSchedulerJob {
 		public String getSchedulerActionName() {
 			return schedulerActionName;
 		}
+
+		public LogLevel getMinimumLevel() {
+			return minimumLevel;
+		}
 	}
 
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerServiceSchedulerJob.class);
 
+	private final SettingService settings;
 	private final DatabaseService db;
+	private final EventService events;
+	private final LogTailService logTail;
+	private final LogStoreService logStore;
+	private final LogSearchService logSearch;
+	private final StatsService stats;
+	private final FailureService failures;
 
 	@Inject
-	public SchedulerServiceSchedulerJob(DatabaseService db) {
+	public SchedulerServiceSchedulerJob(SettingService settings, DatabaseService db, EventService events, LogTailService logTail, LogStoreService logStore, LogSearchService logSearch, StatsService stats, FailureService failures) {
+		this.settings = checkNotNull(settings);
 		this.db = checkNotNull(db);
+		this.events = checkNotNull(events);
+		this.logTail = checkNotNull(logTail);
+		this.logStore = checkNotNull(logStore);
+		this.logSearch = checkNotNull(logSearch);
+		this.stats = checkNotNull(stats);
+		this.failures = checkNotNull(failures);
 	}
 
-	private boolean execute(ActionItem action, int actionIndex, int commandLogJobId) {
+	private boolean execute(ActionItem action, int actionIndex, int schedulerJobId, int commandLogJobId) {
 		int commandLogActionId;
+		LocalDateTime start;
 		try (var session = db.openSession()) {
 			var commandLogJob = getById(CommandLogJob.class, session, commandLogJobId);
 			var schedulerAction = getById(SchedulerAction.class, session, action.getSchedulerActionId());
@@ -99,11 +126,19 @@ public class SchedulerServiceSchedulerJob {
 			commandLogAction.setSchedulerAction(schedulerAction);
 			commandLogAction.setName(schedulerAction.getName());
 			commandLogAction.setIndex(actionIndex);
-			commandLogAction.setStart(LocalDateTime.now());
+			start = LocalDateTime.now();
+			commandLogAction.setStart(start);
+			if (logStore.isEnabled()) logStore.begin(commandLogAction);
 			commandLogActionId = save(session, commandLogAction);
 		}
-
-		var schedulerServiceSchedulerJobLog = new SchedulerServiceSchedulerJobLog(db, commandLogActionId);
+		events.publish(EventService.ACTION_STARTED, createObjectBuilder()
+				.add("commandLogJobId", commandLogJobId)
+				.add("commandLogActionId", commandLogActionId)
+				.add("index", actionIndex)
+				.add("name", action.getSchedulerActionName())
+				.build());
+
+		var schedulerServiceSchedulerJobLog = new SchedulerServiceSchedulerJobLog(db, events, logTail, logStore, logSearch, failures, commandLogJobId, commandLogActionId, action.getMinimumLevel());
 		var command = createCommand(action);
 		var successfulExection = true;
 		try {
@@ -113,17 +148,26 @@ public class SchedulerServiceSchedulerJob {
 			command.execute();
 		} catch (Throwable t) {
 			LOG.warn("Encountered error: " + t);
-			schedulerServiceSchedulerJobLog.error(ExceptionUtils.getStackTrace(t));
-
-			ExceptionUtils.getStackTrace(t);
+			// the stack trace is stored once per distinct failure, see FailureService
+			schedulerServiceSchedulerJobLog.error("SchedulerAction " + action.getSchedulerActionName() + " failed", t);
 			successfulExection = false;
 		}
 
+		var end = LocalDateTime.now();
 		try (var session = db.openSession()) {
 			var commandLogAction = getById(CommandLogAction.class, session, commandLogActionId);
-			commandLogAction.setEnd(LocalDateTime.now());
+			commandLogAction.setEnd(end);
+			commandLogAction.setSuppressedCount(schedulerServiceSchedulerJobLog.getSuppressedCount());
+			if (commandLogAction.getLogIndex() != null) logStore.finish(commandLogAction);
 			save(session, commandLogAction);
 		}
+		stats.record(schedulerJobId, action.getSchedulerActionId(), start, end, !successfulExection);
+		events.publish(EventService.ACTION_ENDED, createObjectBuilder()
+				.add("commandLogJobId", commandLogJobId)
+				.add("commandLogActionId", commandLogActionId)
+				.add("index", actionIndex)
+				.add("error", !successfulExection)
+				.build());
 
 		return successfulExection;
 	}
@@ -140,10 +184,11 @@ public class SchedulerServiceSchedulerJob {
 		}
 		try {
 			int commandLogJobId;
+			LocalDateTime start;
 			var actions = new ArrayList<ActionItem>();
 			String schedulerJobName;
 			try (var session = db.openSession()) {
-				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
+				var schedulerJob = SchedulerJob.getByIdForDetail(session, schedulerJobId);
 				if (schedulerJob == null) {
 					LOG.warn("Cannot execute non-existant SchedulerJob[" + schedulerJobId + "]");
 					return;
@@ -158,29 +203,49 @@ public class SchedulerServiceSchedulerJob {
 				LOG.info("Starting execution of SchedulerJob[" + schedulerJobId + "] " + schedulerJobName);
 				var commandLogJob = new CommandLogJob();
 				commandLogJob.setSchedulerJob(schedulerJob);
-				commandLogJob.setStart(LocalDateTime.now());
+				start = LocalDateTime.now();
+				commandLogJob.setStart(start);
 				commandLogJobId = save(session, commandLogJob);
+				events.publish(EventService.JOB_STARTED, createObjectBuilder()
+						.add("schedulerJobId", schedulerJobId)
+						.add("commandLogJobId", commandLogJobId)
+						.add("name", coalesce(schedulerJobName, ""))
+						.build());
 
+				var schedulerJobLevel = coalesce(LogLevel.parse(schedulerJob.getLogLevel()), getLogLevelDefault());
 				for (var schedulerAction : schedulerJob.getSchedulerActions()) {
-					actions.add(new ActionItem(schedulerAction, db));
+					actions.add(new ActionItem(schedulerAction, db, schedulerJobLevel));
 				}
 			}
 
-			var actionIndex = 0;
-			boolean successfulExecution = true;
-			for (var action : actions) {
-				successfulExecution = execute(action, actionIndex, commandLogJobId);
-				LOG.debug("Received successful execution: " + successfulExecution);
-				if (!successfulExecution) break;
+			logTail.started(commandLogJobId);
+			try {
+				var actionIndex = 0;
+				boolean successfulExecution = true;
+				for (var action : actions) {
+					successfulExecution = execute(action, actionIndex, schedulerJobId, commandLogJobId);
+					LOG.debug("Received successful execution: " + successfulExecution);
+					if (!successfulExecution) break;
 
-				actionIndex++;
-			}
+					actionIndex++;
+				}
 
-			try (var session = db.openSession()) {
-				var commandLogJob = getById(CommandLogJob.class, session, commandLogJobId);
-				commandLogJob.setEnd(LocalDateTime.now());
-				commandLogJob.setError(!successfulExecution);
-				save(session, commandLogJob);
+				var end = LocalDateTime.now();
+				try (var session = db.openSession()) {
+					var commandLogJob = getById(CommandLogJob.class, session, commandLogJobId);
+					commandLogJob.setEnd(end);
+					commandLogJob.setError(!successfulExecution);
+					save(session, commandLogJob);
+				}
+				stats.record(schedulerJobId, 0, start, end, !successfulExecution);
+				events.publish(EventService.JOB_FINISHED, createObjectBuilder()
+						.add("schedulerJobId", schedulerJobId)
+						.add("commandLogJobId", commandLogJobId)
+						.add("error", !successfulExecution)
+						.build());
+			} finally {
+				// released even if the run failed so waiting tail requests return
+				logTail.finished(commandLogJobId);
 			}
 
 			LOG.info("Completed execution of SchedulerJob[" + schedulerJobId + "] " + schedulerJobName);
@@ -191,6 +256,15 @@ public class SchedulerServiceSchedulerJob {
 		}
 	}
 
+	private LogLevel getLogLevelDefault() {
+		var level = LogLevel.parse(settings.getLogLevel());
+		if (level == null) {
+			LOG.warn("Invalid log level '" + settings.getLogLevel() + "' so persisting all levels");
+			return LogLevel.TRACE;
+		}
+		return level;
+	}
+
 	private Command createCommand(ActionItem action) {
 		var name = trimOrNull(action.getSchedulerActionName());
 		if (name == null) return null;
@@ -21,7 +21,12 @@ import static com.maxrunsoftware.jezel.Util.*;
 import java.time.LocalDateTime;
 
 import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogTailService;
 import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.LogStoreService;
 import com.maxrunsoftware.jezel.action.CommandLog;
 import com.maxrunsoftware.jezel.model.CommandLogAction;
 import com.maxrunsoftware.jezel.model.CommandLogMessage;
@@ -29,33 +34,84 @@ import com.maxrunsoftware.jezel.model.CommandLogMessage;
 public class SchedulerServiceSchedulerJobLog implements CommandLog {
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerServiceSchedulerJobLog.class);
 
+	private final int commandLogJobId;
 	private final int commandLogActionId;
 	private final DatabaseService db;
+	private final EventService events;
+	private final LogTailService logTail;
+	private final LogStoreService logStore;
+	private final LogSearchService logSearch;
+	private final FailureService failures;
+	private final LogLevel minimumLevel;
 	private int index = 0;
+	private int suppressedCount = 0;
 
-	public SchedulerServiceSchedulerJobLog(DatabaseService db, int commandLogActionId) {
+	public SchedulerServiceSchedulerJobLog(DatabaseService db, EventService events, LogTailService logTail, LogStoreService logStore, LogSearchService logSearch, FailureService failures, int commandLogJobId, int commandLogActionId, LogLevel minimumLevel) {
 		this.db = checkNotNull(db);
+		this.events = checkNotNull(events);
+		this.logTail = checkNotNull(logTail);
+		this.logStore = checkNotNull(logStore);
+		this.logSearch = checkNotNull(logSearch);
+		this.failures = checkNotNull(failures);
+		this.commandLogJobId = commandLogJobId;
 		this.commandLogActionId = commandLogActionId;
+		this.minimumLevel = checkNotNull(minimumLevel);
+	}
+
+	public int getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	@Override
+	public boolean isEnabled(LogLevel level) {
+		return level.isAtLeast(minimumLevel);
 	}
 
 	@Override
 	public void log(LogLevel level, Object message, Throwable exception) {
-		try (var session = db.openSession()) {
-			var commandLogAction = getById(CommandLogAction.class, session, commandLogActionId);
-			if (commandLogAction == null) {
-				LOG.warn("Could not find CommandLogAction[" + commandLogActionId + "]");
-			} else {
-				var commandLogMessage = new CommandLogMessage();
+		if (!isEnabled(level)) {
+			suppressedCount++;
+			return;
+		}
+
+		var commandLogMessage = new CommandLogMessage();
+		commandLogMessage.setTimestamp(LocalDateTime.now());
+		commandLogMessage.setLevel(level.toString());
+		commandLogMessage.setIndex(index);
+		commandLogMessage.setMessage(message == null ? null : message.toString());
+		commandLogMessage.setException(exception == null ? null : exception.toString());
+		if (exception != null) commandLogMessage.setCommandLogFailureId(failures.record(exception, commandLogJobId, commandLogMessage.getTimestamp()));
+
+		if (logStore.isEnabled()) {
+			var commandLogAction = new CommandLogAction();
+			commandLogAction.setCommandLogActionId(commandLogActionId);
+			commandLogMessage.setCommandLogAction(commandLogAction);
+			logStore.append(commandLogActionId, commandLogMessage);
+		} else {
+			try (var session = db.openSession()) {
+				var commandLogAction = getById(CommandLogAction.class, session, commandLogActionId);
+				if (commandLogAction == null) {
+					LOG.warn("Could not find CommandLogAction[" + commandLogActionId + "]");
+					return;
+				}
 				commandLogMessage.setCommandLogAction(commandLogAction);
-				commandLogMessage.setTimestamp(LocalDateTime.now());
-				commandLogMessage.setLevel(level.toString());
-				commandLogMessage.setIndex(index);
-				commandLogMessage.setMessage(message == null ? null : message.toString());
-				commandLogMessage.setException(exception == null ? null : exception.toString());
 				save(session, commandLogMessage);
-
-				index++;
 			}
 		}
+
+		var commandLogMessageId = commandLogMessage.getCommandLogMessageId();
+		logSearch.add(commandLogJobId, commandLogActionId, commandLogMessage);
+		logTail.append(commandLogJobId, commandLogMessageId, commandLogMessage.toJson());
+
+		events.publish(EventService.LOG_MESSAGE, createObjectBuilder()
+				.add("commandLogJobId", commandLogJobId)
+				.add("commandLogActionId", commandLogActionId)
+				.add("commandLogMessageId", commandLogMessageId)
+				.add("index", index)
+				.add("level", commandLogMessage.getLevel())
+				.add("message", coalesce(commandLogMessage.getMessage(), ""))
+				.build());
+
+		index++;
 	}
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+
+import org.hibernate.Session;
+
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.RunStatBackfill;
+
+public class StatsServiceSql implements StatsService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(StatsServiceSql.class);
+	private static final List<String> RESOLUTIONS = List.of(RunStat.RESOLUTION_HOUR, RunStat.RESOLUTION_DAY);
+	private static final int BACKFILL_CHUNK = 200;
+
+	private final SettingService settings;
+	private final DatabaseService db;
+	private final Object locker = new Object();
+
+	private final LongAdder recordCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder bucketsCreated = new LongAdder();
+	private final LongAdder bucketsPruned = new LongAdder();
+	private final LongAdder backfillCount = new LongAdder();
+
+	@Inject
+	public StatsServiceSql(SettingService settings, DatabaseService db) {
+		this.settings = checkNotNull(settings);
+		this.db = checkNotNull(db);
+	}
+
+	private static LocalDateTime bucketStart(String resolution, LocalDateTime timestamp) {
+		return timestamp.truncatedTo(RunStat.RESOLUTION_HOUR.equals(resolution) ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+	}
+
+	private LocalDateTime cutoff(String resolution) {
+		var days = RunStat.RESOLUTION_HOUR.equals(resolution) ? settings.getStatsHourlyDays() : settings.getStatsDailyDays();
+		return bucketStart(resolution, LocalDateTime.now().minusDays(Math.max(1, days)));
+	}
+
+	private static String key(int schedulerJobId, int schedulerActionId, String resolution, LocalDateTime bucketStart) {
+		return schedulerJobId + ":" + schedulerActionId + ":" + resolution + ":" + bucketStart;
+	}
+
+	/**
+	 * Adds the counts to the stored bucket, creating it and dropping expired buckets of the same key when it is new.
+	 */
+	private void upsert(Session session, RunStat counts) {
+		var runStat = RunStat.getBucket(session, counts.getSchedulerJobId(), counts.getSchedulerActionId(), counts.getResolution(), counts.getBucketStart());
+		if (runStat == null) {
+			var pruned = session.createQuery("delete from RunStat s where s.schedulerJobId = :schedulerJobId and s.schedulerActionId = :schedulerActionId"
+					+ " and s.resolution = :resolution and s.bucketStart < :cutoff")
+					.setParameter("schedulerJobId", counts.getSchedulerJobId())
+					.setParameter("schedulerActionId", counts.getSchedulerActionId())
+					.setParameter("resolution", counts.getResolution())
+					.setParameter("cutoff", cutoff(counts.getResolution()))
+					.executeUpdate();
+			bucketsPruned.add(pruned);
+			bucketsCreated.increment();
+			save(session, counts);
+		} else {
+			runStat.merge(counts);
+			save(session, runStat);
+		}
+	}
+
+	private List<RunStat> buckets(int schedulerJobId, int schedulerActionId, LocalDateTime start, LocalDateTime end, boolean failed) {
+		var list = new ArrayList<RunStat>();
+		var duration = Math.max(0, Duration.between(start, end).toMillis());
+		for (var resolution : RESOLUTIONS) {
+			var bucketStart = bucketStart(resolution, start);
+			if (bucketStart.isBefore(cutoff(resolution))) continue;
+			var runStat = new RunStat();
+			runStat.setSchedulerJobId(schedulerJobId);
+			runStat.setSchedulerActionId(schedulerActionId);
+			runStat.setResolution(resolution);
+			runStat.setBucketStart(bucketStart);
+			runStat.add(duration, failed);
+			list.add(runStat);
+		}
+		return list;
+	}
+
+	@Override
+	public void record(int schedulerJobId, int schedulerActionId, LocalDateTime start, LocalDateTime end, boolean failed) {
+		if (start == null || end == null) return;
+		var buckets = buckets(schedulerJobId, schedulerActionId, start, end, failed);
+		synchronized (locker) {
+			try {
+				db.inTransaction(session -> {
+					for (var runStat : buckets) {
+						upsert(session, runStat);
+					}
+				});
+				recordCount.increment();
+			} catch (RuntimeException e) {
+				failedCount.increment();
+				LOG.warn("Could not record run of SchedulerJob[" + schedulerJobId + "] SchedulerAction[" + schedulerActionId + "]", e);
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		RunStatBackfill runStatBackfill;
+		long remaining;
+		try (var session = db.openSession()) {
+			runStatBackfill = RunStatBackfill.get(session);
+			if (runStatBackfill == null) {
+				// runs ending from here on are recorded by the scheduler
+				runStatBackfill = new RunStatBackfill();
+				runStatBackfill.setEndedBefore(LocalDateTime.now());
+				save(session, runStatBackfill);
+			}
+			remaining = session.createQuery("select count(j) from CommandLogJob j where j.end < :endedBefore and j.commandLogJobId > :done", Long.class)
+					.setParameter("endedBefore", runStatBackfill.getEndedBefore())
+					.setParameter("done", runStatBackfill.getCommandLogJobIdDone())
+					.getSingleResult();
+		}
+		if (remaining == 0) return;
+
+		var endedBefore = runStatBackfill.getEndedBefore();
+		var done = runStatBackfill.getCommandLogJobIdDone();
+		LOG.info("Building run statistics from " + remaining + " CommandLogJobs after CommandLogJob[" + done + "]");
+		new ThreadFactoryBuilder().setNameFormat("StatsBackfill").setDaemon(true).build().newThread(() -> {
+			try {
+				backfill(endedBefore, done);
+			} catch (Throwable t) {
+				failedCount.increment();
+				LOG.error("Could not build run statistics from existing CommandLogJobs", t);
+			}
+		}).start();
+	}
+
+	/**
+	 * Adds the CommandLogJobs in chunks, each chunk committed together with the progress so a restart neither skips nor
+	 * counts twice.
+	 */
+	private void backfill(LocalDateTime endedBefore, int after) {
+		var buckets = 0;
+		var jobs = 0;
+		while (true) {
+			var counts = new LinkedHashMap<String, RunStat>();
+			int chunk;
+			try (var session = db.openSession()) {
+				// ids first since limiting a fetch join would page in memory
+				var commandLogJobIds = session.createQuery("select j.commandLogJobId from CommandLogJob j"
+						+ " where j.end < :endedBefore and j.commandLogJobId > :after order by j.commandLogJobId", Integer.class)
+						.setParameter("endedBefore", endedBefore)
+						.setParameter("after", after)
+						.setMaxResults(BACKFILL_CHUNK)
+						.getResultList();
+				if (commandLogJobIds.isEmpty()) break;
+				var commandLogJobs = session.createQuery("select distinct j from CommandLogJob j left join fetch j.commandLogActions"
+						+ " where j.commandLogJobId in :ids order by j.commandLogJobId", CommandLogJob.class)
+						.setParameter("ids", commandLogJobIds)
+						.getResultList();
+				for (var commandLogJob : commandLogJobs) {
+					var schedulerJobId = commandLogJob.getSchedulerJob().getSchedulerJobId();
+					var runs = new ArrayList<RunStat>(buckets(schedulerJobId, 0, commandLogJob.getStart(), commandLogJob.getEnd(), commandLogJob.isError()));
+					var last = commandLogJob.getCommandLogActions().stream().mapToInt(a -> a.getIndex()).max().orElse(-1);
+					for (var commandLogAction : commandLogJob.getCommandLogActions()) {
+						if (commandLogAction.getEnd() == null) continue;
+						// a failing action stops the run, so only the last action of a failed run failed
+						var failed = commandLogJob.isError() && commandLogAction.getIndex() == last;
+						runs.addAll(buckets(schedulerJobId, commandLogAction.getSchedulerAction().getSchedulerActionId(), commandLogAction.getStart(), commandLogAction.getEnd(), failed));
+					}
+					for (var runStat : runs) {
+						var existing = counts.putIfAbsent(key(runStat.getSchedulerJobId(), runStat.getSchedulerActionId(), runStat.getResolution(), runStat.getBucketStart()), runStat);
+						if (existing != null) existing.merge(runStat);
+					}
+				}
+				after = Iterables.getLast(commandLogJobIds);
+				chunk = commandLogJobIds.size();
+			}
+
+			var done = after;
+			synchronized (locker) {
+				db.inTransaction(session -> {
+					for (var runStat : counts.values()) {
+						upsert(session, runStat);
+					}
+					RunStatBackfill.get(session).setCommandLogJobIdDone(done);
+				});
+			}
+			buckets += counts.size();
+			jobs += chunk;
+			backfillCount.add(chunk);
+		}
+		LOG.info("Built " + buckets + " run statistics buckets from " + jobs + " CommandLogJobs");
+	}
+
+	@Override
+	public List<RunStat> getBuckets(Integer schedulerJobId, Integer schedulerActionId, String resolution, LocalDateTime from, LocalDateTime to) {
+		try (var session = db.openSession()) {
+			return RunStat.getBuckets(session, schedulerJobId, schedulerActionId, resolution, from, to);
+		}
+	}
+
+	@Override
+	public List<RunStat> getTotals(Integer schedulerJobId, LocalDateTime from, LocalDateTime to) {
+		var start = bucketStart(RunStat.RESOLUTION_DAY, from);
+		var totals = new LinkedHashMap<String, RunStat>();
+		for (var runStat : getBuckets(schedulerJobId, schedulerJobId == null ? 0 : null, RunStat.RESOLUTION_DAY, start, to)) {
+			var total = totals.computeIfAbsent(runStat.getSchedulerJobId() + ":" + runStat.getSchedulerActionId(), k -> {
+				var t = new RunStat();
+				t.setSchedulerJobId(runStat.getSchedulerJobId());
+				t.setSchedulerActionId(runStat.getSchedulerActionId());
+				t.setResolution(RunStat.RESOLUTION_TOTAL);
+				t.setBucketStart(start);
+				return t;
+			});
+			total.merge(runStat);
+		}
+		var list = new ArrayList<RunStat>(totals.values());
+		list.sort(RunStat.SORT_BUCKET);
+		return list;
+	}
+
+	@Override
+	public void delete(Session session, int schedulerJobId) {
+		// not under the lock, the caller's transaction may hold the rows until it commits
+		inTransaction(session, s -> s.createQuery("delete from RunStat s where s.schedulerJobId = :schedulerJobId")
+				.setParameter("schedulerJobId", schedulerJobId)
+				.executeUpdate());
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		map.put("recordCount", recordCount.sum());
+		map.put("failedCount", failedCount.sum());
+		map.put("bucketsCreated", bucketsCreated.sum());
+		map.put("bucketsPruned", bucketsPruned.sum());
+		map.put("backfillCount", backfillCount.sum());
+		return map;
+	}
+}
@@ -22,8 +22,15 @@ import javax.inject.Inject;
 import com.maxrunsoftware.jezel.BearerService;
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.LogTailService;
+import com.maxrunsoftware.jezel.RetentionService;
 import com.maxrunsoftware.jezel.SchedulerService;
 import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
 import com.maxrunsoftware.jezel.WebService;
 import com.maxrunsoftware.jezel.server.JettyServer;
 
@@ -37,13 +44,27 @@ public class WebServiceJetty implements WebService {
 	private final DatabaseService db;
 	private final BearerService bearer;
 	private final SchedulerService scheduler;
+	private final EventService events;
+	private final LogTailService logTail;
+	private final RetentionService retention;
+	private final LogStoreService logStore;
+	private final LogSearchService logSearch;
+	private final StatsService stats;
+	private final FailureService failures;
 
 	@Inject
-	public WebServiceJetty(SettingService settings, DatabaseService db, BearerService bearer, SchedulerService scheduler) {
+	public WebServiceJetty(SettingService settings, DatabaseService db, BearerService bearer, SchedulerService scheduler, EventService events, LogTailService logTail, RetentionService retention, LogStoreService logStore, LogSearchService logSearch, StatsService stats, FailureService failures) {
 		this.settings = checkNotNull(settings);
 		this.db = checkNotNull(db);
 		this.bearer = checkNotNull(bearer);
 		this.scheduler = checkNotNull(scheduler);
+		this.events = checkNotNull(events);
+		this.logTail = checkNotNull(logTail);
+		this.retention = checkNotNull(retention);
+		this.logStore = checkNotNull(logStore);
+		this.logSearch = checkNotNull(logSearch);
+		this.stats = checkNotNull(stats);
+		this.failures = checkNotNull(failures);
 
 	}
 
@@ -55,12 +76,26 @@ public class WebServiceJetty implements WebService {
 		server.setMinThreads(settings.getRestMinThreads());
 		server.setIdleTimeout(settings.getRestIdleTimeout());
 		server.setPort(settings.getRestPort());
+		server.setAcceptors(settings.getRestAcceptors());
+		server.setSelectors(settings.getRestSelectors());
+		server.setOutputBufferSize(settings.getRestOutputBufferSize());
+		server.setHttp2(settings.getRestHttp2());
+		server.setCompression(settings.getRestCompression());
+		server.setCompressionMinSize(settings.getRestCompressionMinSize());
+		server.setCompressionMimeTypes(settings.getRestCompressionMimeTypes());
 		server.setTempDirectory(settings.getDirTemp());
 
 		server.addResource(SettingService.class.getName(), settings);
 		server.addResource(DatabaseService.class.getName(), db);
 		server.addResource(BearerService.class.getName(), bearer);
 		server.addResource(SchedulerService.class.getName(), scheduler);
+		server.addResource(EventService.class.getName(), events);
+		server.addResource(LogTailService.class.getName(), logTail);
+		server.addResource(RetentionService.class.getName(), retention);
+		server.addResource(LogStoreService.class.getName(), logStore);
+		server.addResource(LogSearchService.class.getName(), logSearch);
+		server.addResource(StatsService.class.getName(), stats);
+		server.addResource(FailureService.class.getName(), failures);
 
 		for (var page : Constant.REST_SERVLETS) {
 			server.addPage(page.servlet(), page.path());
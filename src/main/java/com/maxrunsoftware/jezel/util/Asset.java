@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.maxrunsoftware.jezel.Constant;
+
+/**
+ * Static classpath file served under a content fingerprinted name, so it can be cached by browsers forever and a
+ * changed file simply gets a new URL. The gzip variant is compressed once at load.
+ */
+public class Asset {
+
+	private final String name;
+	private final String contentType;
+	private final String hash;
+	private final byte[] content;
+	private final byte[] contentGzip;
+
+	private Asset(String name, String contentType, String hash, byte[] content, byte[] contentGzip) {
+		this.name = name;
+		this.contentType = contentType;
+		this.hash = hash;
+		this.content = content;
+		this.contentGzip = contentGzip;
+	}
+
+	public static Asset load(String resource, String contentType) {
+		try (var stream = Asset.class.getResourceAsStream(resource)) {
+			checkArgument(stream != null, "Resource not found: " + resource);
+			var content = ByteStreams.toByteArray(stream);
+			var hash = Hashing.sha256().hashBytes(content).toString().substring(0, 16);
+
+			var fileName = Files.getNameWithoutExtension(resource);
+			var fileExtension = Files.getFileExtension(resource);
+			var name = fileName + "." + hash + (fileExtension.isEmpty() ? "" : "." + fileExtension);
+
+			var baos = new ByteArrayOutputStream();
+			try (var gzip = new GZIPOutputStream(baos)) {
+				gzip.write(content);
+			}
+			var contentGzip = baos.toByteArray();
+			if (contentGzip.length >= content.length) contentGzip = null;
+
+			return new Asset(name, contentType, hash, content, contentGzip);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPath() {
+		return Constant.WEB_ASSETS + "/" + name;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getETag() {
+		return "\"" + hash + "\"";
+	}
+
+	public String getETagGzip() {
+		return "\"" + hash + "-gzip\"";
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * @return gzip compressed content, or null if compressing does not make it smaller
+	 */
+	public byte[] getContentGzip() {
+		return contentGzip;
+	}
+
+}
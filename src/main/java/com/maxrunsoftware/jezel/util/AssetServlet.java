@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class AssetServlet extends HttpServlet {
+	private static final long serialVersionUID = -3304129861658727442L;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(AssetServlet.class);
+	private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	private final Map<String, Asset> assets = new HashMap<String, Asset>();
+
+	public AssetServlet(List<Asset> assets) {
+		for (var asset : assets) {
+			this.assets.put(asset.getName(), asset);
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var name = trimOrNull(request.getPathInfo());
+		if (name != null && name.startsWith("/")) name = name.substring(1);
+		var asset = name == null ? null : assets.get(name);
+		if (asset == null) {
+			LOG.debug("Asset not found: " + name);
+			response.sendError(404);
+			return;
+		}
+
+		var acceptEncoding = request.getHeader("Accept-Encoding");
+		var gzip = asset.getContentGzip() != null && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+		var etag = gzip ? asset.getETagGzip() : asset.getETag();
+
+		response.setHeader("Cache-Control", CACHE_CONTROL);
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		var ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+			response.setStatus(304);
+			return;
+		}
+
+		var content = gzip ? asset.getContentGzip() : asset.getContent();
+		response.setStatus(200);
+		response.setContentType(asset.getContentType());
+		if (gzip) response.setHeader("Content-Encoding", "gzip");
+		response.setContentLength(content.length);
+		response.getOutputStream().write(content);
+	}
+
+}
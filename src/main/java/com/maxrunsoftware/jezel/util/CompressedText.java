@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Text stored as bytes with a leading marker byte, deflated when at least the threshold in size and smaller for it. The
+ * text is only decoded when first read. Data without a marker is plain UTF-8 written before the marker existed, stored
+ * text is trimmed so it never starts with a marker byte.
+ */
+public final class CompressedText {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(CompressedText.class);
+
+	public static final byte MARKER_PLAIN = 0;
+	public static final byte MARKER_DEFLATE = 1;
+
+	private static volatile int threshold = 1024;
+	private static volatile int maxLength = 0;
+
+	private final byte[] data;
+	private volatile String text;
+
+	private CompressedText(byte[] data, String text) {
+		this.data = data;
+		this.text = text;
+	}
+
+	/**
+	 * Minimum size in bytes before text is compressed.
+	 */
+	public static void setThreshold(int threshold) {
+		CompressedText.threshold = threshold;
+	}
+
+	/**
+	 * Characters kept of longer text, the rest is replaced by a note of how much was cut. 0 to keep everything.
+	 */
+	public static void setMaxLength(int maxLength) {
+		CompressedText.maxLength = maxLength;
+	}
+
+	public static CompressedText of(String text) {
+		if (text == null) return null;
+		var max = maxLength;
+		if (max > 0 && text.length() > max) {
+			LOG.debug("Truncating text of " + text.length() + " characters to " + max);
+			text = text.substring(0, max) + "\n... truncated " + (text.length() - max) + " characters";
+		}
+
+		var bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length >= threshold) {
+			var compressed = deflate(bytes);
+			if (compressed.length < bytes.length) return new CompressedText(compressed, text);
+		}
+		var data = new byte[bytes.length + 1];
+		data[0] = MARKER_PLAIN;
+		System.arraycopy(bytes, 0, data, 1, bytes.length);
+		return new CompressedText(data, text);
+	}
+
+	public static CompressedText fromData(byte[] data) {
+		if (data == null) return null;
+		return new CompressedText(data, null);
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public boolean isCompressed() {
+		return data.length > 0 && data[0] == MARKER_DEFLATE;
+	}
+
+	public String getText() {
+		var t = text;
+		if (t == null) {
+			t = decode(data);
+			text = t;
+		}
+		return t;
+	}
+
+	private static byte[] deflate(byte[] bytes) {
+		var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		var out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+		out.write(MARKER_DEFLATE);
+		try (var stream = new DeflaterOutputStream(out, deflater)) {
+			stream.write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			deflater.end();
+		}
+		return out.toByteArray();
+	}
+
+	private static String decode(byte[] data) {
+		if (data.length == 0) return "";
+		if (data[0] == MARKER_PLAIN) return new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+		if (data[0] != MARKER_DEFLATE) return new String(data, StandardCharsets.UTF_8);
+
+		try (var stream = new InflaterInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+			return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		return obj instanceof CompressedText other && Arrays.equals(data, other.data);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(data);
+	}
+
+	@Override
+	public String toString() {
+		return getText();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch of durations in milliseconds. Values are counted in logarithmic buckets so any quantile is
+ * within {@value #ACCURACY} relative error of a recorded value, and two sketches merge by adding their bucket counts.
+ * Durations below one millisecond are counted separately as zero.
+ */
+public final class DurationSketch {
+	public static final double ACCURACY = 0.01;
+	private static final byte VERSION = 1;
+	private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	private long zeroCount;
+	private int offset;
+	private long[] counts = new long[0];
+
+	private static int index(long millis) {
+		return (int) Math.ceil(Math.log(millis) / LOG_GAMMA);
+	}
+
+	private static long value(int index) {
+		return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+	}
+
+	public long getCount() {
+		var count = zeroCount;
+		for (var c : counts) {
+			count += c;
+		}
+		return count;
+	}
+
+	private void add(int index, long count) {
+		if (counts.length == 0) {
+			offset = index;
+			counts = new long[1];
+		} else if (index < offset) {
+			var grown = new long[counts.length + offset - index];
+			System.arraycopy(counts, 0, grown, offset - index, counts.length);
+			counts = grown;
+			offset = index;
+		} else if (index >= offset + counts.length) {
+			counts = Arrays.copyOf(counts, index - offset + 1);
+		}
+		counts[index - offset] += count;
+	}
+
+	public void add(long millis) {
+		if (millis < 1) zeroCount++;
+		else add(index(millis), 1);
+	}
+
+	public void merge(DurationSketch other) {
+		zeroCount += other.zeroCount;
+		for (int i = 0; i < other.counts.length; i++) {
+			if (other.counts[i] != 0) add(other.offset + i, other.counts[i]);
+		}
+	}
+
+	/**
+	 * @param quantile between 0 and 1, 0.5 for the median
+	 * @return the duration in milliseconds, 0 if nothing was added
+	 */
+	public long getQuantile(double quantile) {
+		var count = getCount();
+		if (count == 0) return 0;
+		var rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * count);
+		var seen = zeroCount;
+		if (seen >= rank) return 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return value(offset + i);
+		}
+		return value(offset + counts.length - 1);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Version, zero count, first bucket index, number of buckets and the bucket counts, all as varints.
+	 */
+	public byte[] toBytes() {
+		var out = new ByteArrayOutputStream(16 + counts.length * 2);
+		out.write(VERSION);
+		writeVarLong(out, zeroCount);
+		// zigzag so negative indexes stay short
+		writeVarLong(out, (offset << 1) ^ (offset >> 31));
+		writeVarLong(out, counts.length);
+		for (var c : counts) {
+			writeVarLong(out, c);
+		}
+		return out.toByteArray();
+	}
+
+	public static DurationSketch fromBytes(byte[] bytes) {
+		var sketch = new DurationSketch();
+		if (bytes == null || bytes.length == 0) return sketch;
+		var buffer = ByteBuffer.wrap(bytes);
+		if (buffer.get() != VERSION) throw new IllegalArgumentException("Unknown DurationSketch version " + bytes[0]);
+		sketch.zeroCount = readVarLong(buffer);
+		var zigzag = (int) readVarLong(buffer);
+		sketch.offset = (zigzag >>> 1) ^ -(zigzag & 1);
+		sketch.counts = new long[(int) readVarLong(buffer)];
+		for (int i = 0; i < sketch.counts.length; i++) {
+			sketch.counts[i] = readVarLong(buffer);
+		}
+		return sketch;
+	}
+}
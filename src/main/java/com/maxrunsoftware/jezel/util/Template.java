@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Text with ${name} placeholders, split once into literal and placeholder segments so rendering only writes each
+ * segment out in order instead of searching and copying the whole text for every placeholder.
+ */
+public class Template {
+	private static final String PREFIX = "${";
+	private static final String SUFFIX = "}";
+
+	private final String[] literals;
+	private final String[] names;
+	private final Set<String> nameSet;
+
+	private Template(List<String> literals, List<String> names) {
+		this.literals = literals.toArray(String[]::new);
+		this.names = names.toArray(String[]::new);
+		this.nameSet = Collections.unmodifiableSet(new LinkedHashSet<String>(names));
+	}
+
+	public static Template compile(String text) {
+		var literals = new ArrayList<String>();
+		var names = new ArrayList<String>();
+		int position = 0;
+		while (true) {
+			int start = text.indexOf(PREFIX, position);
+			int end = start < 0 ? -1 : text.indexOf(SUFFIX, start + PREFIX.length());
+			if (end < 0) {
+				literals.add(text.substring(position));
+				break;
+			}
+			literals.add(text.substring(position, start));
+			names.add(text.substring(start + PREFIX.length(), end));
+			position = end + SUFFIX.length();
+		}
+		return new Template(literals, names);
+	}
+
+	public Set<String> getNames() {
+		return nameSet;
+	}
+
+	/**
+	 * Returns a template with the given placeholders replaced by fixed text, useful for values known at class-init.
+	 */
+	public Template bind(Map<String, String> values) {
+		var boundLiterals = new ArrayList<String>();
+		var boundNames = new ArrayList<String>();
+		var sb = new StringBuilder(literals[0]);
+		for (int i = 0; i < names.length; i++) {
+			var value = values.get(names[i]);
+			if (value == null) {
+				boundLiterals.add(sb.toString());
+				boundNames.add(names[i]);
+				sb.setLength(0);
+			} else {
+				sb.append(value); // bound values are literal text, never parsed for placeholders
+			}
+			sb.append(literals[i + 1]);
+		}
+		boundLiterals.add(sb.toString());
+		return new Template(boundLiterals, boundNames);
+	}
+
+	/**
+	 * Writes the template, placeholders without a value are written as empty.
+	 */
+	public void write(Writer writer, Map<String, String> values) throws IOException {
+		for (int i = 0; i < names.length; i++) {
+			writer.write(literals[i]);
+			var value = values.get(names[i]);
+			if (value != null) writer.write(value);
+		}
+		writer.write(literals[names.length]);
+	}
+
+	public String render(Map<String, String> values) {
+		var writer = new StringWriter();
+		try {
+			write(writer, values);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // StringWriter does not throw
+		}
+		return writer.toString();
+	}
+
+}
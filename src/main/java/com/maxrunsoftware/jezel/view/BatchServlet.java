@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import com.maxrunsoftware.jezel.Constant;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Runs an ordered list of PUT/POST/DELETE operations against the other REST resources in a single transaction. Every
+ * operation must succeed or all are rolled back. Each operation is flushed before the next so a constraint violation
+ * fails the operation that caused it with 409. Affected jobs are synced once each after the commit.
+ *
+ * <pre>
+ * {"operations": [{"method": "POST", "path": "/job", "parameters": {"schedulerJobId": 1, "name": "a"}}, ...]}
+ * </pre>
+ */
+public class BatchServlet extends ServletBase {
+	private static final long serialVersionUID = -3160153553693419519L;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(BatchServlet.class);
+
+	public static final String OPERATIONS = "operations";
+	private static final Set<String> METHODS = Set.of("PUT", "POST", "DELETE");
+
+	private final Map<String, HttpServlet> servlets = new HashMap<String, HttpServlet>();
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		for (var page : Constant.REST_SERVLETS) {
+			var path = page.path();
+			if (!(path.startsWith("/job") || path.startsWith("/log") || path.startsWith("/config"))) continue;
+			try {
+				var servlet = (HttpServlet) page.servlet().getDeclaredConstructor().newInstance();
+				servlet.init(getServletConfig());
+				servlets.put(path, servlet);
+			} catch (ReflectiveOperationException e) {
+				throw new ServletException(e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		for (var servlet : servlets.values()) {
+			servlet.destroy();
+		}
+		super.destroy();
+	}
+
+	private static record Operation(String method, String path, Map<String, String> parameters) {}
+
+	private static Operation parseOperation(JsonValue value) {
+		var o = value.asJsonObject();
+		var method = trimOrNull(o.getString("method", null));
+		var path = trimOrNull(o.getString("path", null));
+		var parameters = new LinkedHashMap<String, String>();
+		var parametersJson = o.getJsonObject("parameters");
+		if (parametersJson != null) {
+			for (var entry : parametersJson.entrySet()) {
+				var v = entry.getValue();
+				if (v.getValueType() == JsonValue.ValueType.NULL) continue;
+				parameters.put(entry.getKey(), v instanceof JsonString s ? s.getString() : v.toString());
+			}
+		}
+		return new Operation(method == null ? null : method.toUpperCase(), path, parameters);
+	}
+
+	@Override
+	protected void doPostAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		JsonObject body;
+		try {
+			body = fromJsonString(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+		} catch (Exception e) {
+			LOG.debug("Invalid batch body", e);
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Body must be a JSON object with an '" + OPERATIONS + "' array", 400);
+			return;
+		}
+
+		var operationsJson = body.getJsonArray(OPERATIONS);
+		if (operationsJson == null || operationsJson.isEmpty()) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + OPERATIONS + "' provided", 400);
+			return;
+		}
+		var maxOperations = settings.getRestBatchMaxOperations();
+		if (operationsJson.size() > maxOperations) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, operationsJson.size() + " operations exceeds the maximum of " + maxOperations, 400);
+			return;
+		}
+
+		var operations = operationsJson.stream().map(BatchServlet::parseOperation).toList();
+		for (int i = 0; i < operations.size(); i++) {
+			var operation = operations.get(i);
+			if (operation.method() == null || !METHODS.contains(operation.method())) {
+				writeResponse(response, RESPONSE_STATUS_FAILED, "Operation[" + i + "] method must be one of " + METHODS, 400);
+				return;
+			}
+			if (operation.path() == null || !servlets.containsKey(operation.path())) {
+				writeResponse(response, RESPONSE_STATUS_FAILED, "Operation[" + i + "] path must be one of " + servlets.keySet(), 400);
+				return;
+			}
+		}
+
+		var results = createArrayBuilder();
+		Integer failedIndex = null;
+		int failedStatus = 200;
+		RuntimeException commitError = null;
+		Batch batch;
+		try (var session = db.openSession()) {
+			batch = new Batch(session);
+			var tx = session.beginTransaction();
+			var commit = false;
+			BATCH.set(batch);
+			try {
+				for (int i = 0; i < operations.size(); i++) {
+					var operation = operations.get(i);
+					LOG.debug("Batch operation[" + i + "] " + operation.method() + " " + operation.path() + " " + operation.parameters());
+					var operationResponse = new OperationResponse(response);
+					try {
+						servlets.get(operation.path()).service(new OperationRequest(request, operation), operationResponse);
+						// constraint violations surface here instead of at commit so they belong to this operation
+						if (operationResponse.getStatus() < 400) session.flush();
+					} catch (Exception e) {
+						LOG.warn("Batch operation[" + i + "] failed", e);
+						operationResponse.fail(e);
+					}
+
+					var result = createObjectBuilder()
+							.add("method", operation.method())
+							.add("path", operation.path())
+							.add(RESPONSE_STATUS, operationResponse.getStatus());
+					var content = operationResponse.getContent();
+					try {
+						result.add("response", fromJsonString(content));
+					} catch (Exception e) {
+						result.add("response", content);
+					}
+					results.add(result);
+
+					if (operationResponse.getStatus() >= 400) {
+						failedIndex = i;
+						failedStatus = operationResponse.getStatus();
+						break;
+					}
+				}
+				commit = failedIndex == null;
+			} finally {
+				BATCH.remove();
+				if (tx.isActive() && !commit) tx.rollback();
+			}
+
+			try {
+				if (commit) tx.commit();
+			} catch (RuntimeException e) {
+				// the transaction is rolled back by the failed commit
+				LOG.warn("Batch commit failed", e);
+				commitError = e;
+			} finally {
+				db.evictCache(batch.getCachedEntities().toArray(new Class<?>[0]));
+			}
+		}
+
+		var json = createObjectBuilder().add(OPERATIONS, results);
+		if (failedIndex != null) {
+			json.add(RESPONSE_STATUS, RESPONSE_STATUS_FAILED);
+			json.add(RESPONSE_MESSAGE, "Operation[" + failedIndex + "] failed, all " + operations.size() + " operations rolled back");
+			writeResponse(response, json, failedStatus);
+			return;
+		}
+		if (commitError != null) {
+			json.add(RESPONSE_STATUS, RESPONSE_STATUS_FAILED);
+			json.add(RESPONSE_MESSAGE, "Commit failed, all " + operations.size() + " operations rolled back: " + messageOf(commitError));
+			writeResponse(response, json, statusOf(commitError));
+			return;
+		}
+
+		for (var schedulerJobId : batch.getSchedulerJobIds()) {
+			scheduler.sync(schedulerJobId);
+		}
+		json.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS);
+		json.add(RESPONSE_MESSAGE, "Executed " + operations.size() + " operations, synced " + batch.getSchedulerJobIds().size() + " SchedulerJobs");
+		writeResponse(response, json);
+	}
+
+	private static ConstraintViolationException getConstraintViolation(Throwable t) {
+		for (; t != null; t = t.getCause()) {
+			if (t instanceof ConstraintViolationException cve) return cve;
+		}
+		return null;
+	}
+
+	private static int statusOf(Exception e) {
+		return getConstraintViolation(e) == null ? 500 : 409;
+	}
+
+	private static String messageOf(Exception e) {
+		var cve = getConstraintViolation(e);
+		if (cve != null) return "Constraint violated: " + coalesce(cve.getConstraintName(), cve.getMessage());
+		return coalesce(e.getMessage(), e.getClass().getSimpleName());
+	}
+
+	private static class OperationRequest extends HttpServletRequestWrapper {
+		private final Operation operation;
+
+		public OperationRequest(HttpServletRequest request, Operation operation) {
+			super(request);
+			this.operation = operation;
+		}
+
+		@Override
+		public String getMethod() {
+			return operation.method();
+		}
+
+		@Override
+		public String getQueryString() {
+			return null;
+		}
+
+		@Override
+		public String getParameter(String name) {
+			return operation.parameters().get(name);
+		}
+
+		@Override
+		public Enumeration<String> getParameterNames() {
+			return Collections.enumeration(operation.parameters().keySet());
+		}
+
+		@Override
+		public String[] getParameterValues(String name) {
+			var value = operation.parameters().get(name);
+			return value == null ? null : new String[] { value };
+		}
+
+		@Override
+		public Map<String, String[]> getParameterMap() {
+			var map = new LinkedHashMap<String, String[]>();
+			for (var entry : operation.parameters().entrySet()) {
+				map.put(entry.getKey(), new String[] { entry.getValue() });
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * Captures status and body of an operation, nothing reaches the real response.
+	 */
+	private static class OperationResponse extends HttpServletResponseWrapper {
+		private int status = 200;
+		private final StringWriter writer = new StringWriter();
+		private final PrintWriter printWriter = new PrintWriter(writer);
+		private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		public OperationResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		/**
+		 * Replaces whatever the operation wrote with the failure.
+		 */
+		public void fail(Exception e) {
+			status = statusOf(e);
+			printWriter.flush();
+			writer.getBuffer().setLength(0);
+			stream.reset();
+			printWriter.print(toJsonString(createObjectBuilder()
+					.add(RESPONSE_STATUS, RESPONSE_STATUS_FAILED)
+					.add(RESPONSE_MESSAGE, messageOf(e)), false));
+		}
+
+		public String getContent() {
+			printWriter.flush();
+			return writer.toString() + stream.toString(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			status = sc;
+		}
+
+		@Override
+		public int getStatus() {
+			return status;
+		}
+
+		@Override
+		public void sendError(int sc) {
+			status = sc;
+		}
+
+		@Override
+		public void sendError(int sc, String msg) {
+			status = sc;
+			printWriter.print(coalesce(msg, ""));
+		}
+
+		@Override
+		public PrintWriter getWriter() {
+			return printWriter;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					stream.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {}
+			};
+		}
+
+		@Override
+		public boolean isCommitted() {
+			return false;
+		}
+
+		@Override
+		public void setContentType(String type) {}
+
+		@Override
+		public void setCharacterEncoding(String charset) {}
+
+		@Override
+		public void setContentLength(int len) {}
+
+		@Override
+		public void setContentLengthLong(long len) {}
+
+		@Override
+		public void setHeader(String name, String value) {}
+
+		@Override
+		public void addHeader(String name, String value) {}
+
+		@Override
+		public void setDateHeader(String name, long date) {}
+
+		@Override
+		public void addDateHeader(String name, long date) {}
+
+		@Override
+		public void setIntHeader(String name, int value) {}
+
+		@Override
+		public void addIntHeader(String name, int value) {}
+
+		@Override
+		public void flushBuffer() {}
+
+		@Override
+		public void reset() {}
+
+		@Override
+		public void resetBuffer() {}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.json.JsonObjectBuilder;
+
+import org.hibernate.ScrollMode;
+
+import com.google.common.collect.Iterables;
+import com.maxrunsoftware.jezel.Constant;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.util.CompressedText;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Streams finished runs as gzip compressed NDJSON, one object per line with a 'type' of commandLogJob,
+ * commandLogAction or commandLogMessage, each job followed by its actions and each action by its messages. Parameters
+ * are optionally 'from' and 'to' bounding when the runs ended, and 'after', a commandLogJobId to continue after. Jobs
+ * are in commandLogJobId order and the stream ends with a line of type export holding the last commandLogJobId, so an
+ * interrupted export resumes with 'after' set to the last job whose rows were all received.
+ */
+public class CommandLogExportServlet extends ServletBase {
+	private static final long serialVersionUID = -6012847721309185514L;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(CommandLogExportServlet.class);
+	private static final int FETCH_SIZE = 1000;
+	private static final int JOB_CHUNK = 100;
+	private static final String TYPE = "type";
+
+	private static String text(CompressedText text) {
+		return text == null ? "" : coalesce(text.getText(), "");
+	}
+
+	private static String timestamp(Object timestamp) {
+		return timestamp == null ? "" : timestamp.toString();
+	}
+
+	private static void writeLine(Writer writer, JsonObjectBuilder json) throws IOException {
+		writer.write(toJsonString(json, false));
+		writer.write('\n');
+	}
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		LocalDateTime from, to;
+		try {
+			var f = trimOrNull(getParameter(request, "from"));
+			from = f == null ? null : LocalDateTime.parse(f);
+			var t = trimOrNull(getParameter(request, "to"));
+			to = t == null ? null : LocalDateTime.parse(t);
+		} catch (DateTimeParseException e) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid timestamp: " + e.getParsedString(), 400);
+			return;
+		}
+		int after = coalesce(getParameterInt(request, "after"), 0);
+
+		response.setStatus(200);
+		response.setContentType(Constant.CONTENTTYPE_GZIP);
+		response.setHeader("Content-Disposition", "attachment; filename=\"commandLogExport.ndjson.gz\"");
+
+		int jobs = 0, actions = 0, messages = 0;
+		int lastJobId = after;
+		try (var writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(response.getOutputStream(), 64 * 1024), StandardCharsets.UTF_8))) {
+			// a chunk of jobs per session so no connection is held for the whole download
+			while (true) {
+				try (var session = db.openStatelessSession()) {
+					var idQuery = session.createQuery("select j.commandLogJobId from CommandLogJob j where j.end is not null and j.commandLogJobId > :after"
+							+ (from == null ? "" : " and j.end >= :from")
+							+ (to == null ? "" : " and j.end < :to")
+							+ " order by j.commandLogJobId", Integer.class)
+							.setParameter("after", lastJobId)
+							.setMaxResults(JOB_CHUNK);
+					if (from != null) idQuery.setParameter("from", from);
+					if (to != null) idQuery.setParameter("to", to);
+					var commandLogJobIds = idQuery.getResultList();
+					if (commandLogJobIds.isEmpty()) break;
+
+					// one row per message, or per action or job without messages, read forward only without keeping rows around
+					var query = session.createQuery("select j.commandLogJobId, sj.schedulerJobId, sj.name, j.start, j.end, j.error,"
+							+ " a.commandLogActionId, sa.schedulerActionId, a.name, a.index, a.start, a.end, a.suppressedCount, a.logSegment, a.logIndex,"
+							+ " m.commandLogMessageId, m.index, m.level, m.timestamp, m.message, m.exception, m.commandLogFailureId"
+							+ " from CommandLogJob j join j.schedulerJob sj"
+							// entity joins rather than collection joins, on a collection join a.index would mean index()
+							+ " left join CommandLogAction a on a.commandLogJob = j left join a.schedulerAction sa"
+							+ " left join CommandLogMessage m on m.commandLogAction = a"
+							+ " where j.commandLogJobId in :ids"
+							+ " order by j.commandLogJobId, a.commandLogActionId, m.commandLogMessageId", Object[].class)
+							.setParameter("ids", commandLogJobIds)
+							.setFetchSize(FETCH_SIZE);
+
+					try (var rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+						int lastActionId = 0;
+						while (rows.next()) {
+							var row = rows.get();
+							int commandLogJobId = (Integer) row[0];
+							if (commandLogJobId != lastJobId) {
+								writeLine(writer, createObjectBuilder()
+										.add(TYPE, CommandLogJob.NAME)
+										.add(CommandLogJob.ID, commandLogJobId)
+										.add(SchedulerJob.ID, (Integer) row[1])
+										.add("schedulerJobName", coalesce((String) row[2], ""))
+										.add("start", timestamp(row[3]))
+										.add("end", timestamp(row[4]))
+										.add("error", (Boolean) row[5]));
+								lastJobId = commandLogJobId;
+								jobs++;
+							}
+
+							var commandLogActionId = (Integer) row[6];
+							if (commandLogActionId == null) continue;
+							if (commandLogActionId != lastActionId) {
+								writeLine(writer, createObjectBuilder()
+										.add(TYPE, CommandLogAction.NAME)
+										.add(CommandLogAction.ID, commandLogActionId)
+										.add(CommandLogJob.ID, commandLogJobId)
+										.add(SchedulerAction.ID, row[7] == null ? 0 : (Integer) row[7])
+										.add("name", coalesce((String) row[8], ""))
+										.add("index", (Integer) row[9])
+										.add("start", timestamp(row[10]))
+										.add("end", timestamp(row[11]))
+										.add("suppressedCount", (Integer) row[12]));
+								lastActionId = commandLogActionId;
+								actions++;
+
+								// messages of actions written to the log store are not in the database, one action at a time is read from there
+								if (row[14] != null) {
+									var commandLogAction = new CommandLogAction();
+									commandLogAction.setCommandLogActionId(commandLogActionId);
+									commandLogAction.setEnd((LocalDateTime) row[11]);
+									commandLogAction.setLogSegment((Integer) row[13]);
+									commandLogAction.setLogIndex((byte[]) row[14]);
+									for (var commandLogMessage : logStore.read(commandLogAction)) {
+										writeLine(writer, message(commandLogJobId, commandLogActionId, commandLogMessage.getCommandLogMessageId(), commandLogMessage.getIndex(),
+												commandLogMessage.getLevel(), commandLogMessage.getTimestamp(), commandLogMessage.getMessageCompressed(),
+												commandLogMessage.getExceptionCompressed(), commandLogMessage.getCommandLogFailureId()));
+										messages++;
+									}
+								}
+							}
+
+							if (row[15] == null) continue;
+							writeLine(writer, message(commandLogJobId, commandLogActionId, (Integer) row[15], (Integer) row[16], (String) row[17], row[18],
+									(CompressedText) row[19], (CompressedText) row[20], (Integer) row[21]));
+							messages++;
+						}
+					}
+					lastJobId = Iterables.getLast(commandLogJobIds);
+				}
+			}
+
+			writeLine(writer, createObjectBuilder()
+					.add(TYPE, "export")
+					.add("lastCommandLogJobId", lastJobId)
+					.add("commandLogJobCount", jobs)
+					.add("commandLogActionCount", actions)
+					.add("commandLogMessageCount", messages));
+		} catch (IOException | RuntimeException e) {
+			// the status is already sent, a stream without the export line tells the client to resume
+			LOG.warn("Export stopped after CommandLogJob[" + lastJobId + "]", e);
+			return;
+		}
+		LOG.debug("Exported " + jobs + " CommandLogJobs, " + actions + " CommandLogActions, " + messages + " CommandLogMessages");
+	}
+
+	private static JsonObjectBuilder message(int commandLogJobId, int commandLogActionId, int commandLogMessageId, int index, String level, Object timestamp,
+			CompressedText message, CompressedText exception, Integer commandLogFailureId) {
+		var json = createObjectBuilder()
+				.add(TYPE, CommandLogMessage.NAME)
+				.add(CommandLogMessage.ID, commandLogMessageId)
+				.add(CommandLogAction.ID, commandLogActionId)
+				.add(CommandLogJob.ID, commandLogJobId)
+				.add("index", index)
+				.add("level", coalesce(level, ""))
+				.add("timestamp", timestamp(timestamp))
+				.add("message", text(message))
+				.add("exception", text(exception));
+		if (commandLogFailureId != null) json.add(CommandLogFailure.ID, commandLogFailureId);
+		return json;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Recurring failures, most occurrences first. Parameters are optionally 'from', only failures last seen since then
+ * (default 30 days ago), and 'limit'. Passing 'commandLogFailureId' returns that failure including its stack trace.
+ */
+public class CommandLogFailureServlet extends ServletBase {
+	private static final long serialVersionUID = 5318730215476914820L;
+	private static final int LIMIT_DEFAULT = 20;
+	private static final int LIMIT_MAX = 1000;
+	private static final int DAYS_DEFAULT = 30;
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var commandLogFailureId = getParameterInt(request, CommandLogFailure.ID);
+		if (commandLogFailureId != null) {
+			try (var scope = openSession()) {
+				var session = scope.session();
+				var commandLogFailure = getById(CommandLogFailure.class, session, commandLogFailureId);
+				if (commandLogFailure == null) {
+					writeResponse(response, RESPONSE_STATUS_FAILED, "CommandLogFailure[" + commandLogFailureId + "] does not exist", 404);
+					return;
+				}
+				var json = createObjectBuilder()
+						.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+						.add(RESPONSE_MESSAGE, "Found 1 CommandLogFailures")
+						.add(CommandLogFailure.NAME, createArrayBuilder().add(commandLogFailure.toJson()));
+				writeResponse(response, json);
+			}
+			return;
+		}
+
+		LocalDateTime from;
+		try {
+			var f = trimOrNull(getParameter(request, "from"));
+			from = f == null ? LocalDateTime.now().minusDays(DAYS_DEFAULT) : LocalDateTime.parse(f);
+		} catch (DateTimeParseException e) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid timestamp: " + e.getParsedString(), 400);
+			return;
+		}
+		var limit = Math.min(Math.max(1, coalesce(getParameterInt(request, "limit"), LIMIT_DEFAULT)), LIMIT_MAX);
+
+		var array = createArrayBuilder();
+		var count = 0;
+		try (var scope = openSession()) {
+			var session = scope.session();
+			for (var commandLogFailure : CommandLogFailure.getTop(session, from, limit)) {
+				// stack traces are only returned for a single failure to keep the list small
+				var json = createObjectBuilder();
+				for (var entry : commandLogFailure.toJson().entrySet()) {
+					if (!entry.getKey().equals("stackTrace")) json.add(entry.getKey(), entry.getValue());
+				}
+				array.add(json);
+				count++;
+			}
+		}
+		var json = createObjectBuilder()
+				.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+				.add(RESPONSE_MESSAGE, "Found " + count + " CommandLogFailures")
+				.add(CommandLogFailure.NAME, array);
+		writeResponse(response, json);
+	}
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 
 import com.maxrunsoftware.jezel.model.CommandLogJob;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.util.Revision;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -36,13 +37,18 @@ public class CommandLogJobServlet extends ServletBase {
 		var commandLogJobId = getParameterInt(request, CommandLogJob.ID);
 		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var commandLogJobs = new ArrayList<CommandLogJob>();
 
 			if (commandLogJobId != null) {
 				// return 1
 				var commandLogJob = getById(CommandLogJob.class, session, commandLogJobId);
 				if (commandLogJob != null) commandLogJobs.add(commandLogJob);
+				// a finished log never changes again
+				if (commandLogJob != null && commandLogJob.getEnd() != null) {
+					if (writeNotModified(request, response, new Revision("log-" + commandLogJobId, commandLogJob.getEnd()))) return;
+				}
 			} else if (schedulerJobId != null) {
 				// return all logs for job
 				for (var commandLogJob : getAll(CommandLogJob.class, session)) {
@@ -59,6 +65,7 @@ public class CommandLogJobServlet extends ServletBase {
 					.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
 					.add(RESPONSE_MESSAGE, "Found " + commandLogJobs.size() + " CommandLogJobs");
 
+			logStore.attach(commandLogJobs);
 			json.add(CommandLogJob.NAME, createArrayBuilder(commandLogJobs));
 			writeResponse(response, json);
 		}
@@ -71,7 +78,8 @@ public class CommandLogJobServlet extends ServletBase {
 			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + CommandLogJob.ID + "' parameter provided to delete CommandLogJob", 400);
 			return;
 		}
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			LOG.debug("Deleting CommandLogJob[" + commandLogJobId + "]");
 			var result = delete(CommandLogJob.class, session, commandLogJobId);
 			if (result) {
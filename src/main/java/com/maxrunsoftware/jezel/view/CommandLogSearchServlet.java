@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Searches the CommandLogMessages of all runs, newest first. Parameters are 'q' with the words to find, optionally
+ * 'commandLogJobId', a minimum 'level', 'from' and 'to' timestamps and 'limit'. The next page is requested by passing
+ * the returned 'before'.
+ */
+public class CommandLogSearchServlet extends ServletBase {
+	private static final long serialVersionUID = 4172558236417120531L;
+	private static final int LIMIT_DEFAULT = 100;
+	private static final int LIMIT_MAX = 1000;
+
+	private static long key(int commandLogActionId, int commandLogMessageId) {
+		return ((long) commandLogActionId << 32) | (commandLogMessageId & 0xFFFFFFFFL);
+	}
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (!logSearch.isEnabled()) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Log search is disabled", 503);
+			return;
+		}
+
+		var levelName = trimOrNull(getParameter(request, "level"));
+		var level = LogLevel.parse(levelName);
+		if (levelName != null && level == null) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid level '" + levelName + "'", 400);
+			return;
+		}
+		LocalDateTime from, to;
+		try {
+			var f = trimOrNull(getParameter(request, "from"));
+			from = f == null ? null : LocalDateTime.parse(f);
+			var t = trimOrNull(getParameter(request, "to"));
+			to = t == null ? null : LocalDateTime.parse(t);
+		} catch (DateTimeParseException e) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid timestamp: " + e.getParsedString(), 400);
+			return;
+		}
+		var limit = Math.min(Math.max(1, coalesce(getParameterInt(request, "limit"), LIMIT_DEFAULT)), LIMIT_MAX);
+		var query = new LogSearchService.Query(getParameter(request, "q"), getParameterInt(request, CommandLogJob.ID), level, from, to, getParameterInt(request, "before"), limit);
+		var hits = logSearch.search(query);
+
+		// hits only carry ids, the text comes from the database or the log store
+		var found = new HashMap<Long, CommandLogMessage>();
+		if (!hits.isEmpty()) {
+			var commandLogActionIds = new HashSet<Integer>();
+			var commandLogMessageIds = new HashSet<Integer>();
+			for (var hit : hits) {
+				commandLogActionIds.add(hit.commandLogActionId());
+				commandLogMessageIds.add(hit.commandLogMessageId());
+			}
+			try (var scope = openSession()) {
+				var session = scope.session();
+				for (var commandLogMessage : CommandLogMessage.getByIds(session, commandLogActionIds, commandLogMessageIds)) {
+					found.put(key(commandLogMessage.getCommandLogAction().getCommandLogActionId(), commandLogMessage.getCommandLogMessageId()), commandLogMessage);
+				}
+				var read = new HashSet<Integer>();
+				for (var hit : hits) {
+					if (found.containsKey(key(hit.commandLogActionId(), hit.commandLogMessageId())) || !read.add(hit.commandLogActionId())) continue;
+					var commandLogAction = getById(CommandLogAction.class, session, hit.commandLogActionId());
+					if (commandLogAction == null) continue;
+					for (var commandLogMessage : logStore.read(commandLogAction)) {
+						found.put(key(hit.commandLogActionId(), commandLogMessage.getCommandLogMessageId()), commandLogMessage);
+					}
+				}
+			}
+		}
+
+		var array = createArrayBuilder();
+		var count = 0;
+		for (var hit : hits) {
+			var commandLogMessage = found.get(key(hit.commandLogActionId(), hit.commandLogMessageId()));
+			// purged since it was indexed
+			if (commandLogMessage == null) continue;
+			var json = createObjectBuilder();
+			for (var entry : commandLogMessage.toJson().entrySet()) {
+				json.add(entry.getKey(), entry.getValue());
+			}
+			json.add(CommandLogJob.ID, hit.commandLogJobId());
+			json.add("cursor", hit.cursor());
+			array.add(json);
+			count++;
+		}
+
+		var json = createObjectBuilder()
+				.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+				.add(RESPONSE_MESSAGE, "Found " + count + " CommandLogMessages");
+		// a full page means there may be more
+		if (hits.size() == limit) json.add("before", hits.get(hits.size() - 1).cursor());
+		json.add(CommandLogMessage.NAME, array);
+		writeResponse(response, json);
+	}
+}
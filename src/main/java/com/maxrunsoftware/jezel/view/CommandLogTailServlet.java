@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.json.JsonObject;
+
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Returns only the CommandLogMessages of a CommandLogJob after the 'after' commandLogMessageId. Running jobs are answered
+ * from memory, others from the database and the log store, and with 'wait' seconds the request is held until a new message arrives or the job finishes. Clients pass
+ * the returned 'after' on the next request.
+ */
+public class CommandLogTailServlet extends ServletBase {
+	private static final long serialVersionUID = -2207145851739914023L;
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var commandLogJobId = getParameterInt(request, CommandLogJob.ID);
+		if (commandLogJobId == null) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + CommandLogJob.ID + "' parameter provided", 400);
+			return;
+		}
+		var after = coalesce(getParameterInt(request, "after"), 0);
+		var wait = Math.min(Math.max(0, coalesce(getParameterInt(request, "wait"), 0)), settings.getLogTailMaxWait());
+
+		List<JsonObject> commandLogMessages;
+		boolean finished;
+		String source;
+		try {
+			var tail = logTail.tail(commandLogJobId, after, wait * 1000L);
+			if (tail != null) {
+				commandLogMessages = tail.commandLogMessages();
+				finished = tail.finished();
+				source = "memory";
+			} else {
+				// not running in this process, or the client fell behind the buffer
+				try (var scope = openSession()) {
+					var session = scope.session();
+					var commandLogJob = getById(CommandLogJob.class, session, commandLogJobId);
+					if (commandLogJob == null) {
+						writeResponse(response, RESPONSE_STATUS_FAILED, "CommandLogJob[" + commandLogJobId + "] does not exist", 404);
+						return;
+					}
+					var list = new ArrayList<CommandLogMessage>(CommandLogMessage.getAfter(session, commandLogJobId, after));
+					for (var commandLogAction : commandLogJob.getCommandLogActions()) {
+						for (var commandLogMessage : logStore.read(commandLogAction)) {
+							if (commandLogMessage.getCommandLogMessageId() > after) list.add(commandLogMessage);
+						}
+					}
+					list.sort(Comparator.comparingInt(CommandLogMessage::getCommandLogMessageId));
+					commandLogMessages = new ArrayList<JsonObject>();
+					for (var commandLogMessage : list) {
+						commandLogMessages.add(commandLogMessage.toJson());
+					}
+					finished = commandLogJob.getEnd() != null;
+					source = "database";
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Interrupted", 503);
+			return;
+		}
+
+		var last = after;
+		var array = createArrayBuilder();
+		for (var commandLogMessage : commandLogMessages) {
+			array.add(commandLogMessage);
+			last = Math.max(last, commandLogMessage.getInt(CommandLogMessage.ID));
+		}
+
+		var json = createObjectBuilder()
+				.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+				.add(RESPONSE_MESSAGE, "Found " + commandLogMessages.size() + " CommandLogMessages")
+				.add(CommandLogJob.ID, commandLogJobId)
+				.add("after", last)
+				.add("finished", finished)
+				.add("source", source)
+				.add(CommandLogMessage.NAME, array);
+		writeResponse(response, json);
+	}
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import com.maxrunsoftware.jezel.action.CommandParameter;
 import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.util.Revision;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -32,11 +33,19 @@ public class ConfigurationItemServlet extends ServletBase {
 	private static final long serialVersionUID = 6084447000052305725L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(ConfigurationItemServlet.class);
 
+	@Override
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[] { ConfigurationItem.class };
+	}
+
 	@Override
 	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var configurationRevision = db.getConfigurationRevision();
+		if (configurationRevision >= 0 && writeNotModified(request, response, new Revision("config-" + configurationRevision, null))) return;
 
 		Map<String, String> map;
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			map = ConfigurationItem.getValues(session);
 		}
 
@@ -61,15 +70,17 @@ public class ConfigurationItemServlet extends ServletBase {
 
 	@Override
 	protected void doPostAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		try (var session = db.openSession()) {
-
-			for (var pName : Collections.list(request.getParameterNames())) {
-				var pValue = trimOrNull(request.getParameter(pName));
-				pName = trimOrNull(pName);
-				if (pName == null) continue;
-				ConfigurationItem.setValueExisting(session, pName, pValue);
+		try (var scope = openSession()) {
+			var session = scope.session();
+			inTransaction(session, s -> {
+				for (var pName : Collections.list(request.getParameterNames())) {
+					var pValue = trimOrNull(request.getParameter(pName));
+					pName = trimOrNull(pName);
+					if (pName == null) continue;
+					ConfigurationItem.setValueExisting(s, pName, pValue);
 
-			}
+				}
+			});
 		}
 
 		writeResponse(response, RESPONSE_STATUS_SUCCESS, ConfigurationItem.class.getSimpleName() + " successfully saved", 200);
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.primitives.Longs;
+import com.maxrunsoftware.jezel.Constant;
+import com.maxrunsoftware.jezel.EventService;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Server-Sent Events stream of job runs and scheduler changes. A reconnecting client sends Last-Event-ID to resume, a
+ * "reload" event means events were missed and the client should reload its state.
+ */
+public class EventServlet extends ServletBase {
+	private static final long serialVersionUID = 2870359741946108522L;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(EventServlet.class);
+	private static final long KEEPALIVE_SECONDS = 15;
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var lastEventIdString = coalesce(trimOrNull(request.getHeader("Last-Event-ID")), trimOrNull(request.getParameter("lastEventId")));
+		var lastEventId = lastEventIdString == null ? null : Longs.tryParse(lastEventIdString);
+		var subscription = events.subscribe(lastEventId);
+		if (subscription == null) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Too many event subscribers", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+
+		try (subscription) {
+			response.setStatus(HttpServletResponse.SC_OK);
+			response.setContentType(Constant.CONTENTTYPE_EVENT_STREAM);
+			response.setHeader("Cache-Control", "no-cache");
+			response.setHeader("X-Accel-Buffering", "no");
+			var writer = response.getWriter();
+			writer.write("retry: 3000\n\n");
+			writer.flush();
+
+			while (!writer.checkError()) {
+				if (subscription.takeMissed()) {
+					writer.write("event: reload\ndata: {}\n\n");
+				}
+				var event = subscription.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+				if (event == null) {
+					writer.write(":\n\n");
+				} else {
+					write(writer, event);
+				}
+				writer.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		LOG.debug("Event subscriber disconnected");
+	}
+
+	private static void write(PrintWriter writer, EventService.Event event) {
+		writer.write("id: ");
+		writer.write(Long.toString(event.id()));
+		writer.write("\nevent: ");
+		writer.write(event.type());
+		writer.write("\ndata: ");
+		writer.write(toJsonString(event.data(), false));
+		writer.write("\n\n");
+	}
+}
@@ -20,6 +20,7 @@ import static com.maxrunsoftware.jezel.Util.*;
 import java.io.IOException;
 
 import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerActionParameter;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +30,11 @@ public class SchedulerActionParameterServlet extends ServletBase {
 	private static final long serialVersionUID = 6717387710807155560L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerActionServlet.class);
 
+	@Override
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[] { SchedulerActionParameter.class };
+	}
+
 	@Override
 	protected void doPostAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		var schedulerActionId = getParameterInt(request, SchedulerAction.ID);
@@ -37,7 +43,8 @@ public class SchedulerActionParameterServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerAction = getById(SchedulerAction.class, session, schedulerActionId);
 			if (schedulerAction == null) {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerAction[" + schedulerActionId + "] does not exist", 404);
@@ -19,6 +19,7 @@ import static com.maxrunsoftware.jezel.Util.*;
 
 import java.io.IOException;
 
+import com.maxrunsoftware.jezel.LogLevel;
 import com.maxrunsoftware.jezel.model.SchedulerAction;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
 
@@ -30,6 +31,11 @@ public class SchedulerActionServlet extends ServletBase {
 	private static final long serialVersionUID = 7724770478012107058L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerActionServlet.class);
 
+	@Override
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[] { SchedulerAction.class };
+	}
+
 	@Override
 	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
@@ -38,7 +44,9 @@ public class SchedulerActionServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
+			if (writeNotModified(request, response, SchedulerJob.revisionOf(session, schedulerJobId))) return;
 
 			var schedulerActionsArray = createArrayBuilder();
 			var schedulerActions = SchedulerAction.getBySchedulerJobId(session, schedulerJobId);
@@ -69,7 +77,8 @@ public class SchedulerActionServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
 			if (schedulerJob == null) {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerJobId of '" + SchedulerJob.ID + "' does not exist to create SchedulerActions", 400);
@@ -105,7 +114,8 @@ public class SchedulerActionServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerAction = getById(SchedulerAction.class, session, schedulerActionId);
 			if (schedulerAction == null) {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerAction[" + schedulerActionId + "] does not exist", 404);
@@ -133,6 +143,15 @@ public class SchedulerActionServlet extends ServletBase {
 				LOG.debug("Updating SchedulerAction[" + schedulerActionId + "] [disabled] from " + schedulerAction.isDisabled() + " to " + disabled);
 				schedulerAction.setDisabled(parseBoolean(disabled));
 			}
+			var logLevel = trimOrNull(request.getParameter("logLevel"));
+			if (logLevel != null) {
+				if (!logLevel.equalsIgnoreCase(LOG_LEVEL_INHERIT) && LogLevel.parse(logLevel) == null) {
+					writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid logLevel '" + logLevel + "'", 400);
+					return;
+				}
+				LOG.debug("Updating SchedulerAction[" + schedulerActionId + "] [logLevel] from " + schedulerAction.getLogLevel() + " to " + logLevel);
+				schedulerAction.setLogLevel(logLevel.equalsIgnoreCase(LOG_LEVEL_INHERIT) ? null : LogLevel.parse(logLevel).name());
+			}
 
 			var index = trimOrNull(request.getParameter("index"));
 			if (index != null) {
@@ -140,13 +159,15 @@ public class SchedulerActionServlet extends ServletBase {
 				schedulerAction.setIndex(parseInt(index));
 			}
 
-			if (name != null || description != null || disabled != null || index != null) {
-				save(session, schedulerAction);
+			if (name != null || description != null || disabled != null || logLevel != null || index != null) {
+				inTransaction(session, s -> {
+					save(s, schedulerAction);
 
-				if (index != null) {
-					var schedulerJob = getById(SchedulerJob.class, session, schedulerAction.getSchedulerJob().getSchedulerJobId());
-					schedulerJob.reindexSchedulerActions(session);
-				}
+					if (index != null) {
+						var schedulerJob = getById(SchedulerJob.class, s, schedulerAction.getSchedulerJob().getSchedulerJobId());
+						schedulerJob.reindexSchedulerActions(s);
+					}
+				});
 
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerAction[" + schedulerActionId + "] successfully updated", 200);
 			} else {
@@ -164,7 +185,8 @@ public class SchedulerActionServlet extends ServletBase {
 			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + SchedulerAction.ID + "' parameter provided to delete SchedulerAction", 400);
 			return;
 		}
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var result = delete(SchedulerAction.class, session, schedulerActionId);
 			if (result) {
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerAction[" + schedulerActionId + "] successfully deleted", 200);
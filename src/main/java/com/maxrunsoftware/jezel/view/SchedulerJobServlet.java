@@ -20,6 +20,7 @@ import static com.maxrunsoftware.jezel.Util.*;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import com.maxrunsoftware.jezel.LogLevel;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
 
 import jakarta.servlet.ServletException;
@@ -30,16 +31,24 @@ public class SchedulerJobServlet extends ServletBase {
 	private static final long serialVersionUID = 5390613315846662858L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerJobServlet.class);
 
+	@Override
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[] { SchedulerJob.class };
+	}
+
 	@Override
 	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
+			var revision = schedulerJobId == null ? SchedulerJob.revisionOfAll(session) : SchedulerJob.revisionOf(session, schedulerJobId);
+			if (writeNotModified(request, response, revision)) return;
 
 			var schedulerJobs = new ArrayList<SchedulerJob>();
 			if (schedulerJobId == null) {
-				schedulerJobs.addAll(getAll(SchedulerJob.class, session));
+				schedulerJobs.addAll(SchedulerJob.getAllForList(session));
 			} else {
-				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
+				var schedulerJob = SchedulerJob.getByIdForDetail(session, schedulerJobId);
 				if (schedulerJob != null) { schedulerJobs.add(schedulerJob); }
 			}
 
@@ -54,7 +63,8 @@ public class SchedulerJobServlet extends ServletBase {
 
 	@Override
 	protected void doPutAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerJob = new SchedulerJob();
 			schedulerJob.setDisabled(false);
 			var schedulerJobId = save(session, schedulerJob);
@@ -76,7 +86,8 @@ public class SchedulerJobServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
 			if (schedulerJob == null) {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerJob[" + schedulerJobId + "] does not exist", 404);
@@ -98,11 +109,20 @@ public class SchedulerJobServlet extends ServletBase {
 				LOG.debug("Updating SchedulerJob[" + schedulerJobId + "] [disabled] from " + schedulerJob.isDisabled() + " to " + disabled);
 				schedulerJob.setDisabled(parseBoolean(disabled));
 			}
+			var logLevel = trimOrNull(request.getParameter("logLevel"));
+			if (logLevel != null) {
+				if (!logLevel.equalsIgnoreCase(LOG_LEVEL_INHERIT) && LogLevel.parse(logLevel) == null) {
+					writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid logLevel '" + logLevel + "'", 400);
+					return;
+				}
+				LOG.debug("Updating SchedulerJob[" + schedulerJobId + "] [logLevel] from " + schedulerJob.getLogLevel() + " to " + logLevel);
+				schedulerJob.setLogLevel(logLevel.equalsIgnoreCase(LOG_LEVEL_INHERIT) ? null : LogLevel.parse(logLevel).name());
+			}
 
-			if (name != null || group != null || disabled != null) {
+			if (name != null || group != null || disabled != null || logLevel != null) {
 				save(session, schedulerJob);
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerJob[" + schedulerJobId + "] successfully updated", 200);
-				scheduler.sync(schedulerJobId);
+				sync(schedulerJobId);
 			} else {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerJob[" + schedulerJobId + "] nothing provided to update", 400);
 			}
@@ -118,8 +138,14 @@ public class SchedulerJobServlet extends ServletBase {
 			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + SchedulerJob.ID + "' parameter provided to delete SchedulerJob", 400);
 			return;
 		}
-		try (var session = db.openSession()) {
-			var result = delete(SchedulerJob.class, session, schedulerJobId);
+		try (var scope = openSession()) {
+			var session = scope.session();
+			// the rollups go in the same transaction, which is the batch transaction inside a batch
+			var result = inTransactionGet(session, s -> {
+				if (!delete(SchedulerJob.class, s, schedulerJobId)) return false;
+				stats.delete(s, schedulerJobId);
+				return true;
+			});
 			if (result) {
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerJob[" + schedulerJobId + "] successfully deleted", 200);
 			} else {
@@ -127,7 +153,7 @@ public class SchedulerJobServlet extends ServletBase {
 			}
 		}
 
-		scheduler.sync(schedulerJobId);
+		sync(schedulerJobId);
 
 	}
 
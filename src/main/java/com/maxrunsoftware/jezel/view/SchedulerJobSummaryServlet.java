@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerJobSummary;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Schedule, action and run counts plus last run status per SchedulerJob, computed by the database without loading
+ * the jobs. Optional parameter 'schedulerJobId' limits the result to that job.
+ */
+public class SchedulerJobSummaryServlet extends ServletBase {
+	private static final long serialVersionUID = -2861174952035347175L;
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
+
+		var array = createArrayBuilder();
+		var count = 0;
+		try (var scope = openSession()) {
+			var session = scope.session();
+			for (var summary : SchedulerJobSummary.getAll(session, schedulerJobId)) {
+				array.add(summary.toJson());
+				count++;
+			}
+		}
+		if (schedulerJobId != null && count == 0) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerJob[" + schedulerJobId + "] does not exist", 404);
+			return;
+		}
+		var json = createObjectBuilder()
+				.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+				.add(RESPONSE_MESSAGE, "Found " + count + " SchedulerJobSummaries")
+				.add(SchedulerJobSummary.NAME, array);
+		writeResponse(response, json);
+	}
+}
@@ -31,12 +31,20 @@ public class SchedulerScheduleServlet extends ServletBase {
 	private static final long serialVersionUID = 2081409135482199513L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SchedulerScheduleServlet.class);
 
+	@Override
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[] { SchedulerSchedule.class };
+	}
+
 	@Override
 	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		var schedulerScheduleId = getParameterInt(request, SchedulerSchedule.ID);
 		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
+			var revision = schedulerJobId == null ? SchedulerJob.revisionOfAll(session) : SchedulerJob.revisionOf(session, schedulerJobId);
+			if (writeNotModified(request, response, revision)) return;
 
 			var schedulerSchedules = new ArrayList<SchedulerSchedule>();
 			for (var schedulerSchedule : getAll(SchedulerSchedule.class, session)) {
@@ -77,7 +85,8 @@ public class SchedulerScheduleServlet extends ServletBase {
 			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + SchedulerJob.ID + "' parameter provided to create SchedulerSchedule", 400);
 			return;
 		}
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 
 			var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
 			if (schedulerJob == null) {
@@ -107,7 +116,8 @@ public class SchedulerScheduleServlet extends ServletBase {
 			return;
 		}
 
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerSchedule = getById(SchedulerSchedule.class, session, schedulerScheduleId);
 			if (schedulerSchedule == null) {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerSchedule[" + schedulerScheduleId + "] does not exist", 404);
@@ -178,7 +188,7 @@ public class SchedulerScheduleServlet extends ServletBase {
 					|| disabled != null) {
 				save(session, schedulerSchedule);
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerSchedule[" + schedulerScheduleId + "] successfully updated", 200);
-				scheduler.sync(schedulerSchedule.getSchedulerJob().getSchedulerJobId());
+				sync(schedulerSchedule.getSchedulerJob().getSchedulerJobId());
 			} else {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerSchedule[" + schedulerScheduleId + "] nothing provided to update", 400);
 			}
@@ -194,14 +204,15 @@ public class SchedulerScheduleServlet extends ServletBase {
 			writeResponse(response, RESPONSE_STATUS_FAILED, "No '" + SchedulerSchedule.ID + "' parameter provided to delete SchedulerSchedule", 400);
 			return;
 		}
-		try (var session = db.openSession()) {
+		try (var scope = openSession()) {
+			var session = scope.session();
 			var schedulerSchedule = getById(SchedulerSchedule.class, session, schedulerScheduleId);
 			if (schedulerSchedule == null) { writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerSchedule[" + schedulerScheduleId + "] does not exist", 404); }
 			var schedulerJobId = schedulerSchedule.getSchedulerJob().getSchedulerJobId();
 			var result = delete(SchedulerSchedule.class, session, schedulerScheduleId);
 			if (result) {
 				writeResponse(response, RESPONSE_STATUS_SUCCESS, "SchedulerSchedule[" + schedulerScheduleId + "] successfully deleted", 200);
-				scheduler.sync(schedulerJobId);
+				sync(schedulerJobId);
 			} else {
 				writeResponse(response, RESPONSE_STATUS_FAILED, "SchedulerSchedule[" + schedulerScheduleId + "] does not exist", 404);
 			}
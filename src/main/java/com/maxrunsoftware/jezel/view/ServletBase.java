@@ -18,15 +18,30 @@ package com.maxrunsoftware.jezel.view;
 import static com.maxrunsoftware.jezel.Util.*;
 
 import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 
+import org.hibernate.Session;
+
 import com.maxrunsoftware.jezel.BearerService;
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.LogTailService;
+import com.maxrunsoftware.jezel.RetentionService;
 import com.maxrunsoftware.jezel.SchedulerService;
 import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
+import com.maxrunsoftware.jezel.util.Revision;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -42,6 +57,13 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 	protected DatabaseService db;
 	protected BearerService bearer;
 	protected SchedulerService scheduler;
+	protected EventService events;
+	protected LogTailService logTail;
+	protected RetentionService retention;
+	protected LogStoreService logStore;
+	protected LogSearchService logSearch;
+	protected StatsService stats;
+	protected FailureService failures;
 
 	protected static final String HEADER_AUTHORIZATION = "AUTHORIZATION";
 	protected static final String RESPONSE_STATUS = "status";
@@ -50,6 +72,9 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 	protected static final String RESPONSE_STATUS_AUTHORIZED = "authorized";
 	protected static final String RESPONSE_STATUS_UNAUTHORIZED = "unauthorized";
 	protected static final String RESPONSE_MESSAGE = "message";
+	// logLevel parameter value that clears the level so it is inherited again
+	protected static final String LOG_LEVEL_INHERIT = "inherit";
+	private static final String ETAG_PREFIX = Long.toHexString(new SecureRandom().nextLong()) + "-";
 
 	@Override
 	public void init() throws ServletException {
@@ -57,6 +82,81 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 		db = getResource(DatabaseService.class);
 		bearer = getResource(BearerService.class);
 		scheduler = getResource(SchedulerService.class);
+		events = getResource(EventService.class);
+		logTail = getResource(LogTailService.class);
+		retention = getResource(RetentionService.class);
+		logStore = getResource(LogStoreService.class);
+		logSearch = getResource(LogSearchService.class);
+		stats = getResource(StatsService.class);
+		failures = getResource(FailureService.class);
+	}
+
+	/**
+	 * Operations of a /batch request run on one session inside one transaction. Jobs are synced and the cache evicted
+	 * once when it ends.
+	 */
+	static class Batch {
+		private final Session session;
+		private final Set<Integer> schedulerJobIds = new LinkedHashSet<Integer>();
+		private final Set<Class<?>> cachedEntities = new LinkedHashSet<Class<?>>();
+
+		Batch(Session session) {
+			this.session = session;
+		}
+
+		Set<Integer> getSchedulerJobIds() {
+			return schedulerJobIds;
+		}
+
+		Set<Class<?>> getCachedEntities() {
+			return cachedEntities;
+		}
+	}
+
+	static final ThreadLocal<Batch> BATCH = new ThreadLocal<Batch>();
+
+	/**
+	 * Session of one operation. Only a session the operation opened itself is closed, the session of a /batch is
+	 * borrowed and closed by the batch.
+	 */
+	protected static record SessionScope(Session session, boolean owned) implements AutoCloseable {
+		@Override
+		public void close() {
+			if (owned) session.close();
+		}
+	}
+
+	protected SessionScope openSession() {
+		var batch = BATCH.get();
+		if (batch == null) return new SessionScope(db.openSession(), true);
+		return new SessionScope(batch.session, false);
+	}
+
+	protected void sync(int schedulerJobId) {
+		var batch = BATCH.get();
+		if (batch == null) {
+			scheduler.sync(schedulerJobId);
+		} else {
+			batch.schedulerJobIds.add(schedulerJobId);
+		}
+	}
+
+	/**
+	 * Cached entity classes the writes of this servlet may leave stale in the second-level cache, none by default.
+	 */
+	protected Class<?>[] getCachedEntities() {
+		return new Class<?>[0];
+	}
+
+	private void evictCache() {
+		var batch = BATCH.get();
+		if (batch != null) {
+			// evicted once when the batch transaction ends
+			batch.cachedEntities.addAll(Arrays.asList(getCachedEntities()));
+			return;
+		}
+		// writes may touch entities through paths the cache does not track, such as inverse collections
+		db.evictCache(getCachedEntities());
 	}
 
 	protected static void writeResponse(HttpServletResponse response, String json) {
@@ -86,6 +186,42 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 		writeResponse(response, json.build(), statusCode);
 	}
 
+	/**
+	 * Sets the ETag and Last-Modified headers for the revision and answers 304 if the client already has it. Tags are
+	 * prefixed per process since in memory databases and counters start over on restart.
+	 * @return true if the 304 was written and the caller should not write a body
+	 */
+	protected static boolean writeNotModified(HttpServletRequest request, HttpServletResponse response, Revision revision) {
+		if (revision == null) return false;
+		var etag = "\"" + ETAG_PREFIX + revision.tag() + "\"";
+		response.setHeader("ETag", etag);
+		long lastModified = -1;
+		if (revision.modified() != null) {
+			lastModified = revision.modified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			response.setDateHeader("Last-Modified", lastModified);
+		}
+
+		boolean notModified;
+		var ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			notModified = ifNoneMatch.trim().equals("*") || Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(etag::equals);
+		} else {
+			long ifModifiedSince = -1;
+			try {
+				ifModifiedSince = request.getDateHeader("If-Modified-Since");
+			} catch (IllegalArgumentException e) {
+				LOG.debug("Invalid If-Modified-Since header", e);
+			}
+			notModified = lastModified >= 0 && ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+		}
+
+		if (!notModified) return false;
+		LOG.debug("Not modified: " + etag);
+		response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		response.addHeader("Cache-Control", "no-cache");
+		return true;
+	}
+
 	private boolean authorize(HttpServletRequest request, HttpServletResponse response) {
 		var authHeader = request.getHeader(HEADER_AUTHORIZATION);
 		LOG.debug(HEADER_AUTHORIZATION + ": " + authHeader);
@@ -126,7 +262,13 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 	@Override
 	protected void doPut(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		LOG.debug("PUT: " + getFullURL(request));
-		if (authorize(request, response)) { doPutAuthorized(request, response); }
+		if (authorize(request, response)) {
+			try {
+				doPutAuthorized(request, response);
+			} finally {
+				evictCache();
+			}
+		}
 	}
 
 	protected void doPutAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -136,7 +278,13 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		LOG.debug("POST: " + getFullURL(request));
-		if (authorize(request, response)) { doPostAuthorized(request, response); }
+		if (authorize(request, response)) {
+			try {
+				doPostAuthorized(request, response);
+			} finally {
+				evictCache();
+			}
+		}
 	}
 
 	protected void doPostAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -146,7 +294,13 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 	@Override
 	protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		LOG.debug("DELETE: " + getFullURL(request));
-		if (authorize(request, response)) { doDeleteAuthorized(request, response); }
+		if (authorize(request, response)) {
+			try {
+				doDeleteAuthorized(request, response);
+			} finally {
+				evictCache();
+			}
+		}
 	}
 
 	protected void doDeleteAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
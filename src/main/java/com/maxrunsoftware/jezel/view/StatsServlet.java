@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Run counts, failures and duration percentiles read from the rollups. Parameters are optionally 'schedulerJobId',
+ * 'schedulerActionId' (0 for whole runs), 'resolution' of hour, day or total (default) and 'from' and 'to' timestamps.
+ * Total merges the days of the range into one RunStat per SchedulerJob, or per SchedulerAction when schedulerJobId is
+ * given.
+ */
+public class StatsServlet extends ServletBase {
+	private static final long serialVersionUID = -2417364099520671835L;
+	private static final int DAYS_HOUR_DEFAULT = 2;
+	private static final int DAYS_DAY_DEFAULT = 30;
+
+	@Override
+	protected void doGetAuthorized(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		var resolution = coalesce(trimOrNull(getParameter(request, "resolution")), RunStat.RESOLUTION_TOTAL).toUpperCase();
+		if (!resolution.equals(RunStat.RESOLUTION_HOUR) && !resolution.equals(RunStat.RESOLUTION_DAY) && !resolution.equals(RunStat.RESOLUTION_TOTAL)) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid resolution '" + resolution.toLowerCase() + "'", 400);
+			return;
+		}
+		LocalDateTime from, to;
+		try {
+			var t = trimOrNull(getParameter(request, "to"));
+			to = t == null ? LocalDateTime.now() : LocalDateTime.parse(t);
+			var f = trimOrNull(getParameter(request, "from"));
+			from = f == null ? to.minusDays(resolution.equals(RunStat.RESOLUTION_HOUR) ? DAYS_HOUR_DEFAULT : DAYS_DAY_DEFAULT) : LocalDateTime.parse(f);
+		} catch (DateTimeParseException e) {
+			writeResponse(response, RESPONSE_STATUS_FAILED, "Invalid timestamp: " + e.getParsedString(), 400);
+			return;
+		}
+
+		var schedulerJobId = getParameterInt(request, SchedulerJob.ID);
+		var schedulerActionId = getParameterInt(request, SchedulerAction.ID);
+		var runStats = resolution.equals(RunStat.RESOLUTION_TOTAL)
+				? stats.getTotals(schedulerJobId, from, to)
+				: stats.getBuckets(schedulerJobId, schedulerActionId, resolution, from, to);
+		if (resolution.equals(RunStat.RESOLUTION_TOTAL) && schedulerActionId != null) {
+			runStats.removeIf(runStat -> runStat.getSchedulerActionId() != schedulerActionId);
+		}
+
+		var array = createArrayBuilder();
+		for (var runStat : runStats) {
+			array.add(runStat.toJson());
+		}
+		var json = createObjectBuilder()
+				.add(RESPONSE_STATUS, RESPONSE_STATUS_SUCCESS)
+				.add(RESPONSE_MESSAGE, "Found " + runStats.size() + " RunStats")
+				.add("from", from.toString())
+				.add("to", to.toString())
+				.add(RunStat.NAME, array);
+		writeResponse(response, json);
+	}
+}
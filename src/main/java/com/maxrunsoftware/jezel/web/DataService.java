@@ -15,110 +15,38 @@
  */
 package com.maxrunsoftware.jezel.web;
 
-import static com.google.common.base.Preconditions.*;
-import static com.maxrunsoftware.jezel.Util.*;
-
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-import com.google.common.collect.Lists;
 import com.maxrunsoftware.jezel.action.CommandParameter;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
 import com.maxrunsoftware.jezel.model.CommandLogJob;
-import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.RunStat;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerJobSummary;
 import com.maxrunsoftware.jezel.model.SchedulerSchedule;
-import com.maxrunsoftware.jezel.web.RestClient.ParamNameValue;
-import com.maxrunsoftware.jezel.web.RestClient.Verb;
-
-public class DataService {
-
-	private final RestClient client;
-	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DataService.class);
-
-	public DataService(RestClient client) {
-		this.client = checkNotNull(client);
-	}
 
-	public List<SchedulerJob> getSchedulerJob(Integer schedulerJobId) throws IOException {
-		var response = client.get(
-				Verb.GET,
-				"job",
-				par(SchedulerJob.ID, schedulerJobId));
-		var o = response.jsonObject();
-		var array = o.getJsonArray(SchedulerJob.NAME);
-		var list = new ArrayList<SchedulerJob>();
-		for (var val : array) {
-			var oo = val.asJsonObject();
-			var ooo = new SchedulerJob();
-			ooo.fromJson(oo);
-			list.add(ooo);
-		}
-		Collections.sort(list, SchedulerJob.SORT_ID);
-		return list;
-	}
+/**
+ * Data used by the web UI. Entities returned are detached copies, safe to use after the call returns.
+ */
+public interface DataService {
 
-	public List<SchedulerSchedule> getSchedulerSchedule(Integer schedulerJobId, Integer schedulerScheduleId) throws IOException {
+	public static record ConfigItemCommandParameter(String name, String value, CommandParameter parameter) {}
 
-		//@formatter:off
-		var response = client.get(
-				Verb.GET,
-				"job/schedule",
-				par(SchedulerJob.ID, schedulerJobId),
-				par(SchedulerSchedule.ID, schedulerScheduleId));
-		var o = response.jsonObject();
-		var array = o.getJsonArray(SchedulerSchedule.NAME);
-		var list = new ArrayList<SchedulerSchedule>();
-		for (var val : array) {
-			var oo = val.asJsonObject();
-			var ooo = new SchedulerSchedule();
-			ooo.fromJson(oo);
-			list.add(ooo);
-		}
-		
-		/*
-		var list = new ArrayList<SchedulerSchedule>();
-		var jobs = getSchedulerJob(null);
-		for(var job : jobs) {
-			if (schedulerJobId != null) {
-				// Check if we were provided a schedulerJobId
-				if (!schedulerJobId.equals(job.getSchedulerJobId())) {
-					continue;
-				}
-			}
-			for(var schedule : job.getSchedulerSchedules()) {
-				if (schedulerScheduleId != null) {
-					// Check if we were provided a schedulerScheduleId
-					if (!schedulerScheduleId.equals(schedule.getSchedulerScheduleId())) {
-						continue;
-					}
-				}
-				list.add(schedule);
-			}
-		}
-		*/
-		Collections.sort(list, SchedulerSchedule.SORT_ID);
-		return list;
-		//@formatter:on
-	}
+	public Map<String, Object> getMetrics();
 
-	private static ParamNameValue par(String key, Object value) {
-		return new ParamNameValue(key, value);
-	}
+	public List<SchedulerJob> getSchedulerJob(Integer schedulerJobId) throws IOException;
 
-	public void updateSchedulerJob(int schedulerJobId, String name, String group, boolean disabled) throws IOException {
-		client.get(
-				Verb.POST,
-				"job",
-				par(SchedulerJob.ID, schedulerJobId),
-				par("name", name),
-				par("group", group),
-				par("disabled", disabled));
+	public List<SchedulerSchedule> getSchedulerSchedule(Integer schedulerJobId, Integer schedulerScheduleId) throws IOException;
 
-	}
+	public void updateSchedulerJob(int schedulerJobId, String name, String group, boolean disabled) throws IOException;
 
 	public void updateSchedulerSchedule(
 			int schedulerScheduleId,
@@ -131,23 +59,7 @@ public class DataService {
 			boolean saturday,
 			int hour,
 			int minute,
-			boolean disabled) throws IOException {
-		client.get(
-				Verb.POST,
-				"job/schedule",
-				par(SchedulerSchedule.ID, schedulerScheduleId),
-				par("sunday", sunday),
-				par("monday", monday),
-				par("tuesday", tuesday),
-				par("wednesday", wednesday),
-				par("thursday", thursday),
-				par("friday", friday),
-				par("saturday", saturday),
-				par("hour", hour),
-				par("minute", minute),
-				par("disabled", disabled));
-
-	}
+			boolean disabled) throws IOException;
 
 	public int addSchedulerSchedule(
 			int schedulerJobId,
@@ -160,101 +72,86 @@ public class DataService {
 			boolean saturday,
 			int hour,
 			int minute,
-			boolean disabled) throws IOException {
-		var response = client.get(
-				Verb.PUT,
-				"job/schedule",
-				par(SchedulerJob.ID, schedulerJobId));
-		var schedulerScheduleId = response.jsonObject().getInt(SchedulerSchedule.ID);
-		updateSchedulerSchedule(
-				schedulerScheduleId,
-				sunday,
-				monday,
-				tuesday,
-				wednesday,
-				thursday,
-				friday,
-				saturday,
-				hour,
-				minute,
-				disabled);
-		return schedulerScheduleId;
-	}
+			boolean disabled) throws IOException;
 
-	public void deleteSchedulerSchedule(int schedulerScheduleId) throws IOException {
-		client.get(
-				Verb.DELETE,
-				"job/schedule",
-				par(SchedulerSchedule.ID, schedulerScheduleId));
+	public void deleteSchedulerSchedule(int schedulerScheduleId) throws IOException;
 
-	}
+	/**
+	 * Counts and last run status of all SchedulerJobs, for pages that do not need the jobs themselves.
+	 */
+	public List<SchedulerJobSummary> getSchedulerJobSummary() throws IOException;
 
-	public List<CommandLogJob> getCommandLogJob(Integer commandLogJob, Integer schedulerJobId) throws IOException {
-		var response = client.get(Verb.GET,
-				"log/job",
-				par(CommandLogJob.ID, commandLogJob),
-				par(SchedulerJob.ID, schedulerJobId));
+	public List<CommandLogJob> getCommandLogJob(Integer commandLogJob, Integer schedulerJobId) throws IOException;
 
-		var o = response.jsonObject();
-		var array = o.getJsonArray(CommandLogJob.NAME);
-		var list = new ArrayList<CommandLogJob>();
-		for (var val : array) {
-			var oo = val.asJsonObject();
-			var ooo = new CommandLogJob();
-			ooo.fromJson(oo);
-			list.add(ooo);
-		}
+	/**
+	 * The CommandLogFailure with its stack trace, null if it does not exist.
+	 */
+	public CommandLogFailure getCommandLogFailure(int commandLogFailureId) throws IOException;
 
-		Collections.sort(list, CommandLogJob.SORT_JOB);
-		return list;
-	}
+	/**
+	 * One RunStat per SchedulerJob merged over the days from 'from' to 'to', or now when 'to' is null.
+	 */
+	public List<RunStat> getRunStatTotals(LocalDateTime from, LocalDateTime to) throws IOException;
 
-	public static record ConfigItemCommandParameter(String name, String value, CommandParameter parameter) {}
+	public List<ConfigItemCommandParameter> getConfigurationItems() throws IOException;
 
-	public List<ConfigItemCommandParameter> getConfigurationItems() throws IOException {
-		var map = new TreeMap<String, ConfigItemCommandParameter>();
+	public void saveConfigurationItems(Map<String, String> map) throws IOException;
 
-		var response = client.get(Verb.GET,
-				"config");
+	/**
+	 * Executor the async variants run on, by default the calling thread.
+	 */
+	public default Executor getExecutor() {
+		return Runnable::run;
+	}
 
-		var o = response.jsonObject();
-		var array = o.getJsonArray(ConfigurationItem.NAME);
-		for (var val : array) {
-			var oo = val.asJsonObject();
-			var name = trimOrNull(oo.getString("name"));
-			var value = trimOrNull(oo.getString("value"));
-			CommandParameter cp = null;
-			var cpJson = oo.getJsonObject(CommandParameter.NAME);
-			if (cpJson != null) {
-				cp = new CommandParameter();
-				cp.fromJson(cpJson);
+	private <T> CompletableFuture<T> async(Callable<T> callable) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return callable.call();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
 			}
-			var r = new ConfigItemCommandParameter(name, value, cp);
-			map.put(name, r);
-		}
+		}, getExecutor());
+	}
 
-		return new ArrayList<ConfigItemCommandParameter>(map.values());
+	/**
+	 * Waits for a future returned by one of the async methods, unwrapping the original IOException.
+	 */
+	public static <T> T join(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uioe) throw uioe.getCause();
+			throw e;
+		}
 	}
 
-	private static record ConfigItem(String name, String value) {}
+	public default CompletableFuture<List<SchedulerJob>> getSchedulerJobAsync(Integer schedulerJobId) {
+		return async(() -> getSchedulerJob(schedulerJobId));
+	}
 
-	public void saveConfigurationItems(Map<String, String> map) throws IOException {
+	public default CompletableFuture<List<SchedulerJobSummary>> getSchedulerJobSummaryAsync() {
+		return async(() -> getSchedulerJobSummary());
+	}
 
-		var list = new ArrayList<ConfigItem>();
-		for (var name : map.keySet()) {
-			list.add(new ConfigItem(name, coalesce(map.get(name), "")));
-		}
+	public default CompletableFuture<List<SchedulerSchedule>> getSchedulerScheduleAsync(Integer schedulerJobId, Integer schedulerScheduleId) {
+		return async(() -> getSchedulerSchedule(schedulerJobId, schedulerScheduleId));
+	}
 
-		var listParts = Lists.partition(list, 10);
+	public default CompletableFuture<List<CommandLogJob>> getCommandLogJobAsync(Integer commandLogJob, Integer schedulerJobId) {
+		return async(() -> getCommandLogJob(commandLogJob, schedulerJobId));
+	}
 
-		for (var listPart : listParts) {
-			var pars = new ArrayList<ParamNameValue>();
-			for (var configItem : listPart) {
-				pars.add(par(configItem.name, configItem.value));
-			}
-			LOG.debug("Issuing POST to add new configurations");
-			client.get(Verb.POST, "config", pars);
-		}
+	public default CompletableFuture<List<RunStat>> getRunStatTotalsAsync(LocalDateTime from, LocalDateTime to) {
+		return async(() -> getRunStatTotals(from, to));
+	}
 
+	public default CompletableFuture<List<ConfigItemCommandParameter>> getConfigurationItemsAsync() {
+		return async(() -> getConfigurationItems());
 	}
+
 }
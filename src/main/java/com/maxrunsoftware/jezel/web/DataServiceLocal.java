@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.web;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.SchedulerService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
+import com.maxrunsoftware.jezel.action.CommandParameter;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerJobSummary;
+import com.maxrunsoftware.jezel.model.SchedulerSchedule;
+
+/**
+ * DataService for when the web UI runs in the same process as the REST server. Reads and writes go straight to the
+ * database and scheduler services with the same rules the REST servlets apply, without HTTP, bearer authentication or
+ * JSON text in between.
+ */
+public class DataServiceLocal implements DataService {
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DataServiceLocal.class);
+
+	private final DatabaseService db;
+	private final SchedulerService scheduler;
+	private final LogStoreService logStore;
+	private final StatsService stats;
+	private final ExecutorService executor;
+
+	public DataServiceLocal(SettingService settings, DatabaseService db, SchedulerService scheduler, LogStoreService logStore, StatsService stats) {
+		// each async call reads on a session of its own so pages fetching several things overlap them
+		this.executor = Executors.newFixedThreadPool(
+				Math.max(1, settings.getWebDataThreads()),
+				new ThreadFactoryBuilder().setNameFormat("DataService-%d").setDaemon(true).build());
+		this.db = checkNotNull(db);
+		this.scheduler = checkNotNull(scheduler);
+		this.logStore = checkNotNull(logStore);
+		this.stats = checkNotNull(stats);
+	}
+
+	@Override
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Detaches entities from the session once the associations pages read have been initialized, by the fetch plan of
+	 * the query that loaded them or explicitly. Associations left lazy fail fast instead of querying later.
+	 */
+	private static <T> List<T> detach(Session session, Collection<T> entities) {
+		var list = new ArrayList<T>(entities.size());
+		for (var entity : entities) {
+			session.evict(entity);
+			list.add(entity);
+		}
+		return list;
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		return db.getMetrics();
+	}
+
+	@Override
+	public List<SchedulerJob> getSchedulerJob(Integer schedulerJobId) throws IOException {
+		List<SchedulerJob> list;
+		try (var session = db.openSession()) {
+			var schedulerJobs = new ArrayList<SchedulerJob>();
+			if (schedulerJobId == null) {
+				schedulerJobs.addAll(SchedulerJob.getAllForList(session));
+			} else {
+				var schedulerJob = SchedulerJob.getByIdForDetail(session, schedulerJobId);
+				if (schedulerJob != null) { schedulerJobs.add(schedulerJob); }
+			}
+			list = detach(session, schedulerJobs);
+		}
+		Collections.sort(list, SchedulerJob.SORT_ID);
+		return list;
+	}
+
+	@Override
+	public List<SchedulerSchedule> getSchedulerSchedule(Integer schedulerJobId, Integer schedulerScheduleId) throws IOException {
+		List<SchedulerSchedule> list;
+		try (var session = db.openSession()) {
+			var schedulerSchedules = new ArrayList<SchedulerSchedule>();
+			if (schedulerScheduleId != null) {
+				var schedulerSchedule = getById(SchedulerSchedule.class, session, schedulerScheduleId);
+				if (schedulerSchedule != null && (schedulerJobId == null || schedulerJobId == schedulerSchedule.getSchedulerJob().getSchedulerJobId())) {
+					schedulerSchedules.add(schedulerSchedule);
+				}
+			} else if (schedulerJobId != null) {
+				var schedulerJob = SchedulerJob.getByIdForSync(session, schedulerJobId);
+				if (schedulerJob != null) schedulerSchedules.addAll(schedulerJob.getSchedulerSchedules());
+			} else {
+				schedulerSchedules.addAll(getAll(SchedulerSchedule.class, session));
+			}
+			for (var schedulerSchedule : schedulerSchedules) {
+				Hibernate.initialize(schedulerSchedule.getSchedulerJob());
+			}
+			list = detach(session, schedulerSchedules);
+		}
+		Collections.sort(list, SchedulerSchedule.SORT_ID);
+		return list;
+	}
+
+	private <T> T getExisting(Session session, Class<T> type, int id) throws IOException {
+		var o = getById(type, session, id);
+		if (o == null) throw new IOException(type.getSimpleName() + "[" + id + "] does not exist");
+		return o;
+	}
+
+	@Override
+	public void updateSchedulerJob(int schedulerJobId, String name, String group, boolean disabled) throws IOException {
+		try (var session = db.openSession()) {
+			var schedulerJob = getExisting(session, SchedulerJob.class, schedulerJobId);
+			name = trimOrNull(name);
+			if (name != null) schedulerJob.setName(name);
+			group = trimOrNull(group);
+			if (group != null) schedulerJob.setGroup(group);
+			schedulerJob.setDisabled(disabled);
+			LOG.debug("Updating " + schedulerJob);
+			save(session, schedulerJob);
+		} finally {
+			db.evictCache(SchedulerJob.class);
+		}
+		scheduler.sync(schedulerJobId);
+	}
+
+	@Override
+	public void updateSchedulerSchedule(
+			int schedulerScheduleId,
+			boolean sunday,
+			boolean monday,
+			boolean tuesday,
+			boolean wednesday,
+			boolean thursday,
+			boolean friday,
+			boolean saturday,
+			int hour,
+			int minute,
+			boolean disabled) throws IOException {
+		int schedulerJobId;
+		try (var session = db.openSession()) {
+			var schedulerSchedule = getExisting(session, SchedulerSchedule.class, schedulerScheduleId);
+			schedulerSchedule.setDays(sunday, monday, tuesday, wednesday, thursday, friday, saturday);
+			schedulerSchedule.setHour(hour);
+			schedulerSchedule.setMinute(minute);
+			schedulerSchedule.setDisabled(disabled);
+			LOG.debug("Updating " + schedulerSchedule);
+			save(session, schedulerSchedule);
+			schedulerJobId = schedulerSchedule.getSchedulerJob().getSchedulerJobId();
+		} finally {
+			db.evictCache(SchedulerSchedule.class);
+		}
+		scheduler.sync(schedulerJobId);
+	}
+
+	@Override
+	public int addSchedulerSchedule(
+			int schedulerJobId,
+			boolean sunday,
+			boolean monday,
+			boolean tuesday,
+			boolean wednesday,
+			boolean thursday,
+			boolean friday,
+			boolean saturday,
+			int hour,
+			int minute,
+			boolean disabled) throws IOException {
+		int schedulerScheduleId;
+		try (var session = db.openSession()) {
+			var schedulerJob = getExisting(session, SchedulerJob.class, schedulerJobId);
+			var schedulerSchedule = new SchedulerSchedule();
+			schedulerSchedule.setSchedulerJob(schedulerJob);
+			schedulerSchedule.setDays(sunday, monday, tuesday, wednesday, thursday, friday, saturday);
+			schedulerSchedule.setHour(hour);
+			schedulerSchedule.setMinute(minute);
+			schedulerSchedule.setDisabled(disabled);
+			schedulerScheduleId = save(session, schedulerSchedule);
+			LOG.debug("Created SchedulerSchedule[" + schedulerScheduleId + "]");
+		} finally {
+			db.evictCache(SchedulerSchedule.class);
+		}
+		scheduler.sync(schedulerJobId);
+		return schedulerScheduleId;
+	}
+
+	@Override
+	public void deleteSchedulerSchedule(int schedulerScheduleId) throws IOException {
+		int schedulerJobId;
+		try (var session = db.openSession()) {
+			var schedulerSchedule = getExisting(session, SchedulerSchedule.class, schedulerScheduleId);
+			schedulerJobId = schedulerSchedule.getSchedulerJob().getSchedulerJobId();
+			delete(session, schedulerSchedule);
+		} finally {
+			db.evictCache(SchedulerSchedule.class);
+		}
+		scheduler.sync(schedulerJobId);
+	}
+
+	@Override
+	public List<CommandLogJob> getCommandLogJob(Integer commandLogJobId, Integer schedulerJobId) throws IOException {
+		List<CommandLogJob> list;
+		try (var session = db.openSession()) {
+			var hql = "select distinct l from CommandLogJob l join fetch l.schedulerJob left join fetch l.commandLogActions a left join fetch a.schedulerAction";
+			if (commandLogJobId != null) {
+				hql += " where l.commandLogJobId = :commandLogJobId";
+			} else if (schedulerJobId != null) {
+				hql += " where l.schedulerJob.schedulerJobId = :schedulerJobId";
+			}
+			var query = session.createQuery(hql, CommandLogJob.class).setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false);
+			if (commandLogJobId != null) {
+				query.setParameter("commandLogJobId", commandLogJobId);
+			} else if (schedulerJobId != null) {
+				query.setParameter("schedulerJobId", schedulerJobId);
+			}
+			var commandLogJobs = query.getResultList();
+			for (var commandLogJob : commandLogJobs) {
+				for (var commandLogAction : commandLogJob.getCommandLogActions()) {
+					// messages written before the log store, loaded in batches across actions
+					Hibernate.initialize(commandLogAction.getCommandLogMessages());
+				}
+			}
+			logStore.attach(commandLogJobs);
+			list = detach(session, commandLogJobs);
+		}
+		Collections.sort(list, CommandLogJob.SORT_JOB);
+		return list;
+	}
+
+	@Override
+	public List<SchedulerJobSummary> getSchedulerJobSummary() throws IOException {
+		// summaries are plain objects so need no detaching
+		try (var session = db.openSession()) {
+			return SchedulerJobSummary.getAll(session, null);
+		}
+	}
+
+	@Override
+	public CommandLogFailure getCommandLogFailure(int commandLogFailureId) throws IOException {
+		try (var session = db.openSession()) {
+			var commandLogFailure = getById(CommandLogFailure.class, session, commandLogFailureId);
+			if (commandLogFailure != null) session.evict(commandLogFailure);
+			return commandLogFailure;
+		}
+	}
+
+	@Override
+	public List<RunStat> getRunStatTotals(LocalDateTime from, LocalDateTime to) throws IOException {
+		// RunStat has no lazy associations so the totals need no detaching
+		return stats.getTotals(null, from, coalesce(to, LocalDateTime.now()));
+	}
+
+	@Override
+	public List<ConfigItemCommandParameter> getConfigurationItems() throws IOException {
+		var map = new TreeMap<String, ConfigItemCommandParameter>();
+		try (var session = db.openSession()) {
+			for (var entry : ConfigurationItem.getValues(session).entrySet()) {
+				var name = trimOrNull(entry.getKey());
+				map.put(name, new ConfigItemCommandParameter(name, trimOrNull(entry.getValue()), CommandParameter.get(name)));
+			}
+		}
+		return new ArrayList<ConfigItemCommandParameter>(map.values());
+	}
+
+	@Override
+	public void saveConfigurationItems(Map<String, String> map) throws IOException {
+		try {
+			db.inTransaction(session -> {
+				for (var name : map.keySet()) {
+					ConfigurationItem.setValueExisting(session, name, map.get(name));
+				}
+			});
+		} finally {
+			db.evictCache(ConfigurationItem.class);
+		}
+	}
+
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.web;
+
+import static com.google.common.base.Preconditions.*;
+import static com.maxrunsoftware.jezel.Util.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonObject;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.action.CommandParameter;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerJobSummary;
+import com.maxrunsoftware.jezel.model.SchedulerSchedule;
+import com.maxrunsoftware.jezel.web.RestClient.ParamNameValue;
+import com.maxrunsoftware.jezel.web.RestClient.Response;
+import com.maxrunsoftware.jezel.web.RestClient.Verb;
+
+public class DataServiceRest implements DataService {
+
+	private final RestClient client;
+	private final ExecutorService executor;
+	private final Cache<String, Response> cache;
+	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(DataServiceRest.class);
+
+	public DataServiceRest(SettingService settings, RestClient client) {
+		this.client = checkNotNull(client);
+		this.executor = Executors.newFixedThreadPool(
+				Math.max(1, settings.getWebDataThreads()),
+				new ThreadFactoryBuilder().setNameFormat("DataService-%d").setDaemon(true).build());
+		this.cache = CacheBuilder.newBuilder()
+				.expireAfterWrite(Math.max(0, settings.getWebDataCacheMillis()), TimeUnit.MILLISECONDS)
+				.maximumSize(settings.getWebDataCacheEntries())
+				.recordStats()
+				.build();
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>(client.getMetrics());
+		var stats = cache.stats();
+		map.put("cacheHitCount", stats.hitCount());
+		map.put("cacheMissCount", stats.missCount());
+		map.put("cacheEntries", cache.size());
+		return map;
+	}
+
+	/**
+	 * GET responses are reused for a short time so pages rendered together do not repeat the same REST calls.
+	 */
+	private Response read(String endpoint, ParamNameValue... params) throws IOException {
+		var key = new StringBuilder(endpoint);
+		for (var param : params) {
+			if (param.value() != null) key.append('&').append(param.key()).append('=').append(param.value());
+		}
+		try {
+			return cache.get(key.toString(), () -> client.get(Verb.GET, endpoint, params));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof IOException ioe) throw ioe;
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private Response write(Verb verb, String endpoint, ParamNameValue... params) throws IOException {
+		try {
+			return client.get(verb, endpoint, params);
+		} finally {
+			cache.invalidateAll();
+		}
+	}
+
+	private Response writeBatch(JsonObject batch) throws IOException {
+		try {
+			var response = client.post("batch", batch);
+			if (response.code() != 200) {
+				var message = response.jsonObject() == null ? response.json() : response.jsonObject().getString("message", response.json());
+				throw new IOException("Batch failed [" + response.code() + "]: " + message);
+			}
+			return response;
+		} finally {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public List<SchedulerJob> getSchedulerJob(Integer schedulerJobId) throws IOException {
+		var response = read(
+				"job",
+				par(SchedulerJob.ID, schedulerJobId));
+		var o = response.jsonObject();
+		var array = o.getJsonArray(SchedulerJob.NAME);
+		var list = new ArrayList<SchedulerJob>();
+		for (var val : array) {
+			var oo = val.asJsonObject();
+			var ooo = new SchedulerJob();
+			ooo.fromJson(oo);
+			list.add(ooo);
+		}
+		Collections.sort(list, SchedulerJob.SORT_ID);
+		return list;
+	}
+
+	@Override
+	public List<SchedulerSchedule> getSchedulerSchedule(Integer schedulerJobId, Integer schedulerScheduleId) throws IOException {
+
+		//@formatter:off
+		var response = read(
+				"job/schedule",
+				par(SchedulerJob.ID, schedulerJobId),
+				par(SchedulerSchedule.ID, schedulerScheduleId));
+		var o = response.jsonObject();
+		var array = o.getJsonArray(SchedulerSchedule.NAME);
+		var list = new ArrayList<SchedulerSchedule>();
+		for (var val : array) {
+			var oo = val.asJsonObject();
+			var ooo = new SchedulerSchedule();
+			ooo.fromJson(oo);
+			list.add(ooo);
+		}
+		
+		/*
+		var list = new ArrayList<SchedulerSchedule>();
+		var jobs = getSchedulerJob(null);
+		for(var job : jobs) {
+			if (schedulerJobId != null) {
+				// Check if we were provided a schedulerJobId
+				if (!schedulerJobId.equals(job.getSchedulerJobId())) {
+					continue;
+				}
+			}
+			for(var schedule : job.getSchedulerSchedules()) {
+				if (schedulerScheduleId != null) {
+					// Check if we were provided a schedulerScheduleId
+					if (!schedulerScheduleId.equals(schedule.getSchedulerScheduleId())) {
+						continue;
+					}
+				}
+				list.add(schedule);
+			}
+		}
+		*/
+		Collections.sort(list, SchedulerSchedule.SORT_ID);
+		return list;
+		//@formatter:on
+	}
+
+	private static ParamNameValue par(String key, Object value) {
+		return new ParamNameValue(key, value);
+	}
+
+	@Override
+	public void updateSchedulerJob(int schedulerJobId, String name, String group, boolean disabled) throws IOException {
+		write(
+				Verb.POST,
+				"job",
+				par(SchedulerJob.ID, schedulerJobId),
+				par("name", name),
+				par("group", group),
+				par("disabled", disabled));
+
+	}
+
+	@Override
+	public void updateSchedulerSchedule(
+			int schedulerScheduleId,
+			boolean sunday,
+			boolean monday,
+			boolean tuesday,
+			boolean wednesday,
+			boolean thursday,
+			boolean friday,
+			boolean saturday,
+			int hour,
+			int minute,
+			boolean disabled) throws IOException {
+		write(
+				Verb.POST,
+				"job/schedule",
+				par(SchedulerSchedule.ID, schedulerScheduleId),
+				par("sunday", sunday),
+				par("monday", monday),
+				par("tuesday", tuesday),
+				par("wednesday", wednesday),
+				par("thursday", thursday),
+				par("friday", friday),
+				par("saturday", saturday),
+				par("hour", hour),
+				par("minute", minute),
+				par("disabled", disabled));
+
+	}
+
+	@Override
+	public int addSchedulerSchedule(
+			int schedulerJobId,
+			boolean sunday,
+			boolean monday,
+			boolean tuesday,
+			boolean wednesday,
+			boolean thursday,
+			boolean friday,
+			boolean saturday,
+			int hour,
+			int minute,
+			boolean disabled) throws IOException {
+		var response = write(
+				Verb.PUT,
+				"job/schedule",
+				par(SchedulerJob.ID, schedulerJobId));
+		var schedulerScheduleId = response.jsonObject().getInt(SchedulerSchedule.ID);
+		updateSchedulerSchedule(
+				schedulerScheduleId,
+				sunday,
+				monday,
+				tuesday,
+				wednesday,
+				thursday,
+				friday,
+				saturday,
+				hour,
+				minute,
+				disabled);
+		return schedulerScheduleId;
+	}
+
+	@Override
+	public void deleteSchedulerSchedule(int schedulerScheduleId) throws IOException {
+		write(
+				Verb.DELETE,
+				"job/schedule",
+				par(SchedulerSchedule.ID, schedulerScheduleId));
+
+	}
+
+	@Override
+	public List<CommandLogJob> getCommandLogJob(Integer commandLogJob, Integer schedulerJobId) throws IOException {
+		var response = read(
+				"log/job",
+				par(CommandLogJob.ID, commandLogJob),
+				par(SchedulerJob.ID, schedulerJobId));
+
+		var o = response.jsonObject();
+		var array = o.getJsonArray(CommandLogJob.NAME);
+		var list = new ArrayList<CommandLogJob>();
+		for (var val : array) {
+			var oo = val.asJsonObject();
+			var ooo = new CommandLogJob();
+			ooo.fromJson(oo);
+			list.add(ooo);
+		}
+
+		Collections.sort(list, CommandLogJob.SORT_JOB);
+		return list;
+	}
+
+	@Override
+	public List<SchedulerJobSummary> getSchedulerJobSummary() throws IOException {
+		var response = read("job/summary");
+		var array = response.jsonObject().getJsonArray(SchedulerJobSummary.NAME);
+		var list = new ArrayList<SchedulerJobSummary>();
+		for (var val : array) {
+			var summary = new SchedulerJobSummary();
+			summary.fromJson(val.asJsonObject());
+			list.add(summary);
+		}
+		Collections.sort(list, SchedulerJobSummary.SORT_ID);
+		return list;
+	}
+
+	@Override
+	public CommandLogFailure getCommandLogFailure(int commandLogFailureId) throws IOException {
+		var response = read(
+				"log/failure",
+				par(CommandLogFailure.ID, commandLogFailureId));
+		if (response.code() == 404) return null;
+
+		var array = response.jsonObject().getJsonArray(CommandLogFailure.NAME);
+		if (array.isEmpty()) return null;
+		var commandLogFailure = new CommandLogFailure();
+		commandLogFailure.fromJson(array.get(0).asJsonObject());
+		return commandLogFailure;
+	}
+
+	@Override
+	public List<RunStat> getRunStatTotals(LocalDateTime from, LocalDateTime to) throws IOException {
+		var response = read(
+				"stats",
+				par("resolution", "total"),
+				par("from", from),
+				par("to", to));
+
+		var o = response.jsonObject();
+		var array = o.getJsonArray(RunStat.NAME);
+		var list = new ArrayList<RunStat>();
+		for (var val : array) {
+			var runStat = new RunStat();
+			runStat.fromJson(val.asJsonObject());
+			list.add(runStat);
+		}
+		return list;
+	}
+
+	@Override
+	public List<ConfigItemCommandParameter> getConfigurationItems() throws IOException {
+		var map = new TreeMap<String, ConfigItemCommandParameter>();
+
+		var response = read("config");
+
+		var o = response.jsonObject();
+		var array = o.getJsonArray(ConfigurationItem.NAME);
+		for (var val : array) {
+			var oo = val.asJsonObject();
+			var name = trimOrNull(oo.getString("name"));
+			var value = trimOrNull(oo.getString("value"));
+			CommandParameter cp = null;
+			var cpJson = oo.getJsonObject(CommandParameter.NAME);
+			if (cpJson != null) {
+				cp = new CommandParameter();
+				cp.fromJson(cpJson);
+			}
+			var r = new ConfigItemCommandParameter(name, value, cp);
+			map.put(name, r);
+		}
+
+		return new ArrayList<ConfigItemCommandParameter>(map.values());
+	}
+
+	private static record ConfigItem(String name, String value) {}
+
+	@Override
+	public void saveConfigurationItems(Map<String, String> map) throws IOException {
+
+		var list = new ArrayList<ConfigItem>();
+		for (var name : map.keySet()) {
+			list.add(new ConfigItem(name, coalesce(map.get(name), "")));
+		}
+
+		var listParts = Lists.partition(list, 10);
+
+		// one request and one transaction for all parts
+		var operations = createArrayBuilder();
+		for (var listPart : listParts) {
+			var pars = createObjectBuilder();
+			for (var configItem : listPart) {
+				pars.add(configItem.name, configItem.value);
+			}
+			operations.add(createObjectBuilder()
+					.add("method", "POST")
+					.add("path", "/config")
+					.add("parameters", pars));
+		}
+		LOG.debug("Issuing batch of " + listParts.size() + " POSTs to save configurations");
+		writeBatch(createObjectBuilder().add("operations", operations).build());
+
+	}
+}
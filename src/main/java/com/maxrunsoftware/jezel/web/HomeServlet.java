@@ -16,8 +16,12 @@
 package com.maxrunsoftware.jezel.web;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 import com.maxrunsoftware.jezel.Version;
+import com.maxrunsoftware.jezel.util.Table;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -36,6 +40,13 @@ public class HomeServlet extends ServletBase {
 		html = html.replace("${version}", Version.VALUE);
 		// String html = "hello " + request.getUserPrincipal().getName();
 
+		var rows = new ArrayList<List<Object>>();
+		var metrics = new TreeMap<>(data.getMetrics());
+		for (var entry : metrics.entrySet()) {
+			rows.add(List.of(entry.getKey(), entry.getValue()));
+		}
+		html = html + "<p>" + Table.parse(List.of("Metric", "Value"), rows).toHtml() + "</p>";
+
 		writeResponse(response, "Home", html, 200);
 	}
 
@@ -18,11 +18,15 @@ package com.maxrunsoftware.jezel.web;
 import static j2html.TagCreator.*;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 
+import com.maxrunsoftware.jezel.model.CommandLogJob;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerJobSummary;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,6 +35,14 @@ import jakarta.servlet.http.HttpServletResponse;
 public class JobServlet extends ServletBase {
 	private static final long serialVersionUID = 6343839739720974399L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(JobServlet.class);
+	private static final int STATS_DAYS = 30;
+
+	private static String formatDuration(long millis) {
+		if (millis < 1000) return millis + "ms";
+		if (millis < 60_000) return String.format("%.1fs", millis / 1000d);
+		if (millis < 3_600_000) return (millis / 60_000) + "m " + (millis % 60_000 / 1000) + "s";
+		return (millis / 3_600_000) + "h " + (millis % 3_600_000 / 60_000) + "m";
+	}
 
 	@Override
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -96,16 +108,23 @@ public class JobServlet extends ServletBase {
 	}
 
 	private void doGetShowJobAll(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		var headers = List.of("", "JobId", "Name", "Group", "Schedules", "Actions", "Logs", "Enabled");
-		var jobsAll = data.getSchedulerJob(null);
-		var map = new TreeMap<String, ArrayList<SchedulerJob>>();
+		var headers = List.of("", "JobId", "Name", "Group", "Schedules", "Actions", "Logs", "Last Run", "Runs (" + STATS_DAYS + "d)", "Duration p50 / p90", "Enabled");
+		var runStatsFuture = data.getRunStatTotalsAsync(LocalDate.now().minusDays(STATS_DAYS).atStartOfDay(), null);
+		var jobsAll = data.getSchedulerJobSummary();
+		var runs = new HashMap<Integer, String>();
+		var durations = new HashMap<Integer, String>();
+		for (var runStat : DataService.join(runStatsFuture)) {
+			runs.put(runStat.getSchedulerJobId(), runStat.getRunCount() + " (" + runStat.getFailureCount() + " failed)");
+			durations.put(runStat.getSchedulerJobId(), formatDuration(runStat.getDurationPercentile(0.5)) + " / " + formatDuration(runStat.getDurationPercentile(0.9)));
+		}
+		var map = new TreeMap<String, ArrayList<SchedulerJobSummary>>();
 		for (var job : jobsAll) {
 			var key = job.getGroup();
 			if (key == null) key = "";
 			key = key.toUpperCase();
 			var list = map.get(key);
 			if (list == null) {
-				list = new ArrayList<SchedulerJob>();
+				list = new ArrayList<SchedulerJobSummary>();
 				map.put(key, list);
 			}
 			list.add(job);
@@ -123,9 +142,12 @@ public class JobServlet extends ServletBase {
 							td("" + i.getSchedulerJobId()),
 							td("" + i.getName()),
 							td("" + i.getGroup()),
-							td(a("" + i.getSchedulerSchedules().size()).withHref("/schedules?" + SchedulerJob.ID + "=" + i.getSchedulerJobId())),
-							td("" + i.getSchedulerActions().size()),
-							td("" + i.getCommandLogJobs().size()),
+							td(a("" + i.getScheduleCount()).withHref("/schedules?" + SchedulerJob.ID + "=" + i.getSchedulerJobId())),
+							td("" + i.getActionCount()),
+							td("" + i.getRunCount()),
+							td(i.getLastCommandLogJobId() == null ? text("") : a(i.getLastRunStatus()).withHref("/logs" + parameters(CommandLogJob.ID, i.getLastCommandLogJobId()))),
+							td(runs.getOrDefault(i.getSchedulerJobId(), "0")),
+							td(durations.getOrDefault(i.getSchedulerJobId(), "")),
 							td(input().attr("type", "checkbox").attr("disabled", "disabled").withCondChecked(!i.isDisabled())
 							// End of row
 							)))));
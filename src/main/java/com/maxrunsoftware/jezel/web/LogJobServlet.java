@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 
@@ -74,6 +75,7 @@ public class LogJobServlet extends ServletBase {
 		var rows = new ArrayList<ArrayList<Object>>();
 
 		var commandLogJob = commandLogJobs.get(0);
+		var stackTraces = new HashMap<Integer, String>();
 		var commandLogActions = new ArrayList<CommandLogAction>(commandLogJob.getCommandLogActions());
 		Collections.sort(commandLogActions, CommandLogAction.SORT_INDEX);
 		for (var commandLogAction : commandLogActions) {
@@ -86,6 +88,8 @@ public class LogJobServlet extends ServletBase {
 			rows.add(list);
 
 			var commandLogMessages = new ArrayList<CommandLogMessage>(commandLogAction.getCommandLogMessages());
+			// only separate when read without going through JSON, see LogStoreService.attach
+			commandLogMessages.addAll(commandLogAction.getCommandLogMessagesStored());
 			Collections.sort(commandLogMessages, CommandLogMessage.SORT_INDEX);
 			for (var commandLogMessage : commandLogMessages) {
 				list = new ArrayList<Object>();
@@ -93,7 +97,20 @@ public class LogJobServlet extends ServletBase {
 				list.add("Message");
 				list.add(format(commandLogMessage.getTimestamp()));
 				list.add(commandLogMessage.getLevel());
-				list.add("<pre>" + coalesce(commandLogMessage.getMessage(), commandLogMessage.getException(), "") + "</pre>");
+				var text = coalesce(commandLogMessage.getMessage(), commandLogMessage.getException(), "");
+				if (commandLogMessage.getMessage() != null && commandLogMessage.getException() != null) text += "\n" + commandLogMessage.getException();
+				// the stack trace is stored once per distinct failure
+				var commandLogFailureId = commandLogMessage.getCommandLogFailureId();
+				if (commandLogFailureId != null && !stackTraces.containsKey(commandLogFailureId)) {
+					var commandLogFailure = data.getCommandLogFailure(commandLogFailureId);
+					stackTraces.put(commandLogFailureId, commandLogFailure == null ? null : commandLogFailure.getStackTrace());
+				}
+				var stackTrace = commandLogFailureId == null ? null : stackTraces.get(commandLogFailureId);
+				// the stored trace starts with the message of the first occurrence, so this occurrence's exception replaces that line
+				if (stackTrace != null && commandLogMessage.getException() != null && stackTrace.indexOf('\n') > 0) {
+					text += stackTrace.substring(stackTrace.indexOf('\n'));
+				}
+				list.add("<pre>" + text + "</pre>");
 				rows.add(list);
 			}
 
@@ -18,8 +18,12 @@ package com.maxrunsoftware.jezel.web;
 import static com.google.common.base.Preconditions.*;
 import static com.maxrunsoftware.jezel.Util.*;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.json.JsonObject;
 
@@ -28,26 +32,55 @@ import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.maxrunsoftware.jezel.SettingService;
 
-public class RestClient {
+public class RestClient implements Closeable {
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(RestClient.class);
 
-	private String bearer;
+	private volatile String bearer;
 	private final SettingService settings;
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpclient;
+
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder requestFailedCount = new LongAdder();
+	private final LongAdder requestNanos = new LongAdder();
+	private final LongAdder requestNotModifiedCount = new LongAdder();
+
+	private static record Tagged(String etag, Response response) {}
+
+	private final Cache<String, Tagged> etags;
 
 	public RestClient(SettingService settings) {
 		this.settings = checkNotNull(settings);
+		try {
+			connectionManager = createConnectionManager(settings);
+		} catch (Exception e) {
+			throw new Error(e); // should not happen, trust all SSL context
+		}
+		httpclient = createClient(settings, connectionManager);
+		etags = CacheBuilder.newBuilder()
+				.maximumSize(Math.max(0, settings.getWebRestETagEntries()))
+				.build();
 	}
 
 	private String getHost() {
@@ -67,11 +100,7 @@ public class RestClient {
 	public static record Response(int code, String json, JsonObject jsonObject) {}
 
 	private Response get(Verb verb, String host, String username, String password) throws Exception {
-		return get(verb, host, username, password, null);
-	}
-
-	private Response get(Verb verb, String host, String bearer) throws Exception {
-		return get(verb, host, null, null, bearer);
+		return get(verb, host, username, password, null, null);
 	}
 
 	public Response get(Verb verb, String hostSuffix, Iterable<ParamNameValue> params) throws IOException {
@@ -87,25 +116,36 @@ public class RestClient {
 	public Response get(Verb verb, String hostSuffix, ParamNameValue... params) throws IOException {
 		var host = getHost();
 		host = host + hostSuffix;
-		try {
-			if (bearer == null) login();
 
-			var uribuilder = new URIBuilder();
-			boolean foundOne = false;
-			for (var paramNameValue : params) {
-				if (paramNameValue.value != null) {
-					uribuilder = uribuilder.addParameter(paramNameValue.key, paramNameValue.value.toString());
-					foundOne = true;
-				}
+		var uribuilder = new URIBuilder();
+		boolean foundOne = false;
+		for (var paramNameValue : params) {
+			if (paramNameValue.value != null) {
+				uribuilder = uribuilder.addParameter(paramNameValue.key, paramNameValue.value.toString());
+				foundOne = true;
 			}
-			if (foundOne) { host = host + uribuilder.toString(); }
+		}
+		if (foundOne) { host = host + uribuilder.toString(); }
+		return send(verb, host, null);
+	}
+
+	/**
+	 * POSTs a JSON body, used by endpoints such as /batch that take more than query parameters.
+	 */
+	public Response post(String hostSuffix, JsonObject body) throws IOException {
+		return send(Verb.POST, getHost() + hostSuffix, toJsonString(body, false));
+	}
+
+	private Response send(Verb verb, String host, String body) throws IOException {
+		try {
+			if (bearer == null) login();
 			LOG.debug(verb.toString().toUpperCase() + "[" + bearer + "]: " + host);
 
-			var response = get(verb, host, bearer);
+			var response = get(verb, host, null, null, bearer, body);
 			if (response.code == 401) {
 				// Old bearer token, get a new one
 				login();
-				response = get(verb, host, bearer);
+				response = get(verb, host, null, null, bearer, body);
 				if (response.code == 401) {
 					// Bad username or password
 					var msg = "Received 401 attempting to login";
@@ -127,7 +167,7 @@ public class RestClient {
 		GET, POST, PUT, DELETE
 	}
 
-	private Response get(Verb verb, String host, String username, String password, String bearer) throws Exception {
+	private Response get(Verb verb, String host, String username, String password, String bearer, String body) throws Exception {
 		checkNotNull(host);
 
 		HttpUriRequestBase action;
@@ -144,38 +184,79 @@ public class RestClient {
 			LOG.debug("Bearer supplied so adding Authorization header");
 			action.addHeader("Authorization", "Bearer " + bearer);
 		}
+		if (body != null) action.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+		var tagged = verb.equals(Verb.GET) ? etags.getIfPresent(host) : null;
+		if (tagged != null) action.addHeader("If-None-Match", tagged.etag());
 
 		int code = -1;
+		String etag = null;
 		JsonObject o = null;
 		String json = null;
 		String error = null;
 
-		try (CloseableHttpClient httpclient = createClient()) {
-			LOG.trace("HttpClient created: " + httpclient.getClass().getName());
-			try (CloseableHttpResponse response = httpclient.execute(action)) {
-				LOG.trace("Received response: " + response.getClass().getName());
-				code = response.getCode();
-				HttpEntity httpEntity = response.getEntity();
-				json = EntityUtils.toString(httpEntity);
-
-				if (settings.getRestShowRest()) { LOG.debug(json); }
-				try {
-					o = fromJsonString(json);
-				} catch (Exception e) {
-					LOG.debug("Error processing response to JSON", e);
-					// Since we couldn't deserialize then the message is probably an error
-					error = json;
-					LOG.warn(error);
-				}
-
+		var start = System.nanoTime();
+		requestCount.increment();
+		try (CloseableHttpResponse response = httpclient.execute(action)) {
+			LOG.trace("Received response: " + response.getClass().getName());
+			code = response.getCode();
+			if (code == 304 && tagged != null) {
+				LOG.debug("Not modified, using cached response " + tagged.etag());
+				requestNotModifiedCount.increment();
+				EntityUtils.consume(response.getEntity());
+				return tagged.response();
+			}
+			HttpEntity httpEntity = response.getEntity();
+			// consuming the entity fully releases the connection back to the pool for reuse
+			json = EntityUtils.toString(httpEntity);
+
+			var etagHeader = response.getFirstHeader("ETag");
+			if (etagHeader != null) etag = etagHeader.getValue();
+
+			if (settings.getRestShowRest()) { LOG.debug(json); }
+			try {
+				o = fromJsonString(json);
+			} catch (Exception e) {
+				LOG.debug("Error processing response to JSON", e);
+				// Since we couldn't deserialize then the message is probably an error
+				error = json;
+				LOG.warn(error);
 			}
+
+		} catch (IOException e) {
+			requestFailedCount.increment();
+			throw e;
+		} finally {
+			requestNanos.add(System.nanoTime() - start);
 		}
 		if (error != null) throw new IOException(error);
-		return new Response(code, json, o);
+		var result = new Response(code, json, o);
+		if (verb.equals(Verb.GET) && code == 200 && etag != null) etags.put(host, new Tagged(etag, result));
+		return result;
+
+	}
 
+	public Map<String, Object> getMetrics() {
+		var map = new TreeMap<String, Object>();
+		var count = requestCount.sum();
+		map.put("requestCount", count);
+		map.put("requestFailedCount", requestFailedCount.sum());
+		map.put("requestNotModifiedCount", requestNotModifiedCount.sum());
+		map.put("requestMillisAverage", count == 0 ? 0d : (double) requestNanos.sum() / count / 1_000_000d);
+
+		var stats = connectionManager.getTotalStats();
+		map.put("poolConnectionsLeased", stats.getLeased());
+		map.put("poolConnectionsAvailable", stats.getAvailable());
+		map.put("poolConnectionsPending", stats.getPending());
+		map.put("poolConnectionsMax", stats.getMax());
+		return map;
 	}
 
-	private CloseableHttpClient createClient() throws Exception {
+	@Override
+	public void close() throws IOException {
+		httpclient.close();
+	}
+
+	private static PoolingHttpClientConnectionManager createConnectionManager(SettingService settings) throws Exception {
 
 		SSLContextBuilder sshbuilder = new SSLContextBuilder();
 
@@ -183,13 +264,35 @@ public class RestClient {
 
 		SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sshbuilder.build(), (hostname, session) -> true);
 
-		var pcm = PoolingHttpClientConnectionManagerBuilder.create().setSSLSocketFactory(sslsf).build();
+		//@formatter:off
+		return PoolingHttpClientConnectionManagerBuilder.create()
+				.setSSLSocketFactory(sslsf)
+				.setMaxConnTotal(settings.getWebRestMaxConnections())
+				.setMaxConnPerRoute(settings.getWebRestMaxConnectionsPerRoute())
+				.setDefaultSocketConfig(SocketConfig.custom()
+						.setSoTimeout(Timeout.ofSeconds(settings.getWebRestResponseTimeout()))
+						.setSoKeepAlive(true)
+						.build())
+				.build();
+		//@formatter:on
+	}
+
+	private static CloseableHttpClient createClient(SettingService settings, PoolingHttpClientConnectionManager connectionManager) {
 
 		//@formatter:off
+		var requestConfig = RequestConfig.custom()
+				.setConnectTimeout(Timeout.ofSeconds(settings.getWebRestConnectTimeout()))
+				.setConnectionRequestTimeout(Timeout.ofSeconds(settings.getWebRestConnectTimeout()))
+				.setResponseTimeout(Timeout.ofSeconds(settings.getWebRestResponseTimeout()))
+				.build();
+
 		CloseableHttpClient httpclient = HttpClients.custom()
 				.setDefaultCredentialsProvider(null)
-				.setConnectionManager(pcm)
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
 				.setDefaultCookieStore(null)
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.ofSeconds(settings.getWebRestIdleTimeout()))
 				.build();
 		//@formatter:on
 
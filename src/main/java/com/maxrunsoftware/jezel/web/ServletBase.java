@@ -18,9 +18,15 @@ package com.maxrunsoftware.jezel.web;
 import static com.maxrunsoftware.jezel.Util.*;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.util.Asset;
+import com.maxrunsoftware.jezel.util.Template;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletResponse;
@@ -28,77 +34,9 @@ import jakarta.servlet.http.HttpServletResponse;
 public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletBase {
 	private static final long serialVersionUID = 7162466372715656028L;
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(ServletBase.class);
-	private static final String CSS = """
-			.topnav {
-			  background-color: #333;
-			  overflow: hidden;
-			}
-
-			/* Style the links inside the navigation bar */
-			.topnav a {
-			  float: left;
-			  color: #f2f2f2;
-			  text-align: center;
-			  padding: 14px 16px;
-			  text-decoration: none;
-			  font-size: 17px;
-			}
-
-			/* Change the color of links on hover */
-			.topnav a:hover {
-			  background-color: #ddd;
-			  color: black;
-			}
-
-			/* Add a color to the active/current link */
-			.topnav a.active {
-			  background-color: #04AA6D;
-			  color: white;
-			}
-
-
-			table {
-			  font-family: Arial, Helvetica, sans-serif;
-			  border-collapse: collapse;
-			  width: 100%;
-			  table-layout: fixed;
-			}
-			th {
-			  border: 1px solid #ddd;
-			  padding: 8px;
-			  width: 1px;
-			  white-space: nowrap;
-			  padding-top: 12px;
-			  padding-bottom: 12px;
-			  text-align: left;
-			  background-color: #4CAF50;
-			  color: white;
-			  cursor: pointer;
-			}
-			td {
-			  border: 1px solid #ddd;
-			  padding: 8px;
-			  width: 1px;
-			  white-space: normal;
-			  word-break: break-word;
-			  text-wrap: normal;
-			}
-
-
-			tr:nth-child(even){background-color: #f2f2f2;}
-			tr:hover {background-color: #ddd;}
-
-			.errorMessage {
-			  font-weight: bold;
-			  font-size: 32px;
-			  color: red;
-			}
-
-			""";
-
-	private static final String JAVASCRIPT = """
-
-			""";
+	public static final Asset CSS = Asset.load("/web/jezel.css", Constant.CONTENTTYPE_CSS);
+	public static final Asset JAVASCRIPT = Asset.load("/web/jezel.js", Constant.CONTENTTYPE_JAVASCRIPT);
+	public static final List<Asset> ASSETS = List.of(CSS, JAVASCRIPT);
 
 	protected SettingService settings;
 	protected DataService data;
@@ -123,9 +61,27 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 
 	protected abstract Nav getNav();
 
-	protected void writeResponse(HttpServletResponse response, String title, String html, int statusCode) {
-		html = coalesce(trimOrNull(html), "Missing HTML");
-		var topNav = """
+	private static final Template PAGE = Template.compile(trimOrNull("""
+			<html dir="ltr" lang="en">
+				<head>
+					<meta charset="utf-8">
+					<title>${title}</title>
+					<link rel="stylesheet" href="${style}">
+					<script src="${script}" defer></script>
+				</head>
+				<body>
+					${topNav}
+					<br>
+
+					${body}
+				</body>
+			</html>
+			""")).bind(Map.of("style", CSS.getPath(), "script", JAVASCRIPT.getPath()));
+
+	private static final Map<Nav, String> TOP_NAV = createTopNav();
+
+	private static Map<Nav, String> createTopNav() {
+		var template = Template.compile("""
 				<div class="topnav">
 					<a ${activeHome} href="/">Home</a>
 					<a ${activeJobs} href="/jobs">Jobs</a>
@@ -134,39 +90,24 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 					<a ${activeConfig} href="/config">Configuration</a>
 					<a ${activeLogout} href="/logout">Logout</a>
 				</div>
-				""";
+				""");
 		var active = "class=\"active\"";
-		topNav = topNav.replace("${activeHome}", getNav().equals(Nav.HOME) ? active : "");
-		topNav = topNav.replace("${activeJobs}", getNav().equals(Nav.JOBS) ? active : "");
-		topNav = topNav.replace("${activeSchedules}", getNav().equals(Nav.SCHEDULES) ? active : "");
-		topNav = topNav.replace("${activeLogs}", getNav().equals(Nav.LOGS) ? active : "");
-		topNav = topNav.replace("${activeConfig}", getNav().equals(Nav.CONFIG) ? active : "");
-		topNav = topNav.replace("${activeLogout}", getNav().equals(Nav.LOGOUT) ? active : "");
-
-		var str = """
-				<html dir="ltr" lang="en">
-					<head>
-						<meta charset="utf-8">
-						<title>${title}</title>
-						<style>${style}</style>
-						<script>${script}</script>
-					</head>
-					<body>
-						${topNav}
-						<br>
-
-						${body}
-					</body>
-				</html>
-				""";
-
-		str = str.replace("${title}", title);
-		str = str.replace("${style}", CSS);
-		str = str.replace("${script}", JAVASCRIPT);
-		str = str.replace("${body}", html);
-		str = str.replace("${topNav}", topNav);
-		str = trimOrNull(str);
-		html = str;
+		var map = new EnumMap<Nav, String>(Nav.class);
+		for (var nav : Nav.values()) {
+			var values = new HashMap<String, String>();
+			values.put("activeHome", nav.equals(Nav.HOME) ? active : "");
+			values.put("activeJobs", nav.equals(Nav.JOBS) ? active : "");
+			values.put("activeSchedules", nav.equals(Nav.SCHEDULES) ? active : "");
+			values.put("activeLogs", nav.equals(Nav.LOGS) ? active : "");
+			values.put("activeConfig", nav.equals(Nav.CONFIG) ? active : "");
+			values.put("activeLogout", nav.equals(Nav.LOGOUT) ? active : "");
+			map.put(nav, template.render(values));
+		}
+		return map;
+	}
+
+	protected void writeResponse(HttpServletResponse response, String title, String html, int statusCode) {
+		html = coalesce(trimOrNull(html), "Missing HTML");
 
 		LOG.trace("Writing response [" + statusCode + "]: " + html);
 		response.setContentType(Constant.CONTENTTYPE_HTML);
@@ -175,7 +116,10 @@ public abstract class ServletBase extends com.maxrunsoftware.jezel.util.ServletB
 		response.addHeader("Cache-Control", "no-cache");
 		response.addHeader("Content-Language", "en-US");
 		try {
-			response.getWriter().print(html);
+			PAGE.write(response.getWriter(), Map.of(
+					"title", coalesce(title, ""),
+					"topNav", TOP_NAV.get(getNav()),
+					"body", html));
 		} catch (IOException ioe) {
 			LOG.error("Error writing response", ioe);
 		}
@@ -19,8 +19,6 @@ import static com.google.common.base.Preconditions.*;
 
 import javax.inject.Inject;
 
-import org.eclipse.jetty.server.Server;
-
 import com.maxrunsoftware.jezel.Constant;
 import com.maxrunsoftware.jezel.SettingService;
 import com.maxrunsoftware.jezel.WebService;
@@ -31,7 +29,7 @@ public class WebServer implements WebService {
 
 	private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(WebServiceJetty.class);
 
-	private Server server;
+	private JettyServer server;
 
 	private final SettingService settings;
 	private final DataService data;
@@ -45,17 +43,27 @@ public class WebServer implements WebService {
 	@Override
 	public void start(boolean joinThread) throws Exception {
 		LOG.debug("Starting");
-		var server = new JettyServer();
+		server = new JettyServer();
 		server.setMaxThreads(settings.getWebMaxThreads());
 		server.setMinThreads(settings.getWebMinThreads());
 		server.setIdleTimeout(settings.getWebIdleTimeout());
 		server.setPort(settings.getWebPort());
+		server.setAcceptors(settings.getWebAcceptors());
+		server.setSelectors(settings.getWebSelectors());
+		server.setOutputBufferSize(settings.getWebOutputBufferSize());
+		server.setHttp2(settings.getWebHttp2());
+		server.setCompression(settings.getWebCompression());
+		server.setCompressionMinSize(settings.getWebCompressionMinSize());
+		server.setCompressionMimeTypes(settings.getWebCompressionMimeTypes());
 		server.setTempDirectory(settings.getDirTemp());
 		server.addResource(SettingService.class.getName(), settings);
 		server.addResource(DataService.class.getName(), data);
 		for (var page : Constant.WEB_SERVLETS) {
 			server.addPage(page.servlet(), page.path());
 		}
+		for (var asset : ServletBase.ASSETS) {
+			server.addAsset(asset);
+		}
 
 		server.addCredential(settings.getWebUsername(), settings.getWebPassword());
 
@@ -64,6 +72,6 @@ public class WebServer implements WebService {
 
 	@Override
 	public void stop() throws Exception {
-		server.stop();
+		if (server != null) server.stop();
 	}
 }
@@ -0,0 +1,96 @@
+create table CommandLogAction (
+	commandLogActionId integer generated by default as identity,
+	end timestamp,
+	index integer not null,
+	name varchar(200),
+	start timestamp not null,
+	commandLogJobId integer not null,
+	schedulerActionId integer not null,
+	primary key (commandLogActionId)
+);
+
+create table CommandLogJob (
+	commandLogJobId integer generated by default as identity,
+	end timestamp,
+	error boolean not null,
+	start timestamp not null,
+	schedulerJobId integer not null,
+	primary key (commandLogJobId)
+);
+
+create table CommandLogMessage (
+	commandLogMessageId integer generated by default as identity,
+	exception clob,
+	index integer not null,
+	level varchar(10) not null,
+	message clob,
+	timestamp timestamp not null,
+	commandLogActionId integer not null,
+	primary key (commandLogMessageId)
+);
+
+create table ConfigurationItem (
+	configurationItemId integer generated by default as identity,
+	name varchar(500) not null,
+	value clob,
+	primary key (configurationItemId)
+);
+
+create table SchedulerAction (
+	schedulerActionId integer generated by default as identity,
+	description varchar(1000),
+	disabled boolean not null,
+	index integer not null,
+	name varchar(200) not null,
+	schedulerJobId integer not null,
+	primary key (schedulerActionId)
+);
+
+create table SchedulerActionParameter (
+	schedulerActionParameterId integer generated by default as identity,
+	disabled boolean not null,
+	name varchar(200) not null,
+	value clob,
+	schedulerActionId integer not null,
+	primary key (schedulerActionParameterId)
+);
+
+create table SchedulerJob (
+	schedulerJobId integer generated by default as identity,
+	disabled boolean not null,
+	grouping varchar(200),
+	name varchar(200),
+	primary key (schedulerJobId)
+);
+
+create table SchedulerSchedule (
+	schedulerScheduleId integer generated by default as identity,
+	disabled boolean not null,
+	friday boolean not null,
+	hour integer not null,
+	minute integer not null,
+	monday boolean not null,
+	saturday boolean not null,
+	sunday boolean not null,
+	thursday boolean not null,
+	tuesday boolean not null,
+	wednesday boolean not null,
+	schedulerJobId integer not null,
+	primary key (schedulerScheduleId)
+);
+
+alter table ConfigurationItem add constraint UK_ConfigurationItem_name unique (name);
+
+alter table CommandLogAction add constraint FK_CommandLogAction_commandLogJobId foreign key (commandLogJobId) references CommandLogJob;
+
+alter table CommandLogAction add constraint FK_CommandLogAction_schedulerActionId foreign key (schedulerActionId) references SchedulerAction;
+
+alter table CommandLogJob add constraint FK_CommandLogJob_schedulerJobId foreign key (schedulerJobId) references SchedulerJob;
+
+alter table CommandLogMessage add constraint FK_CommandLogMessage_commandLogActionId foreign key (commandLogActionId) references CommandLogAction;
+
+alter table SchedulerAction add constraint FK_SchedulerAction_schedulerJobId foreign key (schedulerJobId) references SchedulerJob;
+
+alter table SchedulerActionParameter add constraint FK_SchedulerActionParameter_schedulerActionId foreign key (schedulerActionId) references SchedulerAction;
+
+alter table SchedulerSchedule add constraint FK_SchedulerSchedule_schedulerJobId foreign key (schedulerJobId) references SchedulerJob;
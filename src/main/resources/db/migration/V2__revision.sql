@@ -0,0 +1,3 @@
+-- monotonic version of a job definition, bumped whenever the job, its schedules, actions or action parameters change
+alter table SchedulerJob add column revision bigint default 0 not null;
+alter table SchedulerJob add column modified timestamp default current_timestamp not null;
@@ -0,0 +1,9 @@
+-- log text is stored as bytes with a leading marker byte and compressed when large, see CompressedText
+-- rows copied here have no marker and are read as plain UTF-8
+alter table CommandLogMessage add column messageData blob;
+alter table CommandLogMessage add column exceptionData blob;
+update CommandLogMessage set messageData = stringtoutf8(message), exceptionData = stringtoutf8(exception);
+alter table CommandLogMessage drop column message;
+alter table CommandLogMessage drop column exception;
+alter table CommandLogMessage alter column messageData rename to message;
+alter table CommandLogMessage alter column exceptionData rename to exception;
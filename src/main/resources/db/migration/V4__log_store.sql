@@ -0,0 +1,3 @@
+-- actions whose messages are written to the segment log store instead of CommandLogMessage, see LogStoreServiceSegment
+alter table CommandLogAction add column logSegment integer;
+alter table CommandLogAction add column logIndex blob;
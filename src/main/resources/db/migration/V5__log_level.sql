@@ -0,0 +1,4 @@
+-- minimum persisted CommandLogMessage level, null inherits from the SchedulerJob and then the JEZEL_LogLevel setting
+alter table SchedulerJob add column logLevel varchar(10);
+alter table SchedulerAction add column logLevel varchar(10);
+alter table CommandLogAction add column suppressedCount integer default 0 not null;
@@ -0,0 +1,19 @@
+-- hourly and daily run rollups per SchedulerJob (schedulerActionId 0) and SchedulerAction, see StatsServiceSql
+create table RunStat (
+	runStatId integer generated by default as identity,
+	schedulerJobId integer not null,
+	schedulerActionId integer not null,
+	resolution varchar(10) not null,
+	bucketStart timestamp not null,
+	runCount integer not null,
+	failureCount integer not null,
+	durationTotal bigint not null,
+	durationMin bigint not null,
+	durationMax bigint not null,
+	sketch blob,
+	primary key (runStatId)
+);
+
+alter table RunStat add constraint UK_RunStat_bucket unique (schedulerJobId, schedulerActionId, resolution, bucketStart);
+
+create index IX_RunStat_resolution_bucketStart on RunStat (resolution, bucketStart);
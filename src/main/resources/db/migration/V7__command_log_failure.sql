@@ -0,0 +1,18 @@
+-- distinct failures with the stack trace stored once, CommandLogMessages reference them, see FailureServiceSql
+create table CommandLogFailure (
+	commandLogFailureId integer generated by default as identity,
+	fingerprint varchar(64) not null,
+	exceptionClass varchar(255) not null,
+	stackTrace blob,
+	occurrenceCount integer not null,
+	firstSeen timestamp not null,
+	lastSeen timestamp not null,
+	lastCommandLogJobId integer not null,
+	primary key (commandLogFailureId)
+);
+
+alter table CommandLogFailure add constraint UK_CommandLogFailure_fingerprint unique (fingerprint);
+
+create index IX_CommandLogFailure_lastSeen on CommandLogFailure (lastSeen);
+
+alter table CommandLogMessage add column commandLogFailureId integer;
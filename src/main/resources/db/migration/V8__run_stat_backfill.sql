@@ -0,0 +1,7 @@
+-- progress of building RunStat from CommandLogJobs that ended before runs were recorded, see StatsServiceSql
+create table RunStatBackfill (
+	runStatBackfillId integer generated by default as identity,
+	endedBefore timestamp not null,
+	commandLogJobIdDone integer not null,
+	primary key (runStatBackfillId)
+);
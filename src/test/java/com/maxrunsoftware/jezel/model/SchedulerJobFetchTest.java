@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.util.function.Consumer;
+
+import org.hibernate.Session;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+
+public class SchedulerJobFetchTest extends TestBase {
+
+	private static final int JOBS = 5;
+	private static DatabaseService db;
+
+	@BeforeClass
+	public static void setUpDatabase() {
+		db = new DatabaseServiceH2(new SettingService() {
+			@Override
+			public boolean getDatabaseStatistics() {
+				return true;
+			}
+		});
+
+		try (var session = db.openSession()) {
+			for (int i = 0; i < JOBS; i++) {
+				var schedulerJob = new SchedulerJob();
+				schedulerJob.setName("job" + i);
+				schedulerJob = getById(SchedulerJob.class, session, save(session, schedulerJob));
+				for (int ii = 0; ii < 3; ii++) {
+					var schedulerSchedule = new SchedulerSchedule();
+					schedulerSchedule.setDays(true, true, true, true, true, true, true);
+					schedulerSchedule.setSchedulerJob(schedulerJob);
+					save(session, schedulerSchedule);
+
+					var schedulerAction = new SchedulerAction();
+					schedulerAction.setName("SqlQuery");
+					schedulerAction.setIndex(ii);
+					schedulerAction.setSchedulerJob(schedulerJob);
+					schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+					for (int iii = 0; iii < 3; iii++) {
+						var schedulerActionParameter = new SchedulerActionParameter();
+						schedulerActionParameter.setName("p" + iii);
+						schedulerActionParameter.setSchedulerAction(schedulerAction);
+						save(session, schedulerActionParameter);
+					}
+				}
+			}
+		}
+	}
+
+	@AfterClass
+	public static void tearDownDatabase() throws Exception {
+		db.close();
+	}
+
+	private static long countStatements(Consumer<Session> work) {
+		try (var session = db.openSession()) {
+			var statistics = session.getSessionFactory().getStatistics();
+			statistics.clear();
+			work.accept(session);
+			return statistics.getPrepareStatementCount();
+		}
+	}
+
+	@Test
+	public void list() {
+		var count = countStatements(session -> {
+			var schedulerJobs = SchedulerJob.getAllForList(session);
+			assertEquals(JOBS, schedulerJobs.size());
+			for (var schedulerJob : schedulerJobs) {
+				var json = schedulerJob.toJson();
+				assertEquals(3, json.getJsonArray("schedulerSchedules").size());
+				assertEquals(3, json.getJsonArray("schedulerActions").size());
+			}
+		});
+		assertEquals(2, count);
+	}
+
+	@Test
+	public void detail() {
+		var count = countStatements(session -> {
+			var schedulerJob = SchedulerJob.getByIdForDetail(session, 1);
+			assertNotNull(schedulerJob);
+			var json = schedulerJob.toJson();
+			for (var schedulerAction : json.getJsonArray("schedulerActions")) {
+				assertEquals(3, schedulerAction.asJsonObject().getJsonArray("schedulerActionParameters").size());
+			}
+		});
+		assertEquals(2, count);
+	}
+
+	@Test
+	public void sync() {
+		var count = countStatements(session -> {
+			var schedulerJob = SchedulerJob.getByIdForSync(session, 1);
+			assertNotNull(schedulerJob);
+			for (var schedulerSchedule : schedulerJob.getSchedulerSchedules()) {
+				assertFalse(schedulerSchedule.isDisabled());
+			}
+		});
+		assertEquals(1, count);
+	}
+
+	@Test
+	public void missing() {
+		var count = countStatements(session -> assertNull(SchedulerJob.getByIdForDetail(session, Integer.MAX_VALUE)));
+		assertEquals(1, count);
+	}
+
+}
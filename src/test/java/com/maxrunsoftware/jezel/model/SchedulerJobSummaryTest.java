@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.model;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.hibernate.Session;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+
+public class SchedulerJobSummaryTest extends TestBase {
+
+	private static DatabaseService db;
+
+	@BeforeClass
+	public static void setUpDatabase() {
+		db = new DatabaseServiceH2(new SettingService() {
+			@Override
+			public boolean getDatabaseStatistics() {
+				return true;
+			}
+		});
+
+		var start = LocalDateTime.now().withNano(0);
+		try (var session = db.openSession()) {
+			// job i has i schedules, i + 1 actions and i runs, the last of which ends as RUNNING, FAILED or SUCCEEDED
+			for (int i = 0; i < 4; i++) {
+				var schedulerJob = new SchedulerJob();
+				schedulerJob.setName("job" + i);
+				schedulerJob.setGroup("group" + (i % 2));
+				schedulerJob.setDisabled(i == 3);
+				schedulerJob = getById(SchedulerJob.class, session, save(session, schedulerJob));
+				for (int ii = 0; ii < i; ii++) {
+					var schedulerSchedule = new SchedulerSchedule();
+					schedulerSchedule.setSchedulerJob(schedulerJob);
+					save(session, schedulerSchedule);
+				}
+				for (int ii = 0; ii <= i; ii++) {
+					var schedulerAction = new SchedulerAction();
+					schedulerAction.setName("SqlQuery");
+					schedulerAction.setIndex(ii);
+					schedulerAction.setSchedulerJob(schedulerJob);
+					save(session, schedulerAction);
+				}
+				for (int ii = 0; ii < i; ii++) {
+					var last = ii == i - 1;
+					var commandLogJob = new CommandLogJob();
+					commandLogJob.setSchedulerJob(schedulerJob);
+					commandLogJob.setStart(start.plusMinutes(ii));
+					if (!last || i != 1) commandLogJob.setEnd(start.plusMinutes(ii).plusSeconds(30));
+					commandLogJob.setError(last && i == 2);
+					save(session, commandLogJob);
+				}
+			}
+		}
+	}
+
+	@AfterClass
+	public static void tearDownDatabase() throws Exception {
+		db.close();
+	}
+
+	private static long countStatements(Consumer<Session> work) {
+		try (var session = db.openSession()) {
+			var statistics = session.getSessionFactory().getStatistics();
+			statistics.clear();
+			work.accept(session);
+			return statistics.getPrepareStatementCount();
+		}
+	}
+
+	@Test
+	public void all() {
+		var count = countStatements(session -> {
+			var summaries = SchedulerJobSummary.getAll(session, null);
+			assertEquals(4, summaries.size());
+			for (int i = 0; i < 4; i++) {
+				var summary = summaries.get(i);
+				assertEquals("job" + i, summary.getName());
+				assertEquals("group" + (i % 2), summary.getGroup());
+				assertEquals(i == 3, summary.isDisabled());
+				assertEquals(i, summary.getScheduleCount());
+				assertEquals(i + 1, summary.getActionCount());
+				assertEquals(i, summary.getRunCount());
+			}
+			assertNull(summaries.get(0).getLastRunStatus());
+			assertNull(summaries.get(0).getLastCommandLogJobId());
+			assertEquals(SchedulerJobSummary.STATUS_RUNNING, summaries.get(1).getLastRunStatus());
+			assertNull(summaries.get(1).getLastRunEnd());
+			assertEquals(SchedulerJobSummary.STATUS_FAILED, summaries.get(2).getLastRunStatus());
+			assertEquals(SchedulerJobSummary.STATUS_SUCCEEDED, summaries.get(3).getLastRunStatus());
+			assertEquals(summaries.get(3).getLastRunStart().plusSeconds(30), summaries.get(3).getLastRunEnd());
+		});
+		assertEquals(2, count);
+	}
+
+	@Test
+	public void single() {
+		try (var session = db.openSession()) {
+			var all = SchedulerJobSummary.getAll(session, null);
+			var summaries = SchedulerJobSummary.getAll(session, all.get(2).getSchedulerJobId());
+			assertEquals(1, summaries.size());
+			assertEquals("job2", summaries.get(0).getName());
+			assertEquals(SchedulerJobSummary.STATUS_FAILED, summaries.get(0).getLastRunStatus());
+		}
+	}
+
+	@Test
+	public void json() {
+		try (var session = db.openSession()) {
+			for (var summary : SchedulerJobSummary.getAll(session, null)) {
+				var copy = new SchedulerJobSummary();
+				copy.fromJson(summary.toJson());
+				assertEquals(summary.toJson(), copy.toJson());
+			}
+		}
+	}
+
+	@Test
+	public void noRunsSkipsStatusQuery() {
+		var count = countStatements(session -> {
+			var summaries = SchedulerJobSummary.getAll(session, 1);
+			assertEquals(1, summaries.size());
+			assertNull(summaries.get(0).getLastRunStatus());
+		});
+		assertEquals(1, count);
+	}
+
+}
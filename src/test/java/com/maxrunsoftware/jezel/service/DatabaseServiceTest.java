@@ -18,14 +18,23 @@ package com.maxrunsoftware.jezel.service;
 import static com.maxrunsoftware.jezel.Util.*;
 import static org.junit.Assert.*;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.maxrunsoftware.jezel.SettingService;
 import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.ConfigurationItem;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerActionParameter;
 import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerSchedule;
 
 public class DatabaseServiceTest extends TestBase {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void test() {
 		var db = new DatabaseServiceH2(new SettingService() {});
@@ -53,4 +62,148 @@ public class DatabaseServiceTest extends TestBase {
 		}
 	}
 
+	@Test
+	public void metrics() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {
+			@Override
+			public int getDatabasePoolMaxSize() {
+				return 3;
+			}
+
+			@Override
+			public boolean getDatabaseStatistics() {
+				return true;
+			}
+		})) {
+			int schedulerJobId;
+			try (var session = db.openSession()) {
+				schedulerJobId = save(session, new SchedulerJob());
+			}
+			for (int i = 0; i < 2; i++) {
+				try (var session = db.openSession()) {
+					assertEquals(1, getAll(SchedulerJob.class, session).size());
+					assertNotNull(getById(SchedulerJob.class, session, schedulerJobId));
+				}
+			}
+
+			var metrics = db.getMetrics();
+			assertTrue(((Number) metrics.get("poolCheckoutCount")).longValue() > 0);
+			assertEquals(0, metrics.get("poolConnectionsActive"));
+			assertTrue((int) metrics.get("poolConnections") <= 3);
+			assertEquals(1L, metrics.get("cacheQueryHitCount"));
+			assertTrue((long) metrics.get("cacheHitCount") > 0);
+		}
+	}
+
+	@Test
+	public void evictCache() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			int schedulerJobId;
+			int schedulerActionId;
+			try (var session = db.openSession()) {
+				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId = save(session, new SchedulerJob()));
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				schedulerActionId = save(session, schedulerAction);
+			}
+			try (var session = db.openSession()) {
+				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
+				schedulerJob.getSchedulerActions().size();
+				schedulerJob.getSchedulerSchedules().size();
+			}
+
+			var cache = db.openSession().getSessionFactory().getCache();
+			var actions = SchedulerJob.class.getName() + ".schedulerActions";
+			var schedules = SchedulerJob.class.getName() + ".schedulerSchedules";
+			assertTrue(cache.containsEntity(SchedulerJob.class, schedulerJobId));
+			assertTrue(cache.containsEntity(SchedulerAction.class, schedulerActionId));
+			assertTrue(cache.containsCollection(actions, schedulerJobId));
+			assertTrue(cache.containsCollection(schedules, schedulerJobId));
+
+			// only the written entity and the collections holding it are dropped
+			db.evictCache(SchedulerSchedule.class);
+			assertTrue(cache.containsEntity(SchedulerJob.class, schedulerJobId));
+			assertTrue(cache.containsCollection(actions, schedulerJobId));
+			assertFalse(cache.containsCollection(schedules, schedulerJobId));
+
+			db.evictCache(SchedulerAction.class);
+			assertTrue(cache.containsEntity(SchedulerJob.class, schedulerJobId));
+			assertFalse(cache.containsEntity(SchedulerAction.class, schedulerActionId));
+			assertFalse(cache.containsCollection(actions, schedulerJobId));
+		}
+	}
+
+	@Test
+	public void revision() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			try (var session = db.openSession()) {
+				var schedulerJobId = save(session, new SchedulerJob());
+				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
+				var revision = SchedulerJob.revisionOf(session, schedulerJobId);
+				assertNotNull(revision.modified());
+				var revisionAll = SchedulerJob.revisionOfAll(session);
+
+				var schedulerSchedule = new SchedulerSchedule();
+				schedulerSchedule.setSchedulerJob(schedulerJob);
+				save(session, schedulerSchedule);
+				assertNotEquals(revision, revision = SchedulerJob.revisionOf(session, schedulerJobId));
+
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				save(session, schedulerAction);
+				assertNotEquals(revision, revision = SchedulerJob.revisionOf(session, schedulerJobId));
+
+				var schedulerActionParameter = new SchedulerActionParameter();
+				schedulerActionParameter.setName("p");
+				schedulerActionParameter.setSchedulerAction(schedulerAction);
+				save(session, schedulerActionParameter);
+				assertNotEquals(revision, revision = SchedulerJob.revisionOf(session, schedulerJobId));
+
+				schedulerActionParameter.setValue("v");
+				save(session, schedulerActionParameter);
+				assertNotEquals(revision, revision = SchedulerJob.revisionOf(session, schedulerJobId));
+
+				// nothing dirty, nothing bumped
+				save(session, schedulerActionParameter);
+				assertEquals(revision, SchedulerJob.revisionOf(session, schedulerJobId));
+
+				assertNotEquals(revisionAll, SchedulerJob.revisionOfAll(session));
+				assertNull(SchedulerJob.revisionOf(session, Integer.MAX_VALUE));
+
+				var configurationRevision = db.getConfigurationRevision();
+				ConfigurationItem.setValue(session, "revision.test", "1");
+				assertTrue(db.getConfigurationRevision() > configurationRevision);
+			}
+		}
+	}
+
+	@Test
+	public void file() throws Exception {
+		var directory = folder.getRoot().toPath().resolve("jezel").toString();
+		var settings = new SettingService() {
+			@Override
+			public String getDatabaseDir() {
+				return directory;
+			}
+		};
+
+		for (int i = 0; i < 2; i++) {
+			try (var db = new DatabaseServiceH2(settings)) {
+				try (var session = db.openSession()) {
+					var schedulerJob = new SchedulerJob();
+					schedulerJob.setName("job" + i);
+					save(session, schedulerJob);
+				}
+			}
+		}
+
+		try (var db = new DatabaseServiceH2(settings)) {
+			try (var session = db.openSession()) {
+				assertEquals(2, getAll(SchedulerJob.class, session).size());
+			}
+		}
+	}
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+
+public class EventServiceMemoryTest extends TestBase {
+
+	private static EventServiceMemory create() {
+		return create(1);
+	}
+
+	private static EventServiceMemory create(long firstId) {
+		return new EventServiceMemory(new SettingService() {
+			@Override
+			public int getEventReplaySize() {
+				return 4;
+			}
+
+			@Override
+			public int getEventSubscriberBuffer() {
+				return 2;
+			}
+
+			@Override
+			public int getEventMaxSubscribers() {
+				return 2;
+			}
+		}, firstId);
+	}
+
+	private static void publish(EventService events, int count) {
+		for (int i = 0; i < count; i++) {
+			events.publish(EventService.JOB_STARTED, createObjectBuilder().add("i", i).build());
+		}
+	}
+
+	@Test
+	public void resume() throws Exception {
+		var events = create();
+		publish(events, 3);
+		try (var subscription = events.subscribe(1L)) {
+			assertEquals(2L, subscription.poll(0, TimeUnit.SECONDS).id());
+			assertEquals(3L, subscription.poll(0, TimeUnit.SECONDS).id());
+			assertNull(subscription.poll(0, TimeUnit.SECONDS));
+			assertFalse(subscription.takeMissed());
+		}
+
+		publish(events, 3);
+		try (var subscription = events.subscribe(1L)) {
+			// event 2 is no longer kept
+			assertTrue(subscription.takeMissed());
+		}
+	}
+
+	@Test
+	public void restart() throws Exception {
+		var events = create();
+		publish(events, 3);
+
+		// resuming from an id of the process before is never trusted
+		var restarted = create(1000);
+		try (var subscription = restarted.subscribe(3L)) {
+			assertTrue(subscription.takeMissed());
+		}
+		publish(restarted, 3);
+		try (var subscription = restarted.subscribe(3L)) {
+			assertTrue(subscription.takeMissed());
+		}
+		try (var subscription = restarted.subscribe(5000L)) {
+			assertTrue(subscription.takeMissed());
+			assertNull(subscription.poll(0, TimeUnit.SECONDS));
+		}
+		try (var subscription = restarted.subscribe(1001L)) {
+			assertFalse(subscription.takeMissed());
+			assertEquals(1002L, subscription.poll(0, TimeUnit.SECONDS).id());
+		}
+	}
+
+	@Test
+	public void overflow() throws Exception {
+		var events = create();
+		try (var slow = events.subscribe(null); var other = events.subscribe(null)) {
+			assertNull(events.subscribe(null));
+			publish(events, 3);
+			assertTrue(slow.takeMissed());
+			assertFalse(slow.takeMissed());
+			assertEquals(1L, slow.poll(0, TimeUnit.SECONDS).id());
+			assertEquals(2L, slow.poll(0, TimeUnit.SECONDS).id());
+			assertNull(slow.poll(0, TimeUnit.SECONDS));
+		}
+		assertEquals(0, events.getMetrics().get("subscribers"));
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogFailure;
+
+public class FailureServiceSqlTest extends TestBase {
+
+	private static Exception fail(String message) {
+		try {
+			throw new IllegalStateException(message);
+		} catch (IllegalStateException e) {
+			return e;
+		}
+	}
+
+	@Test
+	public void fingerprint() {
+		// the message does not matter, the classes and frames do
+		assertEquals(FailureServiceSql.fingerprint(fail("a")), FailureServiceSql.fingerprint(fail("b")));
+		assertNotEquals(FailureServiceSql.fingerprint(fail("a")), FailureServiceSql.fingerprint(new IllegalStateException("a")));
+		assertNotEquals(FailureServiceSql.fingerprint(fail("a")), FailureServiceSql.fingerprint(new RuntimeException(fail("a"))));
+		assertEquals(64, FailureServiceSql.fingerprint(fail("a")).length());
+	}
+
+	@Test
+	public void record() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			var failures = new FailureServiceSql(db);
+			var first = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(2);
+			var id = failures.record(fail("first"), 1, first);
+			assertNotNull(id);
+			assertEquals(id, failures.record(fail("second"), 2, first.plusMinutes(1)));
+			assertEquals(id, failures.record(fail("third"), 3, first.plusMinutes(2)));
+			var other = failures.record(new IllegalArgumentException("other"), 3, first.plusMinutes(2));
+			assertNotEquals(id, other);
+
+			try (var session = db.openSession()) {
+				var commandLogFailure = getById(CommandLogFailure.class, session, id);
+				assertEquals(3, commandLogFailure.getOccurrenceCount());
+				assertEquals(first, commandLogFailure.getFirstSeen());
+				assertEquals(first.plusMinutes(2), commandLogFailure.getLastSeen());
+				assertEquals(3, commandLogFailure.getLastCommandLogJobId());
+				assertEquals(IllegalStateException.class.getName(), commandLogFailure.getExceptionClass());
+				// the trace of the first occurrence is kept
+				assertTrue(commandLogFailure.getStackTrace().startsWith("java.lang.IllegalStateException: first"));
+
+				var top = CommandLogFailure.getTop(session, first.minusDays(1), 10);
+				assertEquals(2, top.size());
+				assertEquals(id.intValue(), top.get(0).getCommandLogFailureId());
+			}
+
+			// a purged failure is created again
+			db.inTransaction(session -> session.createQuery("delete from CommandLogFailure").executeUpdate());
+			var again = failures.record(fail("again"), 4, first.plusMinutes(3));
+			assertNotEquals(id, again);
+			try (var session = db.openSession()) {
+				assertEquals(1, getById(CommandLogFailure.class, session, again).getOccurrenceCount());
+			}
+		}
+	}
+}
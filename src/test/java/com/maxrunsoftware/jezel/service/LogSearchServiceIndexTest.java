@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.LogSearchService.Hit;
+import com.maxrunsoftware.jezel.LogSearchService.Query;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+public class LogSearchServiceIndexTest extends TestBase {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SettingService settings() {
+		var dir = folder.getRoot().getAbsolutePath();
+		return new SettingService() {
+			@Override
+			public String getLogSearchDir() {
+				return dir;
+			}
+
+			@Override
+			public int getLogSearchFlushSize() {
+				return 10;
+			}
+		};
+	}
+
+	private static CommandLogMessage message(int commandLogMessageId, LogLevel level, String text) {
+		var commandLogMessage = new CommandLogMessage();
+		commandLogMessage.setCommandLogMessageId(commandLogMessageId);
+		commandLogMessage.setLevel(level.name());
+		commandLogMessage.setTimestamp(LocalDateTime.of(2021, 1, 1, 0, 0).plusMinutes(commandLogMessageId));
+		commandLogMessage.setMessage(text);
+		return commandLogMessage;
+	}
+
+	private static List<Integer> ids(List<Hit> hits) {
+		return hits.stream().map(Hit::commandLogMessageId).toList();
+	}
+
+	private static Query query(String text) {
+		return new Query(text, null, null, null, null, null, 1000);
+	}
+
+	@Test
+	public void temporaryDirectoryDeleted() throws Exception {
+		var temp = folder.getRoot().getAbsolutePath();
+		var settings = new SettingService() {
+			@Override
+			public String getDirTemp() {
+				return temp;
+			}
+
+			@Override
+			public int getLogSearchFlushSize() {
+				return 10;
+			}
+		};
+		try (var db = new DatabaseServiceH2(settings)) {
+			var index = new LogSearchServiceIndex(settings, db, new LogStoreServiceSegment(settings, db));
+			for (int i = 1; i <= 15; i++) {
+				index.add(1, i, message(i, LogLevel.INFO, "Row " + i));
+			}
+			assertEquals(List.of(3), ids(index.search(query("row 3"))));
+			assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+			index.close();
+			assertEquals(0, Files.list(folder.getRoot().toPath()).count());
+		}
+	}
+
+	@Test
+	public void search() throws Exception {
+		var settings = settings();
+		try (var db = new DatabaseServiceH2(settings)) {
+			var logStore = new LogStoreServiceSegment(settings, db);
+			try (var index = new LogSearchServiceIndex(settings, db, logStore)) {
+				index.start();
+				// enough for flushes and a merge, the last ones stay in memory
+				for (int i = 1; i <= 95; i++) {
+					var level = i % 10 == 0 ? LogLevel.ERROR : LogLevel.INFO;
+					index.add(i % 2 == 0 ? 1 : 2, i, message(i, level, "Row " + i + (i % 5 == 0 ? " java.lang.NullPointerException" : " copied")));
+				}
+
+				assertEquals(List.of(42), ids(index.search(query("row 42"))));
+				assertEquals(List.of(90, 80, 70, 60, 50, 40, 30, 20, 10), ids(index.search(new Query("nullpointerexception", null, LogLevel.WARN, null, null, null, 1000))));
+				assertEquals(19, index.search(query("NullPointer*")).size());
+				assertEquals(19, index.search(query("pointer exception")).size());
+				var errors = index.search(new Query("nullpointer*", 1, LogLevel.ERROR, null, null, null, 3));
+				assertEquals(List.of(90, 80, 70), ids(errors));
+				assertEquals(List.of(60, 50, 40), ids(index.search(new Query(null, 1, LogLevel.ERROR, null, null, errors.get(2).cursor(), 3))));
+				assertEquals(List.of(12, 11, 10), ids(index.search(new Query(null, null, null, LocalDateTime.of(2021, 1, 1, 0, 10), LocalDateTime.of(2021, 1, 1, 0, 12), null, 10))));
+				assertTrue(index.search(query("missing")).isEmpty());
+
+				// keyset paging over everything visits each message once
+				var seen = 0;
+				Integer before = null;
+				while (true) {
+					var page = index.search(new Query(null, null, null, null, null, before, 7));
+					seen += page.size();
+					if (page.size() < 7) break;
+					before = page.get(page.size() - 1).cursor();
+				}
+				assertEquals(95, seen);
+
+				index.delete(Set.of(1));
+				assertEquals(List.of(5), ids(index.search(query("row 5"))));
+				assertTrue(index.search(query("row 6")).isEmpty());
+				assertTrue((Long) index.getMetrics().get("flushCount") >= 9);
+			}
+
+			// persisted on close
+			try (var index = new LogSearchServiceIndex(settings, db, logStore)) {
+				assertEquals(List.of(95), ids(index.search(query("row 95"))));
+				assertTrue(index.search(query("row 94")).isEmpty());
+				assertEquals(List.of(3), ids(index.search(query("row 3"))));
+			}
+		}
+	}
+
+	private static int createRun(DatabaseService db, int messages) {
+		try (var session = db.openSession()) {
+			var schedulerJob = getById(SchedulerJob.class, session, save(session, new SchedulerJob()));
+			var schedulerAction = new SchedulerAction();
+			schedulerAction.setName("SqlQuery");
+			schedulerAction.setSchedulerJob(schedulerJob);
+			schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+
+			var commandLogJob = new CommandLogJob();
+			commandLogJob.setSchedulerJob(schedulerJob);
+			commandLogJob.setStart(LocalDateTime.now());
+			commandLogJob = getById(CommandLogJob.class, session, save(session, commandLogJob));
+
+			var commandLogAction = new CommandLogAction();
+			commandLogAction.setCommandLogJob(commandLogJob);
+			commandLogAction.setSchedulerAction(schedulerAction);
+			commandLogAction.setStart(LocalDateTime.now());
+			commandLogAction = getById(CommandLogAction.class, session, save(session, commandLogAction));
+			for (int i = 0; i < messages; i++) {
+				var commandLogMessage = message(0, LogLevel.INFO, "existing message " + i);
+				commandLogMessage.setCommandLogAction(commandLogAction);
+				commandLogMessage.setIndex(i);
+				save(session, commandLogMessage);
+			}
+			return commandLogJob.getCommandLogJobId();
+		}
+	}
+
+	@Test
+	public void catchUp() throws Exception {
+		var settings = settings();
+		try (var db = new DatabaseServiceH2(settings)) {
+			var commandLogJobId = createRun(db, 25);
+			var logStore = new LogStoreServiceSegment(settings, db);
+			try (var index = new LogSearchServiceIndex(settings, db, logStore)) {
+				index.start();
+				var deadline = System.currentTimeMillis() + 10000;
+				while (index.search(query("existing")).size() < 25 && System.currentTimeMillis() < deadline) {
+					Thread.sleep(20);
+				}
+				var hits = index.search(query("existing"));
+				assertEquals(25, hits.size());
+				assertEquals(commandLogJobId, hits.get(0).commandLogJobId());
+			}
+
+			// already indexed messages are not added again
+			try (var index = new LogSearchServiceIndex(settings, db, logStore)) {
+				index.start();
+				Thread.sleep(500);
+				assertEquals(25, index.search(query("existing")).size());
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+public class LogStoreServiceSegmentTest extends TestBase {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatabaseService db;
+
+	@Before
+	public void setUp() {
+		db = new DatabaseServiceH2(new SettingService() {});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	private SettingService settings() {
+		var dir = folder.getRoot().getAbsolutePath();
+		return new SettingService() {
+			@Override
+			public String getLogStore() {
+				return "segment";
+			}
+
+			@Override
+			public String getLogStoreDir() {
+				return dir;
+			}
+
+			@Override
+			public int getLogStoreSegmentSize() {
+				return 1;
+			}
+		};
+	}
+
+	private static CommandLogAction action(int commandLogActionId) {
+		var commandLogAction = new CommandLogAction();
+		commandLogAction.setCommandLogActionId(commandLogActionId);
+		return commandLogAction;
+	}
+
+	private static void append(LogStoreServiceSegment logStore, CommandLogAction commandLogAction, int index, String message) {
+		var commandLogMessage = new CommandLogMessage();
+		commandLogMessage.setCommandLogAction(commandLogAction);
+		commandLogMessage.setTimestamp(LocalDateTime.now());
+		commandLogMessage.setLevel("INFO");
+		commandLogMessage.setIndex(index);
+		commandLogMessage.setMessage(message);
+		logStore.append(commandLogAction.getCommandLogActionId(), commandLogMessage);
+	}
+
+	@Test
+	public void failureReference() throws Exception {
+		var commandLogAction = action(1);
+		try (var logStore = new LogStoreServiceSegment(settings(), db)) {
+			logStore.begin(commandLogAction);
+			append(logStore, commandLogAction, 0, "plain");
+			var commandLogMessage = new CommandLogMessage();
+			commandLogMessage.setCommandLogAction(commandLogAction);
+			commandLogMessage.setTimestamp(LocalDateTime.now());
+			commandLogMessage.setLevel("ERROR");
+			commandLogMessage.setIndex(1);
+			commandLogMessage.setMessage("failed");
+			commandLogMessage.setException("java.lang.IllegalStateException: failed");
+			commandLogMessage.setCommandLogFailureId(42);
+			logStore.append(commandLogAction.getCommandLogActionId(), commandLogMessage);
+			append(logStore, commandLogAction, 2, "after");
+			logStore.finish(commandLogAction);
+
+			var list = logStore.read(commandLogAction);
+			assertEquals(3, list.size());
+			assertNull(list.get(0).getCommandLogFailureId());
+			assertEquals(Integer.valueOf(42), list.get(1).getCommandLogFailureId());
+			assertEquals("java.lang.IllegalStateException: failed", list.get(1).getException());
+			assertNull(list.get(2).getCommandLogFailureId());
+		}
+	}
+
+	@Test
+	public void appendAndRead() throws Exception {
+		// random text compresses poorly, so 3000 messages of 1KB span more than one 1MB segment
+		var random = new Random(1);
+		var messages = new String[3000];
+		for (int i = 0; i < messages.length; i++) {
+			var sb = new StringBuilder();
+			for (int j = 0; j < 1024; j++) {
+				sb.append((char) ('a' + random.nextInt(26)));
+			}
+			messages[i] = sb.toString();
+		}
+
+		var finished = action(1);
+		var unfinished = action(2);
+		try (var logStore = new LogStoreServiceSegment(settings(), db)) {
+			assertTrue(logStore.isEnabled());
+			logStore.begin(finished);
+			logStore.begin(unfinished);
+			for (int i = 0; i < messages.length; i++) {
+				append(logStore, i % 2 == 0 ? finished : unfinished, i, messages[i]);
+			}
+			// readable while running
+			assertEquals(messages.length / 2, logStore.read(unfinished).size());
+			logStore.finish(finished);
+			assertEquals(messages.length / 2 * 8, finished.getLogIndex().length);
+		}
+		assertTrue(Files.list(folder.getRoot().toPath()).count() > 1);
+
+		try (var logStore = new LogStoreServiceSegment(settings(), db)) {
+			var list = logStore.read(finished);
+			assertEquals(messages.length / 2, list.size());
+			for (int i = 0; i < list.size(); i++) {
+				assertEquals(messages[i * 2], list.get(i).getMessage());
+				assertEquals(i * 2, list.get(i).getIndex());
+				assertEquals(i * 2 + 1, list.get(i).getCommandLogMessageId());
+			}
+
+			// the process stopped before the action finished so its messages are found by scanning
+			list = logStore.read(unfinished);
+			assertEquals(messages.length / 2, list.size());
+			assertEquals(messages[1], list.get(0).getMessage());
+
+			// ids continue after a restart
+			var next = action(3);
+			logStore.begin(next);
+			append(logStore, next, 0, "next");
+			assertEquals(messages.length + 1, logStore.read(next).get(0).getCommandLogMessageId());
+
+			logStore.deleteBefore(null);
+			assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+			assertEquals("next", logStore.read(next).get(0).getMessage());
+		}
+	}
+
+	@Test
+	public void finishedWithoutMessages() throws Exception {
+		var other = action(1);
+		var empty = action(2);
+		try (var logStore = new LogStoreServiceSegment(settings(), db)) {
+			logStore.begin(other);
+			logStore.begin(empty);
+			append(logStore, other, 0, "other");
+			logStore.finish(empty);
+			empty.setEnd(LocalDateTime.now());
+			assertEquals(0, empty.getLogIndex().length);
+
+			assertTrue(logStore.read(empty).isEmpty());
+			assertEquals(0L, logStore.getMetrics().get("scanCount"));
+		}
+	}
+
+	@Test
+	public void idsAfterDatabase() throws Exception {
+		int commandLogMessageId;
+		try (var session = db.openSession()) {
+			var schedulerJob = getById(SchedulerJob.class, session, save(session, new SchedulerJob()));
+			var schedulerAction = new SchedulerAction();
+			schedulerAction.setName("SqlQuery");
+			schedulerAction.setSchedulerJob(schedulerJob);
+			var commandLogJob = new CommandLogJob();
+			commandLogJob.setSchedulerJob(schedulerJob);
+			commandLogJob.setStart(LocalDateTime.now());
+			var commandLogAction = new CommandLogAction();
+			commandLogAction.setCommandLogJob(getById(CommandLogJob.class, session, save(session, commandLogJob)));
+			commandLogAction.setSchedulerAction(getById(SchedulerAction.class, session, save(session, schedulerAction)));
+			commandLogAction.setStart(commandLogJob.getStart());
+			commandLogAction = getById(CommandLogAction.class, session, save(session, commandLogAction));
+			var commandLogMessage = new CommandLogMessage();
+			commandLogMessage.setCommandLogAction(commandLogAction);
+			commandLogMessage.setTimestamp(commandLogJob.getStart());
+			commandLogMessage.setLevel("INFO");
+			commandLogMessage.setIndex(0);
+			commandLogMessage.setMessage("stored");
+			commandLogMessageId = save(session, commandLogMessage);
+		}
+
+		var commandLogAction = action(1);
+		try (var logStore = new LogStoreServiceSegment(settings(), db)) {
+			logStore.begin(commandLogAction);
+			append(logStore, commandLogAction, 0, "appended");
+			assertEquals(commandLogMessageId + 1, logStore.read(commandLogAction).get(0).getCommandLogMessageId());
+		}
+	}
+
+	@Test
+	public void temporaryDirectoryDeleted() throws Exception {
+		var temp = folder.getRoot().getAbsolutePath();
+		var commandLogAction = action(1);
+		var logStore = new LogStoreServiceSegment(new SettingService() {
+			@Override
+			public String getLogStore() {
+				return "segment";
+			}
+
+			@Override
+			public String getDirTemp() {
+				return temp;
+			}
+		}, db);
+		logStore.begin(commandLogAction);
+		append(logStore, commandLogAction, 0, "message");
+		assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+		logStore.close();
+		assertEquals(0, Files.list(folder.getRoot().toPath()).count());
+	}
+
+	@Test
+	public void disabled() {
+		assertFalse(new LogStoreServiceSegment(new SettingService() {}, db).isEnabled());
+		assertTrue(new LogStoreServiceSegment(new SettingService() {}, db).read(action(1)).isEmpty());
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+
+public class LogTailServiceMemoryTest extends TestBase {
+
+	private static LogTailServiceMemory create() {
+		return new LogTailServiceMemory(new SettingService() {
+			@Override
+			public int getLogTailBufferSize() {
+				return 3;
+			}
+		});
+	}
+
+	@Test
+	public void tail() throws Exception {
+		var logTail = create();
+		assertNull(logTail.tail(1, 0, 0));
+
+		logTail.started(1);
+		for (int i = 1; i <= 5; i++) {
+			logTail.append(1, i * 10, createObjectBuilder().add("i", i).build());
+		}
+		// 10 and 20 were evicted
+		assertNull(logTail.tail(1, 10, 0));
+		var tail = logTail.tail(1, 30, 0);
+		assertEquals(2, tail.commandLogMessages().size());
+		assertFalse(tail.finished());
+		assertEquals(0, logTail.tail(1, 50, 0).commandLogMessages().size());
+	}
+
+	@Test
+	public void longPoll() throws Exception {
+		var logTail = create();
+		logTail.started(1);
+		var thread = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {}
+			logTail.append(1, 7, createObjectBuilder().add("i", 7).build());
+			logTail.finished(1);
+		});
+		thread.start();
+		var start = System.currentTimeMillis();
+		var tail = logTail.tail(1, 0, 10000);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(1, tail.commandLogMessages().size());
+
+		tail = logTail.tail(1, 7, 10000);
+		assertTrue(tail.finished());
+		assertEquals(0, tail.commandLogMessages().size());
+		thread.join();
+	}
+}
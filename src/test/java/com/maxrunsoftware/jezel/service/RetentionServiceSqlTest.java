@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+public class RetentionServiceSqlTest extends TestBase {
+
+	private static void createLog(DatabaseService db, int schedulerJobId, int schedulerActionId, LocalDateTime end) {
+		try (var session = db.openSession()) {
+			var commandLogJob = new CommandLogJob();
+			commandLogJob.setSchedulerJob(getById(SchedulerJob.class, session, schedulerJobId));
+			commandLogJob.setStart(end == null ? LocalDateTime.now() : end.minusMinutes(1));
+			commandLogJob.setEnd(end);
+			commandLogJob = getById(CommandLogJob.class, session, save(session, commandLogJob));
+
+			var commandLogAction = new CommandLogAction();
+			commandLogAction.setCommandLogJob(commandLogJob);
+			commandLogAction.setSchedulerAction(getById(SchedulerAction.class, session, schedulerActionId));
+			commandLogAction.setStart(commandLogJob.getStart());
+			commandLogAction = getById(CommandLogAction.class, session, save(session, commandLogAction));
+
+			for (int i = 0; i < 2; i++) {
+				var commandLogMessage = new CommandLogMessage();
+				commandLogMessage.setCommandLogAction(commandLogAction);
+				commandLogMessage.setTimestamp(commandLogJob.getStart());
+				commandLogMessage.setLevel("INFO");
+				commandLogMessage.setIndex(i);
+				commandLogMessage.setMessage("message" + i);
+				save(session, commandLogMessage);
+			}
+		}
+	}
+
+	private static long count(DatabaseService db, Class<?> clazz) {
+		try (var session = db.openSession()) {
+			return getAll(clazz, session).size();
+		}
+	}
+
+	@Test
+	public void purge() throws Exception {
+		var settings = new SettingService() {
+			@Override
+			public int getRetentionMaxAgeDays() {
+				return 7;
+			}
+
+			@Override
+			public int getRetentionMaxPerJob() {
+				return 3;
+			}
+
+			@Override
+			public int getRetentionChunkSize() {
+				return 2;
+			}
+
+			@Override
+			public int getRetentionChunkPause() {
+				return 0;
+			}
+		};
+		try (var db = new DatabaseServiceH2(settings)) {
+			int schedulerJobId;
+			int schedulerActionId;
+			try (var session = db.openSession()) {
+				schedulerJobId = save(session, new SchedulerJob());
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(getById(SchedulerJob.class, session, schedulerJobId));
+				schedulerActionId = save(session, schedulerAction);
+			}
+
+			// 2 too old, 5 recent of which 2 over the count limit, 1 still running
+			var now = LocalDateTime.now();
+			createLog(db, schedulerJobId, schedulerActionId, now.minusDays(30));
+			createLog(db, schedulerJobId, schedulerActionId, now.minusDays(20));
+			for (int i = 5; i > 0; i--) {
+				createLog(db, schedulerJobId, schedulerActionId, now.minusHours(i));
+			}
+			createLog(db, schedulerJobId, schedulerActionId, null);
+
+			var logStore = new LogStoreServiceSegment(settings, db);
+			try (var logSearch = new LogSearchServiceIndex(settings, db, logStore)) {
+				// no limits by default so nothing is purged
+				var unlimited = new SettingService() {};
+				assertEquals(0, new RetentionServiceSql(unlimited, db, logStore, logSearch).purge());
+				assertEquals(8L, count(db, CommandLogJob.class));
+
+				var retention = new RetentionServiceSql(settings, db, logStore, logSearch);
+				assertEquals(4, retention.purge());
+				assertEquals(4L, count(db, CommandLogJob.class));
+				assertEquals(4L, count(db, CommandLogAction.class));
+				assertEquals(8L, count(db, CommandLogMessage.class));
+
+				var metrics = retention.getMetrics();
+				assertEquals(4L, metrics.get("jobsPurged"));
+				assertEquals(8L, metrics.get("messagesPurged"));
+
+				assertEquals(0, retention.purge());
+
+				// everything left fits in the size limit
+				var bySize = new RetentionServiceSql(new SettingService() {
+					@Override
+					public int getRetentionMaxSizeMB() {
+						return 1;
+					}
+				}, db, logStore, logSearch);
+				assertEquals(0, bySize.purge());
+			}
+		}
+	}
+}
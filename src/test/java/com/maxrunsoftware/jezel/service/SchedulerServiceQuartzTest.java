@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.model.SchedulerSchedule;
+
+public class SchedulerServiceQuartzTest extends TestBase {
+
+	// requests the syncs and waits for the worker to apply them
+	private static void sync(SchedulerServiceQuartz scheduler, int schedulerJobId, int times) throws InterruptedException {
+		var latch = new CountDownLatch(1);
+		scheduler.setSyncListener(latch::countDown);
+		for (int i = 0; i < times; i++) {
+			scheduler.sync(schedulerJobId);
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+	}
+
+	private static long countSyncThreads() throws InterruptedException {
+		long count = 0;
+		for (var thread : Thread.getAllStackTraces().keySet()) {
+			if (!thread.getName().equals("SchedulerSync")) continue;
+			// a terminated pool's thread may still be unwinding
+			thread.join(1000);
+			if (thread.isAlive()) count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void sync() throws Exception {
+		var settings = new SettingService() {
+			@Override
+			public int getSchedulerSyncDelay() {
+				return 100;
+			}
+		};
+		try (var db = new DatabaseServiceH2(settings)) {
+			var syncThreads = countSyncThreads();
+			var scheduler = new SchedulerServiceQuartz(settings, db, new EventServiceMemory(settings));
+			scheduler.start(false);
+			try {
+				int schedulerJobId;
+				int schedulerScheduleId;
+				try (var session = db.openSession()) {
+					schedulerJobId = save(session, new SchedulerJob());
+					var schedulerSchedule = new SchedulerSchedule();
+					schedulerSchedule.setDays(true, true, true, true, true, true, true);
+					schedulerSchedule.setSchedulerJob(getById(SchedulerJob.class, session, schedulerJobId));
+					schedulerScheduleId = save(session, schedulerSchedule);
+				}
+
+				sync(scheduler, schedulerJobId, 5);
+				var metrics = scheduler.getMetrics();
+				assertEquals(5L, metrics.get("syncRequestCount"));
+				assertEquals(4L, metrics.get("syncCoalescedCount"));
+				assertEquals(1L, metrics.get("syncCount"));
+				assertEquals(1L, metrics.get("syncTriggersChangedCount"));
+
+				// nothing changed so the trigger is left alone
+				sync(scheduler, schedulerJobId, 1);
+				assertEquals(1L, scheduler.getMetrics().get("syncTriggersUnchangedCount"));
+
+				try (var session = db.openSession()) {
+					var schedulerSchedule = getById(SchedulerSchedule.class, session, schedulerScheduleId);
+					schedulerSchedule.setHour(5);
+					save(session, schedulerSchedule);
+				}
+				sync(scheduler, schedulerJobId, 1);
+				assertEquals(2L, scheduler.getMetrics().get("syncTriggersChangedCount"));
+			} finally {
+				scheduler.stop();
+			}
+
+			// the worker is gone and requests wait for the next start
+			assertEquals(syncThreads, countSyncThreads());
+			scheduler.sync(1);
+			assertEquals(1, scheduler.getMetrics().get("syncPending"));
+		}
+	}
+
+}
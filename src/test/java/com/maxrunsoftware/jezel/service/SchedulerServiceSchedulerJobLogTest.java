@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.LogLevel;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+public class SchedulerServiceSchedulerJobLogTest extends TestBase {
+
+	@Test
+	public void minimumLevel() throws Exception {
+		var settings = new SettingService() {};
+		try (var db = new DatabaseServiceH2(settings)) {
+			int commandLogJobId;
+			int commandLogActionId;
+			try (var session = db.openSession()) {
+				var schedulerJob = getById(SchedulerJob.class, session, save(session, new SchedulerJob()));
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+
+				var commandLogJob = new CommandLogJob();
+				commandLogJob.setSchedulerJob(schedulerJob);
+				commandLogJob.setStart(LocalDateTime.now());
+				commandLogJobId = save(session, commandLogJob);
+
+				var commandLogAction = new CommandLogAction();
+				commandLogAction.setCommandLogJob(getById(CommandLogJob.class, session, commandLogJobId));
+				commandLogAction.setSchedulerAction(schedulerAction);
+				commandLogAction.setStart(LocalDateTime.now());
+				commandLogActionId = save(session, commandLogAction);
+			}
+
+			var logStore = new LogStoreServiceSegment(settings, db);
+			try (var logSearch = new LogSearchServiceIndex(settings, db, logStore)) {
+				var log = new SchedulerServiceSchedulerJobLog(db, new EventServiceMemory(settings), new LogTailServiceMemory(settings), logStore, logSearch, new FailureServiceSql(db), commandLogJobId, commandLogActionId, LogLevel.WARN);
+				assertFalse(log.isEnabled(LogLevel.INFO));
+				assertTrue(log.isEnabled(LogLevel.WARN));
+
+				log.trace("trace");
+				log.debug("debug");
+				log.info("info");
+				log.warn("warn");
+				log.error("error");
+				assertEquals(3, log.getSuppressedCount());
+			}
+
+			try (var session = db.openSession()) {
+				var levels = getAll(CommandLogMessage.class, session).stream().map(CommandLogMessage::getLevel).sorted().toList();
+				assertEquals(List.of("ERROR", "WARN"), levels);
+			}
+		}
+	}
+
+	@Test
+	public void parse() {
+		assertEquals(LogLevel.DEBUG, LogLevel.parse(" debug "));
+		assertNull(LogLevel.parse("verbose"));
+		assertNull(LogLevel.parse(""));
+		assertTrue(LogLevel.ERROR.isAtLeast(LogLevel.WARN));
+		assertFalse(LogLevel.TRACE.isAtLeast(LogLevel.DEBUG));
+	}
+}
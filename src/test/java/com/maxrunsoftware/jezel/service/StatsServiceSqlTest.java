@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.service;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.RunStat;
+import com.maxrunsoftware.jezel.model.RunStatBackfill;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+
+public class StatsServiceSqlTest extends TestBase {
+
+	@Test
+	public void record() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			var stats = new StatsServiceSql(new SettingService() {}, db);
+			var hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+			for (int i = 1; i <= 10; i++) {
+				stats.record(1, 0, hour, hour.plusSeconds(i), i == 10);
+				stats.record(1, 5, hour, hour.plusSeconds(i), false);
+			}
+			stats.record(1, 0, hour.minusDays(1), hour.minusDays(1).plusSeconds(100), true);
+			stats.record(2, 0, hour, hour.plusSeconds(1), false);
+			// older than the daily buckets are kept
+			stats.record(1, 0, hour.minusYears(5), hour.minusYears(5).plusSeconds(1), false);
+
+			var hours = stats.getBuckets(1, 0, RunStat.RESOLUTION_HOUR, hour, hour.plusHours(1));
+			assertEquals(1, hours.size());
+			assertEquals(10, hours.get(0).getRunCount());
+			assertEquals(1, hours.get(0).getFailureCount());
+			assertEquals(1000, hours.get(0).getDurationMin());
+			assertEquals(10000, hours.get(0).getDurationMax());
+			assertEquals(5500, hours.get(0).getDurationMean());
+			assertEquals(5000, hours.get(0).getDurationPercentile(0.5), 50);
+			assertEquals(2, stats.getBuckets(1, 0, RunStat.RESOLUTION_DAY, hour.minusYears(10), hour.plusDays(1)).size());
+
+			var totals = stats.getTotals(null, hour.minusDays(7), hour.plusDays(1));
+			assertEquals(2, totals.size());
+			assertEquals(1, totals.get(0).getSchedulerJobId());
+			assertEquals(RunStat.RESOLUTION_TOTAL, totals.get(0).getResolution());
+			assertEquals(11, totals.get(0).getRunCount());
+			assertEquals(2, totals.get(0).getFailureCount());
+			assertEquals(100_000, totals.get(0).getDurationMax());
+
+			// per action when the job is given
+			totals = stats.getTotals(1, hour.minusDays(7), hour.plusDays(1));
+			assertEquals(2, totals.size());
+			assertEquals(5, totals.get(1).getSchedulerActionId());
+			assertEquals(10, totals.get(1).getRunCount());
+
+			var copy = new RunStat();
+			copy.fromJson(totals.get(1).toJson());
+			assertEquals(totals.get(1).getDurationPercentile(0.9), copy.getDurationPercentile(0.9));
+
+			try (var session = db.openSession()) {
+				stats.delete(session, 1);
+			}
+			assertEquals(1, stats.getTotals(null, hour.minusDays(7), hour.plusDays(1)).size());
+			assertEquals(23L, stats.getMetrics().get("recordCount"));
+		}
+	}
+
+	private static List<Integer> createRuns(DatabaseService db, LocalDateTime end) {
+		var commandLogJobIds = new ArrayList<Integer>();
+		try (var session = db.openSession()) {
+			var schedulerJob = getById(SchedulerJob.class, session, save(session, new SchedulerJob()));
+			var schedulerAction = new SchedulerAction();
+			schedulerAction.setName("SqlQuery");
+			schedulerAction.setSchedulerJob(schedulerJob);
+			schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+			for (int i = 0; i < 3; i++) {
+				var commandLogJob = new CommandLogJob();
+				commandLogJob.setSchedulerJob(schedulerJob);
+				commandLogJob.setStart(end.minusMinutes(1));
+				commandLogJob.setEnd(end);
+				commandLogJob.setError(i == 0);
+				commandLogJob = getById(CommandLogJob.class, session, save(session, commandLogJob));
+				commandLogJobIds.add(commandLogJob.getCommandLogJobId());
+
+				var commandLogAction = new CommandLogAction();
+				commandLogAction.setCommandLogJob(commandLogJob);
+				commandLogAction.setSchedulerAction(schedulerAction);
+				commandLogAction.setStart(end.minusMinutes(1));
+				commandLogAction.setEnd(end);
+				save(session, commandLogAction);
+			}
+		}
+		return commandLogJobIds;
+	}
+
+	private static void awaitBackfill(StatsServiceSql stats) throws InterruptedException {
+		for (int i = 0; i < 100 && (Long) stats.getMetrics().get("backfillCount") == 0; i++) {
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	public void backfill() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			var end = LocalDateTime.now().minusHours(1);
+			createRuns(db, end);
+
+			var stats = new StatsServiceSql(new SettingService() {}, db);
+			stats.start();
+			awaitBackfill(stats);
+			var totals = stats.getTotals(1, end.minusDays(1), end.plusDays(1));
+			assertEquals(2, totals.size());
+			for (var runStat : totals) {
+				assertEquals(3, runStat.getRunCount());
+				assertEquals(1, runStat.getFailureCount());
+				assertEquals(60_000, runStat.getDurationMean());
+			}
+
+			// nothing left after a restart
+			new StatsServiceSql(new SettingService() {}, db).start();
+			assertEquals(3, stats.getTotals(1, end.minusDays(1), end.plusDays(1)).get(0).getRunCount());
+		}
+	}
+
+	@Test
+	public void backfillResumes() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			var end = LocalDateTime.now().minusHours(1);
+			var commandLogJobIds = createRuns(db, end);
+
+			// stopped after the first run, which failed, was backfilled and a run was recorded since
+			var stats = new StatsServiceSql(new SettingService() {}, db);
+			try (var session = db.openSession()) {
+				var runStatBackfill = new RunStatBackfill();
+				runStatBackfill.setEndedBefore(LocalDateTime.now());
+				runStatBackfill.setCommandLogJobIdDone(commandLogJobIds.get(0));
+				save(session, runStatBackfill);
+			}
+			stats.record(1, 0, end.minusMinutes(1), end, true);
+
+			stats.start();
+			awaitBackfill(stats);
+			assertEquals(2L, stats.getMetrics().get("backfillCount"));
+			var totals = stats.getTotals(1, end.minusDays(1), end.plusDays(1));
+			assertEquals(3, totals.get(0).getRunCount());
+			assertEquals(1, totals.get(0).getFailureCount());
+			assertEquals(2, totals.get(1).getRunCount());
+		}
+	}
+}
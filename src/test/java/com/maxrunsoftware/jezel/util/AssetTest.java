@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.Constant;
+import com.maxrunsoftware.jezel.TestBase;
+
+public class AssetTest extends TestBase {
+
+	@Test
+	public void load() throws Exception {
+		var asset = Asset.load("/web/jezel.css", Constant.CONTENTTYPE_CSS);
+		assertTrue(asset.getName().matches("jezel\\.[0-9a-f]{16}\\.css"));
+		assertEquals(Constant.WEB_ASSETS + "/" + asset.getName(), asset.getPath());
+		assertNotEquals(asset.getETag(), asset.getETagGzip());
+
+		assertNotNull(asset.getContentGzip());
+		assertTrue(asset.getContentGzip().length < asset.getContent().length);
+		try (var gzip = new GZIPInputStream(new ByteArrayInputStream(asset.getContentGzip()))) {
+			assertArrayEquals(asset.getContent(), gzip.readAllBytes());
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.TestBase;
+
+public class CompressedTextTest extends TestBase {
+
+	@After
+	public void reset() {
+		CompressedText.setThreshold(1024);
+		CompressedText.setMaxLength(0);
+	}
+
+	@Test
+	public void compress() {
+		var text = "at com.maxrunsoftware.jezel.action.SqlQuery.execute(SqlQuery.java:32)\n".repeat(100);
+		var compressed = CompressedText.of(text);
+		assertTrue(compressed.isCompressed());
+		assertTrue(compressed.getData().length < text.length() / 10);
+		assertEquals(text, CompressedText.fromData(compressed.getData()).getText());
+
+		var small = CompressedText.of("short");
+		assertFalse(small.isCompressed());
+		assertEquals("short", CompressedText.fromData(small.getData()).getText());
+		assertEquals(small, CompressedText.fromData(small.getData()));
+	}
+
+	@Test
+	public void legacy() {
+		// rows migrated from the text column have no marker byte
+		assertEquals("legacy", CompressedText.fromData("legacy".getBytes(StandardCharsets.UTF_8)).getText());
+	}
+
+	@Test
+	public void truncate() {
+		CompressedText.setMaxLength(10);
+		var text = CompressedText.of("x".repeat(25)).getText();
+		assertTrue(text.startsWith("x".repeat(10) + "\n"));
+		assertTrue(text.endsWith("truncated 15 characters"));
+	}
+}
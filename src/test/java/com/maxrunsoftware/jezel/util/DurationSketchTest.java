@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.TestBase;
+
+public class DurationSketchTest extends TestBase {
+
+	private static void assertClose(long expected, long actual) {
+		assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= Math.ceil(expected * DurationSketch.ACCURACY));
+	}
+
+	@Test
+	public void quantiles() {
+		var sketch = new DurationSketch();
+		for (long i = 1; i <= 100_000; i++) {
+			sketch.add(i);
+		}
+		assertEquals(100_000, sketch.getCount());
+		assertClose(50_000, sketch.getQuantile(0.5));
+		assertClose(90_000, sketch.getQuantile(0.9));
+		assertClose(99_000, sketch.getQuantile(0.99));
+		assertClose(1, sketch.getQuantile(0));
+	}
+
+	@Test
+	public void mergeAndBytes() {
+		var low = new DurationSketch();
+		var high = new DurationSketch();
+		var all = new DurationSketch();
+		for (long i = 0; i < 1000; i++) {
+			low.add(i);
+			high.add(i * 1000);
+			all.add(i);
+			all.add(i * 1000);
+		}
+		low.merge(high);
+		assertEquals(all.getCount(), low.getCount());
+		assertEquals(all.getQuantile(0.75), low.getQuantile(0.75));
+
+		var copy = DurationSketch.fromBytes(low.toBytes());
+		assertEquals(low.getCount(), copy.getCount());
+		for (var q : new double[] { 0, 0.25, 0.5, 0.9, 1 }) {
+			assertEquals(low.getQuantile(q), copy.getQuantile(q));
+		}
+		assertEquals(0, DurationSketch.fromBytes(new DurationSketch().toBytes()).getCount());
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.TestBase;
+
+public class TemplateTest extends TestBase {
+
+	@Test
+	public void test() {
+		var template = Template.compile("<a>${one}</a>${two}${one}${unclosed");
+		assertEquals(Set.of("one", "two"), template.getNames());
+		assertEquals("<a>1</a>21${unclosed", template.render(Map.of("one", "1", "two", "2")));
+		assertEquals("<a></a>2${unclosed", template.render(Map.of("two", "2")));
+
+		var bound = template.bind(Map.of("two", "${one}"));
+		assertEquals(Set.of("one"), bound.getNames());
+		assertEquals("<a>x</a>${one}x${unclosed", bound.render(Map.of("one", "x")));
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.BearerService;
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.EventService;
+import com.maxrunsoftware.jezel.FailureService;
+import com.maxrunsoftware.jezel.LogSearchService;
+import com.maxrunsoftware.jezel.LogStoreService;
+import com.maxrunsoftware.jezel.LogTailService;
+import com.maxrunsoftware.jezel.RetentionService;
+import com.maxrunsoftware.jezel.SchedulerService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.StatsService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class BatchServletTest extends TestBase {
+
+	private static <T> T proxy(Class<T> clazz) {
+		return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, (proxy, method, args) -> null));
+	}
+
+	private static BatchServlet createServlet(DatabaseService db, List<Integer> synced) throws Exception {
+		var settings = new SettingService() {
+			@Override
+			public boolean getRestIgnoreCredentials() {
+				return true;
+			}
+		};
+		var scheduler = (SchedulerService) Proxy.newProxyInstance(SchedulerService.class.getClassLoader(), new Class<?>[] { SchedulerService.class }, (proxy, method, args) -> {
+			if (method.getName().equals("sync")) synced.add((Integer) args[0]);
+			return null;
+		});
+
+		var attributes = new HashMap<String, Object>();
+		attributes.put(SettingService.class.getName(), settings);
+		attributes.put(DatabaseService.class.getName(), db);
+		attributes.put(SchedulerService.class.getName(), scheduler);
+		for (var clazz : List.of(BearerService.class, EventService.class, LogTailService.class, RetentionService.class, LogStoreService.class, LogSearchService.class,
+				StatsService.class, FailureService.class)) {
+			attributes.put(clazz.getName(), proxy(clazz));
+		}
+		var context = (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(), new Class<?>[] { ServletContext.class }, (proxy, method, args) -> switch (method.getName()) {
+			case "getAttributeNames" -> Collections.enumeration(attributes.keySet());
+			case "getAttribute" -> attributes.get(args[0]);
+			default -> null;
+		});
+		var config = (ServletConfig) Proxy.newProxyInstance(ServletConfig.class.getClassLoader(), new Class<?>[] { ServletConfig.class }, (proxy, method, args) -> switch (method.getName()) {
+			case "getServletContext" -> context;
+			case "getServletName" -> "batch";
+			default -> null;
+		});
+
+		var servlet = new BatchServlet();
+		servlet.init(config);
+		return servlet;
+	}
+
+	private static record Result(int status, JsonObject json) {}
+
+	private static Result batch(BatchServlet servlet, String body) throws Exception {
+		var in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+		var stream = new ServletInputStream() {
+			@Override
+			public int read() {
+				return in.read();
+			}
+
+			@Override
+			public boolean isFinished() {
+				return in.available() == 0;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setReadListener(ReadListener readListener) {}
+		};
+		var request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> switch (method.getName()) {
+			case "getInputStream" -> stream;
+			case "getRequestURL" -> new StringBuffer("http://localhost/batch");
+			default -> null;
+		});
+		var status = new int[] { 200 };
+		var writer = new StringWriter();
+		var printWriter = new PrintWriter(writer);
+		var response = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+			if (method.getName().equals("setStatus")) status[0] = (Integer) args[0];
+			return method.getName().equals("getWriter") ? printWriter : null;
+		});
+
+		servlet.doPostAuthorized(request, response);
+		printWriter.flush();
+		return new Result(status[0], fromJsonString(writer.toString()));
+	}
+
+	@Test
+	public void batch() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			int schedulerJobId, schedulerActionId;
+			try (var session = db.openSession()) {
+				var schedulerJob = new SchedulerJob();
+				schedulerJob.setName("before");
+				schedulerJob = getById(SchedulerJob.class, session, save(session, schedulerJob));
+				schedulerJobId = schedulerJob.getSchedulerJobId();
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+				schedulerActionId = schedulerAction.getSchedulerActionId();
+
+				// a run referencing the action keeps it from being deleted
+				var commandLogJob = new CommandLogJob();
+				commandLogJob.setSchedulerJob(schedulerJob);
+				commandLogJob.setStart(LocalDateTime.now());
+				commandLogJob = getById(CommandLogJob.class, session, save(session, commandLogJob));
+				var commandLogAction = new CommandLogAction();
+				commandLogAction.setCommandLogJob(commandLogJob);
+				commandLogAction.setSchedulerAction(schedulerAction);
+				commandLogAction.setName("SqlQuery");
+				commandLogAction.setIndex(0);
+				commandLogAction.setStart(commandLogJob.getStart());
+				save(session, commandLogAction);
+			}
+
+			var synced = new ArrayList<Integer>();
+			var servlet = createServlet(db, synced);
+
+			var result = batch(servlet, """
+					{"operations": [
+						{"method": "POST", "path": "/job", "parameters": {"schedulerJobId": %d, "name": "after"}},
+						{"method": "POST", "path": "/job", "parameters": {"schedulerJobId": %d, "group": "batch"}},
+						{"method": "PUT", "path": "/job/action", "parameters": {"schedulerJobId": %d, "name": "SqlQuery"}}
+					]}
+					""".formatted(schedulerJobId, schedulerJobId, schedulerJobId));
+			assertEquals(200, result.status());
+			assertEquals(ServletBase.RESPONSE_STATUS_SUCCESS, result.json().getString(ServletBase.RESPONSE_STATUS));
+			assertEquals(3, result.json().getJsonArray(BatchServlet.OPERATIONS).size());
+			// two updates of the same job, one sync
+			assertEquals(List.of(schedulerJobId), synced);
+			try (var session = db.openSession()) {
+				var schedulerJob = getById(SchedulerJob.class, session, schedulerJobId);
+				assertEquals("after", schedulerJob.getName());
+				assertEquals("batch", schedulerJob.getGroup());
+				assertEquals(2L, (long) session.createQuery("select count(*) from SchedulerAction a where a.schedulerJob.schedulerJobId = :id", Long.class).setParameter("id", schedulerJobId).uniqueResult());
+			}
+
+			synced.clear();
+			result = batch(servlet, """
+					{"operations": [
+						{"method": "POST", "path": "/job", "parameters": {"schedulerJobId": %d, "name": "rolledback"}},
+						{"method": "DELETE", "path": "/job/action", "parameters": {"schedulerActionId": %d}}
+					]}
+					""".formatted(schedulerJobId, schedulerActionId));
+			assertEquals(409, result.status());
+			assertEquals(ServletBase.RESPONSE_STATUS_FAILED, result.json().getString(ServletBase.RESPONSE_STATUS));
+			var operations = result.json().getJsonArray(BatchServlet.OPERATIONS);
+			assertEquals(2, operations.size());
+			assertEquals(200, operations.getJsonObject(0).getInt(ServletBase.RESPONSE_STATUS));
+			assertEquals(409, operations.getJsonObject(1).getInt(ServletBase.RESPONSE_STATUS));
+			assertTrue(synced.isEmpty());
+			try (var session = db.openSession()) {
+				assertEquals("after", getById(SchedulerJob.class, session, schedulerJobId).getName());
+				assertNotNull(getById(SchedulerAction.class, session, schedulerActionId));
+			}
+
+			servlet.destroy();
+		}
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.view;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.json.JsonObject;
+
+import org.hibernate.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+import com.maxrunsoftware.jezel.service.LogStoreServiceSegment;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class CommandLogExportServletTest extends TestBase {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static CommandLogJob createJob(Session session, SchedulerJob schedulerJob, LocalDateTime end) {
+		var commandLogJob = new CommandLogJob();
+		commandLogJob.setSchedulerJob(schedulerJob);
+		commandLogJob.setStart(LocalDateTime.now().minusHours(1));
+		commandLogJob.setEnd(end);
+		return getById(CommandLogJob.class, session, save(session, commandLogJob));
+	}
+
+	private static CommandLogAction createAction(Session session, CommandLogJob commandLogJob, SchedulerAction schedulerAction, int index) {
+		var commandLogAction = new CommandLogAction();
+		commandLogAction.setCommandLogJob(commandLogJob);
+		commandLogAction.setSchedulerAction(schedulerAction);
+		commandLogAction.setName("SqlQuery");
+		commandLogAction.setIndex(index);
+		commandLogAction.setStart(commandLogJob.getStart());
+		commandLogAction.setEnd(commandLogJob.getEnd());
+		return getById(CommandLogAction.class, session, save(session, commandLogAction));
+	}
+
+	private static CommandLogMessage message(CommandLogAction commandLogAction, int index, String message) {
+		var commandLogMessage = new CommandLogMessage();
+		commandLogMessage.setCommandLogAction(commandLogAction);
+		commandLogMessage.setTimestamp(LocalDateTime.now());
+		commandLogMessage.setLevel("INFO");
+		commandLogMessage.setIndex(index);
+		commandLogMessage.setMessage(message);
+		return commandLogMessage;
+	}
+
+	private static List<JsonObject> export(CommandLogExportServlet servlet, Map<String, String> parameters) throws Exception {
+		var request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> switch (method.getName()) {
+			case "getParameterNames" -> Collections.enumeration(parameters.keySet());
+			case "getParameter" -> parameters.get(args[0]);
+			default -> null;
+		});
+		var bytes = new ByteArrayOutputStream();
+		var out = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				bytes.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {}
+		};
+		var response = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				(proxy, method, args) -> method.getName().equals("getOutputStream") ? out : null);
+
+		servlet.doGetAuthorized(request, response);
+
+		var lines = new ArrayList<JsonObject>();
+		try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.UTF_8))) {
+			for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(fromJsonString(line));
+			}
+		}
+		return lines;
+	}
+
+	private static List<String> types(List<JsonObject> lines) {
+		return lines.stream().map(o -> o.getString("type")).toList();
+	}
+
+	@Test
+	public void export() throws Exception {
+		var dir = folder.getRoot().getAbsolutePath();
+		var settings = new SettingService() {
+			@Override
+			public String getLogStore() {
+				return "segment";
+			}
+
+			@Override
+			public String getLogStoreDir() {
+				return dir;
+			}
+		};
+		try (var db = new DatabaseServiceH2(settings); var logStore = new LogStoreServiceSegment(settings, db)) {
+			var end = LocalDateTime.now();
+			int first, second, stored;
+			try (var session = db.openSession()) {
+				var schedulerJob = new SchedulerJob();
+				schedulerJob.setName("export");
+				schedulerJob = getById(SchedulerJob.class, session, save(session, schedulerJob));
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+
+				var commandLogJob = createJob(session, schedulerJob, end);
+				first = commandLogJob.getCommandLogJobId();
+				var commandLogAction = createAction(session, commandLogJob, schedulerAction, 0);
+				save(session, message(commandLogAction, 0, "first"));
+				save(session, message(commandLogAction, 1, "second"));
+				createAction(session, commandLogJob, schedulerAction, 1);
+				// messages of this one are in the log store
+				commandLogAction = createAction(session, commandLogJob, schedulerAction, 2);
+				stored = commandLogAction.getCommandLogActionId();
+				logStore.begin(commandLogAction);
+				logStore.append(stored, message(commandLogAction, 0, "stored"));
+				logStore.finish(commandLogAction);
+				save(session, commandLogAction);
+
+				commandLogJob = createJob(session, schedulerJob, end);
+				second = commandLogJob.getCommandLogJobId();
+				save(session, message(createAction(session, commandLogJob, schedulerAction, 0), 0, "next"));
+
+				// still running
+				createAction(session, createJob(session, schedulerJob, null), schedulerAction, 0);
+			}
+
+			var servlet = new CommandLogExportServlet();
+			servlet.db = db;
+			servlet.logStore = logStore;
+
+			var lines = export(servlet, Map.of());
+			assertEquals(List.of(CommandLogJob.NAME, CommandLogAction.NAME, CommandLogMessage.NAME, CommandLogMessage.NAME, CommandLogAction.NAME,
+					CommandLogAction.NAME, CommandLogMessage.NAME, CommandLogJob.NAME, CommandLogAction.NAME, CommandLogMessage.NAME, "export"), types(lines));
+			assertEquals(first, lines.get(0).getInt(CommandLogJob.ID));
+			assertEquals("export", lines.get(0).getString("schedulerJobName"));
+			assertEquals("first", lines.get(2).getString("message"));
+			assertEquals("second", lines.get(3).getString("message"));
+			assertEquals(stored, lines.get(6).getInt(CommandLogAction.ID));
+			assertEquals("stored", lines.get(6).getString("message"));
+			assertEquals(second, lines.get(7).getInt(CommandLogJob.ID));
+			var summary = lines.get(lines.size() - 1);
+			assertEquals(second, summary.getInt("lastCommandLogJobId"));
+			assertEquals(2, summary.getInt("commandLogJobCount"));
+			assertEquals(4, summary.getInt("commandLogActionCount"));
+			assertEquals(4, summary.getInt("commandLogMessageCount"));
+
+			// resuming skips the runs already received
+			lines = export(servlet, Map.of("after", String.valueOf(first)));
+			assertEquals(List.of(CommandLogJob.NAME, CommandLogAction.NAME, CommandLogMessage.NAME, "export"), types(lines));
+			assertEquals(second, lines.get(0).getInt(CommandLogJob.ID));
+			assertEquals("next", lines.get(2).getString("message"));
+			assertEquals(1, lines.get(3).getInt("commandLogJobCount"));
+
+			lines = export(servlet, Map.of("after", String.valueOf(second)));
+			assertEquals(List.of("export"), types(lines));
+			assertEquals(second, lines.get(0).getInt("lastCommandLogJobId"));
+		}
+	}
+
+	@Test
+	public void exportChunks() throws Exception {
+		try (var db = new DatabaseServiceH2(new SettingService() {})) {
+			var commandLogJobIds = new ArrayList<Integer>();
+			try (var session = db.openSession()) {
+				var schedulerJob = getById(SchedulerJob.class, session, save(session, new SchedulerJob()));
+				for (int i = 0; i < 250; i++) {
+					commandLogJobIds.add(createJob(session, schedulerJob, LocalDateTime.now()).getCommandLogJobId());
+				}
+			}
+
+			var servlet = new CommandLogExportServlet();
+			servlet.db = db;
+			var lines = export(servlet, Map.of("after", String.valueOf(commandLogJobIds.get(9))));
+			assertEquals(241, lines.size());
+			for (int i = 0; i < 240; i++) {
+				assertEquals((int) commandLogJobIds.get(i + 10), lines.get(i).getInt(CommandLogJob.ID));
+			}
+			assertEquals(240, lines.get(240).getInt("commandLogJobCount"));
+			assertEquals((int) commandLogJobIds.get(249), lines.get(240).getInt("lastCommandLogJobId"));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2021 Max Run Software (dev@maxrunsoftware.com)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.maxrunsoftware.jezel.web;
+
+import static com.maxrunsoftware.jezel.Util.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.maxrunsoftware.jezel.DatabaseService;
+import com.maxrunsoftware.jezel.SchedulerService;
+import com.maxrunsoftware.jezel.SettingService;
+import com.maxrunsoftware.jezel.TestBase;
+import com.maxrunsoftware.jezel.model.CommandLogAction;
+import com.maxrunsoftware.jezel.model.CommandLogJob;
+import com.maxrunsoftware.jezel.model.CommandLogMessage;
+import com.maxrunsoftware.jezel.model.SchedulerAction;
+import com.maxrunsoftware.jezel.model.SchedulerJob;
+import com.maxrunsoftware.jezel.service.DatabaseServiceH2;
+import com.maxrunsoftware.jezel.service.LogStoreServiceSegment;
+import com.maxrunsoftware.jezel.service.StatsServiceSql;
+
+public class DataServiceLocalTest extends TestBase {
+
+	private DatabaseService db;
+	private List<Integer> synced;
+	private DataService data;
+
+	@Before
+	public void setUp() {
+		db = new DatabaseServiceH2(new SettingService() {});
+		synced = new ArrayList<Integer>();
+		data = new DataServiceLocal(new SettingService() {}, db, new SchedulerService() {
+			@Override
+			public void start(boolean joinThread) {}
+
+			@Override
+			public void stop() {}
+
+			@Override
+			public void sync(int schedulerJobId) {
+				synced.add(schedulerJobId);
+			}
+
+			@Override
+			public void syncAll() {}
+		}, new LogStoreServiceSegment(new SettingService() {}, db), new StatsServiceSql(new SettingService() {}, db));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Test
+	public void test() throws Exception {
+		int schedulerJobId;
+		try (var session = db.openSession()) {
+			var schedulerJob = new SchedulerJob();
+			schedulerJob.setName("job");
+			schedulerJobId = save(session, schedulerJob);
+		}
+
+		var schedulerScheduleId = data.addSchedulerSchedule(schedulerJobId, true, false, false, false, false, false, true, 4, 30, false);
+		data.updateSchedulerJob(schedulerJobId, "renamed", null, true);
+		assertEquals(List.of(schedulerJobId, schedulerJobId), synced);
+
+		var schedulerJobs = DataService.join(data.getSchedulerJobAsync(null));
+		assertEquals(1, schedulerJobs.size());
+		var schedulerJob = schedulerJobs.get(0);
+		assertEquals("renamed", schedulerJob.getName());
+		assertTrue(schedulerJob.isDisabled());
+		assertEquals(1, schedulerJob.getSchedulerSchedules().size());
+
+		var schedulerSchedules = data.getSchedulerSchedule(schedulerJobId, null);
+		assertEquals(1, schedulerSchedules.size());
+		assertEquals(schedulerScheduleId, schedulerSchedules.get(0).getSchedulerScheduleId());
+		assertEquals(30, schedulerSchedules.get(0).getMinute());
+		assertEquals(schedulerJobId, schedulerSchedules.get(0).getSchedulerJob().getSchedulerJobId());
+
+		data.deleteSchedulerSchedule(schedulerScheduleId);
+		assertEquals(0, data.getSchedulerSchedule(schedulerJobId, null).size());
+		assertEquals(0, data.getSchedulerJob(schedulerJobId).get(0).getSchedulerSchedules().size());
+	}
+
+	@Test
+	public void commandLogJob() throws Exception {
+		var start = LocalDateTime.now().withNano(0);
+		var schedulerJobIds = new ArrayList<Integer>();
+		var commandLogJobIds = new ArrayList<Integer>();
+		try (var session = db.openSession()) {
+			for (int i = 0; i < 2; i++) {
+				var schedulerJob = new SchedulerJob();
+				schedulerJob.setName("job" + i);
+				schedulerJob = getById(SchedulerJob.class, session, save(session, schedulerJob));
+				schedulerJobIds.add(schedulerJob.getSchedulerJobId());
+				var schedulerAction = new SchedulerAction();
+				schedulerAction.setName("SqlQuery");
+				schedulerAction.setSchedulerJob(schedulerJob);
+				schedulerAction = getById(SchedulerAction.class, session, save(session, schedulerAction));
+				for (int ii = 0; ii < 2; ii++) {
+					var commandLogJob = new CommandLogJob();
+					commandLogJob.setSchedulerJob(schedulerJob);
+					commandLogJob.setStart(start.plusMinutes(ii));
+					commandLogJob.setEnd(start.plusMinutes(ii).plusSeconds(1));
+					commandLogJob = getById(CommandLogJob.class, session, save(session, commandLogJob));
+					commandLogJobIds.add(commandLogJob.getCommandLogJobId());
+					var commandLogAction = new CommandLogAction();
+					commandLogAction.setCommandLogJob(commandLogJob);
+					commandLogAction.setSchedulerAction(schedulerAction);
+					commandLogAction.setName(schedulerAction.getName());
+					commandLogAction.setStart(commandLogJob.getStart());
+					commandLogAction = getById(CommandLogAction.class, session, save(session, commandLogAction));
+					var commandLogMessage = new CommandLogMessage();
+					commandLogMessage.setCommandLogAction(commandLogAction);
+					commandLogMessage.setLevel("INFO");
+					commandLogMessage.setTimestamp(commandLogJob.getStart());
+					commandLogMessage.setMessage("message" + i + ii);
+					save(session, commandLogMessage);
+				}
+			}
+		}
+
+		assertEquals(4, data.getCommandLogJob(null, null).size());
+
+		var commandLogJobs = data.getCommandLogJob(null, schedulerJobIds.get(1));
+		assertEquals(2, commandLogJobs.size());
+		for (var commandLogJob : commandLogJobs) {
+			// read after the session is closed
+			assertEquals("job1", commandLogJob.getSchedulerJob().getName());
+			assertEquals(1, commandLogJob.getCommandLogActions().size());
+			var commandLogAction = commandLogJob.getCommandLogActions().iterator().next();
+			assertEquals("SqlQuery", commandLogAction.getSchedulerAction().getName());
+			assertEquals(1, commandLogAction.getCommandLogMessages().size());
+		}
+
+		commandLogJobs = data.getCommandLogJob(commandLogJobIds.get(0), null);
+		assertEquals(1, commandLogJobs.size());
+		var commandLogMessage = commandLogJobs.get(0).getCommandLogActions().iterator().next().getCommandLogMessages().iterator().next();
+		assertEquals("message00", commandLogMessage.getMessage());
+
+		assertEquals(0, data.getCommandLogJob(Integer.MAX_VALUE, null).size());
+	}
+
+}